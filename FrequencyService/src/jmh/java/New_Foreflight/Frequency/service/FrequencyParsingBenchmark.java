@@ -0,0 +1,45 @@
+package New_Foreflight.Frequency.service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.ClassPathResource;
+
+/**
+ * Measures parsing the frequencies out of an AirportDB airport response, done on every cache miss or refresh.
+ *
+ * The fixture is a full airport document for a large airport, with its runways, navaids and twenty frequencies, since
+ * the whole document is parsed to reach the frequencies.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FrequencyParsingBenchmark {
+
+    private String payload;
+
+    @Setup
+    public void loadFixture() throws IOException {
+        payload = new ClassPathResource("fixtures/airportdb-klax.json").getContentAsString(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public HashMap<String, String> parseFrequencies() {
+        return FrequencyService.parseFrequencies(payload);
+    }
+}
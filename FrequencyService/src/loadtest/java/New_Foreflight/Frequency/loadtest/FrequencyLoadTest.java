@@ -0,0 +1,86 @@
+package New_Foreflight.Frequency.loadtest;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.io.ClassPathResource;
+
+import com.google.common.collect.ImmutableMap;
+
+import New_Foreflight.Frequency.FrequencyServiceApplication;
+
+/**
+ * Load test of the frequency service against a local stand-in for AirportDB, so that cache, pooling and concurrency
+ * changes can be measured without an API token or quota:
+ *
+ * mvn -Pload-test verify -DskipTests -Dloadtest.args="--loadtest.airports=10000 --frequency.cache.max-size=5000"
+ *
+ * The service runs in this JVM with its own configuration, except that AirportDB points at the stub, which answers
+ * every airport with the recorded KLAX document under the requested code. An upstream-error-status of 404 exercises
+ * the negative cache, since AirportDB answers unknown airports with a 404. The rate limiter is lifted by default, since
+ * the stub needs no protection and waiting for permits would hide the rest of the request path; pass
+ * upstream.resilience.permits-per-second to measure with it.
+ */
+public final class FrequencyLoadTest {
+
+    private static final String AIRPORTDB_PATH = "/api/v1/airport/{code}?apiToken={token}&key={key}";
+
+    private FrequencyLoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestSettings settings = LoadTestSettings.parse(args, Map.of());
+        String airport = new ClassPathResource("fixtures/airportdb-klax.json").getContentAsString(StandardCharsets.UTF_8);
+
+        try (StubUpstream stub = new StubUpstream(settings)
+                .route("/api/v1/airport/**",
+                        uri -> StubUpstream.Response.text("application/json",
+                                airport.replace("KLAX", uri.getPath().substring(uri.getPath().lastIndexOf('/') + 1))))
+                .start();
+                ConfigurableApplicationContext context = SpringApplication.run(FrequencyServiceApplication.class,
+                        settings.serviceArgs(serviceDefaults(stub.port())))) {
+            String baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+            List<String> pool = pool(settings);
+            LoadDriver.Popularity popularity = new LoadDriver.Popularity(pool.size(), settings.doubleValue("skew"));
+            List<LoadDriver.Result> results = new LoadDriver(baseUrl, settings)
+                    .run(List.of(new LoadDriver.Endpoint("getAirportFrequencies",
+                            random -> "/api/v1/getAirportFrequencies?airportCode="
+                                    + pool.get(popularity.next(random)))),
+                            stub::requestCount);
+
+            LoadReport.report("FrequencyService", settings, results, stub);
+        }
+    }
+
+    private static Map<String, String> serviceDefaults(int stubPort) {
+        return ImmutableMap.<String, String>builder()
+                .put("server.port", "0")
+                .put("airportdb.api.url", "http://localhost:" + stubPort + AIRPORTDB_PATH)
+                .put("airportdb.api.token", "load-test")
+                .put("airportdb.api.key", "load-test")
+                .put("upstream.resilience.permits-per-second", "1000000")
+                .put("upstream.resilience.burst", "1000000")
+                .build();
+    }
+
+    /**
+     * Picks the airport codes requested during the run, in order of popularity, from the codes K followed by three
+     * letters.
+     */
+    private static List<String> pool(LoadTestSettings settings) {
+        List<String> codes = new ArrayList<>();
+
+        for (char first = 'A'; first <= 'Z'; first++)
+            for (char second = 'A'; second <= 'Z'; second++)
+                for (char third = 'A'; third <= 'Z'; third++)
+                    codes.add("K" + first + second + third);
+        Collections.shuffle(codes, new Random(settings.longValue("seed")));
+        return codes.subList(0, Math.min(settings.intValue("airports"), codes.size()));
+    }
+}
@@ -0,0 +1,86 @@
+package New_Foreflight.Frequency.loadtest;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.HdrHistogram.Histogram;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * Summary of a load test run: throughput and latency percentiles per endpoint, and the requests each upstream route of
+ * the stub received. Printed as a table and written as JSON, so that runs before and after a change can be compared.
+ */
+final class LoadReport {
+
+    record EndpointSummary(@JsonProperty("endpoint") String endpoint, @JsonProperty("requests") long requests,
+            @JsonProperty("errors") long errors, @JsonProperty("throughput_per_second") double throughput,
+            @JsonProperty("p50_ms") double p50, @JsonProperty("p99_ms") double p99,
+            @JsonProperty("p999_ms") double p999, @JsonProperty("max_ms") double max,
+            @JsonProperty("upstream_requests") long upstreamRequests) {
+
+        static EndpointSummary of(LoadDriver.Result result) {
+            Histogram latencies = result.latenciesMicros();
+
+            return new EndpointSummary(result.name(), result.requests(), result.errors(), result.throughput(),
+                    millis(latencies, 50), millis(latencies, 99), millis(latencies, 99.9),
+                    latencies.getMaxValue() / 1000.0, result.upstreamRequests());
+        }
+
+        private static double millis(Histogram latencies, double percentile) {
+            return latencies.getValueAtPercentile(percentile) / 1000.0;
+        }
+    }
+
+    record UpstreamRoute(@JsonProperty("requests") long requests,
+            @JsonProperty("injected_errors") long injectedErrors) {
+    }
+
+    record Run(@JsonProperty("service") String service, @JsonProperty("settings") Map<String, String> settings,
+            @JsonProperty("endpoints") List<EndpointSummary> endpoints,
+            @JsonProperty("upstream") Map<String, UpstreamRoute> upstream) {
+    }
+
+    private LoadReport() {
+    }
+
+    static void report(String service, LoadTestSettings settings, List<LoadDriver.Result> results, StubUpstream stub)
+            throws IOException {
+        Map<String, UpstreamRoute> upstream = new LinkedHashMap<>();
+
+        stub.routeCounts().forEach((route, counts) -> upstream.put(route, new UpstreamRoute(counts[0], counts[1])));
+
+        Run run = new Run(service, settings.options(), results.stream().map(EndpointSummary::of).toList(), upstream);
+
+        print(run);
+
+        Path resultFile = settings.resultFile();
+
+        if (resultFile.getParent() != null)
+            Files.createDirectories(resultFile.getParent());
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(resultFile.toFile(), run);
+        System.out.println("Results written to " + resultFile.toAbsolutePath());
+    }
+
+    private static void print(Run run) {
+        System.out.printf("%n%s load test%n%n", run.service());
+        System.out.printf("%-28s %9s %7s %10s %9s %9s %9s %9s %10s%n", "Endpoint", "Requests", "Errors", "Req/s",
+                "p50 ms", "p99 ms", "p999 ms", "Max ms", "Upstream");
+
+        for (EndpointSummary summary : run.endpoints())
+            System.out.printf("%-28s %9d %7d %10.1f %9.2f %9.2f %9.2f %9.2f %10d%n", summary.endpoint(),
+                    summary.requests(), summary.errors(), summary.throughput(), summary.p50(), summary.p99(),
+                    summary.p999(), summary.max(), summary.upstreamRequests());
+
+        System.out.printf("%n%-44s %9s %9s%n", "Upstream route", "Requests", "Injected");
+        run.upstream().forEach((route, counts) -> System.out.printf("%-44s %9d %9d%n", route, counts.requests(),
+                counts.injectedErrors()));
+        System.out.println();
+    }
+}
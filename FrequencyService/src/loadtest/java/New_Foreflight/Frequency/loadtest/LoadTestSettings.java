@@ -0,0 +1,130 @@
+package New_Foreflight.Frequency.loadtest;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Options of a load test run, given on the command line as --loadtest.name=value.
+ *
+ * Every other argument is passed on to the service under test, where it overrides the defaults the suite sets, so any
+ * property of the service can be changed for a run.
+ */
+final class LoadTestSettings {
+
+    private static final String PREFIX = "--loadtest.";
+
+    private static final Map<String, String> DEFAULTS = ImmutableMap.<String, String>builder()
+            .put("duration-seconds", "20")
+            .put("warmup-seconds", "5")
+            // Number of clients, each sending its next request as soon as the previous one completes.
+            .put("concurrency", "32")
+            .put("upstream-latency-ms", "40")
+            .put("upstream-jitter-ms", "20")
+            // Fraction of upstream requests answered with upstream-error-status instead.
+            .put("upstream-error-rate", "0")
+            .put("upstream-error-status", "503")
+            // Number of distinct airports requested, with popularity following a Zipf distribution of this skew.
+            .put("airports", "2000")
+            .put("skew", "1.0")
+            .put("seed", "1")
+            // Comma-separated endpoint names to run; all when empty.
+            .put("endpoints", "")
+            .put("result-file", "target/loadtest-result.json")
+            .build();
+
+    private final Map<String, String> options;
+    private final List<String> serviceArgs;
+
+    private LoadTestSettings(Map<String, String> options, List<String> serviceArgs) {
+        this.options = options;
+        this.serviceArgs = serviceArgs;
+    }
+
+    /**
+     * Parses the command line, where the suite's own options, given with their defaults, are accepted besides the
+     * common ones.
+     */
+    static LoadTestSettings parse(String[] args, Map<String, String> suiteDefaults) {
+        Map<String, String> options = new LinkedHashMap<>(DEFAULTS);
+        List<String> serviceArgs = new ArrayList<>();
+
+        options.putAll(suiteDefaults);
+        for (String arg : args) {
+            if (!arg.startsWith(PREFIX)) {
+                serviceArgs.add(arg);
+                continue;
+            }
+            int separator = arg.indexOf('=');
+            String name = arg.substring(PREFIX.length(), separator < 0 ? arg.length() : separator);
+
+            if (!options.containsKey(name))
+                throw new IllegalArgumentException("Unknown option " + arg + ", expected one of " + options.keySet());
+            options.put(name, separator < 0 ? "true" : arg.substring(separator + 1));
+        }
+        return new LoadTestSettings(options, serviceArgs);
+    }
+
+    Map<String, String> options() {
+        return options;
+    }
+
+    int intValue(String name) {
+        return Integer.parseInt(get(name));
+    }
+
+    long longValue(String name) {
+        return Long.parseLong(get(name));
+    }
+
+    double doubleValue(String name) {
+        return Double.parseDouble(get(name));
+    }
+
+    Duration seconds(String name) {
+        return Duration.ofSeconds(longValue(name));
+    }
+
+    Path resultFile() {
+        return Path.of(get("result-file"));
+    }
+
+    /**
+     * Returns whether the endpoint was selected to run.
+     */
+    boolean includes(String endpoint) {
+        Set<String> selected = Arrays.stream(get("endpoints").split(",")).map(String::trim)
+                .filter(name -> !name.isEmpty()).collect(Collectors.toSet());
+
+        return selected.isEmpty() || selected.contains(endpoint);
+    }
+
+    /**
+     * Returns the arguments to start the service with: the given defaults, except those the command line overrides,
+     * followed by the command line arguments. Spring joins repeated arguments into a list rather than letting the last
+     * one win, so a default must be dropped rather than overridden.
+     */
+    String[] serviceArgs(Map<String, String> defaults) {
+        Set<String> overridden = serviceArgs.stream().map(arg -> arg.split("=", 2)[0]).collect(Collectors.toSet());
+        List<String> result = new ArrayList<>();
+
+        defaults.forEach((name, value) -> {
+            if (!overridden.contains("--" + name))
+                result.add("--" + name + "=" + value);
+        });
+        result.addAll(serviceArgs);
+        return result.toArray(String[]::new);
+    }
+
+    private String get(String name) {
+        return options.get(name);
+    }
+}
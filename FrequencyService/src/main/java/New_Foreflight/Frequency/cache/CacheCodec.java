@@ -0,0 +1,65 @@
+package New_Foreflight.Frequency.cache;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Function;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Converts cached values to and from the bytes kept in a {@link SharedCacheStore}.
+ */
+public interface CacheCodec<V> {
+
+    byte[] encode(V value);
+
+    V decode(byte[] bytes);
+
+    /**
+     * Returns a codec for values of type T that are stored as this codec's type.
+     */
+    default <T> CacheCodec<T> map(Function<T, V> toStored, Function<V, T> fromStored) {
+        CacheCodec<V> stored = this;
+
+        return new CacheCodec<T>() {
+            @Override
+            public byte[] encode(T value) {
+                return stored.encode(toStored.apply(value));
+            }
+
+            @Override
+            public T decode(byte[] bytes) {
+                return fromStored.apply(stored.decode(bytes));
+            }
+        };
+    }
+
+    /**
+     * Returns a codec that stores values as JSON. Unknown properties are ignored so that entries written by other
+     * versions of the service can still be read.
+     */
+    static <V> CacheCodec<V> json(Class<V> type) {
+        ObjectMapper mapper = new ObjectMapper().disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+        return new CacheCodec<V>() {
+            @Override
+            public byte[] encode(V value) {
+                try {
+                    return mapper.writeValueAsBytes(value);
+                } catch (IOException exception) {
+                    throw new UncheckedIOException(exception);
+                }
+            }
+
+            @Override
+            public V decode(byte[] bytes) {
+                try {
+                    return mapper.readValue(bytes, type);
+                } catch (IOException exception) {
+                    throw new UncheckedIOException(exception);
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,55 @@
+package New_Foreflight.Frequency.cache;
+
+import java.time.Duration;
+
+/**
+ * Optional second cache tier shared by all replicas of the service, e.g. backed by Redis or Memcached.
+ *
+ * Values are opaque bytes produced by a {@link CacheCodec}. Implementations should treat failures as misses rather than
+ * throw, since the shared tier is only an optimization over the upstream APIs.
+ */
+public interface SharedCacheStore {
+
+    /**
+     * A stored value and when it was written.
+     */
+    record Entry(byte[] value, long writtenAtMillis) {
+    }
+
+    /**
+     * Returns the entry stored under the key, or null if there is none or it has expired.
+     */
+    Entry get(String key);
+
+    void put(String key, byte[] value, Duration timeToLive);
+
+    void invalidate(String key);
+
+    /**
+     * Returns a store that holds nothing, used when no shared store is configured.
+     */
+    static SharedCacheStore none() {
+        return NoSharedCacheStore.INSTANCE;
+    }
+
+    final class NoSharedCacheStore implements SharedCacheStore {
+
+        private static final NoSharedCacheStore INSTANCE = new NoSharedCacheStore();
+
+        private NoSharedCacheStore() {
+        }
+
+        @Override
+        public Entry get(String key) {
+            return null;
+        }
+
+        @Override
+        public void put(String key, byte[] value, Duration timeToLive) {
+        }
+
+        @Override
+        public void invalidate(String key) {
+        }
+    }
+}
@@ -0,0 +1,358 @@
+package New_Foreflight.Frequency.cache;
+
+import java.time.Duration;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Two-tier cache keyed by string.
+ *
+ * The first tier is an in-process Caffeine cache, bounded by size with W-TinyLFU eviction. The second tier is an
+ * optional {@link SharedCacheStore} shared by all replicas, so that a value loaded from an upstream by one replica is
+ * reused by the others instead of costing each of them an upstream call.
+ *
+ * A local miss reads the shared tier before falling back to the loader, and loaded values are written to both tiers.
+ * Concurrent misses for the same key wait on a single load. With refresh-after-write, an entry accessed after the
+ * refresh interval is reloaded in the background while the old value keeps being served; shared entries older than the
+ * refresh interval are ignored so that a refresh does not just pick up the entry it is meant to replace.
+ *
+ * Entries expire a fixed time after they are written, or after a time to live computed from each value, in both tiers.
+ * Optionally the last value of each key is kept for longer, and served marked as stale when loading a fresh one fails,
+ * so that callers keep getting data while the upstream is unavailable.
+ *
+ * Bound to a meter registry, the cache reports the statistics of the in-process tier, its hit ratio, shared tier hits
+ * and misses, and the number of stale values served, all tagged with the cache's name.
+ */
+public final class TieredCache<V> implements MeterBinder {
+
+    /**
+     * Loads a value from the upstream. Returning null caches nothing; exceptions reach the caller of
+     * {@link TieredCache#get}, checked ones wrapped in a CompletionException.
+     */
+    @FunctionalInterface
+    public interface Loader<V> {
+
+        V load(String key) throws Exception;
+    }
+
+    /**
+     * A value, and whether it is a stale copy served because loading a fresh one failed.
+     */
+    public record Lookup<V> (V value, boolean stale) {
+    }
+
+    private static final long STALE_REPORT_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final String name;
+    private final Cache<String, V> local;
+    private final LoadingCache<String, V> loading;
+    // Last value of each key, kept past expiry to serve when a load fails. Null unless stale values are served.
+    private final Cache<String, V> lastKnown;
+    private final SharedCacheStore shared;
+    private final CacheCodec<V> codec;
+    private final Function<V, Duration> timeToLive;
+    // Shared entries older than this are treated as misses.
+    private final long sharedMaxAgeMillis;
+    private final LongAdder sharedHits = new LongAdder();
+    private final LongAdder sharedMisses = new LongAdder();
+    private final LongAdder staleServed = new LongAdder();
+    private final AtomicLong staleReportedAt = new AtomicLong(System.nanoTime() - STALE_REPORT_INTERVAL_NANOS);
+
+    private TieredCache(Builder<V> builder, Loader<V> loader) {
+        Caffeine<Object, Object> caffeine = Caffeine.newBuilder().maximumSize(builder.maximumSize).recordStats();
+        Function<V, Duration> timeToLive = builder.variableTimeToLive;
+
+        if (timeToLive == null) {
+            Duration fixed = builder.timeToLive;
+
+            caffeine.expireAfterWrite(fixed);
+            timeToLive = value -> fixed;
+        } else {
+            caffeine.expireAfter(variableExpiry(timeToLive));
+        }
+
+        if (builder.executor != null)
+            caffeine.executor(builder.executor);
+
+        if (loader != null && builder.refreshInterval != null)
+            caffeine.refreshAfterWrite(builder.refreshInterval);
+        name = builder.name;
+        shared = builder.shared;
+        codec = builder.codec;
+        this.timeToLive = timeToLive;
+        // With a variable time to live, shared entries are only bounded by their own expiry in the shared store.
+        sharedMaxAgeMillis = loader != null && builder.refreshInterval != null ? builder.refreshInterval.toMillis()
+                : builder.variableTimeToLive == null ? builder.timeToLive.toMillis() : Long.MAX_VALUE;
+
+        lastKnown = builder.staleWindow == null ? null
+                : Caffeine.newBuilder().maximumSize(builder.maximumSize).expireAfterWrite(builder.staleWindow).build();
+
+        if (loader == null) {
+            loading = null;
+            local = caffeine.build();
+        } else {
+            loading = caffeine.build(new CacheLoader<String, V>() {
+                @Override
+                public V load(String key) throws Exception {
+                    V value = readShared(key);
+
+                    if (value == null) {
+                        value = loader.load(key);
+
+                        if (value != null)
+                            writeShared(key, value);
+                    }
+
+                    if (value != null && lastKnown != null)
+                        lastKnown.put(key, value);
+                    return value;
+                }
+            });
+            local = loading;
+        }
+    }
+
+    // Recomputes the time to live whenever a value is written, including by a refresh.
+    private static <V> Expiry<Object, Object> variableExpiry(Function<V, Duration> timeToLive) {
+        return new Expiry<Object, Object>() {
+            @SuppressWarnings("unchecked")
+            @Override
+            public long expireAfterCreate(Object key, Object value, long currentTime) {
+                return timeToLive.apply((V) value).toNanos();
+            }
+
+            @SuppressWarnings("unchecked")
+            @Override
+            public long expireAfterUpdate(Object key, Object value, long currentTime, long currentDuration) {
+                return timeToLive.apply((V) value).toNanos();
+            }
+
+            @Override
+            public long expireAfterRead(Object key, Object value, long currentTime, long currentDuration) {
+                return currentDuration;
+            }
+        };
+    }
+
+    public static <V> Builder<V> builder(String name, CacheCodec<V> codec) {
+        return new Builder<>(name, codec);
+    }
+
+    /**
+     * Returns the cached value, loading it on a miss. Returns null if the loader has no value for the key.
+     */
+    public V get(String key) {
+        if (loading == null)
+            throw new IllegalStateException("Cache " + name + " has no loader");
+        return loading.get(key);
+    }
+
+    /**
+     * Returns the cached value, loading it on a miss. If loading fails, returns the last value held for the key marked
+     * as stale, or rethrows if there is none. The value is null if the loader has no value for the key.
+     */
+    public Lookup<V> getOrStale(String key) {
+        try {
+            return new Lookup<>(get(key), false);
+        } catch (RuntimeException exception) {
+            V last = lastKnown == null ? null : lastKnown.getIfPresent(key);
+
+            if (last == null)
+                throw exception;
+            staleServed.increment();
+            reportStale(key, exception);
+            return new Lookup<>(last, true);
+        }
+    }
+
+    // Logs at most one stale serve per interval, since an outage serves stale on every request; cache.stale.served
+    // counts them all.
+    private void reportStale(String key, RuntimeException exception) {
+        long now = System.nanoTime();
+        long last = staleReportedAt.get();
+
+        if (now - last >= STALE_REPORT_INTERVAL_NANOS && staleReportedAt.compareAndSet(last, now))
+            System.err.println("Serving stale " + sharedKey(key) + " (" + staleServed.sum()
+                    + " stale served in total): " + exception.getMessage());
+    }
+
+    /**
+     * Returns the value from either tier without loading it, or null if neither has it.
+     */
+    public V getIfPresent(String key) {
+        V value = local.getIfPresent(key);
+
+        if (value != null)
+            return value;
+        value = readShared(key);
+
+        if (value != null)
+            local.put(key, value);
+        return value;
+    }
+
+    public void put(String key, V value) {
+        local.put(key, value);
+
+        if (lastKnown != null)
+            lastKnown.put(key, value);
+        writeShared(key, value);
+    }
+
+    public void invalidate(String key) {
+        local.invalidate(key);
+
+        if (lastKnown != null)
+            lastKnown.invalidate(key);
+        shared.invalidate(sharedKey(key));
+    }
+
+    /**
+     * Returns the in-process tier, e.g. to bind its statistics to metrics.
+     */
+    public Cache<String, V> local() {
+        return local;
+    }
+
+    /**
+     * Returns the fraction of in-process lookups served without a load since the cache was created, or NaN before the
+     * first lookup.
+     */
+    public double hitRatio() {
+        CacheStats stats = local.stats();
+
+        return stats.requestCount() == 0 ? Double.NaN : stats.hitRate();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, local, name);
+        Gauge.builder("cache.hit.ratio", this, TieredCache::hitRatio).tag("cache", name).register(registry);
+        FunctionCounter.builder("cache.shared.gets", sharedHits, LongAdder::sum).tags("cache", name, "result", "hit")
+                .register(registry);
+        FunctionCounter.builder("cache.shared.gets", sharedMisses, LongAdder::sum).tags("cache", name, "result", "miss")
+                .register(registry);
+        FunctionCounter.builder("cache.stale.served", staleServed, LongAdder::sum).tag("cache", name)
+                .register(registry);
+    }
+
+    private String sharedKey(String key) {
+        return name + ":" + key;
+    }
+
+    private V readShared(String key) {
+        try {
+            SharedCacheStore.Entry entry = shared.get(sharedKey(key));
+
+            if (entry == null || System.currentTimeMillis() - entry.writtenAtMillis() > sharedMaxAgeMillis) {
+                sharedMisses.increment();
+                return null;
+            }
+            sharedHits.increment();
+            return codec.decode(entry.value());
+        } catch (RuntimeException exception) {
+            System.err.println("Unable to read " + sharedKey(key) + " from shared cache: " + exception.getMessage());
+            return null;
+        }
+    }
+
+    private void writeShared(String key, V value) {
+        try {
+            shared.put(sharedKey(key), codec.encode(value), timeToLive.apply(value));
+        } catch (RuntimeException exception) {
+            System.err.println("Unable to write " + sharedKey(key) + " to shared cache: " + exception.getMessage());
+        }
+    }
+
+    public static final class Builder<V> {
+
+        private final String name;
+        private final CacheCodec<V> codec;
+        private long maximumSize = 10_000;
+        private Duration timeToLive = Duration.ofMinutes(5);
+        private Function<V, Duration> variableTimeToLive;
+        private Duration refreshInterval;
+        private SharedCacheStore shared = SharedCacheStore.none();
+        private Executor executor;
+        private Duration staleWindow;
+
+        private Builder(String name, CacheCodec<V> codec) {
+            this.name = name;
+            this.codec = codec;
+        }
+
+        public Builder<V> maximumSize(long maximumSize) {
+            this.maximumSize = maximumSize;
+            return this;
+        }
+
+        public Builder<V> expireAfterWrite(Duration timeToLive) {
+            this.timeToLive = timeToLive;
+            return this;
+        }
+
+        /**
+         * Expires each entry after the time to live computed from its value when it is written, instead of a fixed
+         * time.
+         */
+        public Builder<V> expireAfter(Function<V, Duration> timeToLive) {
+            this.variableTimeToLive = timeToLive;
+            return this;
+        }
+
+        /**
+         * Reloads entries accessed more than the interval after they were written. Only applies to caches with a
+         * loader, and must be shorter than the time to live to have an effect.
+         */
+        public Builder<V> refreshAfterWrite(Duration refreshInterval) {
+            this.refreshInterval = refreshInterval;
+            return this;
+        }
+
+        public Builder<V> shared(SharedCacheStore shared) {
+            this.shared = shared;
+            return this;
+        }
+
+        /**
+         * Executor for background refreshes, the common pool by default.
+         */
+        public Builder<V> executor(Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        /**
+         * Keeps the last value of each key for the given time after it was written, to be served by
+         * {@link TieredCache#getOrStale} when loading a fresh value fails.
+         */
+        public Builder<V> serveStaleFor(Duration staleWindow) {
+            this.staleWindow = staleWindow;
+            return this;
+        }
+
+        public TieredCache<V> build(Loader<V> loader) {
+            return new TieredCache<>(this, loader);
+        }
+
+        public TieredCache<V> build() {
+            return new TieredCache<>(this, null);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package New_Foreflight.Frequency.config;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+/**
+ * Caps the number of in-flight requests to each upstream host.
+ *
+ * Requests over the limit wait for a permit up to the given timeout and then fail rather than piling up behind a slow
+ * upstream. The permit is held until the response is closed, so that reading the body counts as in flight, and is
+ * released at once if the request fails.
+ */
+public class HostConcurrencyLimitInterceptor implements ClientHttpRequestInterceptor {
+
+    private final ConcurrentHashMap<String, Semaphore> permitsByHost = new ConcurrentHashMap<>();
+    private final int maxRequestsPerHost;
+    private final Duration acquireTimeout;
+
+    public HostConcurrencyLimitInterceptor(int maxRequestsPerHost, Duration acquireTimeout) {
+        this.maxRequestsPerHost = maxRequestsPerHost;
+        this.acquireTimeout = acquireTimeout;
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+            throws IOException {
+        String host = request.getURI().getHost();
+        Semaphore permits = permitsByHost.computeIfAbsent(host == null ? "" : host,
+                key -> new Semaphore(maxRequestsPerHost));
+
+        try {
+            if (!permits.tryAcquire(acquireTimeout.toMillis(), TimeUnit.MILLISECONDS))
+                throw new IOException("Too many concurrent requests to " + host);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted waiting for a connection to " + host, exception);
+        }
+
+        try {
+            return new PermitReleasingResponse(execution.execute(request, body), permits);
+        } catch (IOException | RuntimeException | Error exception) {
+            permits.release();
+            throw exception;
+        }
+    }
+
+    private static class PermitReleasingResponse implements ClientHttpResponse {
+
+        private final ClientHttpResponse delegate;
+        private final Semaphore permits;
+        // Responses may be closed more than once, but the permit must be released only once.
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        PermitReleasingResponse(ClientHttpResponse delegate, Semaphore permits) {
+            this.delegate = delegate;
+            this.permits = permits;
+        }
+
+        @Override
+        public HttpStatusCode getStatusCode() throws IOException {
+            return delegate.getStatusCode();
+        }
+
+        @Override
+        public String getStatusText() throws IOException {
+            return delegate.getStatusText();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return delegate.getHeaders();
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            return delegate.getBody();
+        }
+
+        @Override
+        public void close() {
+            try {
+                delegate.close();
+            } finally {
+                if (released.compareAndSet(false, true))
+                    permits.release();
+            }
+        }
+    }
+}
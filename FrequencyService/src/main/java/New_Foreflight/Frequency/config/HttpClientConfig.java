@@ -0,0 +1,135 @@
+package New_Foreflight.Frequency.config;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Shared HTTP client for the AirportDB API.
+ *
+ * A single JDK HttpClient keeps connections and TLS sessions alive between requests and negotiates HTTP/2 where the
+ * upstream supports it, multiplexing concurrent requests over one connection.
+ */
+@Configuration
+public class HttpClientConfig {
+
+    @Value("${upstream.http.connect-timeout-ms:3000}")
+    private long connectTimeoutMs;
+
+    @Value("${upstream.http.read-timeout-ms:10000}")
+    private long readTimeoutMs;
+
+    @Value("${upstream.http.max-requests-per-host:32}")
+    private int maxRequestsPerHost;
+
+    @Value("${upstream.http.keep-alive-seconds:120}")
+    private int keepAliveSeconds;
+
+    @Value("${upstream.http.gzip:true}")
+    private boolean gzipEnabled;
+
+    @Value("${upstream.resilience.permits-per-second:20}")
+    private double permitsPerSecond;
+
+    @Value("${upstream.resilience.burst:20}")
+    private int burst;
+
+    // Entries of the form host=permits-per-second, for upstreams with their own rate limit.
+    @Value("${upstream.resilience.host-permits-per-second:}")
+    private String[] hostPermitsPerSecond;
+
+    @Value("${upstream.resilience.max-wait-ms:1000}")
+    private long maxWaitMs;
+
+    @Value("${upstream.resilience.failure-threshold:5}")
+    private int failureThreshold;
+
+    @Value("${upstream.resilience.open-ms:30000}")
+    private long openMs;
+
+    @Value("${upstream.resilience.max-retries:2}")
+    private int maxRetries;
+
+    @Value("${upstream.resilience.retry-backoff-ms:200}")
+    private long retryBackoffMs;
+
+    @Value("${upstream.resilience.max-retry-backoff-ms:2000}")
+    private long maxRetryBackoffMs;
+
+    /**
+     * Completes upstream responses on virtual threads instead of the client's default cached platform thread pool. The
+     * client does not shut down an executor it was given, so the context closes it. Not a default candidate, so that it
+     * is neither injected as an ExecutorService elsewhere nor counted as the application's task executor.
+     */
+    @Bean(destroyMethod = "close", defaultCandidate = false)
+    @ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+    public ExecutorService upstreamHttpClientExecutor() {
+        return Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    @Bean
+    public HttpClient upstreamHttpClient(
+            @Qualifier("upstreamHttpClientExecutor") ObjectProvider<ExecutorService> upstreamHttpClientExecutor) {
+        // Read by the JDK connection pool when the first client is created.
+        if (System.getProperty("jdk.httpclient.keepalive.timeout") == null)
+            System.setProperty("jdk.httpclient.keepalive.timeout", String.valueOf(keepAliveSeconds));
+        HttpClient.Builder builder = HttpClient.newBuilder().version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs)).followRedirects(HttpClient.Redirect.NORMAL);
+
+        upstreamHttpClientExecutor.ifAvailable(builder::executor);
+        return builder.build();
+    }
+
+    @Bean
+    public RestTemplate restTemplate(HttpClient upstreamHttpClient,
+            UpstreamResilienceInterceptor upstreamResilienceInterceptor, MeterRegistry meterRegistry) {
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(upstreamHttpClient);
+        List<ClientHttpRequestInterceptor> interceptors = new ArrayList<>();
+        RestTemplate restTemplate = new RestTemplate(requestFactory);
+
+        requestFactory.setReadTimeout(Duration.ofMillis(readTimeoutMs));
+        // First, so that the time recorded includes every wait and retry of the interceptors after it.
+        interceptors.add(new UpstreamMetricsInterceptor(meterRegistry));
+
+        if (gzipEnabled)
+            interceptors.add(new GzipDecompressingInterceptor());
+        interceptors.add(upstreamResilienceInterceptor);
+        // After the retrying interceptor, so that each attempt takes its own permit and rate-limit waits and
+        // backoff between attempts do not hold one.
+        interceptors.add(new HostConcurrencyLimitInterceptor(maxRequestsPerHost, Duration.ofMillis(readTimeoutMs)));
+        restTemplate.setInterceptors(interceptors);
+        return restTemplate;
+    }
+
+    @Bean
+    public UpstreamResilienceInterceptor upstreamResilienceInterceptor() {
+        Map<String, Double> permitsByHost = new HashMap<>();
+
+        for (String entry : hostPermitsPerSecond) {
+            String[] hostAndRate = entry.split("=", 2);
+
+            if (hostAndRate.length == 2)
+                permitsByHost.put(hostAndRate[0].trim(), Double.parseDouble(hostAndRate[1].trim()));
+        }
+        return new UpstreamResilienceInterceptor(new UpstreamResilienceInterceptor.Settings(permitsPerSecond, burst,
+                Duration.ofMillis(maxWaitMs), failureThreshold, Duration.ofMillis(openMs), maxRetries,
+                Duration.ofMillis(retryBackoffMs), Duration.ofMillis(maxRetryBackoffMs)), permitsByHost);
+    }
+}
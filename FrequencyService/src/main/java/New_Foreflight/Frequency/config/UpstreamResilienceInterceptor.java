@@ -0,0 +1,316 @@
+package New_Foreflight.Frequency.config;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+/**
+ * Rate limits, circuit breaks and retries requests to each upstream host.
+ *
+ * Each host has a token bucket: a request takes a token, waiting up to the configured time for one, and fails with an
+ * {@link UpstreamUnavailableException} if none frees up in time. Each host also has a circuit breaker that opens after
+ * consecutive failures (I/O errors, 429 and 5xx responses), failing requests immediately while open so that callers can
+ * fall back to cached data instead of waiting on timeouts. After the open interval a single probe is let through, which
+ * closes the circuit if it succeeds and reopens it if it fails.
+ *
+ * Failed idempotent requests are retried a bounded number of times, after a backoff with full jitter or the delay the
+ * upstream asked for with Retry-After. Retries re-execute the rest of the chain, so this must be the last interceptor.
+ */
+public class UpstreamResilienceInterceptor implements ClientHttpRequestInterceptor {
+
+    private static final Set<HttpMethod> IDEMPOTENT = Set.of(HttpMethod.GET, HttpMethod.HEAD, HttpMethod.OPTIONS);
+
+    /**
+     * Limits applied to every host. A rate of zero or less disables rate limiting.
+     */
+    public record Settings(double permitsPerSecond, int burst, Duration maxWait, int failureThreshold,
+            Duration openDuration, int maxRetries, Duration retryBackoff, Duration maxRetryBackoff) {
+    }
+
+    private final ConcurrentHashMap<String, TokenBucket> bucketsByHost = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, CircuitBreaker> breakersByHost = new ConcurrentHashMap<>();
+    private final Settings settings;
+    // Rates for hosts with their own limits.
+    private final Map<String, Double> permitsPerSecondByHost;
+    private final LongSupplier nanoClock;
+
+    public UpstreamResilienceInterceptor(Settings settings, Map<String, Double> permitsPerSecondByHost) {
+        this(settings, permitsPerSecondByHost, System::nanoTime);
+    }
+
+    UpstreamResilienceInterceptor(Settings settings, Map<String, Double> permitsPerSecondByHost,
+            LongSupplier nanoClock) {
+        this.settings = settings;
+        this.permitsPerSecondByHost = Map.copyOf(permitsPerSecondByHost);
+        this.nanoClock = nanoClock;
+    }
+
+    Settings getSettings() {
+        return settings;
+    }
+
+    // The breaker and bucket of a host are shared with UpstreamResilienceFilter, so both clients see the same limits.
+    CircuitBreaker breakerFor(String host) {
+        return breakersByHost.computeIfAbsent(host,
+                key -> new CircuitBreaker(settings.failureThreshold(), settings.openDuration().toNanos(), nanoClock));
+    }
+
+    TokenBucket bucketFor(String host) {
+        return bucketsByHost.computeIfAbsent(host,
+                key -> new TokenBucket(permitsPerSecondByHost.getOrDefault(key, settings.permitsPerSecond()),
+                        settings.burst(), nanoClock));
+    }
+
+    static boolean isIdempotent(HttpMethod method) {
+        return IDEMPOTENT.contains(method);
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+            throws IOException {
+        String host = request.getURI().getHost() == null ? "" : request.getURI().getHost();
+        CircuitBreaker breaker = breakerFor(host);
+        TokenBucket bucket = bucketFor(host);
+        boolean retryable = isIdempotent(request.getMethod());
+
+        for (int attempt = 0;; attempt++) {
+            Permit permit = acquire(host, breaker, bucket);
+            ClientHttpResponse response;
+
+            try {
+                response = execution.execute(request, body);
+            } catch (IOException exception) {
+                breaker.onFailure(permit);
+
+                if (!retryable || attempt >= settings.maxRetries() || breaker.isOpen())
+                    throw exception;
+                backOff(host, attempt, -1);
+                continue;
+            } catch (RuntimeException exception) {
+                breaker.onFailure(permit);
+                throw exception;
+            }
+            int status = response.getStatusCode().value();
+
+            if (status != 429 && status < 500) {
+                breaker.onSuccess(permit);
+                return response;
+            }
+            breaker.onFailure(permit);
+            long retryAfterMillis = retryAfterMillis(response.getHeaders());
+
+            // Hand back the last response rather than wait longer than a retry is worth.
+            if (!retryable || attempt >= settings.maxRetries() || breaker.isOpen() || status == 501
+                    || retryAfterMillis > settings.maxRetryBackoff().toMillis())
+                return response;
+            response.close();
+            backOff(host, attempt, retryAfterMillis);
+        }
+    }
+
+    private Permit acquire(String host, CircuitBreaker breaker, TokenBucket bucket) throws IOException {
+        long closedIn = breaker.retryAfterNanos();
+
+        // Checked before taking a token so that requests to an open circuit fail without waiting.
+        if (closedIn > 0)
+            throw new UpstreamUnavailableException("Circuit to " + host + " is open",
+                    TimeUnit.NANOSECONDS.toMillis(closedIn));
+        long wait = bucket.reserve(settings.maxWait().toNanos());
+
+        if (wait < 0)
+            throw new UpstreamUnavailableException("Rate limit for " + host + " exceeded",
+                    TimeUnit.NANOSECONDS.toMillis(bucket.nanosUntilPermit()));
+        sleep(host, wait);
+        Permit permit = breaker.acquire();
+
+        if (permit == Permit.REFUSED)
+            throw new UpstreamUnavailableException("Circuit to " + host + " is open",
+                    TimeUnit.NANOSECONDS.toMillis(breaker.retryAfterNanos()));
+        return permit;
+    }
+
+    private void backOff(String host, int attempt, long retryAfterMillis) throws IOException {
+        sleep(host, TimeUnit.MILLISECONDS.toNanos(backOffMillis(attempt, retryAfterMillis)));
+    }
+
+    // The delay the upstream asked for, or a full-jitter exponential backoff if it did not ask for one.
+    long backOffMillis(int attempt, long retryAfterMillis) {
+        long ceiling = Math.min(settings.maxRetryBackoff().toMillis(), settings.retryBackoff().toMillis() << attempt);
+
+        return retryAfterMillis >= 0 ? retryAfterMillis : ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    private static void sleep(String host, long nanos) throws IOException {
+        if (nanos <= 0)
+            return;
+
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted waiting to call " + host, exception);
+        }
+    }
+
+    // Retry-After in seconds or as an HTTP date, or -1 if absent or unreadable.
+    static long retryAfterMillis(HttpHeaders headers) {
+        String retryAfter = headers.getFirst(HttpHeaders.RETRY_AFTER);
+
+        if (retryAfter == null)
+            return -1;
+
+        try {
+            return TimeUnit.SECONDS.toMillis(Long.parseLong(retryAfter.trim()));
+        } catch (NumberFormatException notSeconds) {
+            try {
+                return Math.max(0, headers.getFirstDate(HttpHeaders.RETRY_AFTER) - System.currentTimeMillis());
+            } catch (IllegalArgumentException notDate) {
+                return -1;
+            }
+        }
+    }
+
+    /**
+     * Token bucket holding up to the burst size, refilled at a constant rate.
+     */
+    static final class TokenBucket {
+
+        private final double capacity;
+        private final double permitsPerNano;
+        private final LongSupplier nanoClock;
+        // Goes below zero while permits are reserved ahead of the refill.
+        private double tokens;
+        private long refilledAt;
+
+        TokenBucket(double permitsPerSecond, int burst, LongSupplier nanoClock) {
+            this.capacity = Math.max(1, burst);
+            this.permitsPerNano = permitsPerSecond / TimeUnit.SECONDS.toNanos(1);
+            this.nanoClock = nanoClock;
+            this.tokens = capacity;
+            this.refilledAt = nanoClock.getAsLong();
+        }
+
+        /**
+         * Reserves a permit if one is available within the maximum wait, and returns how long to wait before using it.
+         * Returns -1 and reserves nothing otherwise.
+         */
+        synchronized long reserve(long maxWaitNanos) {
+            if (permitsPerNano <= 0)
+                return 0;
+            long wait = nanosUntilPermit();
+
+            if (wait > maxWaitNanos)
+                return -1;
+            tokens -= 1;
+            return wait;
+        }
+
+        synchronized long nanosUntilPermit() {
+            if (permitsPerNano <= 0)
+                return 0;
+            long now = nanoClock.getAsLong();
+
+            tokens = Math.min(capacity, tokens + (now - refilledAt) * permitsPerNano);
+            refilledAt = now;
+            return tokens >= 1 ? 0 : (long) Math.ceil((1 - tokens) / permitsPerNano);
+        }
+    }
+
+    enum Permit {
+        REFUSED, GRANTED, PROBE
+    }
+
+    /**
+     * Circuit breaker counting consecutive failures. Open for a fixed interval, then half open for a single probe.
+     */
+    static final class CircuitBreaker {
+
+        private final int failureThreshold;
+        private final long openNanos;
+        private final LongSupplier nanoClock;
+        private int consecutiveFailures;
+        private boolean open;
+        private long openedAt;
+        // Whether the probe of a half-open circuit is in flight.
+        private boolean probing;
+
+        CircuitBreaker(int failureThreshold, long openNanos, LongSupplier nanoClock) {
+            this.failureThreshold = Math.max(1, failureThreshold);
+            this.openNanos = openNanos;
+            this.nanoClock = nanoClock;
+        }
+
+        synchronized boolean isOpen() {
+            return open;
+        }
+
+        /**
+         * Returns how long until the circuit lets a request through, or 0 if it does now.
+         */
+        synchronized long retryAfterNanos() {
+            if (!open)
+                return 0;
+            // A probe in flight decides; another one is not let through before a full interval.
+            if (probing)
+                return openNanos;
+            return Math.max(0, openedAt + openNanos - nanoClock.getAsLong());
+        }
+
+        /**
+         * Lets a request through if the circuit allows it, and says whether it goes through as the probe.
+         */
+        synchronized Permit acquire() {
+            if (!open)
+                return Permit.GRANTED;
+            if (probing || nanoClock.getAsLong() - openedAt < openNanos)
+                return Permit.REFUSED;
+            probing = true;
+            return Permit.PROBE;
+        }
+
+        /**
+         * Closes the circuit after the probe succeeds. A success of a request let through before the circuit opened
+         * says nothing about the upstream now, so it leaves an open circuit open.
+         */
+        synchronized void onSuccess(Permit permit) {
+            if (open && permit != Permit.PROBE)
+                return;
+            open = false;
+            probing = false;
+            consecutiveFailures = 0;
+        }
+
+        /**
+         * Gives up the probe without judging the upstream, as when the caller cancels it, so that the next request
+         * probes instead.
+         */
+        synchronized void onProbeAbandoned() {
+            probing = false;
+        }
+
+        synchronized void onFailure(Permit permit) {
+            // Requests already in flight when the circuit opened neither restart the interval nor judge the probe.
+            if (open && permit != Permit.PROBE)
+                return;
+
+            if (permit == Permit.PROBE || ++consecutiveFailures >= failureThreshold) {
+                open = true;
+                probing = false;
+                openedAt = nanoClock.getAsLong();
+                consecutiveFailures = 0;
+            }
+        }
+    }
+}
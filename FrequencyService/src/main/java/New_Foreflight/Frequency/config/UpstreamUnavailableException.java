@@ -0,0 +1,37 @@
+package New_Foreflight.Frequency.config;
+
+import java.io.IOException;
+
+/**
+ * Thrown instead of calling an upstream whose circuit is open or whose rate limit leaves no room for the request.
+ * RestTemplate surfaces it as the cause of a ResourceAccessException.
+ */
+public class UpstreamUnavailableException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long retryAfterMillis;
+
+    public UpstreamUnavailableException(String message, long retryAfterMillis) {
+        super(message);
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    /**
+     * Returns how long until the upstream is expected to accept requests again.
+     */
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+
+    /**
+     * Returns the UpstreamUnavailableException in the cause chain of the throwable, or null if there is none.
+     */
+    public static UpstreamUnavailableException find(Throwable throwable) {
+        for (Throwable cause = throwable; cause != null; cause = cause.getCause()) {
+            if (cause instanceof UpstreamUnavailableException unavailable)
+                return unavailable;
+        }
+        return null;
+    }
+}
@@ -1,13 +1,18 @@
 package New_Foreflight.Frequency.controller;
 
+import java.util.concurrent.TimeUnit;
+
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.client.RestClientException;
 
+import New_Foreflight.Frequency.config.UpstreamUnavailableException;
 import New_Foreflight.Frequency.dto.AirportFrequencyResponse;
 import New_Foreflight.Frequency.service.FrequencyService;
 
@@ -21,9 +26,29 @@ public class FrequencyServiceController {
     @GetMapping(value = "/getAirportFrequencies")
     public ResponseEntity<AirportFrequencyResponse> getAirportFrequencies(@RequestParam String airportCode) {
         try {
-            return ResponseEntity.ok(frequencyService.getFrequencies(airportCode));
+            AirportFrequencyResponse frequencies = frequencyService.getFrequencies(airportCode);
+
+            return frequencies == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(frequencies);
         } catch (Exception exception) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
+            return errorResponse(exception);
+        }
+    }
+
+    /**
+     * Maps a failure to a response: 503 with Retry-After when AirportDB is rate limited or its circuit is open, 502
+     * when the AirportDB call failed, and 500 otherwise.
+     */
+    private static <T> ResponseEntity<T> errorResponse(Exception exception) {
+        UpstreamUnavailableException unavailable = UpstreamUnavailableException.find(exception);
+
+        if (unavailable != null) {
+            long retryAfterSeconds = Math.max(1, TimeUnit.MILLISECONDS.toSeconds(unavailable.getRetryAfterMillis()));
+
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds)).body(null);
         }
+        if (exception instanceof RestClientException)
+            return ResponseEntity.status(HttpStatus.BAD_GATEWAY).body(null);
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
     }
 }
\ No newline at end of file
@@ -2,6 +2,7 @@ package New_Foreflight.Frequency.dto;
 
 import java.util.HashMap;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
@@ -11,7 +12,22 @@ public class AirportFrequencyResponse {
     @JsonProperty("frequencies")
     private HashMap<String, String> frequencies;
 
-    public AirportFrequencyResponse(HashMap<String, String> frequencies) {
+    // Whether this is an expired copy served because AirportDB could not be reached for a fresh one.
+    @JsonProperty("stale")
+    private boolean stale;
+
+    @JsonCreator
+    public AirportFrequencyResponse(@JsonProperty("frequencies") HashMap<String, String> frequencies) {
         this.frequencies = frequencies;
     }
+
+    /**
+     * Returns a copy of this response marked as stale.
+     */
+    public AirportFrequencyResponse asStale() {
+        AirportFrequencyResponse copy = new AirportFrequencyResponse(frequencies);
+
+        copy.stale = true;
+        return copy;
+    }
 }
@@ -1,30 +1,30 @@
 package New_Foreflight.Frequency.service;
 
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
 import java.net.URI;
-import java.net.http.HttpClient;
+import java.time.Duration;
 import java.util.HashMap;
-import java.util.concurrent.TimeUnit;
+import java.util.Locale;
 
 import org.json.JSONArray;
+import org.json.JSONException;
 import org.json.JSONObject;
-import org.springframework.web.bind.annotation.RequestParam;
-
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
-
-import New_Foreflight.Frequency.dto.AirportFrequencyResponse;
-
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import New_Foreflight.Frequency.cache.CacheCodec;
+import New_Foreflight.Frequency.cache.SharedCacheStore;
+import New_Foreflight.Frequency.cache.TieredCache;
+import New_Foreflight.Frequency.dto.AirportFrequencyResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
 
 @Service
 public class FrequencyService {
 
-    private static Cache<String, AirportFrequencyResponse> cache = CacheBuilder.newBuilder()
-            .expireAfterWrite(5, TimeUnit.MINUTES).build();
-
     @Value("${airportdb.api.url}")
     private String apiUrl;
 
@@ -34,66 +34,118 @@ public class FrequencyService {
     @Value("${airportdb.api.key}")
     private String apiKey;
 
-    public AirportFrequencyResponse getFrequencies(@RequestParam String airportCode) {
-        if (getCache(airportCode) != null)
-            return getCache(airportCode);
+    // Frequencies only change on the 28 day AIRAC cycle, so entries can be kept for days.
+    @Value("${frequency.cache.ttl-hours:168}")
+    private long cacheTtlHours;
+
+    // Cached frequencies requested after this long are reloaded in the background while the cached copy is served.
+    @Value("${frequency.cache.refresh-after-hours:24}")
+    private long cacheRefreshAfterHours;
+
+    // Expired frequencies are kept this long to be served, marked stale, while AirportDB is unavailable.
+    @Value("${frequency.cache.stale-window-hours:720}")
+    private long staleWindowHours;
+
+    @Value("${frequency.cache.max-size:20000}")
+    private long cacheMaxSize;
+
+    // Airports AirportDB has no frequencies for are remembered for a shorter time.
+    @Value("${frequency.cache.negative-ttl-minutes:60}")
+    private long negativeCacheTtlMinutes;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Optional tier shared with the other replicas.
+    @Autowired
+    private SharedCacheStore sharedCacheStore;
+
+    // Shared, connection-pooled client for AirportDB.
+    @Autowired
+    private RestTemplate restTemplate;
+
+    // Keyed by normalized airport code. Concurrent misses for the same airport wait on a single upstream load.
+    private TieredCache<AirportFrequencyResponse> cache;
+    private TieredCache<Boolean> unknownAirports;
+
+    @PostConstruct
+    private void initializeCache() {
+        cache = TieredCache.builder("frequencies", CacheCodec.json(AirportFrequencyResponse.class))
+                .maximumSize(cacheMaxSize).expireAfterWrite(Duration.ofHours(cacheTtlHours))
+                .refreshAfterWrite(Duration.ofHours(cacheRefreshAfterHours))
+                .serveStaleFor(Duration.ofHours(staleWindowHours)).shared(sharedCacheStore)
+                .build(this::fetchFrequencies);
+        unknownAirports = TieredCache.builder("frequencies.unknown", CacheCodec.json(Boolean.class))
+                .maximumSize(cacheMaxSize).expireAfterWrite(Duration.ofMinutes(negativeCacheTtlMinutes))
+                .shared(sharedCacheStore).build();
+        cache.bindTo(meterRegistry);
+        unknownAirports.bindTo(meterRegistry);
+    }
+
+    /**
+     * Returns the frequencies of the airport, or null if AirportDB has none. If AirportDB cannot be reached, the last
+     * frequencies fetched for the airport are returned marked as stale, or the failure is thrown if there are none.
+     */
+    public AirportFrequencyResponse getFrequencies(String airportCode) {
+        String key = normalizeAirportCode(airportCode);
+
+        if (unknownAirports.getIfPresent(key) != null)
+            return null;
+        TieredCache.Lookup<AirportFrequencyResponse> lookup = cache.getOrStale(key);
+
+        if (lookup.value() == null) {
+            unknownAirports.put(key, Boolean.TRUE);
+            return null;
+        }
+        return lookup.stale() ? lookup.value().asStale() : lookup.value();
+    }
+
+    private static String normalizeAirportCode(String airportCode) {
+        return airportCode.trim().toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * Returns null, which is remembered as an unknown airport, only when AirportDB answers 404 or lists no frequencies
+     * for the airport. Any other failure, including a response that cannot be read, is thrown so that it is neither
+     * cached nor mistaken for an airport without frequencies.
+     */
+    private AirportFrequencyResponse fetchFrequencies(String airportCode) {
         String url = apiUrl.replace("{code}", airportCode).replace("{token}", apiToken).replace("{key}", apiKey);
-        HttpRequest request = HttpRequest.newBuilder().uri(URI.create(url)).GET().build();
-        HttpResponse<String> response = null;
+        HashMap<String, String> frequencies;
 
         try {
-            response = HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.ofString());
-            AirportFrequencyResponse frequencyResponse = new AirportFrequencyResponse(
-                    parseFrequencies(response.body()));
-
-            addToCache(url, frequencyResponse);
-            return frequencyResponse;
-        } catch (Exception exception) {
-            exception.printStackTrace();
+            frequencies = parseFrequencies(restTemplate.getForObject(URI.create(url), String.class));
+        } catch (HttpClientErrorException.NotFound exception) {
+            return null;
         }
-        return null;
+        return frequencies.isEmpty() ? null : new AirportFrequencyResponse(frequencies);
     }
 
-    private static HashMap<String, String> parseFrequencies(String jsonFrequencies) {
+    /**
+     * Reads the frequencies of an AirportDB airport document, keyed by description. Entries without a description or
+     * frequency are skipped. Throws a RestClientException if the body is empty, is not JSON or has no freqs array.
+     */
+    static HashMap<String, String> parseFrequencies(String jsonFrequencies) {
+        if (jsonFrequencies == null || jsonFrequencies.isBlank())
+            throw new RestClientException("Empty response from AirportDB");
         HashMap<String, String> frequenciesHashMap = new HashMap<>();
+        JSONArray freqsArray;
 
-        if (jsonFrequencies != null && !jsonFrequencies.isEmpty()) {
-            try {
-                JSONObject jsonObject = new JSONObject(jsonFrequencies);
-
-                if (jsonObject.has("freqs")) {
-                    JSONArray freqsArray = jsonObject.getJSONArray("freqs");
-
-                    for (int i = 0; i < freqsArray.length(); i++) {
-                        JSONObject freq = freqsArray.getJSONObject(i);
-                        String description = freq.optString("description", null);
-                        String frequency_mhz = freq.optString("frequency_mhz", null);
-
-                        if (description == null || description.isEmpty() || frequency_mhz == null
-                                || frequency_mhz.isEmpty()) {
-                            System.out.println("Error parsing JSON at index " + i + " for airport "
-                                    + jsonObject.getString("code"));
-                            continue;
-                        }
-                        frequenciesHashMap.put(description, frequency_mhz);
-                    }
-                } else {
-                    System.out.println("No 'freqs' key found or it does not contain an array");
-                }
-            } catch (Exception exception) {
-                System.err.println("Error parsing JSON");
-            }
-        } else {
-            System.out.println("JSON is empty or null");
+        try {
+            freqsArray = new JSONObject(jsonFrequencies).getJSONArray("freqs");
+        } catch (JSONException exception) {
+            throw new RestClientException("Unreadable response from AirportDB: " + exception.getMessage(), exception);
         }
-        return frequenciesHashMap.isEmpty() ? null : frequenciesHashMap;
-    }
 
-    private static void addToCache(String icao, AirportFrequencyResponse response) {
-        cache.put(icao, response);
-    }
+        for (int i = 0; i < freqsArray.length(); i++) {
+            JSONObject freq = freqsArray.optJSONObject(i);
+            String description = freq == null ? null : freq.optString("description", null);
+            String frequency_mhz = freq == null ? null : freq.optString("frequency_mhz", null);
 
-    private static AirportFrequencyResponse getCache(String airportCode) {
-        return cache.getIfPresent(airportCode);
+            if (description == null || description.isEmpty() || frequency_mhz == null || frequency_mhz.isEmpty())
+                continue;
+            frequenciesHashMap.put(description, frequency_mhz);
+        }
+        return frequenciesHashMap;
     }
 }
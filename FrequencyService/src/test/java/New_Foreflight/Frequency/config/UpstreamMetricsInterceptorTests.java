@@ -0,0 +1,54 @@
+package New_Foreflight.Frequency.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.net.URI;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class UpstreamMetricsInterceptorTests {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final UpstreamMetricsInterceptor interceptor = new UpstreamMetricsInterceptor(registry);
+
+    @Test
+    void replacesIdentifiersInEndpoint() {
+        assertEquals("/metar/{id}/decoded",
+                UpstreamMetricsInterceptor.endpoint(URI.create("https://api.checkwx.com/metar/KLAX,KJFK/decoded")));
+        assertEquals("/api/data/metar",
+                UpstreamMetricsInterceptor.endpoint(URI.create("https://aviationweather.gov/api/data/metar?ids=KLAX")));
+        assertEquals("/data/cache/metars.cache.csv.gz", UpstreamMetricsInterceptor
+                .endpoint(URI.create("https://aviationweather.gov/data/cache/metars.cache.csv.gz")));
+        assertEquals("/api/v1/airport/{id}", UpstreamMetricsInterceptor
+                .endpoint(URI.create("https://airportdb.io/api/v1/airport/KLAX?apiToken=token")));
+        assertEquals("/", UpstreamMetricsInterceptor.endpoint(URI.create("https://airportdb.io")));
+    }
+
+    @Test
+    void recordsStatusAndOutcome() throws Exception {
+        ClientHttpRequestExecution execution = mock(ClientHttpRequestExecution.class);
+        MockClientHttpRequest request = new MockClientHttpRequest(HttpMethod.GET,
+                URI.create("https://api.checkwx.com/metar/KLAX/decoded"));
+
+        when(execution.execute(any(), any())).thenReturn(new MockClientHttpResponse(new byte[0], HttpStatus.OK))
+                .thenThrow(new UpstreamUnavailableException("Circuit open", 1000));
+        interceptor.intercept(request, new byte[0], execution);
+        assertThrows(UpstreamUnavailableException.class, () -> interceptor.intercept(request, new byte[0], execution));
+
+        assertEquals(1, registry.get(UpstreamMetricsInterceptor.METRIC_NAME).tags("upstream", "api.checkwx.com",
+                "endpoint", "/metar/{id}/decoded", "status", "200", "outcome", "SUCCESS").timer().count());
+        assertEquals(1, registry.get(UpstreamMetricsInterceptor.METRIC_NAME)
+                .tags("status", "UNAVAILABLE", "outcome", "UNKNOWN").timer().count());
+    }
+}
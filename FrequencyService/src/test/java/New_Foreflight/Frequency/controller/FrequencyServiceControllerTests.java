@@ -0,0 +1,102 @@
+package New_Foreflight.Frequency.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.net.URI;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import New_Foreflight.Frequency.cache.SharedCacheStore;
+import New_Foreflight.Frequency.cache.TieredCache;
+import New_Foreflight.Frequency.config.UpstreamUnavailableException;
+import New_Foreflight.Frequency.dto.AirportFrequencyResponse;
+import New_Foreflight.Frequency.service.FrequencyService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class FrequencyServiceControllerTests {
+
+    private static final String KLAX = "{\"ident\":\"KLAX\",\"freqs\":[{\"description\":\"LAX TWR\","
+            + "\"frequency_mhz\":\"133.9\"}]}";
+    private static final URI KLAX_URL = URI.create("http://airportdb.test/airport/KLAX?apiToken=token");
+
+    private final FrequencyService service = new FrequencyService();
+    private final FrequencyServiceController controller = new FrequencyServiceController();
+    private final RestTemplate restTemplate = mock(RestTemplate.class);
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(service, "apiUrl", "http://airportdb.test/airport/{code}?apiToken={token}");
+        ReflectionTestUtils.setField(service, "apiToken", "token");
+        ReflectionTestUtils.setField(service, "apiKey", "key");
+        ReflectionTestUtils.setField(service, "cacheTtlHours", 168L);
+        ReflectionTestUtils.setField(service, "cacheRefreshAfterHours", 24L);
+        ReflectionTestUtils.setField(service, "staleWindowHours", 720L);
+        ReflectionTestUtils.setField(service, "cacheMaxSize", 100L);
+        ReflectionTestUtils.setField(service, "negativeCacheTtlMinutes", 60L);
+        ReflectionTestUtils.setField(service, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(service, "sharedCacheStore", SharedCacheStore.none());
+        ReflectionTestUtils.setField(service, "restTemplate", restTemplate);
+        ReflectionTestUtils.invokeMethod(service, "initializeCache");
+        ReflectionTestUtils.setField(controller, "frequencyService", service);
+    }
+
+    @Test
+    void servesStaleFrequenciesWhileAirportDbIsUnavailable() {
+        when(restTemplate.getForObject(KLAX_URL, String.class)).thenReturn(KLAX).thenThrow(unavailable(30000))
+                .thenThrow(HttpServerErrorException.create(HttpStatus.BAD_GATEWAY, "Bad Gateway", null, null, null));
+
+        assertFalse(stale(controller.getAirportFrequencies("KLAX")));
+        expireCachedFrequencies();
+        assertTrue(stale(controller.getAirportFrequencies("KLAX")));
+        expireCachedFrequencies();
+        assertTrue(stale(controller.getAirportFrequencies("KLAX")));
+    }
+
+    @Test
+    void answers503WithRetryAfterWhenAirportDbIsUnavailable() {
+        when(restTemplate.getForObject(KLAX_URL, String.class)).thenThrow(unavailable(30000));
+
+        ResponseEntity<AirportFrequencyResponse> response = controller.getAirportFrequencies("KLAX");
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, response.getStatusCode());
+        assertEquals("30", response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        assertNull(response.getBody());
+    }
+
+    @Test
+    void answers502WhenAirportDbFails() {
+        when(restTemplate.getForObject(KLAX_URL, String.class))
+                .thenThrow(HttpServerErrorException.create(HttpStatus.BAD_GATEWAY, "Bad Gateway", null, null, null));
+
+        assertEquals(HttpStatus.BAD_GATEWAY, controller.getAirportFrequencies("KLAX").getStatusCode());
+    }
+
+    // RestTemplate reports an exception of an interceptor as the cause of a ResourceAccessException.
+    private static ResourceAccessException unavailable(long retryAfterMillis) {
+        return new ResourceAccessException("I/O error on GET request",
+                new UpstreamUnavailableException("Circuit to airportdb.test is open", retryAfterMillis));
+    }
+
+    // Drops the fresh copy as expiry would, leaving the last known one to be served stale.
+    private void expireCachedFrequencies() {
+        ((TieredCache<?>) ReflectionTestUtils.getField(service, "cache")).local().invalidateAll();
+    }
+
+    private static boolean stale(ResponseEntity<AirportFrequencyResponse> response) {
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        return (boolean) ReflectionTestUtils.getField(response.getBody(), "stale");
+    }
+}
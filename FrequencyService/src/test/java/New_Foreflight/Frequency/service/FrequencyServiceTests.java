@@ -0,0 +1,122 @@
+package New_Foreflight.Frequency.service;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import New_Foreflight.Frequency.cache.InMemorySharedCacheStore;
+import New_Foreflight.Frequency.dto.AirportFrequencyResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class FrequencyServiceTests {
+
+    private static final String KLAX = "{\"ident\":\"KLAX\",\"freqs\":[{\"description\":\"LAX TWR\","
+            + "\"frequency_mhz\":\"133.9\"},{\"description\":\"LAX GND\",\"frequency_mhz\":\"121.75\"}]}";
+    private static final URI KLAX_URL = URI.create("http://airportdb.test/airport/KLAX?apiToken=token");
+
+    private final FrequencyService service = new FrequencyService();
+    private final RestTemplate restTemplate = mock(RestTemplate.class);
+    private final ExecutorService callers = Executors.newFixedThreadPool(16);
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(service, "apiUrl", "http://airportdb.test/airport/{code}?apiToken={token}");
+        ReflectionTestUtils.setField(service, "apiToken", "token");
+        ReflectionTestUtils.setField(service, "apiKey", "key");
+        ReflectionTestUtils.setField(service, "cacheTtlHours", 168L);
+        ReflectionTestUtils.setField(service, "cacheRefreshAfterHours", 24L);
+        ReflectionTestUtils.setField(service, "staleWindowHours", 720L);
+        ReflectionTestUtils.setField(service, "cacheMaxSize", 100L);
+        ReflectionTestUtils.setField(service, "negativeCacheTtlMinutes", 60L);
+        ReflectionTestUtils.setField(service, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(service, "sharedCacheStore", new InMemorySharedCacheStore());
+        ReflectionTestUtils.setField(service, "restTemplate", restTemplate);
+        ReflectionTestUtils.invokeMethod(service, "initializeCache");
+    }
+
+    @AfterEach
+    void tearDown() {
+        callers.shutdownNow();
+    }
+
+    @Test
+    void normalizesAirportCodes() {
+        when(restTemplate.getForObject(KLAX_URL, String.class)).thenReturn(KLAX);
+
+        AirportFrequencyResponse first = service.getFrequencies(" klax ");
+
+        assertNotNull(first);
+        assertSame(first, service.getFrequencies("KLAX"));
+        verify(restTemplate, times(1)).getForObject(any(URI.class), eq(String.class));
+    }
+
+    @Test
+    void remembersNotFoundAndEmptyFrequencies() {
+        when(restTemplate.getForObject(URI.create("http://airportdb.test/airport/XXXX?apiToken=token"), String.class))
+                .thenThrow(HttpClientErrorException.create(HttpStatus.NOT_FOUND, "Not Found", null, null, null));
+        when(restTemplate.getForObject(URI.create("http://airportdb.test/airport/K0Q5?apiToken=token"), String.class))
+                .thenReturn("{\"ident\":\"K0Q5\",\"freqs\":[]}");
+
+        assertNull(service.getFrequencies("XXXX"));
+        assertNull(service.getFrequencies("xxxx"));
+        assertNull(service.getFrequencies("K0Q5"));
+        assertNull(service.getFrequencies("K0Q5"));
+        verify(restTemplate, times(2)).getForObject(any(URI.class), eq(String.class));
+    }
+
+    @Test
+    void doesNotRememberUnreadableResponses() {
+        when(restTemplate.getForObject(KLAX_URL, String.class)).thenReturn("<html>Bad gateway</html>")
+                .thenReturn("{\"message\":\"Rate limit exceeded\"}").thenReturn(KLAX);
+
+        assertThrows(RestClientException.class, () -> service.getFrequencies("KLAX"));
+        assertThrows(RestClientException.class, () -> service.getFrequencies("KLAX"));
+        assertNotNull(service.getFrequencies("KLAX"));
+        verify(restTemplate, times(3)).getForObject(any(URI.class), eq(String.class));
+    }
+
+    @Test
+    void coalescesConcurrentMisses() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+
+        when(restTemplate.getForObject(KLAX_URL, String.class)).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return KLAX;
+        });
+        List<Future<AirportFrequencyResponse>> responses = new ArrayList<>();
+
+        for (int i = 0; i < 16; i++)
+            responses.add(callers.submit(() -> service.getFrequencies("KLAX")));
+        Thread.sleep(200);
+        release.countDown();
+
+        for (Future<AirportFrequencyResponse> response : responses)
+            assertNotNull(response.get(5, TimeUnit.SECONDS));
+        verify(restTemplate, times(1)).getForObject(any(URI.class), eq(String.class));
+    }
+}
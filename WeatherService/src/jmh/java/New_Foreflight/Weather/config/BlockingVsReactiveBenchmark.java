@@ -0,0 +1,117 @@
+package New_Foreflight.Weather.config;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.resources.ConnectionProvider;
+
+/**
+ * Compares the blocking MVC request path with the reactive one under a burst of concurrent requests to a slow upstream.
+ *
+ * Each operation issues a burst of requests at once to a local stub that answers a recorded CheckWX payload after a
+ * fixed latency, and completes when every response has arrived. The blocking path runs each request on a pool the size
+ * of Tomcat's default request thread pool, holding its thread for the whole exchange as the MVC controllers do; the
+ * reactive path keeps every request of the burst in flight without a thread each. The sampled times give the latency
+ * tail of a burst, and the gc profiler's gc.alloc.rate.norm divided by the burst size gives the heap allocated per
+ * in-flight request. The blocking path also pins a thread stack per in-flight request, which the allocation profiler
+ * does not count.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+public class BlockingVsReactiveBenchmark {
+
+    // Tomcat's default maximum number of request threads.
+    private static final int REQUEST_THREADS = 200;
+
+    @Param({ "50" })
+    public int upstreamLatencyMs;
+
+    @Param({ "100", "1000" })
+    public int burst;
+
+    private DisposableServer upstream;
+    private URI metarUri;
+    private ExecutorService requestThreads;
+    private RestTemplate restTemplate;
+    private ConnectionProvider connectionProvider;
+    private WebClient webClient;
+
+    @Setup
+    public void start() throws IOException {
+        byte[] payload = new ClassPathResource("fixtures/checkwx-metar-klax.json").getContentAsByteArray();
+
+        // A non-blocking stub, so that it can hold the whole burst at the upstream latency.
+        upstream = HttpServer.create().host("localhost").port(0)
+                .route(routes -> routes.get("/metar/{station}/decoded",
+                        (request, response) -> response.header("Content-Type", "application/json")
+                                .sendByteArray(Mono.delay(Duration.ofMillis(upstreamLatencyMs)).thenReturn(payload))))
+                .bindNow();
+        metarUri = URI.create("http://localhost:" + upstream.port() + "/metar/KLAX/decoded");
+
+        requestThreads = Executors.newFixedThreadPool(REQUEST_THREADS);
+        restTemplate = new RestTemplate(new JdkClientHttpRequestFactory(
+                HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build()));
+        connectionProvider = ConnectionProvider.builder("benchmark").maxConnections(burst)
+                .pendingAcquireMaxCount(-1).build();
+        webClient = WebClient.builder().clientConnector(new ReactorClientHttpConnector(
+                reactor.netty.http.client.HttpClient.create(connectionProvider))).build();
+    }
+
+    @TearDown
+    public void stop() {
+        upstream.disposeNow();
+        requestThreads.shutdownNow();
+        connectionProvider.disposeLater().block(Duration.ofSeconds(10));
+    }
+
+    @Benchmark
+    public int blocking() {
+        CompletableFuture<?>[] responses = new CompletableFuture<?>[burst];
+
+        for (int i = 0; i < burst; i++)
+            responses[i] = CompletableFuture
+                    .supplyAsync(() -> restTemplate.getForObject(metarUri, String.class).length(), requestThreads);
+        CompletableFuture.allOf(responses).join();
+        return responses.length;
+    }
+
+    @Benchmark
+    public long reactive() {
+        return Flux.range(0, burst)
+                .flatMap(i -> webClient.get().uri(metarUri).retrieve().bodyToMono(String.class).map(String::length),
+                        burst)
+                .count().block();
+    }
+}
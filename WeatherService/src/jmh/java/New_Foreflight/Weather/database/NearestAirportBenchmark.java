@@ -0,0 +1,112 @@
+package New_Foreflight.Weather.database;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.ClassPathResource;
+
+/**
+ * Measures nearest airport and radius searches, and rebuilding the index, over a dataset of 20,000 airports.
+ *
+ * The airports are spread the way the world's airfields are, densest in North America, Brazil, Europe and Australia and
+ * clustered around towns, and include the CONUS winds aloft stations at their real positions. The index normally holds
+ * only the winds aloft stations; indexing all 20,000 airports shows how the searches scale to a nearest-airport lookup
+ * over the whole table. Queries are taken near randomly chosen airports, as requests for a position usually are.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NearestAirportBenchmark {
+
+    private static final int QUERIES = 1024;
+
+    @Param({ "winds-aloft", "all" })
+    public String indexed;
+
+    private List<AirportNode> airports;
+    private AirportSpatialIndex.KdTree tree;
+    private double[] latitudes;
+    private double[] longitudes;
+    private int next;
+
+    @Setup
+    public void loadFixture() throws IOException {
+        List<AirportNode> all = new ArrayList<>();
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(new ClassPathResource("fixtures/airports-20k.csv.gz").getInputStream()),
+                StandardCharsets.UTF_8))) {
+            reader.readLine();
+
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                String[] fields = line.split(",");
+
+                all.add(new AirportNode(fields[0], fields[1].isEmpty() ? null : fields[1], fields[2],
+                        Double.parseDouble(fields[3]), Double.parseDouble(fields[4]), 0,
+                        Boolean.parseBoolean(fields[5])));
+            }
+        }
+        airports = indexed.equals("all") ? all.stream().map(NearestAirportBenchmark::withIcao).toList()
+                : all.stream().filter(AirportNode::isWindsAloftAirport).toList();
+        tree = new AirportSpatialIndex.KdTree(airports);
+
+        Random random = new Random(42);
+        latitudes = new double[QUERIES];
+        longitudes = new double[QUERIES];
+
+        for (int i = 0; i < QUERIES; i++) {
+            AirportNode near = all.get(random.nextInt(all.size()));
+
+            latitudes[i] = near.getLatitude() + random.nextGaussian() * 0.2;
+            longitudes[i] = near.getLongitude() + random.nextGaussian() * 0.2;
+        }
+    }
+
+    // Airports without an ICAO code are keyed by ident, so that every airport of the table can be indexed.
+    private static AirportNode withIcao(AirportNode airport) {
+        return new AirportNode(airport.getIdent(), airport.getIcao() == null ? airport.getIdent() : airport.getIcao(),
+                airport.getName(), airport.getLatitude(), airport.getLongitude(), 0, true);
+    }
+
+    // Four neighbours, as used for winds aloft interpolation.
+    @Benchmark
+    public List<Pair<String, Double>> kNearest() {
+        int query = next++ & (QUERIES - 1);
+
+        return tree.kNearest(latitudes[query], longitudes[query], 4);
+    }
+
+    @Benchmark
+    public List<Pair<String, Double>> withinRadius() {
+        int query = next++ & (QUERIES - 1);
+
+        return tree.withinRadius(latitudes[query], longitudes[query], 50);
+    }
+
+    @Benchmark
+    public AirportSpatialIndex.KdTree rebuild() {
+        return new AirportSpatialIndex.KdTree(airports);
+    }
+}
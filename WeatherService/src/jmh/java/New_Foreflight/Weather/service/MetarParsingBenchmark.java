@@ -0,0 +1,101 @@
+package New_Foreflight.Weather.service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.core.io.ClassPathResource;
+
+import New_Foreflight.Weather.dto.MetarComponentsView;
+import New_Foreflight.Weather.dto.MetarObservation;
+
+/**
+ * Compares building the airport weather response from a CheckWX payload with a single streaming decode against the
+ * previous approach of parsing the payload into a JSON tree once per view, and measures the decode behind
+ * separateMetarComponents and the density altitude computation on their own.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MetarParsingBenchmark {
+
+    private String payload;
+    private MetarObservation observation;
+
+    @Setup
+    public void loadFixture() throws IOException {
+        payload = new ClassPathResource("fixtures/checkwx-metar-klax.json").getContentAsString(StandardCharsets.UTF_8);
+        observation = MetarDecoder.decode(payload);
+    }
+
+    // What WeatherServiceImpl.separateMetarComponents does, without its timer.
+    @Benchmark
+    public HashMap<String, Object> separateMetarComponents() {
+        return MetarComponentsView.of(MetarDecoder.decode(payload));
+    }
+
+    @Benchmark
+    public double densityAltitude() {
+        return observation.densityAltitudeFeet();
+    }
+
+    @Benchmark
+    public void streamingDecode(Blackhole blackhole) {
+        MetarObservation observation = MetarDecoder.decode(payload);
+
+        blackhole.consume(observation.rawText());
+        blackhole.consume(MetarComponentsView.of(observation));
+        blackhole.consume(observation.flightCategory().name());
+    }
+
+    // The raw text, components and flight category were each read from a separate JSON tree.
+    @Benchmark
+    public void jsonTreePerView(Blackhole blackhole) {
+        blackhole.consume(new JSONObject(payload).getJSONArray("data").getJSONObject(0).getString("raw_text"));
+        blackhole.consume(legacyComponents(new JSONObject(payload).getJSONArray("data").getJSONObject(0)));
+        blackhole.consume(
+                new JSONObject(payload).getJSONArray("data").getJSONObject(0).getString("flight_category"));
+    }
+
+    private static HashMap<String, Object> legacyComponents(JSONObject result) {
+        LinkedHashMap<String, Object> components = new LinkedHashMap<>();
+        JSONObject wind = result.getJSONObject("wind");
+        JSONObject temperature = result.getJSONObject("temperature");
+        JSONObject dewpoint = result.getJSONObject("dewpoint");
+
+        components.put("wind", String.format("%d at %d-%d kts", wind.optInt("degrees", 0),
+                wind.optInt("speed_kts", 0), wind.optInt("gust_kts", 0)));
+        components.put("visibility", result.getJSONObject("visibility").optString("miles") + " SM");
+        components.put("clouds", result.getJSONArray("clouds").toList());
+        components.put("temperature", String.format("%s degrees F, %s degrees C", temperature.optString("fahrenheit"),
+                temperature.optString("celsius")));
+        components.put("dewpoint", String.format("%s degrees F, %s degrees C", dewpoint.optString("fahrenheit"),
+                dewpoint.optString("celsius")));
+        components.put("barometer", "hg: " + result.getJSONObject("barometer").optString("hg"));
+        components.put("humidity", result.getJSONObject("humidity").optString("percent") + " %");
+        components.put("elevation", result.getJSONObject("elevation").optString("feet"));
+
+        double altitude = Double.parseDouble(components.get("elevation").toString());
+        double degF = Double.parseDouble(components.get("temperature").toString().split(" ")[0]);
+
+        components.put("density_altitude", altitude + 120 * ((degF - 32) / 1.8 - (15.0 - altitude / 1000.0 * 2.0)));
+        return components;
+    }
+}
@@ -0,0 +1,80 @@
+package New_Foreflight.Weather.service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.ClassPathResource;
+
+/**
+ * Measures decoding a full CONUS FB bulletin, as done on each winds aloft fetch, and decoding its raw FB codes on their
+ * own.
+ *
+ * The fixture has the layout of an FBUS31 bulletin: 168 stations at nine levels, with the blank low levels of high
+ * elevation stations, light and variable winds and speeds of 100 knots or more.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WindsAloftBenchmark {
+
+    private static final Instant ISSUED = Instant.parse("2025-06-01T14:00:00Z");
+
+    private String bulletin;
+    // Every FB code of the bulletin with the altitude of its column.
+    private String[] codes;
+    private int[] altitudes;
+    private short[] directions;
+    private short[] speeds;
+    private byte[] temperatures;
+
+    @Setup
+    public void loadFixture() throws IOException {
+        bulletin = new ClassPathResource("fixtures/fb-winds-aloft-conus.txt").getContentAsString(StandardCharsets.UTF_8);
+        WindsAloftGrid grid = WindsAloftGrid.parse(bulletin, ISSUED);
+        List<String> codeList = new ArrayList<>();
+        List<Integer> altitudeList = new ArrayList<>();
+
+        for (int station = 0; station < grid.stationCount(); station++) {
+            for (int level = 0; level < grid.levelCount(); level++) {
+                codeList.add(grid.code(station, level));
+                altitudeList.add(grid.altitude(level));
+            }
+        }
+        codes = codeList.toArray(String[]::new);
+        altitudes = altitudeList.stream().mapToInt(Integer::intValue).toArray();
+        directions = new short[codes.length];
+        speeds = new short[codes.length];
+        temperatures = new byte[codes.length];
+    }
+
+    // The line parsing done by each fetch of the bulletin.
+    @Benchmark
+    public WindsAloftGrid parseBulletin() {
+        return WindsAloftGrid.parse(bulletin, ISSUED);
+    }
+
+    // One operation decodes all 1512 codes of the bulletin.
+    @Benchmark
+    public short[] decodeCodes() {
+        for (int i = 0; i < codes.length; i++)
+            WindsAloftGrid.decode(codes[i], altitudes[i], directions, speeds, temperatures, i);
+        return speeds;
+    }
+}
@@ -0,0 +1,95 @@
+package New_Foreflight.Weather.loadtest;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+
+import org.springframework.core.io.ClassPathResource;
+
+import New_Foreflight.Weather.database.AirportNode;
+import New_Foreflight.Weather.database.AirportRepository;
+
+/**
+ * Stand-in for the Neo4j airport repository during a load test, answering from a fixed list of airports.
+ *
+ * Only the queries the service makes are implemented, each after waiting the configured latency, as a round trip to
+ * the database would. Any other repository method throws, so that a new query shows up in a load test rather than
+ * being answered wrongly.
+ */
+final class InMemoryAirportRepository implements InvocationHandler {
+
+    private final List<AirportNode> airports;
+    private final Map<String, AirportNode> byIdent;
+    private final Map<String, AirportNode> byIcao;
+    private final long latencyMs;
+
+    private InMemoryAirportRepository(List<AirportNode> airports, long latencyMs) {
+        this.airports = List.copyOf(airports);
+        this.byIdent = airports.stream()
+                .collect(Collectors.toMap(AirportNode::getIdent, Function.identity(), (first, second) -> first));
+        this.byIcao = airports.stream().filter(airport -> airport.getIcao() != null)
+                .collect(Collectors.toMap(AirportNode::getIcao, Function.identity(), (first, second) -> first));
+        this.latencyMs = latencyMs;
+    }
+
+    static AirportRepository create(List<AirportNode> airports, long latencyMs) {
+        return (AirportRepository) Proxy.newProxyInstance(AirportRepository.class.getClassLoader(),
+                new Class<?>[] { AirportRepository.class }, new InMemoryAirportRepository(airports, latencyMs));
+    }
+
+    /**
+     * Reads the airports of the fixture shared with the benchmarks: 20,000 airports spread as the world's airfields
+     * are, including the CONUS winds aloft stations at their real positions.
+     */
+    static List<AirportNode> loadFixture() throws IOException {
+        List<AirportNode> airports = new ArrayList<>();
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(new ClassPathResource("fixtures/airports-20k.csv.gz").getInputStream()),
+                StandardCharsets.UTF_8))) {
+            reader.readLine();
+
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                String[] fields = line.split(",");
+
+                airports.add(new AirportNode(fields[0], fields[1].isEmpty() ? null : fields[1], fields[2],
+                        Double.parseDouble(fields[3]), Double.parseDouble(fields[4]), 0,
+                        Boolean.parseBoolean(fields[5])));
+            }
+        }
+        return airports;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        if (method.getDeclaringClass() == Object.class) {
+            return switch (method.getName()) {
+                case "equals" -> proxy == args[0];
+                case "hashCode" -> System.identityHashCode(proxy);
+                default -> "InMemoryAirportRepository[" + airports.size() + " airports]";
+            };
+        }
+        int arity = args == null ? 0 : args.length;
+
+        Thread.sleep(latencyMs);
+        return switch (method.getName() + "/" + arity) {
+            case "findAll/0" -> airports;
+            case "count/0" -> (long) airports.size();
+            case "findByIcao/1" -> Optional.ofNullable(byIcao.get(args[0]));
+            case "findByIdent/1", "findById/1" -> Optional.ofNullable(byIdent.get(args[0]));
+            case "existsById/1" -> byIdent.containsKey(args[0]);
+            default -> throw new UnsupportedOperationException(method + " is not supported in load tests");
+        };
+    }
+}
@@ -0,0 +1,151 @@
+package New_Foreflight.Weather.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+/**
+ * Closed-loop load generator for the endpoints of a service.
+ *
+ * Endpoints are driven one at a time. Each client runs on a virtual thread and sends its next request as soon as the
+ * previous one completes, first for the warmup period, whose requests are discarded, then for the measured period.
+ * Latencies are recorded in microseconds from sending the request to reading the whole response. As in any closed
+ * loop, a stall slows the clients down rather than queuing requests behind it, so percentiles under a stall are
+ * understated; the throughput shows it instead.
+ */
+final class LoadDriver {
+
+    /**
+     * An endpoint to load, giving the path and query of each request from the client's random source.
+     */
+    record Endpoint(String name, Function<SplittableRandom, String> request) {
+    }
+
+    /**
+     * Measurements of one endpoint over the measured period.
+     */
+    record Result(String name, long requests, long errors, long upstreamRequests, Duration elapsed,
+            Histogram latenciesMicros) {
+
+        double throughput() {
+            return requests / (elapsed.toNanos() / 1e9);
+        }
+    }
+
+    /**
+     * Samples indexes of a pool whose popularity falls off with rank as a Zipf distribution, so that a few airports
+     * get most requests and the rest a long tail, as they do in production.
+     */
+    static final class Popularity {
+
+        private final double[] cumulative;
+
+        Popularity(int size, double skew) {
+            cumulative = new double[size];
+
+            double total = 0;
+
+            for (int rank = 0; rank < size; rank++) {
+                total += 1 / Math.pow(rank + 1, skew);
+                cumulative[rank] = total;
+            }
+            for (int rank = 0; rank < size; rank++)
+                cumulative[rank] /= total;
+        }
+
+        int next(SplittableRandom random) {
+            int index = Arrays.binarySearch(cumulative, random.nextDouble());
+
+            return Math.min(index < 0 ? -index - 1 : index, cumulative.length - 1);
+        }
+    }
+
+    private final String baseUrl;
+    private final LoadTestSettings settings;
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5)).build();
+
+    LoadDriver(String baseUrl, LoadTestSettings settings) {
+        this.baseUrl = baseUrl;
+        this.settings = settings;
+    }
+
+    /**
+     * Loads each selected endpoint in turn. Upstream requests are counted with the given counter during each measured
+     * period.
+     */
+    List<Result> run(List<Endpoint> endpoints, LongSupplier upstreamRequests) throws InterruptedException {
+        List<Result> results = new ArrayList<>();
+
+        for (Endpoint endpoint : endpoints) {
+            if (!settings.includes(endpoint.name()))
+                continue;
+            System.err.println("Loading " + endpoint.name() + " with " + settings.intValue("concurrency") + " clients");
+            results.add(run(endpoint, upstreamRequests));
+        }
+        return results;
+    }
+
+    private Result run(Endpoint endpoint, LongSupplier upstreamRequests) throws InterruptedException {
+        Recorder recorder = new Recorder(3);
+        LongAdder errors = new LongAdder();
+        long measureStart = System.nanoTime() + settings.seconds("warmup-seconds").toNanos();
+        long measureEnd = measureStart + settings.seconds("duration-seconds").toNanos();
+        long upstreamAtStart;
+
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int client = 0; client < settings.intValue("concurrency"); client++) {
+                SplittableRandom random = new SplittableRandom(settings.longValue("seed") * 1_000_003 + client);
+
+                clients.execute(() -> {
+                    for (long start = System.nanoTime(); start < measureEnd; start = System.nanoTime()) {
+                        boolean succeeded = send(endpoint, random);
+                        long end = System.nanoTime();
+
+                        if (start < measureStart)
+                            continue;
+                        recorder.recordValue(TimeUnit.NANOSECONDS.toMicros(end - start));
+                        if (!succeeded)
+                            errors.increment();
+                    }
+                });
+            }
+            TimeUnit.NANOSECONDS.sleep(Math.max(0, measureStart - System.nanoTime()));
+            upstreamAtStart = upstreamRequests.getAsLong();
+        }
+        Histogram latencies = recorder.getIntervalHistogram();
+
+        return new Result(endpoint.name(), latencies.getTotalCount(), errors.sum(),
+                upstreamRequests.getAsLong() - upstreamAtStart, Duration.ofNanos(measureEnd - measureStart),
+                latencies);
+    }
+
+    private boolean send(Endpoint endpoint, SplittableRandom random) {
+        try {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + endpoint.request().apply(random)))
+                    .timeout(Duration.ofSeconds(30)).GET().build();
+
+            return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() < 400;
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (Exception exception) {
+            return false;
+        }
+    }
+}
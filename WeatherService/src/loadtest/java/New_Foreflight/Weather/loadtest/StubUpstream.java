@@ -0,0 +1,163 @@
+package New_Foreflight.Weather.loadtest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Local HTTP server standing in for the upstream APIs during a load test.
+ *
+ * A route answers one path, or every path below it when registered with a trailing "/**". Each response is delayed by
+ * the configured latency plus a uniformly distributed jitter, and the configured fraction of requests is answered with
+ * the error status instead, so that the service can be measured against a slow or failing upstream. Requests are
+ * handled on virtual threads, so the delays do not limit how many are in flight.
+ */
+final class StubUpstream implements AutoCloseable {
+
+    record Response(int status, String contentType, byte[] body) {
+
+        static Response text(String contentType, String body) {
+            return new Response(200, contentType, body.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private record Route(String path, boolean prefix, Function<URI, Response> handler, LongAdder requests,
+            LongAdder injectedErrors) {
+
+        boolean matches(String requestPath) {
+            return prefix ? requestPath.startsWith(path) : requestPath.equals(path);
+        }
+    }
+
+    private static final byte[] INJECTED_ERROR = "Injected error".getBytes(StandardCharsets.UTF_8);
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final List<Route> routes = new ArrayList<>();
+    private final long latencyMs;
+    private final long jitterMs;
+    private final double errorRate;
+    private final int errorStatus;
+
+    StubUpstream(LoadTestSettings settings) throws IOException {
+        latencyMs = settings.longValue("upstream-latency-ms");
+        jitterMs = settings.longValue("upstream-jitter-ms");
+        errorRate = settings.doubleValue("upstream-error-rate");
+        errorStatus = settings.intValue("upstream-error-status");
+        server = HttpServer.create(new InetSocketAddress(0), 1024);
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+    }
+
+    /**
+     * Adds a route. Routes are matched longest path first, and must all be added before the server is started.
+     */
+    StubUpstream route(String path, Function<URI, Response> handler) {
+        boolean prefix = path.endsWith("/**");
+
+        routes.add(new Route(prefix ? path.substring(0, path.length() - 2) : path, prefix, handler, new LongAdder(),
+                new LongAdder()));
+        routes.sort(Comparator.comparingInt((Route route) -> route.path().length()).reversed());
+        return this;
+    }
+
+    StubUpstream start() {
+        server.start();
+        return this;
+    }
+
+    int port() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Returns the number of requests answered so far, over all routes.
+     */
+    long requestCount() {
+        return routes.stream().mapToLong(route -> route.requests().sum()).sum();
+    }
+
+    /**
+     * Returns the number of requests answered so far by each route, and how many of them failed by injection.
+     */
+    Map<String, long[]> routeCounts() {
+        Map<String, long[]> counts = new TreeMap<>();
+
+        for (Route route : routes)
+            counts.put(route.prefix() ? route.path() + "**" : route.path(),
+                    new long[] { route.requests().sum(), route.injectedErrors().sum() });
+        return counts;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            URI uri = exchange.getRequestURI();
+            Route route = routes.stream().filter(candidate -> candidate.matches(uri.getPath())).findFirst()
+                    .orElse(null);
+
+            if (route == null) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            route.requests().increment();
+            delay();
+
+            Response response;
+
+            if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+                route.injectedErrors().increment();
+                response = new Response(errorStatus, "text/plain", INJECTED_ERROR);
+            } else {
+                response = answer(route, uri);
+            }
+            exchange.getResponseHeaders().set("Content-Type", response.contentType());
+            exchange.sendResponseHeaders(response.status(), response.body().length == 0 ? -1 : response.body().length);
+
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(response.body());
+            }
+        }
+    }
+
+    private static Response answer(Route route, URI uri) {
+        try {
+            return route.handler().apply(uri);
+        } catch (RuntimeException exception) {
+            System.err.println("Stub upstream failed to answer " + uri + ": " + exception);
+            return new Response(500, "text/plain", String.valueOf(exception).getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private void delay() {
+        long delayMs = latencyMs + (jitterMs > 0 ? ThreadLocalRandom.current().nextLong(jitterMs + 1) : 0);
+
+        if (delayMs <= 0)
+            return;
+        try {
+            Thread.sleep(delayMs);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,145 @@
+package New_Foreflight.Weather.loadtest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.support.GenericApplicationContext;
+
+import com.google.common.collect.ImmutableMap;
+
+import New_Foreflight.Weather.WeatherServiceApplication;
+import New_Foreflight.Weather.database.AirportNode;
+import New_Foreflight.Weather.database.AirportRepository;
+
+/**
+ * Load test of the weather service against local stand-ins for CheckWX, aviationweather.gov and Neo4j, so that cache,
+ * pooling and concurrency changes can be measured without an API key, quota or database:
+ *
+ * mvn -Pload-test verify -DskipTests -Dloadtest.args="--loadtest.concurrency=64 --upstream.http.max-requests-per-host=64"
+ *
+ * The service runs in this JVM with its own configuration, except that its upstreams point at the stub and the airport
+ * repository is replaced by one answering from the 20,000 airport fixture. The stub is reached as 127.0.0.1 for CheckWX
+ * and as localhost for aviationweather.gov, so that the per-host limits apply to each upstream separately, as they do
+ * in production. The rate limiter is lifted by default, since the stub needs no protection and waiting for permits
+ * would hide the rest of the request path; pass upstream.resilience.permits-per-second to measure with it.
+ */
+public final class WeatherLoadTest {
+
+    private static final int[] ALTITUDES = { 3000, 6000, 9000, 12000, 18000, 24000, 30000, 34000, 39000 };
+    private static final int BATCH_SIZE = 10;
+
+    private WeatherLoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        // Simulated round trip of each airport repository query.
+        LoadTestSettings settings = LoadTestSettings.parse(args, Map.of("database-latency-ms", "2"));
+        List<AirportNode> airports = InMemoryAirportRepository.loadFixture();
+        AirportRepository repository = InMemoryAirportRepository.create(airports,
+                settings.longValue("database-latency-ms"));
+
+        try (StubUpstream stub = WeatherUpstreamStubs.start(settings)) {
+            SpringApplication application = new SpringApplication(WeatherServiceApplication.class);
+
+            application.addInitializers(context -> ((GenericApplicationContext) context).registerBean(
+                    "loadTestAirportRepository", AirportRepository.class, () -> repository,
+                    definition -> definition.setPrimary(true)));
+
+            try (ConfigurableApplicationContext context = application
+                    .run(settings.serviceArgs(serviceDefaults(stub.port())))) {
+                String baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+                List<LoadDriver.Result> results = new LoadDriver(baseUrl, settings)
+                        .run(endpoints(pool(airports, settings), settings), stub::requestCount);
+
+                LoadReport.report("WeatherService", settings, results, stub);
+            }
+        }
+    }
+
+    private static Map<String, String> serviceDefaults(int stubPort) {
+        String checkWx = "http://127.0.0.1:" + stubPort;
+        String aviationWeather = "http://localhost:" + stubPort;
+
+        return ImmutableMap.<String, String>builder()
+                .put("server.port", "0")
+                .put("checkwx.api.url", checkWx + WeatherUpstreamStubs.CHECKWX_PATH)
+                .put("checkwx.api.key", "load-test")
+                .put("aviation.weather.api.url", aviationWeather + WeatherUpstreamStubs.AVIATION_WEATHER_PATH)
+                .put("weather.bulk.url", aviationWeather + WeatherUpstreamStubs.METAR_CACHE_PATH)
+                .put("pireps.url", aviationWeather + WeatherUpstreamStubs.PIREP_CACHE_PATH)
+                // The driver connects lazily, and the airport repository is the only user of the database.
+                .put("spring.neo4j.uri", "bolt://localhost:7687")
+                .put("spring.neo4j.authentication.username", "neo4j")
+                .put("spring.neo4j.authentication.password", "load-test")
+                .put("management.health.neo4j.enabled", "false")
+                .put("logging.level.org.neo4j.driver.Driver", "WARN")
+                .put("logging.level.org.springframework.data.neo4j", "WARN")
+                .put("upstream.resilience.permits-per-second", "1000000")
+                .put("upstream.resilience.burst", "1000000")
+                .build();
+    }
+
+    /**
+     * Picks the airports requested during the run, in order of popularity, from the airports with an ICAO code.
+     */
+    private static List<AirportNode> pool(List<AirportNode> airports, LoadTestSettings settings) {
+        List<AirportNode> candidates = new ArrayList<>(airports.stream().filter(airport -> airport.getIcao() != null)
+                .toList());
+
+        Collections.shuffle(candidates, new Random(settings.longValue("seed")));
+        return candidates.subList(0, Math.min(settings.intValue("airports"), candidates.size()));
+    }
+
+    private static List<LoadDriver.Endpoint> endpoints(List<AirportNode> pool, LoadTestSettings settings) {
+        LoadDriver.Popularity popularity = new LoadDriver.Popularity(pool.size(), settings.doubleValue("skew"));
+
+        return List.of(
+                new LoadDriver.Endpoint("getAirportWeather",
+                        random -> "/api/v1/getAirportWeather?airportCode=" + icao(pool, popularity, random)),
+                new LoadDriver.Endpoint("getAirportWeatherBatch",
+                        random -> "/api/v1/getAirportWeatherBatch?airportCodes=" + IntStream.range(0, BATCH_SIZE)
+                                .mapToObj(i -> icao(pool, popularity, random)).collect(Collectors.joining(","))),
+                new LoadDriver.Endpoint("getWindsAloft",
+                        random -> "/api/v1/getWindsAloft?airportCode=" + icao(pool, popularity, random)
+                                + "&altitude=" + altitude(random)),
+                new LoadDriver.Endpoint("getInterpolatedWindsAloft",
+                        random -> "/api/v1/getInterpolatedWindsAloft?" + position(pool, popularity, random)
+                                + "&altitude=" + altitude(random)),
+                new LoadDriver.Endpoint("getPirepReports",
+                        random -> "/api/v1/getPirepReports?" + position(pool, popularity, random)
+                                + "&distance=100&age=2"),
+                new LoadDriver.Endpoint("getAdvisories",
+                        random -> "/api/v1/getAdvisories?" + position(pool, popularity, random)),
+                new LoadDriver.Endpoint("getMetar",
+                        random -> "/api/v1/getMetar?airportcode=" + icao(pool, popularity, random) + "&hours=2"),
+                new LoadDriver.Endpoint("reactive/getMetar",
+                        random -> "/api/v1/reactive/getMetar?airportcode=" + icao(pool, popularity, random)
+                                + "&hours=2"));
+    }
+
+    private static String icao(List<AirportNode> pool, LoadDriver.Popularity popularity, SplittableRandom random) {
+        return pool.get(popularity.next(random)).getIcao();
+    }
+
+    // A position within about 30 nm of an airport, as requests along a flight are.
+    private static String position(List<AirportNode> pool, LoadDriver.Popularity popularity,
+            SplittableRandom random) {
+        AirportNode airport = pool.get(popularity.next(random));
+
+        return String.format(Locale.ROOT, "latitude=%.4f&longitude=%.4f", airport.getLatitude() + random.nextDouble(-0.5, 0.5),
+                airport.getLongitude() + random.nextDouble(-0.5, 0.5));
+    }
+
+    private static int altitude(SplittableRandom random) {
+        return ALTITUDES[random.nextInt(ALTITUDES.length)];
+    }
+}
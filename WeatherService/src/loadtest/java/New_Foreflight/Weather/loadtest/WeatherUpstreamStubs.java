@@ -0,0 +1,184 @@
+package New_Foreflight.Weather.loadtest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.core.io.ClassPathResource;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Routes of the stub upstream for the weather service, answering with the recorded fixtures.
+ *
+ * The fixtures were recorded around 2025-06-01T15:00Z. Their times are moved to the present when the stub starts, since
+ * the service drops reports and advisories that have expired and refetches observations it considers old. CheckWX
+ * answers any requested stations with a copy of one recorded observation, and the aviationweather.gov data API answers
+ * METARs with the matching raw text for any station.
+ */
+final class WeatherUpstreamStubs {
+
+    static final String CHECKWX_PATH = "/checkwx/metar/{station}/decoded?key={key}";
+    static final String AVIATION_WEATHER_PATH = "/api/data";
+    static final String METAR_CACHE_PATH = "/data/cache/metars.cache.csv.gz";
+    static final String PIREP_CACHE_PATH = "/data/cache/aircraftreports.cache.csv.gz";
+
+    private static final Instant RECORDED = Instant.parse("2025-06-01T15:00:00Z");
+    private static final Pattern ISO_TIME = Pattern.compile("\\d{4}-\\d{2}-\\d{2}T\\d{2}:\\d{2}:\\d{2}Z");
+    private static final DateTimeFormatter DAY_TIME = DateTimeFormatter.ofPattern("ddHHmm").withZone(ZoneOffset.UTC);
+    private static final DateTimeFormatter HOUR_MINUTE = DateTimeFormatter.ofPattern("HHmm").withZone(ZoneOffset.UTC);
+    private static final DateTimeFormatter CHECKWX_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss")
+            .withZone(ZoneOffset.UTC);
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private WeatherUpstreamStubs() {
+    }
+
+    static StubUpstream start(LoadTestSettings settings) throws IOException {
+        Instant now = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+        // The latest routine METAR, issued at 53 minutes past the hour.
+        Instant observed = now.truncatedTo(ChronoUnit.HOURS).plus(Duration.ofMinutes(53));
+        Instant latestObservation = observed.isAfter(now) ? observed.minus(Duration.ofHours(1)) : observed;
+        ObjectNode observation = (ObjectNode) MAPPER.readTree(fixture("checkwx-metar-klax.json")).get("data").get(0);
+        String rawMetar = observation.get("raw_text").asText();
+        String windsAloft = windsAloftBulletin(fixture("fb-winds-aloft-conus.txt"), now);
+        String pireps = fixture("awc-pirep.txt");
+        String sigmets = shift(fixture("awc-airsigmet.json"), Duration.between(RECORDED, now));
+        // G-AIRMETs are issued for three-hourly valid times, so they are moved by whole three hour steps.
+        long gAirmetSteps = Duration.between(RECORDED, now).toHours() / 3;
+        String gAirmets = shift(fixture("awc-gairmet.json"), Duration.ofHours(gAirmetSteps * 3));
+        byte[] metarCache = shiftedCache("metars.cache.csv.gz", latestObservation);
+        byte[] pirepCache = shiftedCache("aircraftreports.cache.csv.gz", now);
+
+        return new StubUpstream(settings)
+                .route("/checkwx/metar/**",
+                        uri -> json(checkWx(observation, rawMetar, uri.getPath().split("/")[3], latestObservation)))
+                .route(AVIATION_WEATHER_PATH, uri -> text(windsAloft))
+                .route(AVIATION_WEATHER_PATH + "/windtemp", uri -> text(windsAloft))
+                .route(AVIATION_WEATHER_PATH + "/metar",
+                        uri -> text(rawMetars(rawMetar, queryParameter(uri, "ids"), latestObservation)))
+                .route(AVIATION_WEATHER_PATH + "/pirep", uri -> text(pireps))
+                .route(AVIATION_WEATHER_PATH + "/airsigmet", uri -> json(sigmets))
+                .route(AVIATION_WEATHER_PATH + "/gairmet", uri -> json(gAirmets))
+                .route(METAR_CACHE_PATH, uri -> gzip(metarCache))
+                .route(PIREP_CACHE_PATH, uri -> gzip(pirepCache))
+                .start();
+    }
+
+    /**
+     * Answers a CheckWX request for one or more comma-separated stations.
+     */
+    private static String checkWx(ObjectNode template, String rawMetar, String stations, Instant observed) {
+        ArrayNode data = MAPPER.createArrayNode();
+
+        for (String station : stations.split(",")) {
+            ObjectNode observation = template.deepCopy();
+
+            observation.put("icao", station);
+            observation.put("observed", CHECKWX_TIME.format(observed));
+            observation.put("raw_text", rawMetar(rawMetar, station, observed));
+            data.add(observation);
+        }
+        ObjectNode response = MAPPER.createObjectNode();
+
+        response.put("results", data.size());
+        response.set("data", data);
+        return response.toString();
+    }
+
+    private static String rawMetars(String rawMetar, String stations, Instant observed) {
+        return Arrays.stream(stations.split(",")).map(station -> rawMetar(rawMetar, station, observed))
+                .collect(Collectors.joining("\n", "", "\n"));
+    }
+
+    // Replaces the station and the day and time group of the recorded METAR.
+    private static String rawMetar(String rawMetar, String station, Instant observed) {
+        return station + " " + DAY_TIME.format(observed) + "Z" + rawMetar.substring(rawMetar.indexOf('Z', 5) + 1);
+    }
+
+    /**
+     * Moves the issuance header of the FB bulletin to the latest six-hourly cycle, issued two hours after its data
+     * time, as the real bulletins are.
+     */
+    private static String windsAloftBulletin(String bulletin, Instant now) {
+        long cycleSeconds = Duration.ofHours(6).toSeconds();
+        Instant basedOn = Instant
+                .ofEpochSecond(now.minus(Duration.ofHours(2)).getEpochSecond() / cycleSeconds * cycleSeconds);
+        Instant issued = basedOn.plus(Duration.ofMinutes(119));
+
+        return bulletin.replaceFirst("KWNO \\d{6}", "KWNO " + DAY_TIME.format(issued))
+                .replaceFirst("DATA BASED ON \\d{6}Z", "DATA BASED ON " + DAY_TIME.format(basedOn) + "Z")
+                .replaceFirst("VALID \\d{6}Z(\\s+)FOR USE \\d{4}-\\d{4}Z",
+                        "VALID " + DAY_TIME.format(basedOn.plus(Duration.ofHours(6))) + "Z$1FOR USE "
+                                + HOUR_MINUTE.format(basedOn.plus(Duration.ofHours(2))) + "-"
+                                + HOUR_MINUTE.format(basedOn.plus(Duration.ofHours(9))) + "Z");
+    }
+
+    /**
+     * Reads a gzipped cache file and moves its times so that the newest is the given time.
+     */
+    private static byte[] shiftedCache(String name, Instant newest) throws IOException {
+        String content;
+
+        try (GZIPInputStream input = new GZIPInputStream(
+                new ClassPathResource("fixtures/" + name).getInputStream())) {
+            content = new String(input.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        Instant recordedNewest = ISO_TIME.matcher(content).results().map(match -> Instant.parse(match.group()))
+                .max(Instant::compareTo).orElse(newest);
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+
+        try (GZIPOutputStream output = new GZIPOutputStream(compressed)) {
+            output.write(shift(content, Duration.between(recordedNewest, newest)).getBytes(StandardCharsets.UTF_8));
+        }
+        return compressed.toByteArray();
+    }
+
+    private static String shift(String content, Duration offset) {
+        Matcher matcher = ISO_TIME.matcher(content);
+
+        return matcher.replaceAll(match -> Instant.parse(match.group()).plus(offset).toString());
+    }
+
+    private static String queryParameter(URI uri, String name) {
+        for (String parameter : uri.getQuery().split("&"))
+            if (parameter.startsWith(name + "="))
+                return parameter.substring(name.length() + 1);
+        throw new IllegalArgumentException("Missing " + name + " in " + uri);
+    }
+
+    private static String fixture(String name) {
+        try {
+            return new ClassPathResource("fixtures/" + name).getContentAsString(StandardCharsets.UTF_8);
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    private static StubUpstream.Response text(String body) {
+        return StubUpstream.Response.text("text/plain", body);
+    }
+
+    private static StubUpstream.Response json(String body) {
+        return StubUpstream.Response.text("application/json", body);
+    }
+
+    private static StubUpstream.Response gzip(byte[] body) {
+        return new StubUpstream.Response(200, "application/x-gzip", body);
+    }
+}
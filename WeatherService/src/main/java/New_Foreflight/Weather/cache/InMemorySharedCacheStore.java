@@ -0,0 +1,46 @@
+package New_Foreflight.Weather.cache;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process-local stand-in for a shared cache store, for tests and single-instance deployments that want to exercise the
+ * shared tier. Expired entries are dropped when they are read.
+ */
+public class InMemorySharedCacheStore implements SharedCacheStore {
+
+    private record Stored(Entry entry, long expiresAtMillis) {
+    }
+
+    private final ConcurrentHashMap<String, Stored> entries = new ConcurrentHashMap<>();
+
+    @Override
+    public Entry get(String key) {
+        Stored stored = entries.get(key);
+
+        if (stored == null)
+            return null;
+
+        if (System.currentTimeMillis() >= stored.expiresAtMillis()) {
+            entries.remove(key, stored);
+            return null;
+        }
+        return stored.entry();
+    }
+
+    @Override
+    public void put(String key, byte[] value, Duration timeToLive) {
+        long now = System.currentTimeMillis();
+
+        entries.put(key, new Stored(new Entry(value, now), now + timeToLive.toMillis()));
+    }
+
+    @Override
+    public void invalidate(String key) {
+        entries.remove(key);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+}
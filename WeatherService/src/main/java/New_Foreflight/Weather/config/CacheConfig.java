@@ -0,0 +1,36 @@
+package New_Foreflight.Weather.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import New_Foreflight.Weather.cache.InMemorySharedCacheStore;
+import New_Foreflight.Weather.cache.SharedCacheStore;
+
+/**
+ * Shared tier of the service caches.
+ *
+ * By default the caches are in-process only. A deployment running several replicas provides its own
+ * {@link SharedCacheStore} bean, e.g. backed by Redis, which replaces the one defined here.
+ */
+@Configuration
+public class CacheConfig {
+
+    // "none" for in-process caches only, or "in-memory" for the process-local stand-in of a shared store.
+    @Value("${cache.shared.store:none}")
+    private String sharedStore;
+
+    @Bean
+    @ConditionalOnMissingBean
+    public SharedCacheStore sharedCacheStore() {
+        switch (sharedStore) {
+        case "none":
+            return SharedCacheStore.none();
+        case "in-memory":
+            return new InMemorySharedCacheStore();
+        default:
+            throw new IllegalArgumentException("Unknown shared cache store: " + sharedStore);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package New_Foreflight.Weather.config;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+/**
+ * Executor used to fan out upstream requests, e.g. for multi-station weather requests.
+ *
+ * With virtual threads enabled each upstream request gets its own virtual thread. Concurrency towards each upstream is
+ * then bounded only by the per-host limit of the shared HTTP client rather than by the size of a platform thread pool.
+ */
+@Configuration
+public class ExecutorConfig {
+
+    // Maximum number of upstream requests a single service instance fans out in parallel.
+    @Value("${upstream.fan-out.parallelism:16}")
+    private int parallelism;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreadsEnabled;
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService upstreamExecutor() {
+        if (virtualThreadsEnabled)
+            return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("upstream-", 1).factory());
+        return Executors.newFixedThreadPool(parallelism, new CustomizableThreadFactory("upstream-"));
+    }
+}
@@ -0,0 +1,47 @@
+package New_Foreflight.Weather.config;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking counterpart of {@link UpstreamMetricsInterceptor} for WebClient, recording to the same timer.
+ *
+ * The time runs from subscription to the response headers, including retries, and exchanges cancelled before a response
+ * arrives are recorded with the status CANCELLED.
+ */
+public class UpstreamMetricsFilter implements ExchangeFilterFunction {
+
+    private final MeterRegistry registry;
+
+    public UpstreamMetricsFilter(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        return Mono.defer(() -> {
+            Timer.Sample sample = Timer.start(registry);
+            AtomicBoolean recorded = new AtomicBoolean();
+
+            return next.exchange(request).doOnEach(signal -> {
+                if (signal.isOnComplete() || !recorded.compareAndSet(false, true))
+                    return;
+                String status = signal.isOnNext() ? String.valueOf(signal.get().statusCode().value())
+                        : UpstreamUnavailableException.find(signal.getThrowable()) != null ? "UNAVAILABLE" : "IO_ERROR";
+
+                sample.stop(UpstreamMetricsInterceptor.timer(registry, request.url(), status));
+            }).doOnCancel(() -> {
+                if (recorded.compareAndSet(false, true))
+                    sample.stop(UpstreamMetricsInterceptor.timer(registry, request.url(), "CANCELLED"));
+            });
+        });
+    }
+}
@@ -0,0 +1,92 @@
+package New_Foreflight.Weather.config;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.regex.Pattern;
+
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Times every upstream request as the {@code upstream.requests} timer, whose count also serves as the request counter.
+ *
+ * Requests are tagged with the upstream host, the endpoint, the status code and the outcome. The endpoint is the path
+ * with station codes and other identifiers replaced by a placeholder, so that it names the product requested without
+ * one time series per airport. Placed first in the interceptor chain, the timer covers the whole exchange as seen by
+ * the caller, including waits for a connection or a rate limit permit and any retries; requests refused by an open
+ * circuit are recorded with the status UNAVAILABLE and requests that fail without a response with IO_ERROR.
+ */
+public class UpstreamMetricsInterceptor implements ClientHttpRequestInterceptor {
+
+    static final String METRIC_NAME = "upstream.requests";
+
+    // Path segments without lowercase letters, such as KLAX, KLAX,KJFK or 2024.
+    private static final Pattern IDENTIFIER = Pattern.compile("[A-Z0-9_,+-]+");
+
+    private final MeterRegistry registry;
+
+    public UpstreamMetricsInterceptor(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+            throws IOException {
+        Timer.Sample sample = Timer.start(registry);
+        String status = "IO_ERROR";
+
+        try {
+            ClientHttpResponse response = execution.execute(request, body);
+
+            status = String.valueOf(response.getStatusCode().value());
+            return response;
+        } catch (UpstreamUnavailableException exception) {
+            status = "UNAVAILABLE";
+            throw exception;
+        } finally {
+            sample.stop(timer(registry, request.getURI(), status));
+        }
+    }
+
+    static Timer timer(MeterRegistry registry, URI uri, String status) {
+        return Timer.builder(METRIC_NAME).description("Requests to upstream APIs").tags("upstream",
+                String.valueOf(uri.getHost()), "endpoint", endpoint(uri), "status", status, "outcome", outcome(status))
+                .register(registry);
+    }
+
+    /**
+     * Returns the path of the URI with identifier segments replaced by {id}, e.g. /metar/{id}/decoded.
+     */
+    static String endpoint(URI uri) {
+        String path = uri.getRawPath();
+
+        if (path == null || path.isEmpty())
+            return "/";
+        StringBuilder endpoint = new StringBuilder(path.length());
+
+        for (String segment : path.split("/")) {
+            if (segment.isEmpty())
+                continue;
+            endpoint.append('/').append(IDENTIFIER.matcher(segment).matches() ? "{id}" : segment);
+        }
+        return endpoint.isEmpty() ? "/" : endpoint.toString();
+    }
+
+    private static String outcome(String status) {
+        if (!Character.isDigit(status.charAt(0)))
+            return "UNKNOWN";
+        HttpStatusCode code = HttpStatusCode.valueOf(Integer.parseInt(status));
+
+        if (code.is2xxSuccessful())
+            return "SUCCESS";
+        if (code.is3xxRedirection())
+            return "REDIRECTION";
+        return code.is4xxClientError() ? "CLIENT_ERROR" : code.is5xxServerError() ? "SERVER_ERROR" : "UNKNOWN";
+    }
+}
@@ -0,0 +1,111 @@
+package New_Foreflight.Weather.config;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+/**
+ * Non-blocking counterpart of {@link UpstreamResilienceInterceptor} for WebClient.
+ *
+ * It applies the same limits with the same per-host token buckets and circuit breakers as the interceptor, so requests
+ * from both clients count against one budget. Waits for a permit and backoffs before a retry are timer delays rather
+ * than sleeps. A request cancelled while it is the probe of a half-open circuit gives the probe up, so that a caller
+ * disconnecting cannot leave the circuit waiting on a probe that will never complete.
+ */
+public class UpstreamResilienceFilter implements ExchangeFilterFunction {
+
+    private final UpstreamResilienceInterceptor limits;
+
+    public UpstreamResilienceFilter(UpstreamResilienceInterceptor limits) {
+        this.limits = limits;
+    }
+
+    /**
+     * Signals that an attempt failed and should be retried after the delay.
+     */
+    private static final class RetryAfter extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        private final long delayMillis;
+
+        RetryAfter(long delayMillis) {
+            super(null, null, false, false);
+            this.delayMillis = delayMillis;
+        }
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        String host = request.url().getHost() == null ? "" : request.url().getHost();
+        boolean retryable = UpstreamResilienceInterceptor.isIdempotent(request.method());
+        AtomicInteger attempts = new AtomicInteger();
+
+        return Mono.defer(() -> attempt(request, next, host, retryable, attempts.getAndIncrement())).retryWhen(
+                Retry.from(signals -> signals.concatMap(signal -> signal.failure() instanceof RetryAfter retry
+                        ? Mono.delay(Duration.ofMillis(retry.delayMillis)) : Mono.error(signal.failure()))));
+    }
+
+    private Mono<ClientResponse> attempt(ClientRequest request, ExchangeFunction next, String host, boolean retryable,
+            int attempt) {
+        UpstreamResilienceInterceptor.CircuitBreaker breaker = limits.breakerFor(host);
+        UpstreamResilienceInterceptor.TokenBucket bucket = limits.bucketFor(host);
+        long closedIn = breaker.retryAfterNanos();
+
+        // Checked before taking a token so that requests to an open circuit fail without waiting.
+        if (closedIn > 0)
+            return Mono.error(new UpstreamUnavailableException("Circuit to " + host + " is open",
+                    TimeUnit.NANOSECONDS.toMillis(closedIn)));
+        long wait = bucket.reserve(limits.getSettings().maxWait().toNanos());
+
+        if (wait < 0)
+            return Mono.error(new UpstreamUnavailableException("Rate limit for " + host + " exceeded",
+                    TimeUnit.NANOSECONDS.toMillis(bucket.nanosUntilPermit())));
+        Mono<ClientResponse> exchange = Mono.defer(() -> exchange(request, next, host, breaker, retryable, attempt));
+
+        return wait == 0 ? exchange : Mono.delay(Duration.ofNanos(wait)).then(exchange);
+    }
+
+    private Mono<ClientResponse> exchange(ClientRequest request, ExchangeFunction next, String host,
+            UpstreamResilienceInterceptor.CircuitBreaker breaker, boolean retryable, int attempt) {
+        UpstreamResilienceInterceptor.Permit permit = breaker.acquire();
+
+        if (permit == UpstreamResilienceInterceptor.Permit.REFUSED)
+            return Mono.error(new UpstreamUnavailableException("Circuit to " + host + " is open",
+                    TimeUnit.NANOSECONDS.toMillis(breaker.retryAfterNanos())));
+        boolean lastAttempt = !retryable || attempt >= limits.getSettings().maxRetries();
+
+        return next.exchange(request).doOnCancel(() -> {
+            if (permit == UpstreamResilienceInterceptor.Permit.PROBE)
+                breaker.onProbeAbandoned();
+        }).onErrorResume(error -> {
+            breaker.onFailure(permit);
+            return Mono
+                    .error(lastAttempt || breaker.isOpen() ? error : new RetryAfter(limits.backOffMillis(attempt, -1)));
+        }).flatMap(response -> {
+            int status = response.statusCode().value();
+
+            if (status != 429 && status < 500) {
+                breaker.onSuccess(permit);
+                return Mono.just(response);
+            }
+            breaker.onFailure(permit);
+            long retryAfterMillis = UpstreamResilienceInterceptor.retryAfterMillis(response.headers().asHttpHeaders());
+
+            // Hand back the last response rather than wait longer than a retry is worth.
+            if (lastAttempt || breaker.isOpen() || status == 501
+                    || retryAfterMillis > limits.getSettings().maxRetryBackoff().toMillis())
+                return Mono.just(response);
+            return response.releaseBody()
+                    .then(Mono.error(new RetryAfter(limits.backOffMillis(attempt, retryAfterMillis))));
+        });
+    }
+}
@@ -0,0 +1,66 @@
+package New_Foreflight.Weather.config;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.channel.ChannelOption;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+/**
+ * Non-blocking client for the upstream weather APIs, used by the reactive request path.
+ *
+ * It mirrors the blocking client in {@link HttpClientConfig}: the same connect and read timeouts, the same bound on
+ * connections per host (requests beyond it wait for a connection up to the read timeout), gzip, and the same rate
+ * limits, circuit breakers and retries through {@link UpstreamResilienceFilter}, timed by
+ * {@link UpstreamMetricsFilter}. A request waiting on the upstream holds no thread, and cancelling its subscription
+ * closes the exchange.
+ */
+@Configuration
+public class WebClientConfig {
+
+    @Value("${upstream.http.connect-timeout-ms:3000}")
+    private int connectTimeoutMs;
+
+    @Value("${upstream.http.read-timeout-ms:10000}")
+    private long readTimeoutMs;
+
+    @Value("${upstream.http.max-requests-per-host:32}")
+    private int maxRequestsPerHost;
+
+    @Value("${upstream.http.keep-alive-seconds:120}")
+    private int keepAliveSeconds;
+
+    @Value("${upstream.http.gzip:true}")
+    private boolean gzipEnabled;
+
+    // Largest response body buffered in memory; aviationweather.gov advisory feeds run to a few megabytes.
+    @Value("${upstream.reactive.max-body-bytes:16777216}")
+    private int maxBodyBytes;
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider upstreamConnectionProvider() {
+        return ConnectionProvider.builder("upstream").maxConnections(maxRequestsPerHost).pendingAcquireMaxCount(-1)
+                .pendingAcquireTimeout(Duration.ofMillis(readTimeoutMs))
+                .maxIdleTime(Duration.ofSeconds(keepAliveSeconds)).build();
+    }
+
+    @Bean
+    public WebClient upstreamWebClient(ConnectionProvider upstreamConnectionProvider,
+            UpstreamResilienceInterceptor upstreamResilienceInterceptor, MeterRegistry meterRegistry) {
+        HttpClient httpClient = HttpClient.create(upstreamConnectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMs)
+                .responseTimeout(Duration.ofMillis(readTimeoutMs)).compress(gzipEnabled).followRedirect(true);
+
+        return WebClient.builder().clientConnector(new ReactorClientHttpConnector(httpClient))
+                .codecs(codecs -> codecs.defaultCodecs().maxInMemorySize(maxBodyBytes))
+                .filter(new UpstreamMetricsFilter(meterRegistry))
+                .filter(new UpstreamResilienceFilter(upstreamResilienceInterceptor)).build();
+    }
+}
@@ -0,0 +1,91 @@
+package New_Foreflight.Weather.controller;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import New_Foreflight.Weather.service.ReactiveWeatherService;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking variants of the METAR, PIREP, SIGMET, G-AIRMET and winds-temp endpoints.
+ *
+ * A request is handed to the container as an async request and holds no thread while waiting on the upstream. Each
+ * request may set its own timeout, up to a configured maximum, after which it gets a 504 and the upstream exchange is
+ * cancelled. The exchange is also cancelled when the container completes or fails the async request, as when the client
+ * disconnects, so abandoned requests do not keep upstream connections busy.
+ */
+@RestController
+@RequestMapping("/api/v1/reactive")
+public class ReactiveWeatherServiceController {
+
+    @Autowired
+    private ReactiveWeatherService reactiveWeatherService;
+
+    @Value("${reactive.request-timeout-ms:10000}")
+    private long defaultTimeoutMs;
+
+    @Value("${reactive.max-request-timeout-ms:30000}")
+    private long maxTimeoutMs;
+
+    @GetMapping(value = "/getMetar")
+    public DeferredResult<ResponseEntity<String>> getMetar(@RequestParam String airportcode, @RequestParam int hours,
+            @RequestParam(required = false) Long timeoutMs) {
+        return respond(reactiveWeatherService.getMetar(airportcode, hours), timeoutMs, "no metar");
+    }
+
+    @GetMapping(value = "/getPireps")
+    public DeferredResult<ResponseEntity<String>> getPireps(@RequestParam String airportCode,
+            @RequestParam int distance, @RequestParam int age, @RequestParam(required = false) Long timeoutMs) {
+        return respond(reactiveWeatherService.getPirepData(airportCode, distance, age), timeoutMs, "no pireps");
+    }
+
+    @GetMapping(value = "/getAirSigmet")
+    public DeferredResult<ResponseEntity<String>> getAirSigmet(@RequestParam(required = false) Long timeoutMs) {
+        return respond(reactiveWeatherService.getAirSigmet(), timeoutMs, "no air sigmet");
+    }
+
+    @GetMapping(value = "/getGAirmet")
+    public DeferredResult<ResponseEntity<String>> getGAirmet(@RequestParam int southLat, @RequestParam int westLon,
+            @RequestParam int northLat, @RequestParam int eastLon, @RequestParam(required = false) Long timeoutMs) {
+        return respond(reactiveWeatherService.getGAirmet(southLat, westLon, northLat, eastLon), timeoutMs,
+                "no GAirmet");
+    }
+
+    @GetMapping(value = "/getWindTemp")
+    public DeferredResult<ResponseEntity<String>> getWindTemp(@RequestParam String region, @RequestParam String forcast,
+            @RequestParam String level, @RequestParam(required = false) Long timeoutMs) {
+        return respond(reactiveWeatherService.getWindTemp(region, forcast, level), timeoutMs, "no wind temp");
+    }
+
+    /**
+     * Subscribes to the body and completes the async request with it, or with an error response on failure or timeout.
+     * The subscription is disposed whenever the async request ends first.
+     */
+    private <T> DeferredResult<ResponseEntity<T>> respond(Mono<T> body, Long timeoutMs, T errorBody) {
+        long timeout = timeoutMs == null || timeoutMs <= 0 ? defaultTimeoutMs : Math.min(timeoutMs, maxTimeoutMs);
+        // The container's own async timeout is only a backstop; it is checked far less precisely than the Mono's.
+        DeferredResult<ResponseEntity<T>> result = new DeferredResult<>(timeout + 1000,
+                () -> ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).body(errorBody));
+        Disposable subscription = body.timeout(Duration.ofMillis(timeout)).map(ResponseEntity::ok)
+                .defaultIfEmpty(ResponseEntity.noContent().build())
+                .onErrorResume(error -> Mono.just(error instanceof TimeoutException
+                        ? ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).body(errorBody)
+                        : WeatherServiceController.errorResponse(error, errorBody)))
+                .subscribe(result::setResult);
+
+        result.onCompletion(subscription::dispose);
+        result.onError(error -> subscription.dispose());
+        return result;
+    }
+}
@@ -1,15 +1,38 @@
 package New_Foreflight.Weather.controller;
 
+import New_Foreflight.Weather.config.UpstreamUnavailableException;
+import New_Foreflight.Weather.dto.Advisory;
+import New_Foreflight.Weather.dto.AdvisoryRouteRequest;
 import New_Foreflight.Weather.dto.AirportWeatherResponse;
+import New_Foreflight.Weather.dto.BatchWeatherResponse;
+import New_Foreflight.Weather.dto.Pirep;
+import New_Foreflight.Weather.dto.RouteWindsRequest;
+import New_Foreflight.Weather.dto.RouteWindsResponse;
+import New_Foreflight.Weather.dto.WindsAloftIssuance;
+import New_Foreflight.Weather.dto.WindsAloftSample;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.reactive.function.client.WebClientException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import New_Foreflight.Weather.service.WeatherService;
+import New_Foreflight.Weather.service.WeatherSubscriptionHub;
 
 @RestController
 @RequestMapping("/api/v1")
@@ -18,21 +41,54 @@ public class WeatherServiceController {
     @Autowired
     WeatherService weatherService;
 
+    @Autowired
+    private WeatherSubscriptionHub weatherSubscriptionHub;
+
+    @Value("${weather.batch.max-airports:100}")
+    private int batchMaxAirports;
+
     @GetMapping(value = "/getAirportWeather")
     public ResponseEntity<AirportWeatherResponse> getAirportWeather(@RequestParam String airportCode) {
         try {
             return ResponseEntity.ok(weatherService.getAirportWeather(airportCode));
+        } catch (IllegalArgumentException exception) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(null);
         } catch (Exception exception) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
+            return errorResponse(exception, null);
+        }
+    }
+
+    @GetMapping(value = "/getAirportWeatherBatch")
+    public ResponseEntity<BatchWeatherResponse> getAirportWeatherBatch(@RequestParam List<String> airportCodes) {
+        if (airportCodes.isEmpty() || airportCodes.size() > batchMaxAirports)
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+
+        try {
+            return ResponseEntity.ok(weatherService.getAirportWeatherBatch(airportCodes));
+        } catch (Exception exception) {
+            return errorResponse(exception, null);
+        }
+    }
+
+    /**
+     * Opens a server-sent event stream of new METARs ("metar" events) and flight category changes ("flight-category"
+     * events) for the airports, starting with the latest METAR of each.
+     */
+    @GetMapping(value = "/subscribeAirportWeather", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> subscribeAirportWeather(@RequestParam List<String> airportCodes) {
+        try {
+            return ResponseEntity.ok(weatherSubscriptionHub.subscribe(airportCodes));
+        } catch (IllegalArgumentException exception) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
         }
     }
 
     @GetMapping(value = "/getWindsAloft")
     public ResponseEntity<String> getWindsAloft(@RequestParam String airportCode, @RequestParam int altitude) {
         try {
-            return ResponseEntity.ok(weatherService.getWindsAloft(airportCode, altitude));
+            return windsAloftResponse(weatherService.getWindsAloft(airportCode, altitude));
         } catch (Exception exception) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
+            return errorResponse(exception, null);
         }
     }
 
@@ -40,78 +96,192 @@ public class WeatherServiceController {
     public ResponseEntity<String> getWindsAloftByCoords(@RequestParam double latitude, @RequestParam double longitude,
             @RequestParam int altitude) {
         try {
-            return ResponseEntity.ok(weatherService.getWindsAloft(latitude, longitude, altitude));
+            return windsAloftResponse(weatherService.getWindsAloft(latitude, longitude, altitude));
+        } catch (Exception exception) {
+            return errorResponse(exception, null);
+        }
+    }
+
+    @GetMapping(value = "/getInterpolatedWindsAloft")
+    public ResponseEntity<WindsAloftSample> getInterpolatedWindsAloft(@RequestParam double latitude,
+            @RequestParam double longitude, @RequestParam int altitude) {
+        try {
+            WindsAloftSample sample = weatherService.getInterpolatedWindsAloft(latitude, longitude, altitude);
+
+            if (sample == null)
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(null);
+            return windsAloftResponse(sample);
+        } catch (Exception exception) {
+            return errorResponse(exception, null);
+        }
+    }
+
+    @PostMapping(value = "/getRouteWindsAloft")
+    public ResponseEntity<RouteWindsResponse> getRouteWindsAloft(@RequestBody RouteWindsRequest request) {
+        try {
+            return windsAloftResponse(weatherService.getRouteWindsAloft(request));
+        } catch (IllegalArgumentException exception) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
         } catch (Exception exception) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
+            return errorResponse(exception, null);
         }
     }
 
+    @GetMapping(value = "/getWindsAloftIssuance")
+    public ResponseEntity<WindsAloftIssuance> getWindsAloftIssuance() {
+        try {
+            WindsAloftIssuance issuance = weatherService.getWindsAloftIssuance();
+
+            if (issuance == null)
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(null);
+            return ResponseEntity.ok(issuance);
+        } catch (Exception exception) {
+            return errorResponse(exception, null);
+        }
+    }
+
+    /**
+     * Wraps a winds aloft result in a successful response carrying the age in seconds and the issuance of the data
+     * served. The issuance is read after the result, which loads the data on the first request.
+     */
+    private <T> ResponseEntity<T> windsAloftResponse(T body) {
+        WindsAloftIssuance issuance = weatherService.getWindsAloftIssuance();
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+
+        if (issuance != null) {
+            response.header("X-Data-Age", String.valueOf(issuance.ageSeconds()));
+            if (issuance.basedOn() != null)
+                response.header("X-Data-Based-On", issuance.basedOn().toString());
+            if (issuance.validAt() != null)
+                response.header("X-Data-Valid", issuance.validAt().toString());
+        }
+        return response.body(body);
+    }
+
+    /**
+     * Maps a failure to a response: 503 with Retry-After when the upstream is rate limited or its circuit is open, 502
+     * when the upstream call failed, and 500 otherwise.
+     */
+    static <T> ResponseEntity<T> errorResponse(Throwable exception, T body) {
+        UpstreamUnavailableException unavailable = UpstreamUnavailableException.find(exception);
+
+        if (unavailable != null) {
+            long retryAfterSeconds = Math.max(1, TimeUnit.MILLISECONDS.toSeconds(unavailable.getRetryAfterMillis()));
+
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds)).body(body);
+        }
+        if (exception instanceof RestClientException || exception instanceof WebClientException)
+            return ResponseEntity.status(HttpStatus.BAD_GATEWAY).body(body);
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(body);
+    }
+
     @GetMapping(value = "/getPireps")
-    public ResponseEntity<String> getPireps(
-            @RequestParam String airportCode,
-            @RequestParam int distance,
+    public ResponseEntity<String> getPireps(@RequestParam String airportCode, @RequestParam int distance,
             @RequestParam int age) {
         try {
             String pireps = weatherService.getPirepData(airportCode, distance, age);
-            
+
             return ResponseEntity.ok(pireps);
         } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("no pireps");
+            return errorResponse(e, "no pireps");
         }
     }
-    
+
+    @GetMapping(value = "/getPirepReports")
+    public ResponseEntity<List<Pirep>> getPirepReports(@RequestParam(required = false) String airportCode,
+            @RequestParam(required = false) Double latitude, @RequestParam(required = false) Double longitude,
+            @RequestParam int distance, @RequestParam int age) {
+        try {
+            if (airportCode != null)
+                return ResponseEntity.ok(weatherService.getPireps(airportCode, distance, age));
+            if (latitude == null || longitude == null)
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+            return ResponseEntity.ok(weatherService.getPireps(latitude, longitude, distance, age));
+        } catch (IllegalArgumentException exception) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+        } catch (Exception exception) {
+            return errorResponse(exception, null);
+        }
+    }
+
     @GetMapping(value = "/getWindTemp")
-    public ResponseEntity<String> getWindTemp(@RequestParam String region, @RequestParam String forcast, @RequestParam String level) {
+    public ResponseEntity<String> getWindTemp(@RequestParam String region, @RequestParam String forcast,
+            @RequestParam String level) {
         try {
-            String windTemp = weatherService.getWindTemp(region,forcast,level);
-            
+            String windTemp = weatherService.getWindTemp(region, forcast, level);
+
             return ResponseEntity.ok(windTemp);
         } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("no wind temp");
+            return errorResponse(e, "no wind temp");
         }
     }
-    
+
     @GetMapping(value = "/getAirSigmet")
     public ResponseEntity<String> getAirSigmet() {
         try {
             String airSigmet = weatherService.getAirSigmet();
-            
+
             return ResponseEntity.ok(airSigmet);
         } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("no air sigmet");
+            return errorResponse(e, "no air sigmet");
         }
     }
-    
+
     @GetMapping(value = "/getMetar")
     public ResponseEntity<String> getMetar(@RequestParam String airportcode, @RequestParam int hours) {
         try {
             String metar = weatherService.getMetar(airportcode, hours);
-            
+
             return ResponseEntity.ok(metar);
         } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("no metar");
+            return errorResponse(e, "no metar");
         }
     }
-    
+
     @GetMapping(value = "/getGAirmet")
-    public ResponseEntity<String> getGAirmet(@RequestParam int southLat,@RequestParam int westLon,@RequestParam int northLat,@RequestParam int eastLon) {
+    public ResponseEntity<String> getGAirmet(@RequestParam int southLat, @RequestParam int westLon,
+            @RequestParam int northLat, @RequestParam int eastLon) {
         try {
-            String GAirmet = weatherService.getGAirmet(southLat, westLon,northLat,eastLon);
-            
+            String GAirmet = weatherService.getGAirmet(southLat, westLon, northLat, eastLon);
+
             return ResponseEntity.ok(GAirmet);
         } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("no GAirmet");
+            return errorResponse(e, "no GAirmet");
+        }
+    }
+
+    @GetMapping(value = "/getAdvisories")
+    public ResponseEntity<List<Advisory>> getAdvisories(@RequestParam double latitude, @RequestParam double longitude,
+            @RequestParam(required = false) Integer altitude, @RequestParam(required = false) Instant time) {
+        try {
+            return ResponseEntity.ok(weatherService.getAdvisories(latitude, longitude, altitude, time));
+        } catch (Exception exception) {
+            return errorResponse(exception, null);
+        }
+    }
+
+    @PostMapping(value = "/getRouteAdvisories")
+    public ResponseEntity<List<Advisory>> getRouteAdvisories(@RequestBody AdvisoryRouteRequest request) {
+        try {
+            return ResponseEntity.ok(weatherService.getRouteAdvisories(request));
+        } catch (IllegalArgumentException exception) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+        } catch (Exception exception) {
+            return errorResponse(exception, null);
         }
     }
-    
+
     @GetMapping(value = "/getDewPointSpread")
     public ResponseEntity<String> getDewPointSpread(@RequestParam String icao) {
         try {
             String dewPointSpread = weatherService.getDewPointSpread(icao);
-            
+
             return ResponseEntity.ok(dewPointSpread);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("no DewPointSpread");
         } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("no DewPointSpread");
+            return errorResponse(e, "no DewPointSpread");
         }
     }
 }
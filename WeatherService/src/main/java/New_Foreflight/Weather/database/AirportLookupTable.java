@@ -0,0 +1,215 @@
+package New_Foreflight.Weather.database;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Read-optimized, in-memory copy of the Airport nodes keyed by ICAO code and ident.
+ *
+ * The whole label is bulk-loaded at startup and reread on a schedule. A reread whose content differs from the current
+ * snapshot, compared by a fingerprint of every airport's fields, builds a new immutable snapshot that replaces the
+ * previous one in a single volatile write, so readers never see a partially built table and never wait on a refresh. An
+ * unchanged reread keeps the current snapshot, so that the indexes built from it are not rebuilt for nothing. Lookups
+ * only fall back to the repository while no snapshot could be loaded.
+ */
+@Component
+public class AirportLookupTable {
+
+    @Autowired
+    private AirportRepository airportRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Minimum time between loads attempted by lookups while there is no snapshot; the schedule keeps retrying too.
+    @Value("${airport.table.load-retry-ms:60000}")
+    private long loadRetryMs;
+
+    private volatile Snapshot snapshot;
+    // When a lookup last tried to load the table, so that during an outage lookups fall back to the repository rather
+    // than each queueing behind another full read of the label.
+    private final AtomicLong loadAttemptedAtMillis = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder repositoryLookups = new LongAdder();
+
+    /**
+     * Immutable view of the Airport label at a point in time.
+     */
+    public static final class Snapshot {
+
+        private final ImmutableMap<String, AirportNode> byIcao;
+        private final ImmutableMap<String, AirportNode> byIdent;
+        private final ImmutableList<AirportNode> airports;
+        // Sum of the hashes of every airport's fields, independent of the order the graph returns them in.
+        private final long fingerprint;
+
+        private Snapshot(Iterable<AirportNode> nodes) {
+            ImmutableMap.Builder<String, AirportNode> icaoBuilder = ImmutableMap.builder();
+            ImmutableMap.Builder<String, AirportNode> identBuilder = ImmutableMap.builder();
+            long contentHash = 0;
+
+            airports = ImmutableList.copyOf(nodes);
+
+            for (AirportNode airport : airports) {
+                contentHash += hash(airport);
+
+                if (airport.getIcao() != null && !airport.getIcao().isEmpty())
+                    icaoBuilder.put(airport.getIcao(), airport);
+                if (airport.getIdent() != null)
+                    identBuilder.put(airport.getIdent(), airport);
+            }
+            byIcao = icaoBuilder.buildKeepingLast();
+            byIdent = identBuilder.buildKeepingLast();
+            fingerprint = contentHash;
+        }
+
+        private static long hash(AirportNode airport) {
+            Hasher hasher = Hashing.murmur3_128().newHasher();
+
+            // Strings are terminated so that moving characters between fields changes the hash.
+            for (String field : new String[] { airport.getIdent(), airport.getIcao(), airport.getName() })
+                hasher.putString(Strings.nullToEmpty(field), StandardCharsets.UTF_8).putByte((byte) 0);
+            return hasher.putDouble(airport.getLatitude()).putDouble(airport.getLongitude())
+                    .putInt(airport.getIapExists()).putBoolean(airport.isWindsAloftAirport()).hash().asLong();
+        }
+
+        public List<AirportNode> getAirports() {
+            return airports;
+        }
+
+        /**
+         * Returns whether an airport has the code as its ICAO code or ident.
+         */
+        public boolean contains(String code) {
+            return byIcao.containsKey(code) || byIdent.containsKey(code);
+        }
+    }
+
+    @PostConstruct
+    private void registerMetrics() {
+        FunctionCounter.builder("airport.lookup", hits, LongAdder::sum).tag("result", "hit").register(meterRegistry);
+        FunctionCounter.builder("airport.lookup", misses, LongAdder::sum).tag("result", "miss").register(meterRegistry);
+        FunctionCounter.builder("airport.lookup.repository", repositoryLookups, LongAdder::sum).register(meterRegistry);
+    }
+
+    public Optional<AirportNode> findByIcao(String icao) {
+        Snapshot current = getSnapshot();
+
+        if (current == null) {
+            repositoryLookups.increment();
+            return airportRepository.findByIcao(icao);
+        }
+        return record(current.byIcao.get(icao));
+    }
+
+    public Optional<AirportNode> findByIdent(String ident) {
+        Snapshot current = getSnapshot();
+
+        if (current == null) {
+            repositoryLookups.increment();
+            return airportRepository.findByIdent(ident);
+        }
+        return record(current.byIdent.get(ident));
+    }
+
+    /**
+     * Returns the current snapshot, loading it on first use. Returns null if the graph could not be read. While there
+     * is no snapshot, one caller per retry interval attempts the load; the others get null at once.
+     */
+    public Snapshot getSnapshot() {
+        Snapshot current = snapshot;
+
+        if (current == null) {
+            long now = System.currentTimeMillis();
+            long attemptedAt = loadAttemptedAtMillis.get();
+
+            if (now - attemptedAt >= loadRetryMs && loadAttemptedAtMillis.compareAndSet(attemptedAt, now)) {
+                tryReload(false);
+                current = snapshot;
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Returns the current snapshot without trying to load one, or null if none has been loaded.
+     */
+    public Snapshot getLoadedSnapshot() {
+        return snapshot;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    protected void loadOnStartup() {
+        getSnapshot();
+    }
+
+    /**
+     * Rereads the Airport nodes and replaces the snapshot if any airport was added, removed or changed, including
+     * changes that keep the node count, such as a moved airport or a changed winds aloft flag.
+     */
+    @Scheduled(fixedDelayString = "${airport.table.refresh-interval-ms:600000}")
+    protected void refreshIfGraphChanged() {
+        tryReload(false);
+    }
+
+    /**
+     * Rereads the Airport nodes and replaces the snapshot, whether or not they changed.
+     */
+    public void reload() {
+        reload(true);
+    }
+
+    private synchronized void reload(boolean always) {
+        Snapshot loaded = new Snapshot(airportRepository.findAll());
+
+        if (always || snapshot == null || snapshot.fingerprint != loaded.fingerprint)
+            snapshot = loaded;
+    }
+
+    private void tryReload(boolean always) {
+        try {
+            reload(always);
+        } catch (RuntimeException exception) {
+            System.err.println("Unable to load airport table: " + exception.getMessage());
+        }
+    }
+
+    private Optional<AirportNode> record(AirportNode airport) {
+        if (airport == null) {
+            misses.increment();
+            return Optional.empty();
+        }
+        hits.increment();
+        return Optional.of(airport);
+    }
+}
@@ -0,0 +1,298 @@
+package New_Foreflight.Weather.database;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-memory spatial index over the airports that publish winds aloft data.
+ *
+ * Airports are projected onto the unit sphere and stored in an implicit k-d tree backed by primitive arrays, so the
+ * straight-line (chord) distance between two points is monotonic with their great-circle distance. Nearest neighbour
+ * and radius queries therefore never touch Neo4j and only visit a handful of nodes. The tree is rebuilt whenever the
+ * airport table publishes a new snapshot of the graph.
+ */
+@Component
+public class AirportSpatialIndex {
+
+    // Earth radius in nautical miles.
+    private static final double EARTH_RADIUS_NM = 3440.065;
+
+    @Autowired
+    private AirportLookupTable airportLookupTable;
+
+    private volatile KdTree tree;
+    // Airport table snapshot the current tree was built from.
+    private volatile AirportLookupTable.Snapshot indexedSnapshot;
+
+    /**
+     * Returns up to k winds aloft airports nearest to the given coordinates, closest first, as pairs of ICAO code and
+     * distance in nautical miles.
+     */
+    public List<Pair<String, Double>> kNearest(double latitude, double longitude, int k) {
+        return getTree().kNearest(latitude, longitude, k);
+    }
+
+    /**
+     * Returns the winds aloft airports within the given radius of the coordinates, closest first.
+     */
+    public List<Pair<String, Double>> withinRadius(double latitude, double longitude, double radiusNm) {
+        return getTree().withinRadius(latitude, longitude, radiusNm);
+    }
+
+    /**
+     * Returns the winds aloft airport nearest to the given coordinates, ignoring the airport with the given ICAO code.
+     */
+    public Pair<String, Double> nearest(double latitude, double longitude, String excludedIcao) {
+        for (Pair<String, Double> candidate : kNearest(latitude, longitude, 2))
+            if (!candidate.getLeft().equals(excludedIcao))
+                return candidate;
+        return Pair.of("", Double.MAX_VALUE);
+    }
+
+    public int size() {
+        return getTree().size();
+    }
+
+    /**
+     * Rebuilds the index from the given airports, keeping only those with winds aloft data.
+     */
+    public void rebuild(Iterable<AirportNode> airports) {
+        List<AirportNode> windsAloftAirports = new ArrayList<>();
+
+        airports.forEach(airport -> {
+            if (airport.isWindsAloftAirport() && airport.getIcao() != null)
+                windsAloftAirports.add(airport);
+        });
+        tree = new KdTree(windsAloftAirports);
+    }
+
+    /**
+     * Returns the tree for the current airport table snapshot, rebuilding it if the table has been reloaded.
+     */
+    private KdTree getTree() {
+        AirportLookupTable.Snapshot snapshot = airportLookupTable.getSnapshot();
+
+        if (snapshot == null)
+            return tree == null ? new KdTree(List.of()) : tree;
+
+        if (snapshot != indexedSnapshot) {
+            synchronized (this) {
+                if (snapshot != indexedSnapshot) {
+                    rebuild(snapshot.getAirports());
+                    indexedSnapshot = snapshot;
+                }
+            }
+        }
+        return tree;
+    }
+
+    private static double chordToNauticalMiles(double chordSquared) {
+        return 2 * EARTH_RADIUS_NM * Math.asin(Math.min(1.0, Math.sqrt(chordSquared) / 2));
+    }
+
+    private static double nauticalMilesToChordSquared(double distanceNm) {
+        double chord = 2 * Math.sin(Math.min(Math.PI, distanceNm / EARTH_RADIUS_NM) / 2);
+
+        return chord * chord;
+    }
+
+    /**
+     * Immutable k-d tree over unit-sphere coordinates.
+     *
+     * The tree is implicit: each range [lo, hi) stores its splitting point at the middle index, with the left subtree
+     * in [lo, mid) and the right subtree in (mid, hi). The splitting axis cycles x, y, z with depth.
+     */
+    static final class KdTree {
+
+        private final String[] icaos;
+        // Interleaved x, y, z coordinates, three per airport.
+        private final double[] coords;
+
+        KdTree(List<AirportNode> airports) {
+            int n = airports.size();
+            double[] unsorted = new double[n * 3];
+            int[] order = new int[n];
+
+            for (int i = 0; i < n; i++) {
+                toUnitVector(airports.get(i).getLatitude(), airports.get(i).getLongitude(), unsorted, i * 3);
+                order[i] = i;
+            }
+            build(order, unsorted, 0, n, 0);
+            icaos = new String[n];
+            coords = new double[n * 3];
+
+            for (int i = 0; i < n; i++) {
+                icaos[i] = airports.get(order[i]).getIcao();
+                System.arraycopy(unsorted, order[i] * 3, coords, i * 3, 3);
+            }
+        }
+
+        int size() {
+            return icaos.length;
+        }
+
+        List<Pair<String, Double>> kNearest(double latitude, double longitude, int k) {
+            if (k <= 0 || icaos.length == 0)
+                return List.of();
+            double[] query = new double[3];
+            Neighbours neighbours = new Neighbours(Math.min(k, icaos.length));
+
+            toUnitVector(latitude, longitude, query, 0);
+            searchNearest(0, icaos.length, 0, query, neighbours);
+            return neighbours.toList(icaos);
+        }
+
+        List<Pair<String, Double>> withinRadius(double latitude, double longitude, double radiusNm) {
+            double[] query = new double[3];
+            Neighbours matches = new Neighbours(icaos.length);
+
+            toUnitVector(latitude, longitude, query, 0);
+            searchRadius(0, icaos.length, 0, query, nauticalMilesToChordSquared(radiusNm), matches);
+            return matches.toList(icaos);
+        }
+
+        private void searchNearest(int lo, int hi, int depth, double[] query, Neighbours neighbours) {
+            if (lo >= hi)
+                return;
+            int mid = (lo + hi) >>> 1;
+            int axis = depth % 3;
+
+            neighbours.offer(mid, distanceSquared(mid, query));
+            double diff = query[axis] - coords[mid * 3 + axis];
+
+            if (diff < 0) {
+                searchNearest(lo, mid, depth + 1, query, neighbours);
+
+                if (diff * diff < neighbours.worstDistance())
+                    searchNearest(mid + 1, hi, depth + 1, query, neighbours);
+            } else {
+                searchNearest(mid + 1, hi, depth + 1, query, neighbours);
+
+                if (diff * diff < neighbours.worstDistance())
+                    searchNearest(lo, mid, depth + 1, query, neighbours);
+            }
+        }
+
+        private void searchRadius(int lo, int hi, int depth, double[] query, double limit, Neighbours matches) {
+            if (lo >= hi)
+                return;
+            int mid = (lo + hi) >>> 1;
+            int axis = depth % 3;
+            double distance = distanceSquared(mid, query);
+
+            if (distance <= limit)
+                matches.offer(mid, distance);
+            double diff = query[axis] - coords[mid * 3 + axis];
+
+            if (diff < 0 || diff * diff <= limit)
+                searchRadius(lo, mid, depth + 1, query, limit, matches);
+            if (diff >= 0 || diff * diff <= limit)
+                searchRadius(mid + 1, hi, depth + 1, query, limit, matches);
+        }
+
+        private double distanceSquared(int index, double[] query) {
+            double dx = coords[index * 3] - query[0];
+            double dy = coords[index * 3 + 1] - query[1];
+            double dz = coords[index * 3 + 2] - query[2];
+
+            return dx * dx + dy * dy + dz * dz;
+        }
+
+        private static void toUnitVector(double latitude, double longitude, double[] target, int offset) {
+            double lat = Math.toRadians(latitude);
+            double lon = Math.toRadians(longitude);
+
+            target[offset] = Math.cos(lat) * Math.cos(lon);
+            target[offset + 1] = Math.cos(lat) * Math.sin(lon);
+            target[offset + 2] = Math.sin(lat);
+        }
+
+        /**
+         * Arranges order[lo, hi) so that the median along the current axis sits at the middle index, then recurses.
+         */
+        private static void build(int[] order, double[] points, int lo, int hi, int depth) {
+            if (hi - lo <= 1)
+                return;
+            int mid = (lo + hi) >>> 1;
+
+            select(order, points, lo, hi - 1, mid, depth % 3);
+            build(order, points, lo, mid, depth + 1);
+            build(order, points, mid + 1, hi, depth + 1);
+        }
+
+        // Quickselect: places the k-th smallest element along the axis at index k.
+        private static void select(int[] order, double[] points, int left, int right, int k, int axis) {
+            while (left < right) {
+                double pivot = points[order[(left + right) >>> 1] * 3 + axis];
+                int i = left;
+                int j = right;
+
+                while (i <= j) {
+                    while (points[order[i] * 3 + axis] < pivot)
+                        i++;
+                    while (points[order[j] * 3 + axis] > pivot)
+                        j--;
+
+                    if (i <= j) {
+                        int swap = order[i];
+
+                        order[i++] = order[j];
+                        order[j--] = swap;
+                    }
+                }
+
+                if (k <= j)
+                    right = j;
+                else if (k >= i)
+                    left = i;
+                else
+                    return;
+            }
+        }
+    }
+
+    /**
+     * Bounded list of candidate neighbours kept sorted by ascending squared chord distance.
+     */
+    private static final class Neighbours {
+
+        private final int[] indices;
+        private final double[] distances;
+        private int count;
+
+        Neighbours(int capacity) {
+            indices = new int[capacity];
+            distances = new double[capacity];
+        }
+
+        double worstDistance() {
+            return count < indices.length ? Double.POSITIVE_INFINITY : distances[count - 1];
+        }
+
+        void offer(int index, double distance) {
+            if (count == indices.length && distance >= distances[count - 1])
+                return;
+            int position = count < indices.length ? count++ : count - 1;
+
+            while (position > 0 && distances[position - 1] > distance) {
+                indices[position] = indices[position - 1];
+                distances[position] = distances[position - 1];
+                position--;
+            }
+            indices[position] = index;
+            distances[position] = distance;
+        }
+
+        List<Pair<String, Double>> toList(String[] icaos) {
+            List<Pair<String, Double>> result = new ArrayList<>(count);
+
+            for (int i = 0; i < count; i++)
+                result.add(Pair.of(icaos[indices[i]], chordToNauticalMiles(distances[i])));
+            return result;
+        }
+    }
+}
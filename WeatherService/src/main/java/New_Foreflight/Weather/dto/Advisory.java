@@ -0,0 +1,39 @@
+package New_Foreflight.Weather.dto;
+
+import java.time.Instant;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * A SIGMET or G-AIRMET area: the hazard, when it is valid, the altitude band it covers and its polygon.
+ *
+ * Altitudes are in feet MSL. A null base means the surface and a null top an unknown or unbounded top. Null validity
+ * times leave that end of the period open.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record Advisory(@JsonProperty("id") String id, @JsonProperty("type") String type,
+        @JsonProperty("hazard") String hazard, @JsonProperty("severity") String severity,
+        @JsonProperty("valid_from") Instant validFrom, @JsonProperty("valid_to") Instant validTo,
+        @JsonProperty("base") Integer baseFeet, @JsonProperty("top") Integer topFeet,
+        @JsonProperty("raw_text") String rawText, @JsonProperty("polygon") List<Point> polygon) {
+
+    public record Point(@JsonProperty("latitude") double latitude, @JsonProperty("longitude") double longitude) {
+    }
+
+    /**
+     * Returns whether the advisory is valid at the given time.
+     */
+    public boolean isValidAt(Instant time) {
+        return (validFrom == null || !time.isBefore(validFrom)) && (validTo == null || time.isBefore(validTo));
+    }
+
+    /**
+     * Returns whether the advisory's altitude band overlaps the given one, where a null bound is unbounded.
+     */
+    public boolean overlapsAltitudes(Integer lowFeet, Integer highFeet) {
+        return (highFeet == null || baseFeet == null || baseFeet <= highFeet)
+                && (lowFeet == null || topFeet == null || topFeet >= lowFeet);
+    }
+}
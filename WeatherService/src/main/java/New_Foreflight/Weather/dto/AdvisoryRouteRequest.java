@@ -0,0 +1,16 @@
+package New_Foreflight.Weather.dto;
+
+import java.time.Instant;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * A route to find SIGMETs and G-AIRMETs along: the waypoints, the half width of the corridor around the route in
+ * nautical miles, the altitude band flown in feet and the time of the flight. Null altitudes leave the band open and a
+ * null time means now.
+ */
+public record AdvisoryRouteRequest(@JsonProperty("waypoints") List<Advisory.Point> waypoints,
+        @JsonProperty("corridor") Double corridorNm, @JsonProperty("min_altitude") Integer minAltitudeFeet,
+        @JsonProperty("max_altitude") Integer maxAltitudeFeet, @JsonProperty("time") Instant time) {
+}
@@ -2,24 +2,75 @@ package New_Foreflight.Weather.dto;
 
 import java.util.HashMap;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
+/**
+ * Weather response for an airport. Only the decoded observation is held; the raw text, formatted components and flight
+ * rules are derived from it when the response is serialized.
+ */
 @JsonInclude(JsonInclude.Include.NON_NULL)
 public class AirportWeatherResponse {
 
+    @JsonIgnore
+    private final MetarObservation observation;
+
+    // When the observation was fetched from the upstream, used to refresh cached responses ahead of expiry.
+    @JsonIgnore
+    private final long fetchedAtMillis;
+
+    // Whether this is an expired copy served because the upstream could not be reached for a fresh one.
+    private final boolean stale;
+
+    public AirportWeatherResponse(MetarObservation observation) {
+        this(observation, System.currentTimeMillis());
+    }
+
+    public AirportWeatherResponse(MetarObservation observation, long fetchedAtMillis) {
+        this(observation, fetchedAtMillis, false);
+    }
+
+    private AirportWeatherResponse(MetarObservation observation, long fetchedAtMillis, boolean stale) {
+        this.observation = observation;
+        this.fetchedAtMillis = fetchedAtMillis;
+        this.stale = stale;
+    }
+
+    /**
+     * Returns a copy of this response marked as stale.
+     */
+    public AirportWeatherResponse asStale() {
+        return new AirportWeatherResponse(observation, fetchedAtMillis, true);
+    }
+
+    @JsonIgnore
+    public MetarObservation getObservation() {
+        return observation;
+    }
+
+    @JsonIgnore
+    public long getFetchedAtMillis() {
+        return fetchedAtMillis;
+    }
+
+    @JsonProperty("stale")
+    public boolean isStale() {
+        return stale;
+    }
+
     @JsonProperty("metar_data")
-    private String metarData;
+    public String getMetarData() {
+        return observation.rawText();
+    }
 
     @JsonProperty("metar_components")
-    private HashMap<String, Object> metarComponents;
+    public HashMap<String, Object> getMetarComponents() {
+        return MetarComponentsView.of(observation);
+    }
 
     @JsonProperty("flight_rules")
-    private String flightRules;
-
-    public AirportWeatherResponse(String metarData, HashMap<String, Object> metarComponents, String flightRules) {
-        this.metarData = metarData;
-        this.metarComponents = metarComponents;
-        this.flightRules = flightRules;
+    public String getFlightRules() {
+        return observation.flightCategory().name();
     }
 }
@@ -0,0 +1,32 @@
+package New_Foreflight.Weather.dto;
+
+import java.util.Map;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Weather for several airports. Stations that could not be retrieved are listed in errors with the reason.
+ */
+@JsonInclude(JsonInclude.Include.NON_EMPTY)
+public class BatchWeatherResponse {
+
+    @JsonProperty("results")
+    private Map<String, AirportWeatherResponse> results;
+
+    @JsonProperty("errors")
+    private Map<String, String> errors;
+
+    public BatchWeatherResponse(Map<String, AirportWeatherResponse> results, Map<String, String> errors) {
+        this.results = results;
+        this.errors = errors;
+    }
+
+    public Map<String, AirportWeatherResponse> getResults() {
+        return results;
+    }
+
+    public Map<String, String> getErrors() {
+        return errors;
+    }
+}
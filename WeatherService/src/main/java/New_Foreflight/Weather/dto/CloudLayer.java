@@ -0,0 +1,15 @@
+package New_Foreflight.Weather.dto;
+
+/**
+ * A single reported cloud layer. The base is in feet above ground level, or {@link MetarObservation#MISSING} for clear
+ * skies.
+ */
+public record CloudLayer(String code, int baseFeet) {
+
+    /**
+     * Broken, overcast and vertical visibility layers constitute a ceiling.
+     */
+    public boolean isCeiling() {
+        return "BKN".equals(code) || "OVC".equals(code) || "VV".equals(code);
+    }
+}
@@ -0,0 +1,26 @@
+package New_Foreflight.Weather.dto;
+
+/**
+ * Flight category reported with a METAR, from best to worst conditions.
+ */
+public enum FlightCategory {
+    VFR, MVFR, IFR, LIFR, UNKNOWN;
+
+    public static FlightCategory fromString(String category) {
+        if (category == null)
+            return UNKNOWN;
+
+        switch (category.trim().toUpperCase()) {
+        case "VFR":
+            return VFR;
+        case "MVFR":
+            return MVFR;
+        case "IFR":
+            return IFR;
+        case "LIFR":
+            return LIFR;
+        default:
+            return UNKNOWN;
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package New_Foreflight.Weather.dto;
+
+import java.time.Instant;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * A change of flight category at a subscribed airport, pushed as a "flight-category" event along with the METAR that
+ * reported it.
+ */
+public record FlightCategoryTransition(@JsonProperty("airport") String icao, @JsonProperty("from") FlightCategory from,
+        @JsonProperty("to") FlightCategory to, @JsonProperty("observed") Instant observedAt) {
+}
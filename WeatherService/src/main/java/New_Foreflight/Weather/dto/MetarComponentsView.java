@@ -0,0 +1,110 @@
+package New_Foreflight.Weather.dto;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Human-readable view of a {@link MetarObservation}, used when serializing weather responses.
+ *
+ * Observations are cached in their numeric form and only formatted into strings when a response is written.
+ */
+public final class MetarComponentsView {
+
+    private MetarComponentsView() {
+    }
+
+    /**
+     * Builds the METAR components map. Components missing from the observation are left out.
+     */
+    public static HashMap<String, Object> of(MetarObservation observation) {
+        LinkedHashMap<String, Object> metarComponents = new LinkedHashMap<>();
+
+        if (observation.hasWind())
+            metarComponents.put("wind", formatWinds(observation));
+        if (!Double.isNaN(observation.visibilityMiles()))
+            metarComponents.put("visibility", formatMiles(observation.visibilityMiles()) + " SM");
+        if (!observation.clouds().isEmpty())
+            metarComponents.put("clouds", formatClouds(observation.clouds()));
+        if (!Double.isNaN(observation.temperatureCelsius()))
+            metarComponents.put("temperature",
+                    formatTemperature(observation.temperatureFahrenheit(), observation.temperatureCelsius()));
+        if (!Double.isNaN(observation.dewpointCelsius()))
+            metarComponents.put("dewpoint",
+                    formatTemperature(observation.dewpointFahrenheit(), observation.dewpointCelsius()));
+        if (!Double.isNaN(observation.altimeterInHg()))
+            metarComponents.put("barometer", "hg: " + formatNumber(observation.altimeterInHg()));
+        if (!Double.isNaN(observation.humidityPercent()))
+            metarComponents.put("humidity", formatNumber(observation.humidityPercent()) + " %");
+        if (!Double.isNaN(observation.elevationFeet()))
+            metarComponents.put("elevation", formatNumber(observation.elevationFeet()));
+        if (!Double.isNaN(observation.densityAltitudeFeet()))
+            metarComponents.put("density_altitude", observation.densityAltitudeFeet());
+        return metarComponents;
+    }
+
+    static String formatWinds(MetarObservation observation) {
+        int direction = observation.windDirectionDegrees();
+        int speedKts = observation.windSpeedKts();
+        int gustKts = observation.windGustKts();
+
+        return gustKts > 0 ? String.format("%d at %d-%d kts", direction, speedKts, gustKts)
+                : String.format("%d at %d kts", direction, speedKts);
+    }
+
+    /*
+     * formats the cloud layers into a list of cloud ceilings for the metar components. the base is only displayed if
+     * sky conditions are not clear.
+     *
+     */
+    static List<HashMap<String, String>> formatClouds(List<CloudLayer> layers) {
+        List<HashMap<String, String>> cloudsList = new ArrayList<>(layers.size());
+        LinkedHashMap<String, String> cloudMap;
+
+        for (CloudLayer layer : layers) {
+            cloudMap = new LinkedHashMap<>();
+            cloudMap.put("code", layer.code());
+
+            if (!"CLR".equalsIgnoreCase(layer.code()))
+                cloudMap.put("feet",
+                        layer.baseFeet() == MetarObservation.MISSING ? "Unknown" : Integer.toString(layer.baseFeet()));
+            cloudsList.add(cloudMap);
+        }
+        return cloudsList;
+    }
+
+    static String formatTemperature(double fahrenheit, double celsius) {
+        return String.format("%s degrees F, %s degrees C", formatNumber(fahrenheit), formatNumber(celsius));
+    }
+
+    /**
+     * Formats statute miles the way they are reported, e.g. "10", "3/4" or "1 1/2".
+     */
+    static String formatMiles(double miles) {
+        long whole = (long) Math.floor(miles);
+        double fraction = miles - whole;
+
+        for (int denominator = 2; denominator <= 16; denominator *= 2) {
+            long numerator = Math.round(fraction * denominator);
+
+            if (Math.abs(fraction * denominator - numerator) > 1e-6)
+                continue;
+
+            if (numerator == 0)
+                return Long.toString(whole);
+            return (whole == 0 ? "" : whole + " ") + numerator + "/" + denominator;
+        }
+        return formatNumber(miles);
+    }
+
+    /**
+     * Formats a reported value without a trailing ".0" for whole numbers.
+     */
+    static String formatNumber(double value) {
+        if (Double.isNaN(value))
+            return "";
+        return value == Math.rint(value) && Math.abs(value) < 1e15 ? Long.toString((long) value)
+                : Double.toString(value);
+    }
+}
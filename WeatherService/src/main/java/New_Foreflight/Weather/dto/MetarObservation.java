@@ -0,0 +1,47 @@
+package New_Foreflight.Weather.dto;
+
+import java.util.List;
+
+/**
+ * A decoded METAR observation.
+ *
+ * Numeric values are kept as primitives in their reported units. Values absent from the report are {@link #MISSING} for
+ * integers and NaN for decimals.
+ */
+public record MetarObservation(String icao, String rawText, long observedEpochSecond, FlightCategory flightCategory,
+        int windDirectionDegrees, int windSpeedKts, int windGustKts, double visibilityMiles, List<CloudLayer> clouds,
+        double temperatureCelsius, double temperatureFahrenheit, double dewpointCelsius, double dewpointFahrenheit,
+        double altimeterInHg, double humidityPercent, double elevationFeet) {
+
+    public static final int MISSING = Integer.MIN_VALUE;
+
+    /*
+     * Computes the density altitude using the field elevation as the pressure altitude.
+     * 
+     * Implement the formula DA = Pressure_Altitude + (120 x (OAT – ISA)), where ISA is the standard temperature at the
+     * given altitude: 15°C at sea level, decreasing by 2°C per 1000 feet.
+     */
+    public double densityAltitudeFeet() {
+        double isa = 15.0 - (elevationFeet / 1000.0) * 2.0;
+
+        return elevationFeet + (120 * (temperatureCelsius - isa));
+    }
+
+    public double dewpointSpreadCelsius() {
+        return temperatureCelsius - dewpointCelsius;
+    }
+
+    public boolean hasWind() {
+        return windSpeedKts != MISSING;
+    }
+
+    /**
+     * Returns the base of the lowest broken, overcast or obscured layer, or {@link #MISSING} if there is no ceiling.
+     */
+    public int ceilingFeet() {
+        for (CloudLayer layer : clouds)
+            if (layer.isCeiling() && layer.baseFeet() != MISSING)
+                return layer.baseFeet();
+        return MISSING;
+    }
+}
@@ -0,0 +1,10 @@
+package New_Foreflight.Weather.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * A new METAR for a subscribed airport, pushed as a "metar" event.
+ */
+public record MetarUpdate(@JsonProperty("airport") String icao,
+        @JsonProperty("weather") AirportWeatherResponse weather) {
+}
@@ -0,0 +1,27 @@
+package New_Foreflight.Weather.dto;
+
+import java.time.Instant;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * A decoded pilot report: where and when it was made, the aircraft, and the turbulence and icing reported. Altitudes
+ * are in feet MSL; fields not in the report are null.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record Pirep(@JsonProperty("raw_text") String rawText, @JsonProperty("observed") Instant observedAt,
+        @JsonProperty("report_type") String reportType, @JsonProperty("aircraft") String aircraftType,
+        @JsonProperty("latitude") double latitude, @JsonProperty("longitude") double longitude,
+        @JsonProperty("altitude") Integer altitudeFeet, @JsonProperty("temperature") Double temperatureCelsius,
+        @JsonProperty("turbulence") Condition turbulence, @JsonProperty("icing") Condition icing) {
+
+    /**
+     * A reported turbulence or icing condition: its intensity (e.g. LGT, MOD, SEV, or NEG for none), type and the layer
+     * it was reported in.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record Condition(@JsonProperty("intensity") String intensity, @JsonProperty("type") String type,
+            @JsonProperty("base") Integer baseFeet, @JsonProperty("top") Integer topFeet) {
+    }
+}
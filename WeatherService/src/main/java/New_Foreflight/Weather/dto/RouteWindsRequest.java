@@ -0,0 +1,28 @@
+package New_Foreflight.Weather.dto;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * A route to compute winds aloft for: the waypoints to fly, the true airspeed and the vertical profile.
+ *
+ * Without climb and descent rates the whole route is flown at the cruise altitude. With them, the route climbs from the
+ * departure elevation and descends to the arrival elevation at those rates, at the climb and descent airspeeds when
+ * given and the cruise airspeed otherwise. Altitudes are in feet, rates in feet per minute, airspeeds in knots and the
+ * sample spacing in nautical miles.
+ */
+public record RouteWindsRequest(@JsonProperty("waypoints") List<Waypoint> waypoints,
+        @JsonProperty("true_airspeed") double trueAirspeedKts, @JsonProperty("cruise_altitude") int cruiseAltitudeFeet,
+        @JsonProperty("spacing") Double spacingNm, @JsonProperty("departure_elevation") int departureElevationFeet,
+        @JsonProperty("arrival_elevation") int arrivalElevationFeet, @JsonProperty("climb_rate") Double climbRateFpm,
+        @JsonProperty("descent_rate") Double descentRateFpm, @JsonProperty("climb_airspeed") Double climbAirspeedKts,
+        @JsonProperty("descent_airspeed") Double descentAirspeedKts) {
+
+    public record Waypoint(@JsonProperty("latitude") double latitude, @JsonProperty("longitude") double longitude) {
+    }
+
+    public boolean hasClimbAndDescent() {
+        return climbRateFpm != null && climbRateFpm > 0 && descentRateFpm != null && descentRateFpm > 0;
+    }
+}
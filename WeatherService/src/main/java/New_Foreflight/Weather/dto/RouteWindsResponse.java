@@ -0,0 +1,36 @@
+package New_Foreflight.Weather.dto;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Winds aloft along a route, sampled segment by segment, with the wind-corrected time en route.
+ *
+ * Headwind components are positive against the aircraft and crosswind components are positive from the right. The
+ * no-wind time is what the route would take at the same airspeeds in calm air.
+ */
+public record RouteWindsResponse(@JsonProperty("segments") List<Segment> segments,
+        @JsonProperty("distance") double distanceNm, @JsonProperty("ete_minutes") double eteMinutes,
+        @JsonProperty("no_wind_ete_minutes") double noWindEteMinutes,
+        @JsonProperty("average_headwind") double averageHeadwindKts) {
+
+    /**
+     * One sampled stretch of the route. The wind is taken at its midpoint; wind fields are null where there is no winds
+     * aloft data, in which case calm air is assumed.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record Segment(@JsonProperty("start_latitude") double startLatitude,
+            @JsonProperty("start_longitude") double startLongitude, @JsonProperty("end_latitude") double endLatitude,
+            @JsonProperty("end_longitude") double endLongitude, @JsonProperty("distance") double distanceNm,
+            @JsonProperty("course") double courseDegrees, @JsonProperty("altitude") int altitudeFeet,
+            @JsonProperty("true_airspeed") double trueAirspeedKts,
+            @JsonProperty("wind_direction") Double windDirectionDegrees,
+            @JsonProperty("wind_speed") Double windSpeedKts, @JsonProperty("temperature") Double temperatureCelsius,
+            @JsonProperty("headwind") double headwindKts, @JsonProperty("crosswind") double crosswindKts,
+            @JsonProperty("wind_correction_angle") double windCorrectionAngleDegrees,
+            @JsonProperty("heading") double headingDegrees, @JsonProperty("groundspeed") double groundspeedKts,
+            @JsonProperty("ete_minutes") double eteMinutes) {
+    }
+}
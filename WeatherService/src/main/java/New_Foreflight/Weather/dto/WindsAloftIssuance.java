@@ -0,0 +1,16 @@
+package New_Foreflight.Weather.dto;
+
+import java.time.Instant;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Issuance of the winds aloft bulletin being served. The bulletin times are null if it had no header. The age is
+ * measured from the DATA BASED ON time when known, and from when the bulletin was fetched otherwise.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record WindsAloftIssuance(@JsonProperty("data_based_on") Instant basedOn, @JsonProperty("valid") Instant validAt,
+        @JsonProperty("for_use_from") Instant useFrom, @JsonProperty("for_use_to") Instant useTo,
+        @JsonProperty("fetched_at") Instant fetchedAt, @JsonProperty("age_seconds") long ageSeconds) {
+}
@@ -0,0 +1,14 @@
+package New_Foreflight.Weather.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Wind and temperature aloft at a position and altitude, interpolated from the surrounding winds aloft stations.
+ * Direction is in degrees true the wind blows from. Temperature is null where no station reports one.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record WindsAloftSample(@JsonProperty("latitude") double latitude, @JsonProperty("longitude") double longitude,
+        @JsonProperty("altitude") int altitudeFeet, @JsonProperty("direction") double directionDegrees,
+        @JsonProperty("speed") double speedKts, @JsonProperty("temperature") Double temperatureCelsius) {
+}
@@ -0,0 +1,170 @@
+package New_Foreflight.Weather.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import New_Foreflight.Weather.dto.Advisory;
+
+/**
+ * Decodes the aviationweather.gov SIGMET (airsigmet) and G-AIRMET (gairmet) JSON feeds into {@link Advisory} areas.
+ *
+ * Numbers and times are accepted either as JSON numbers or as strings, and times either as ISO instants or as epoch
+ * seconds. Entries without a polygon of at least three points are skipped.
+ */
+public final class AdvisoryDecoder {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    // A G-AIRMET snapshot stands for the conditions from halfway since the previous snapshot, three hours earlier, to
+    // halfway to the next one.
+    private static final Duration SNAPSHOT_HALF_INTERVAL = Duration.ofMinutes(90);
+
+    private AdvisoryDecoder() {
+    }
+
+    /**
+     * Decodes a SIGMET feed. Altitudes in the feed are in feet.
+     */
+    public static List<Advisory> decodeSigmets(String json) {
+        List<Advisory> advisories = new ArrayList<>();
+
+        for (JsonNode entry : entries(json)) {
+            List<Advisory.Point> polygon = polygon(entry.get("coords"));
+
+            if (polygon == null)
+                continue;
+            String type = text(entry, "airSigmetType");
+            String id = text(entry, "airSigmetId");
+
+            if (id == null)
+                id = String.join("-", nonNull(text(entry, "icaoId")), nonNull(text(entry, "seriesId")),
+                        nonNull(text(entry, "validTimeFrom")));
+            advisories.add(new Advisory(id, type == null ? "SIGMET" : type, text(entry, "hazard"),
+                    text(entry, "severity"), time(entry.get("validTimeFrom")), time(entry.get("validTimeTo")),
+                    feet(entry, "altitudeLow1", 1), feet(entry, "altitudeHi1", 1), text(entry, "rawAirSigmet"),
+                    polygon));
+        }
+        return advisories;
+    }
+
+    /**
+     * Decodes a G-AIRMET feed. Each entry is one snapshot, valid for 90 minutes either side of its valid time. Bases
+     * and tops are in hundreds of feet, SFC for the surface, or FZL for the freezing level given separately.
+     */
+    public static List<Advisory> decodeGAirmets(String json) {
+        List<Advisory> advisories = new ArrayList<>();
+
+        for (JsonNode entry : entries(json)) {
+            List<Advisory.Point> polygon = polygon(entry.get("coords"));
+
+            if (polygon == null)
+                continue;
+            Instant validTime = time(entry.get("validTime"));
+            String id = String.join("-", nonNull(text(entry, "product")), nonNull(text(entry, "tag")),
+                    nonNull(text(entry, "forecastHour")), nonNull(text(entry, "validTime")));
+            String dueTo = text(entry, "dueTo");
+
+            advisories.add(new Advisory(id, "G-AIRMET", text(entry, "hazard"), text(entry, "severity"),
+                    validTime == null ? null : validTime.minus(SNAPSHOT_HALF_INTERVAL),
+                    validTime == null ? null : validTime.plus(SNAPSHOT_HALF_INTERVAL), level(entry, "base", "fzlBase"),
+                    level(entry, "top", "fzlTop"), dueTo == null ? null : "DUE TO " + dueTo, polygon));
+        }
+        return advisories;
+    }
+
+    private static JsonNode entries(String json) {
+        if (json == null || json.isBlank())
+            return MAPPER.createArrayNode();
+
+        try {
+            JsonNode root = MAPPER.readTree(json);
+
+            return root.isArray() ? root : MAPPER.createArrayNode();
+        } catch (JsonProcessingException exception) {
+            throw new IllegalArgumentException("Malformed advisory feed: " + exception.getOriginalMessage());
+        }
+    }
+
+    private static List<Advisory.Point> polygon(JsonNode coords) {
+        if (coords == null || !coords.isArray())
+            return null;
+        List<Advisory.Point> polygon = new ArrayList<>(coords.size());
+
+        for (JsonNode point : coords) {
+            Double latitude = number(point.get("lat"));
+            Double longitude = number(point.get("lon"));
+
+            if (latitude != null && longitude != null)
+                polygon.add(new Advisory.Point(latitude, longitude));
+        }
+        // Rings are often closed by repeating the first point.
+        if (polygon.size() > 1 && polygon.get(0).equals(polygon.get(polygon.size() - 1)))
+            polygon.remove(polygon.size() - 1);
+        return polygon.size() < 3 ? null : List.copyOf(polygon);
+    }
+
+    // Altitude in feet from a value in the given unit, or null if absent or not numeric.
+    private static Integer feet(JsonNode entry, String field, int unitFeet) {
+        Double value = number(entry.get(field));
+
+        return value == null ? null : (int) Math.round(value * unitFeet);
+    }
+
+    // A G-AIRMET base or top: null for the surface, the freezing level field for FZL.
+    private static Integer level(JsonNode entry, String field, String freezingLevelField) {
+        String value = text(entry, field);
+
+        if (value == null || value.equalsIgnoreCase("SFC"))
+            return null;
+        if (value.equalsIgnoreCase("FZL"))
+            return feet(entry, freezingLevelField, 100);
+        return feet(entry, field, 100);
+    }
+
+    private static Instant time(JsonNode value) {
+        if (value == null || value.isNull())
+            return null;
+        if (value.isNumber())
+            return Instant.ofEpochSecond(value.asLong());
+
+        try {
+            return Instant.parse(value.asText());
+        } catch (DateTimeParseException exception) {
+            Double epochSecond = number(value);
+
+            return epochSecond == null ? null : Instant.ofEpochSecond(epochSecond.longValue());
+        }
+    }
+
+    private static Double number(JsonNode value) {
+        if (value == null || value.isNull())
+            return null;
+        if (value.isNumber())
+            return value.asDouble();
+
+        try {
+            return Double.parseDouble(value.asText().trim());
+        } catch (NumberFormatException exception) {
+            return null;
+        }
+    }
+
+    private static String text(JsonNode entry, String field) {
+        JsonNode value = entry.get(field);
+
+        if (value == null || value.isNull() || value.asText().isBlank())
+            return null;
+        return value.asText().trim();
+    }
+
+    private static String nonNull(String value) {
+        return value == null ? "" : value;
+    }
+}
@@ -0,0 +1,297 @@
+package New_Foreflight.Weather.service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntConsumer;
+
+import New_Foreflight.Weather.dto.Advisory;
+
+/**
+ * Immutable spatial index over SIGMET and G-AIRMET polygons.
+ *
+ * The globe is divided into cells of one degree of latitude by one of longitude, and each advisory is listed in every
+ * cell its bounding box touches. A point query looks up a single cell and tests only the advisories listed there; a
+ * route query looks up the cells around each stretch of the route. Longitudes of each polygon are unwrapped so that
+ * polygons crossing the antimeridian stay contiguous.
+ *
+ * Containment is tested on the polygon in latitude and longitude. Distances to a route are measured on an
+ * equirectangular projection centred on each stretch of the route, which is accurate to well within a corridor width
+ * over the short stretches the route is split into.
+ */
+final class AdvisoryIndex {
+
+    private static final double EARTH_RADIUS_NM = 3440.065;
+    private static final double NM_PER_DEGREE = 60;
+    // Routes are split into stretches no longer than this before being matched against polygons.
+    private static final double MAX_STRETCH_NM = 60;
+
+    private final Advisory[] advisories;
+    // Polygon vertices per advisory, with longitudes unwrapped to be contiguous.
+    private final double[][] latitudes;
+    private final double[][] longitudes;
+    // Bounding box per advisory, in the same unwrapped longitudes.
+    private final double[] minLatitude;
+    private final double[] maxLatitude;
+    private final double[] minLongitude;
+    private final double[] maxLongitude;
+    // Advisory indices listed in each cell, keyed by cell number.
+    private final Map<Integer, int[]> cells;
+
+    AdvisoryIndex(List<Advisory> advisories) {
+        int n = advisories.size();
+        Map<Integer, List<Integer>> listed = new HashMap<>();
+
+        this.advisories = advisories.toArray(Advisory[]::new);
+        latitudes = new double[n][];
+        longitudes = new double[n][];
+        minLatitude = new double[n];
+        maxLatitude = new double[n];
+        minLongitude = new double[n];
+        maxLongitude = new double[n];
+
+        for (int i = 0; i < n; i++) {
+            List<Advisory.Point> polygon = advisories.get(i).polygon();
+            int size = polygon.size();
+
+            latitudes[i] = new double[size];
+            longitudes[i] = new double[size];
+            minLatitude[i] = minLongitude[i] = Double.POSITIVE_INFINITY;
+            maxLatitude[i] = maxLongitude[i] = Double.NEGATIVE_INFINITY;
+
+            for (int v = 0; v < size; v++) {
+                latitudes[i][v] = polygon.get(v).latitude();
+                longitudes[i][v] = v == 0 ? polygon.get(0).longitude()
+                        : longitudes[i][v - 1] + wrap(polygon.get(v).longitude() - longitudes[i][v - 1]);
+                minLatitude[i] = Math.min(minLatitude[i], latitudes[i][v]);
+                maxLatitude[i] = Math.max(maxLatitude[i], latitudes[i][v]);
+                minLongitude[i] = Math.min(minLongitude[i], longitudes[i][v]);
+                maxLongitude[i] = Math.max(maxLongitude[i], longitudes[i][v]);
+            }
+            int index = i;
+
+            forEachCell(minLatitude[i], maxLatitude[i], minLongitude[i], maxLongitude[i],
+                    cell -> listed.computeIfAbsent(cell, key -> new ArrayList<>()).add(index));
+        }
+        cells = new HashMap<>(listed.size() * 2);
+        listed.forEach((cell, indices) -> cells.put(cell, indices.stream().mapToInt(Integer::intValue).toArray()));
+    }
+
+    int size() {
+        return advisories.length;
+    }
+
+    /**
+     * Returns the advisories valid at the time whose polygon contains the point and whose altitude band includes the
+     * altitude, or any altitude if it is null.
+     */
+    List<Advisory> atPoint(double latitude, double longitude, Integer altitudeFeet, Instant time) {
+        int[] candidates = cells.get(cell(latitude, longitude));
+        List<Advisory> matches = new ArrayList<>();
+
+        if (candidates == null)
+            return matches;
+
+        for (int i : candidates) {
+            if (matchesFilters(i, altitudeFeet, altitudeFeet, time) && contains(i, latitude, longitude))
+                matches.add(advisories[i]);
+        }
+        return matches;
+    }
+
+    /**
+     * Returns the advisories valid at the time whose polygon comes within the corridor half width of the route and
+     * whose altitude band overlaps the one given, in the order they are held.
+     */
+    List<Advisory> alongRoute(List<Advisory.Point> route, double corridorNm, Integer minAltitudeFeet,
+            Integer maxAltitudeFeet, Instant time) {
+        boolean[] matched = new boolean[advisories.length];
+        boolean[] tested = new boolean[advisories.length];
+
+        for (int leg = 0; leg + 1 < route.size(); leg++) {
+            Advisory.Point from = route.get(leg);
+            Advisory.Point to = route.get(leg + 1);
+            double legNm = distanceNm(from, to);
+            int stretches = Math.max(1, (int) Math.ceil(legNm / MAX_STRETCH_NM));
+            Advisory.Point start = from;
+
+            for (int stretch = 1; stretch <= stretches; stretch++) {
+                Advisory.Point end = stretch == stretches ? to
+                        : intermediate(from, to, legNm, (double) stretch / stretches);
+
+                Arrays.fill(tested, false);
+                matchStretch(start, end, corridorNm, minAltitudeFeet, maxAltitudeFeet, time, matched, tested);
+                start = end;
+            }
+        }
+        List<Advisory> matches = new ArrayList<>();
+
+        for (int i = 0; i < advisories.length; i++)
+            if (matched[i])
+                matches.add(advisories[i]);
+        return matches;
+    }
+
+    private void matchStretch(Advisory.Point start, Advisory.Point end, double corridorNm, Integer minAltitudeFeet,
+            Integer maxAltitudeFeet, Instant time, boolean[] matched, boolean[] tested) {
+        double originLatitude = (start.latitude() + end.latitude()) / 2;
+        double originLongitude = start.longitude() + wrap(end.longitude() - start.longitude()) / 2;
+        double cosLatitude = Math.max(0.01, Math.cos(Math.toRadians(originLatitude)));
+        double[] a = project(start.latitude(), start.longitude(), originLatitude, originLongitude, cosLatitude);
+        double[] b = project(end.latitude(), end.longitude(), originLatitude, originLongitude, cosLatitude);
+        double latitudeMargin = corridorNm / NM_PER_DEGREE;
+        double longitudeMargin = Math.min(180, corridorNm / (NM_PER_DEGREE * cosLatitude));
+        double startLongitude = originLongitude + a[0] / (NM_PER_DEGREE * cosLatitude);
+        double endLongitude = originLongitude + b[0] / (NM_PER_DEGREE * cosLatitude);
+
+        forEachCell(Math.min(start.latitude(), end.latitude()) - latitudeMargin,
+                Math.max(start.latitude(), end.latitude()) + latitudeMargin,
+                Math.min(startLongitude, endLongitude) - longitudeMargin,
+                Math.max(startLongitude, endLongitude) + longitudeMargin, cell -> {
+                    int[] candidates = cells.get(cell);
+
+                    if (candidates == null)
+                        return;
+
+                    for (int i : candidates) {
+                        if (matched[i] || tested[i])
+                            continue;
+                        tested[i] = true;
+
+                        if (matchesFilters(i, minAltitudeFeet, maxAltitudeFeet, time)
+                                && distanceNm(i, a, b, originLatitude, originLongitude, cosLatitude) <= corridorNm)
+                            matched[i] = true;
+                    }
+                });
+    }
+
+    private boolean matchesFilters(int i, Integer minAltitudeFeet, Integer maxAltitudeFeet, Instant time) {
+        return advisories[i].isValidAt(time) && advisories[i].overlapsAltitudes(minAltitudeFeet, maxAltitudeFeet);
+    }
+
+    // Even-odd ray casting along the latitude of the point.
+    private boolean contains(int i, double latitude, double longitude) {
+        double center = (minLongitude[i] + maxLongitude[i]) / 2;
+        double x = center + wrap(longitude - center);
+
+        if (latitude < minLatitude[i] || latitude > maxLatitude[i] || x < minLongitude[i] || x > maxLongitude[i])
+            return false;
+        double[] lats = latitudes[i];
+        double[] lons = longitudes[i];
+        boolean inside = false;
+
+        for (int v = 0, previous = lats.length - 1; v < lats.length; previous = v++) {
+            if ((lats[v] > latitude) != (lats[previous] > latitude)
+                    && x < (lons[previous] - lons[v]) * (latitude - lats[v]) / (lats[previous] - lats[v]) + lons[v])
+                inside = !inside;
+        }
+        return inside;
+    }
+
+    // Distance from the projected segment a-b to the polygon, zero if they touch or the segment is inside.
+    private double distanceNm(int i, double[] a, double[] b, double originLatitude, double originLongitude,
+            double cosLatitude) {
+        double[] lats = latitudes[i];
+        double[] lons = longitudes[i];
+        double[][] vertices = new double[lats.length][];
+
+        for (int v = 0; v < lats.length; v++)
+            vertices[v] = project(lats[v], lons[v], originLatitude, originLongitude, cosLatitude);
+        double nearest = Double.POSITIVE_INFINITY;
+        boolean inside = false;
+
+        for (int v = 0, previous = vertices.length - 1; v < vertices.length; previous = v++) {
+            double[] p = vertices[previous];
+            double[] q = vertices[v];
+
+            if ((q[1] > a[1]) != (p[1] > a[1]) && a[0] < (p[0] - q[0]) * (a[1] - q[1]) / (p[1] - q[1]) + q[0])
+                inside = !inside;
+            if (segmentsIntersect(a, b, p, q))
+                return 0;
+            nearest = Math.min(nearest, Math.min(Math.min(pointToSegment(a, p, q), pointToSegment(b, p, q)),
+                    Math.min(pointToSegment(p, a, b), pointToSegment(q, a, b))));
+        }
+        return inside ? 0 : nearest;
+    }
+
+    // Equirectangular projection in nautical miles around the origin: x east, y north.
+    private static double[] project(double latitude, double longitude, double originLatitude, double originLongitude,
+            double cosLatitude) {
+        return new double[] { wrap(longitude - originLongitude) * cosLatitude * NM_PER_DEGREE,
+                (latitude - originLatitude) * NM_PER_DEGREE };
+    }
+
+    private static boolean segmentsIntersect(double[] a, double[] b, double[] c, double[] d) {
+        double d1 = cross(c, d, a), d2 = cross(c, d, b), d3 = cross(a, b, c), d4 = cross(a, b, d);
+
+        return ((d1 > 0) != (d2 > 0)) && ((d3 > 0) != (d4 > 0));
+    }
+
+    private static double cross(double[] origin, double[] to, double[] point) {
+        return (to[0] - origin[0]) * (point[1] - origin[1]) - (to[1] - origin[1]) * (point[0] - origin[0]);
+    }
+
+    private static double pointToSegment(double[] point, double[] start, double[] end) {
+        double dx = end[0] - start[0], dy = end[1] - start[1];
+        double lengthSquared = dx * dx + dy * dy;
+        double t = lengthSquared == 0 ? 0
+                : Math.max(0, Math.min(1, ((point[0] - start[0]) * dx + (point[1] - start[1]) * dy) / lengthSquared));
+
+        return Math.hypot(point[0] - start[0] - t * dx, point[1] - start[1] - t * dy);
+    }
+
+    private static int cell(double latitude, double longitude) {
+        int row = Math.min(179, Math.max(0, (int) Math.floor(latitude) + 90));
+
+        return row * 360 + Math.floorMod((int) Math.floor(longitude), 360);
+    }
+
+    private static void forEachCell(double minLatitude, double maxLatitude, double minLongitude, double maxLongitude,
+            IntConsumer action) {
+        int firstRow = Math.max(0, (int) Math.floor(minLatitude) + 90);
+        int lastRow = Math.min(179, (int) Math.floor(maxLatitude) + 90);
+        int firstColumn = (int) Math.floor(minLongitude);
+        int lastColumn = Math.min(firstColumn + 359, (int) Math.floor(maxLongitude));
+
+        for (int row = firstRow; row <= lastRow; row++)
+            for (int column = firstColumn; column <= lastColumn; column++)
+                action.accept(row * 360 + Math.floorMod(column, 360));
+    }
+
+    // Longitude difference wrapped to [-180, 180).
+    private static double wrap(double degrees) {
+        return ((degrees + 180) % 360 + 360) % 360 - 180;
+    }
+
+    private static double distanceNm(Advisory.Point from, Advisory.Point to) {
+        double lat1 = Math.toRadians(from.latitude());
+        double lat2 = Math.toRadians(to.latitude());
+        double dLat = lat2 - lat1;
+        double dLon = Math.toRadians(to.longitude() - from.longitude());
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(lat1) * Math.cos(lat2) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+
+        return EARTH_RADIUS_NM * 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    }
+
+    // Point the given fraction of the way along the great circle.
+    private static Advisory.Point intermediate(Advisory.Point from, Advisory.Point to, double distanceNm,
+            double fraction) {
+        double angular = distanceNm / EARTH_RADIUS_NM;
+
+        if (angular < 1e-12)
+            return from;
+        double lat1 = Math.toRadians(from.latitude()), lon1 = Math.toRadians(from.longitude());
+        double lat2 = Math.toRadians(to.latitude()), lon2 = Math.toRadians(to.longitude());
+        double a = Math.sin((1 - fraction) * angular) / Math.sin(angular);
+        double b = Math.sin(fraction * angular) / Math.sin(angular);
+        double x = a * Math.cos(lat1) * Math.cos(lon1) + b * Math.cos(lat2) * Math.cos(lon2);
+        double y = a * Math.cos(lat1) * Math.sin(lon1) + b * Math.cos(lat2) * Math.sin(lon2);
+        double z = a * Math.sin(lat1) + b * Math.sin(lat2);
+
+        return new Advisory.Point(Math.toDegrees(Math.atan2(z, Math.hypot(x, y))), Math.toDegrees(Math.atan2(y, x)));
+    }
+}
@@ -0,0 +1,128 @@
+package New_Foreflight.Weather.service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import New_Foreflight.Weather.dto.Advisory;
+import New_Foreflight.Weather.dto.AdvisoryRouteRequest;
+
+/**
+ * Holds the current SIGMETs and G-AIRMETs in an {@link AdvisoryIndex}, so that point and route queries are answered in
+ * memory instead of calling aviationweather.gov on each request.
+ *
+ * Both feeds are fetched on a schedule and the index is rebuilt off to the side and published in a single volatile
+ * write. A feed that fails to refresh keeps its previous advisories; only the very first query waits for a load, and
+ * queries fail until at least one feed has loaded, rather than report that no advisories are in effect.
+ */
+@Component
+public class AdvisoryStore {
+
+    @Autowired
+    private RestTemplate restTemplate;
+
+    @Value("${aviation.weather.api.url}")
+    private String aviationWeatherUrl;
+
+    @Value("${advisories.route.default-corridor-nm:25}")
+    private double defaultCorridorNm;
+
+    private volatile AdvisoryIndex index;
+    // Last advisories decoded from each feed. Only written by the refresh, which is synchronized.
+    private List<Advisory> sigmets = List.of();
+    private List<Advisory> gAirmets = List.of();
+    private boolean sigmetsLoaded;
+    private boolean gAirmetsLoaded;
+    private RuntimeException lastFailure;
+    // Whether the first query has tried to load the index; later loads are left to the schedule.
+    private boolean firstLoadAttempted;
+
+    /**
+     * Returns the advisories in effect at the point, altitude and time. A null altitude matches any altitude and a null
+     * time means now.
+     */
+    public List<Advisory> atPoint(double latitude, double longitude, Integer altitudeFeet, Instant time) {
+        return getIndex().atPoint(latitude, longitude, altitudeFeet, time == null ? Instant.now() : time);
+    }
+
+    /**
+     * Returns the advisories in effect along the route's corridor. Throws IllegalArgumentException for an invalid
+     * route.
+     */
+    public List<Advisory> alongRoute(AdvisoryRouteRequest request) {
+        if (request.waypoints() == null || request.waypoints().size() < 2)
+            throw new IllegalArgumentException("A route needs at least two waypoints");
+        double corridorNm = request.corridorNm() == null ? defaultCorridorNm : request.corridorNm();
+
+        if (!(corridorNm >= 0))
+            throw new IllegalArgumentException("Corridor width must not be negative");
+        return getIndex().alongRoute(request.waypoints(), corridorNm, request.minAltitudeFeet(),
+                request.maxAltitudeFeet(), request.time() == null ? Instant.now() : request.time());
+    }
+
+    private AdvisoryIndex getIndex() {
+        AdvisoryIndex current = index;
+
+        if (current == null) {
+            synchronized (this) {
+                if (index == null && !firstLoadAttempted) {
+                    firstLoadAttempted = true;
+                    refresh();
+                }
+                current = index;
+
+                if (current == null)
+                    throw new RestClientException("No advisory data available", lastFailure);
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Fetches both feeds and publishes a new index, once at least one of them has loaded.
+     */
+    @Scheduled(fixedDelayString = "${advisories.refresh-interval-ms:300000}", initialDelayString = "${advisories.refresh-interval-ms:300000}")
+    public synchronized void refresh() {
+        List<Advisory> latestSigmets = fetch("SIGMETs", aviationWeatherUrl + "/airsigmet?format=json",
+                AdvisoryDecoder::decodeSigmets);
+        List<Advisory> latestGAirmets = fetch("G-AIRMETs", aviationWeatherUrl + "/gairmet?format=json",
+                AdvisoryDecoder::decodeGAirmets);
+
+        if (latestSigmets != null) {
+            sigmets = latestSigmets;
+            sigmetsLoaded = true;
+        }
+        if (latestGAirmets != null) {
+            gAirmets = latestGAirmets;
+            gAirmetsLoaded = true;
+        }
+        if (!sigmetsLoaded && !gAirmetsLoaded)
+            return;
+        List<Advisory> advisories = new ArrayList<>(sigmets.size() + gAirmets.size());
+
+        advisories.addAll(sigmets);
+        advisories.addAll(gAirmets);
+        index = new AdvisoryIndex(advisories);
+    }
+
+    /**
+     * Returns the feed's advisories, or null if it could not be fetched or decoded.
+     */
+    private List<Advisory> fetch(String name, String url, Function<String, List<Advisory>> decoder) {
+        try {
+            return decoder.apply(restTemplate.getForObject(url, String.class));
+        } catch (RuntimeException exception) {
+            System.err.println("Unable to refresh " + name + ": " + exception.getMessage());
+            lastFailure = exception;
+            return null;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package New_Foreflight.Weather.service;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.http.HttpMethod;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import com.google.common.collect.ImmutableMap;
+
+import New_Foreflight.Weather.dto.MetarObservation;
+
+/**
+ * Periodically ingests the aviationweather.gov METAR cache file, which holds the latest observation of every station.
+ *
+ * The file is streamed through {@link MetarCsvDecoder} into a new table that replaces the previous one in a single
+ * volatile write once it is complete, so single-station lookups are plain memory reads and never see a partial table.
+ * The source may be an http(s) URL, fetched through the shared upstream client, or any Spring resource location such as
+ * a file: or classpath: URL. Gzipped files are detected and decompressed on the fly.
+ */
+@Component
+public class MetarBulkIngestor {
+
+    @Autowired
+    private RestTemplate restTemplate;
+
+    @Value("${weather.bulk.enabled:true}")
+    private boolean enabled;
+
+    @Value("${weather.bulk.url:https://aviationweather.gov/data/cache/metars.cache.csv.gz}")
+    private String metarCacheUrl;
+
+    // Maximum age of the table before lookups fall back to CheckWX.
+    @Value("${weather.bulk.max-age-ms:900000}")
+    private long maxTableAgeMs;
+
+    private volatile Table table;
+
+    private record Table(ImmutableMap<String, MetarObservation> observations, long loadedAtMillis) {
+    }
+
+    /**
+     * Returns the latest observation for the station, or null if the station is not in the table or the table is too
+     * old to be used.
+     */
+    public MetarObservation getObservation(String icao) {
+        Table current = table;
+
+        if (current == null || System.currentTimeMillis() - current.loadedAtMillis() > maxTableAgeMs)
+            return null;
+        return current.observations().get(icao);
+    }
+
+    /**
+     * Returns when the current table was loaded, or 0 if none has been loaded.
+     */
+    public long getLoadedAtMillis() {
+        Table current = table;
+
+        return current == null ? 0 : current.loadedAtMillis();
+    }
+
+    public int size() {
+        Table current = table;
+
+        return current == null ? 0 : current.observations().size();
+    }
+
+    @Scheduled(fixedDelayString = "${weather.bulk.refresh-interval-ms:300000}")
+    protected void scheduledIngest() {
+        if (!enabled)
+            return;
+
+        try {
+            ingest();
+        } catch (RuntimeException exception) {
+            System.err.println("Unable to ingest METAR cache file: " + exception.getMessage());
+        }
+    }
+
+    /**
+     * Downloads and decodes the METAR cache file and swaps in the resulting table. Returns the number of stations.
+     */
+    public int ingest() {
+        Map<String, MetarObservation> observations = metarCacheUrl.startsWith("http") ? restTemplate
+                .execute(URI.create(metarCacheUrl), HttpMethod.GET, null, response -> decode(response.getBody()))
+                : readResource();
+
+        table = new Table(ImmutableMap.copyOf(observations), System.currentTimeMillis());
+        return observations.size();
+    }
+
+    private Map<String, MetarObservation> readResource() {
+        try (InputStream input = new DefaultResourceLoader().getResource(metarCacheUrl).getInputStream()) {
+            return decode(input);
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    /**
+     * Decodes the file, keeping the most recent observation of each station.
+     */
+    static Map<String, MetarObservation> decode(InputStream input) throws IOException {
+        Map<String, MetarObservation> observations = new HashMap<>(8192);
+
+        MetarCsvDecoder.decode(decompressIfGzipped(input), observation -> observations.merge(observation.icao(),
+                observation,
+                (current, next) -> next.observedEpochSecond() > current.observedEpochSecond() ? next : current));
+        return observations;
+    }
+
+    private static InputStream decompressIfGzipped(InputStream input) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(input, 1 << 16);
+
+        buffered.mark(2);
+        int first = buffered.read();
+        int second = buffered.read();
+
+        buffered.reset();
+        return first == 0x1f && second == 0x8b ? new GZIPInputStream(buffered, 1 << 16) : buffered;
+    }
+}
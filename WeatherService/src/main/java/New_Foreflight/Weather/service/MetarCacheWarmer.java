@@ -0,0 +1,121 @@
+package New_Foreflight.Weather.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import New_Foreflight.Weather.dto.AirportWeatherResponse;
+
+/**
+ * Keeps the METAR cache warm for the busiest airports.
+ *
+ * The hot set is the configured airports plus the most requested airports, learned from a request count that halves on
+ * every run so that airports fall out of the set once they stop being requested. Each run refreshes the hot airports
+ * whose cached weather is missing or will expire within the refresh-ahead window, using grouped CheckWX requests. As
+ * long as the run interval is shorter than the refresh-ahead window, hot airports are never served cold.
+ */
+@Component
+public class MetarCacheWarmer {
+
+    @Autowired
+    private WeatherServiceImpl weatherService;
+
+    @Autowired
+    private WeatherServiceUtility utility;
+
+    @Autowired
+    private MetarBulkIngestor metarBulkIngestor;
+
+    @Autowired
+    private MetarExpiryPolicy metarExpiryPolicy;
+
+    // Airports that are always kept warm.
+    @Value("${weather.prewarm.airports:}")
+    private List<String> configuredAirports;
+
+    // Number of most requested airports kept warm in addition to the configured ones.
+    @Value("${weather.prewarm.learned-size:50}")
+    private int learnedSize;
+
+    // How long before expiry a cached response is refreshed.
+    @Value("${weather.prewarm.refresh-ahead-ms:90000}")
+    private long refreshAheadMs;
+
+    // Decayed request counts, only touched by the scheduler thread.
+    private final Map<String, Double> scores = new HashMap<>();
+
+    private volatile Set<String> hotAirports = Set.of();
+
+    @Scheduled(fixedDelayString = "${weather.prewarm.interval-ms:60000}", initialDelayString = "${weather.prewarm.initial-delay-ms:10000}")
+    protected void refreshHotAirports() {
+        hotAirports = computeHotAirports();
+        List<String> due = getDueAirports(System.currentTimeMillis());
+
+        if (due.isEmpty())
+            return;
+
+        try {
+            int refreshed = weatherService.refreshAirportWeather(due);
+
+            if (refreshed < due.size())
+                System.err.println("Pre-warmed " + refreshed + " of " + due.size() + " hot airports.");
+        } catch (RuntimeException exception) {
+            System.err.println("Unable to pre-warm weather cache: " + exception.getMessage());
+        }
+    }
+
+    /**
+     * Returns the airports currently kept warm.
+     */
+    public Set<String> getHotAirports() {
+        return hotAirports;
+    }
+
+    /**
+     * Folds the requests recorded since the last run into the decayed scores and returns the configured airports
+     * followed by the highest scoring learned airports.
+     */
+    Set<String> computeHotAirports() {
+        scores.replaceAll((icao, score) -> score / 2);
+        WeatherServiceUtility.drainWeatherAccessCounts()
+                .forEach((icao, count) -> scores.merge(icao, count.doubleValue(), Double::sum));
+        scores.values().removeIf(score -> score < 0.5);
+
+        Set<String> hot = new LinkedHashSet<>();
+
+        for (String icao : configuredAirports)
+            if (!icao.isBlank())
+                hot.add(icao.trim().toUpperCase(Locale.ROOT));
+        scores.entrySet().stream().sorted(Map.Entry.<String, Double> comparingByValue(Comparator.reverseOrder()))
+                .limit(learnedSize).forEach(entry -> hot.add(entry.getKey()));
+        return hot;
+    }
+
+    /**
+     * Returns the hot airports that are not cached or whose cached response expires within the refresh-ahead window.
+     * Airports served from the ingested METAR table are skipped.
+     */
+    List<String> getDueAirports(long nowMillis) {
+        List<String> due = new ArrayList<>();
+
+        for (String icao : hotAirports) {
+            if (metarBulkIngestor.getObservation(icao) != null)
+                continue;
+            AirportWeatherResponse cached = utility.getWeatherCache(icao);
+
+            if (cached == null || nowMillis >= metarExpiryPolicy.expiresAtMillis(cached) - refreshAheadMs)
+                due.add(icao);
+        }
+        return due;
+    }
+}
@@ -0,0 +1,201 @@
+package New_Foreflight.Weather.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import New_Foreflight.Weather.dto.CloudLayer;
+import New_Foreflight.Weather.dto.FlightCategory;
+import New_Foreflight.Weather.dto.MetarObservation;
+
+/**
+ * Streaming decoder for the aviationweather.gov METAR cache file (metars.cache.csv).
+ *
+ * The file starts with a few status lines, followed by a header row and one row per station. Rows are read one at a
+ * time and handed to the consumer as they are decoded, so the file is never held in memory. Columns are located by name
+ * from the header row; the four sky_cover and cloud_base_ft_agl column pairs are read in order.
+ */
+public final class MetarCsvDecoder {
+
+    private static final double FEET_PER_METER = 3.28084;
+
+    private MetarCsvDecoder() {
+    }
+
+    /**
+     * Decodes every row of the file, passing each observation to the consumer. Returns the number of rows decoded. Rows
+     * that cannot be decoded are skipped.
+     */
+    public static int decode(InputStream csv, Consumer<MetarObservation> consumer) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(csv, StandardCharsets.UTF_8), 1 << 16);
+        Columns columns = null;
+        String line;
+        int decoded = 0;
+
+        while ((line = reader.readLine()) != null) {
+            if (columns == null) {
+                if (line.startsWith("raw_text,"))
+                    columns = new Columns(line.split(",", -1));
+                continue;
+            }
+            MetarObservation observation = decodeRow(line.split(",", -1), columns);
+
+            if (observation != null) {
+                consumer.accept(observation);
+                decoded++;
+            }
+        }
+
+        if (columns == null)
+            throw new IOException("METAR cache file has no header row");
+        return decoded;
+    }
+
+    private static MetarObservation decodeRow(String[] row, Columns columns) {
+        String icao = columns.text(row, columns.station);
+
+        if (icao.isEmpty())
+            return null;
+        String windDirection = columns.text(row, columns.windDirection);
+        int windSpeed = columns.integer(row, columns.windSpeed);
+        int windGust = columns.integer(row, columns.windGust);
+        double temperature = columns.decimal(row, columns.temperature);
+        double dewpoint = columns.decimal(row, columns.dewpoint);
+        double elevationMeters = columns.decimal(row, columns.elevation);
+        List<CloudLayer> clouds = new ArrayList<>(4);
+
+        for (int i = 0; i < columns.skyCover.size(); i++) {
+            String code = columns.text(row, columns.skyCover.get(i));
+
+            // An obscured sky (OVX) is reported as a vertical visibility layer, as in the METAR itself.
+            if (code.equals("OVX"))
+                clouds.add(new CloudLayer("VV", columns.integer(row, columns.verticalVisibility)));
+            else if (!code.isEmpty())
+                clouds.add(new CloudLayer(code, columns.integer(row, columns.cloudBase.get(i))));
+        }
+
+        return new MetarObservation(icao, columns.text(row, columns.rawText),
+                parseObserved(columns.text(row, columns.observed)),
+                FlightCategory.fromString(columns.text(row, columns.flightCategory)),
+                windSpeed == MetarObservation.MISSING ? MetarObservation.MISSING
+                        : "VRB".equals(windDirection) ? 0 : parseInt(windDirection, 0),
+                windSpeed, windSpeed == MetarObservation.MISSING ? MetarObservation.MISSING : Math.max(windGust, 0),
+                MetarDecoder.parseMiles(columns.text(row, columns.visibility)), clouds, temperature,
+                toFahrenheit(temperature), dewpoint, toFahrenheit(dewpoint), columns.decimal(row, columns.altimeter),
+                relativeHumidity(temperature, dewpoint),
+                Double.isNaN(elevationMeters) ? Double.NaN : Math.round(elevationMeters * FEET_PER_METER));
+    }
+
+    private static double toFahrenheit(double celsius) {
+        if (Double.isNaN(celsius))
+            return Double.NaN;
+        return Math.round((celsius * 9 / 5 + 32) * 10) / 10.0;
+    }
+
+    /**
+     * Relative humidity in whole percent from temperature and dew point, using the Magnus approximation.
+     */
+    static double relativeHumidity(double temperatureCelsius, double dewpointCelsius) {
+        if (Double.isNaN(temperatureCelsius) || Double.isNaN(dewpointCelsius))
+            return Double.NaN;
+        double ratio = Math.exp(17.625 * dewpointCelsius / (243.04 + dewpointCelsius))
+                / Math.exp(17.625 * temperatureCelsius / (243.04 + temperatureCelsius));
+
+        return Math.round(100 * ratio);
+    }
+
+    private static int parseInt(String text, int missing) {
+        try {
+            return text.isEmpty() ? missing : (int) Math.round(Double.parseDouble(text));
+        } catch (NumberFormatException exception) {
+            return missing;
+        }
+    }
+
+    private static long parseObserved(String observed) {
+        try {
+            return observed.isEmpty() ? 0 : Instant.parse(observed).getEpochSecond();
+        } catch (DateTimeParseException exception) {
+            return 0;
+        }
+    }
+
+    /**
+     * Column positions taken from the header row. Missing columns are -1.
+     */
+    private static final class Columns {
+
+        private final int rawText;
+        private final int station;
+        private final int observed;
+        private final int temperature;
+        private final int dewpoint;
+        private final int windDirection;
+        private final int windSpeed;
+        private final int windGust;
+        private final int visibility;
+        private final int altimeter;
+        private final int flightCategory;
+        private final int elevation;
+        private final int verticalVisibility;
+        private final List<Integer> skyCover = new ArrayList<>(4);
+        private final List<Integer> cloudBase = new ArrayList<>(4);
+
+        Columns(String[] header) {
+            Map<String, Integer> byName = new HashMap<>();
+
+            for (int i = 0; i < header.length; i++) {
+                String name = header[i].trim();
+
+                if (name.equals("sky_cover"))
+                    skyCover.add(i);
+                else if (name.equals("cloud_base_ft_agl"))
+                    cloudBase.add(i);
+                else
+                    byName.putIfAbsent(name, i);
+            }
+            while (cloudBase.size() < skyCover.size())
+                cloudBase.add(-1);
+            rawText = byName.getOrDefault("raw_text", -1);
+            station = byName.getOrDefault("station_id", -1);
+            observed = byName.getOrDefault("observation_time", -1);
+            temperature = byName.getOrDefault("temp_c", -1);
+            dewpoint = byName.getOrDefault("dewpoint_c", -1);
+            windDirection = byName.getOrDefault("wind_dir_degrees", -1);
+            windSpeed = byName.getOrDefault("wind_speed_kt", -1);
+            windGust = byName.getOrDefault("wind_gust_kt", -1);
+            visibility = byName.getOrDefault("visibility_statute_mi", -1);
+            altimeter = byName.getOrDefault("altim_in_hg", -1);
+            flightCategory = byName.getOrDefault("flight_category", -1);
+            elevation = byName.getOrDefault("elevation_m", -1);
+            verticalVisibility = byName.getOrDefault("vert_vis_ft", -1);
+        }
+
+        String text(String[] row, int column) {
+            return column < 0 || column >= row.length ? "" : row[column].trim();
+        }
+
+        int integer(String[] row, int column) {
+            return parseInt(text(row, column), MetarObservation.MISSING);
+        }
+
+        double decimal(String[] row, int column) {
+            String text = text(row, column);
+
+            try {
+                return text.isEmpty() ? Double.NaN : Double.parseDouble(text);
+            } catch (NumberFormatException exception) {
+                return Double.NaN;
+            }
+        }
+    }
+}
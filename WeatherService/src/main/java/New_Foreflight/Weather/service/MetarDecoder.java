@@ -0,0 +1,308 @@
+package New_Foreflight.Weather.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import New_Foreflight.Weather.dto.CloudLayer;
+import New_Foreflight.Weather.dto.FlightCategory;
+import New_Foreflight.Weather.dto.MetarObservation;
+
+/**
+ * Single-pass streaming decoder for CheckWX decoded METAR responses.
+ *
+ * The response is read token by token straight into the fields of a {@link MetarObservation}, without building a JSON
+ * tree. Fields that are not needed are skipped.
+ */
+public final class MetarDecoder {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private MetarDecoder() {
+    }
+
+    /**
+     * Decodes the first observation in the response.
+     */
+    public static MetarObservation decode(String apiResponseJson) {
+        List<MetarObservation> observations = decode(apiResponseJson, 1);
+
+        if (observations.isEmpty())
+            throw new IllegalArgumentException("No METAR data in response");
+        return observations.get(0);
+    }
+
+    /**
+     * Decodes every observation in the response, in response order.
+     */
+    public static List<MetarObservation> decodeAll(String apiResponseJson) {
+        return decode(apiResponseJson, Integer.MAX_VALUE);
+    }
+
+    private static List<MetarObservation> decode(String apiResponseJson, int limit) {
+        List<MetarObservation> observations = new ArrayList<>();
+
+        try (JsonParser parser = JSON_FACTORY.createParser(apiResponseJson)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT)
+                throw new IllegalArgumentException("Expected a JSON object");
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+
+                if (parser.nextToken() != JsonToken.START_ARRAY || !"data".equals(field)) {
+                    parser.skipChildren();
+                    continue;
+                }
+
+                while (parser.nextToken() != JsonToken.END_ARRAY && observations.size() < limit) {
+                    if (parser.currentToken() == JsonToken.START_OBJECT)
+                        observations.add(readObservation(parser));
+                    else
+                        parser.skipChildren();
+                }
+                break;
+            }
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+        return observations;
+    }
+
+    private static MetarObservation readObservation(JsonParser parser) throws IOException {
+        String icao = null;
+        String rawText = null;
+        long observed = 0;
+        FlightCategory category = FlightCategory.UNKNOWN;
+        int windDirection = MetarObservation.MISSING;
+        int windSpeed = MetarObservation.MISSING;
+        int windGust = MetarObservation.MISSING;
+        double visibility = Double.NaN;
+        List<CloudLayer> clouds = List.of();
+        double[] temperature = { Double.NaN, Double.NaN };
+        double[] dewpoint = { Double.NaN, Double.NaN };
+        double altimeter = Double.NaN;
+        double humidity = Double.NaN;
+        double elevation = Double.NaN;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+
+            if (value == JsonToken.VALUE_NULL)
+                continue;
+
+            switch (field) {
+            case "icao":
+                icao = parser.getValueAsString();
+                break;
+            case "raw_text":
+                rawText = parser.getValueAsString();
+                break;
+            case "observed":
+                observed = parseObserved(parser.getValueAsString());
+                break;
+            case "flight_category":
+                category = FlightCategory.fromString(parser.getValueAsString());
+                break;
+            case "wind":
+                if (value != JsonToken.START_OBJECT) {
+                    parser.skipChildren();
+                    break;
+                }
+                windDirection = 0;
+                windSpeed = 0;
+                windGust = 0;
+
+                while (nextField(parser)) {
+                    switch (parser.currentName()) {
+                    case "degrees":
+                        windDirection = parser.getValueAsInt(0);
+                        break;
+                    case "speed_kts":
+                        windSpeed = parser.getValueAsInt(0);
+                        break;
+                    case "gust_kts":
+                        windGust = parser.getValueAsInt(0);
+                        break;
+                    default:
+                        parser.skipChildren();
+                    }
+                }
+                break;
+            case "visibility":
+                if (value != JsonToken.START_OBJECT) {
+                    parser.skipChildren();
+                    break;
+                }
+                visibility = readVisibility(parser);
+                break;
+            case "clouds":
+                clouds = readClouds(parser);
+                break;
+            case "temperature":
+                if (value != JsonToken.START_OBJECT) {
+                    parser.skipChildren();
+                    break;
+                }
+                readTemperature(parser, temperature);
+                break;
+            case "dewpoint":
+                if (value != JsonToken.START_OBJECT) {
+                    parser.skipChildren();
+                    break;
+                }
+                readTemperature(parser, dewpoint);
+                break;
+            case "barometer":
+                altimeter = readNumber(parser, "hg");
+                break;
+            case "humidity":
+                humidity = readNumber(parser, "percent");
+                break;
+            case "elevation":
+                elevation = readNumber(parser, "feet");
+                break;
+            default:
+                parser.skipChildren();
+            }
+        }
+        return new MetarObservation(icao, rawText, observed, category, windDirection, windSpeed, windGust, visibility,
+                clouds, temperature[0], temperature[1], dewpoint[0], dewpoint[1], altimeter, humidity, elevation);
+    }
+
+    /**
+     * Advances to the next field of the current object and its value. Returns false at the end of the object.
+     */
+    private static boolean nextField(JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.FIELD_NAME)
+            return false;
+        parser.nextToken();
+        return true;
+    }
+
+    private static double readNumber(JsonParser parser, String name) throws IOException {
+        double result = Double.NaN;
+
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return result;
+        }
+
+        while (nextField(parser)) {
+            if (name.equals(parser.currentName()))
+                result = parser.getValueAsDouble(Double.NaN);
+            else
+                parser.skipChildren();
+        }
+        return result;
+    }
+
+    // Fills target with the Celsius and Fahrenheit values.
+    private static void readTemperature(JsonParser parser, double[] target) throws IOException {
+        while (nextField(parser)) {
+            switch (parser.currentName()) {
+            case "celsius":
+                target[0] = parser.getValueAsDouble(Double.NaN);
+                break;
+            case "fahrenheit":
+                target[1] = parser.getValueAsDouble(Double.NaN);
+                break;
+            default:
+                parser.skipChildren();
+            }
+        }
+    }
+
+    private static double readVisibility(JsonParser parser) throws IOException {
+        double milesFloat = Double.NaN;
+        double miles = Double.NaN;
+
+        while (nextField(parser)) {
+            switch (parser.currentName()) {
+            case "miles_float":
+                milesFloat = parser.getValueAsDouble(Double.NaN);
+                break;
+            case "miles":
+                miles = parseMiles(parser.getValueAsString());
+                break;
+            default:
+                parser.skipChildren();
+            }
+        }
+        return Double.isNaN(milesFloat) ? miles : milesFloat;
+    }
+
+    private static List<CloudLayer> readClouds(JsonParser parser) throws IOException {
+        List<CloudLayer> layers = new ArrayList<>(4);
+
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return layers;
+        }
+
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            if (parser.currentToken() != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                continue;
+            }
+            String code = "Unknown";
+            int feet = MetarObservation.MISSING;
+
+            while (nextField(parser)) {
+                switch (parser.currentName()) {
+                case "code":
+                    code = parser.getValueAsString("Unknown");
+                    break;
+                case "feet":
+                    feet = parser.getValueAsInt(MetarObservation.MISSING);
+                    break;
+                default:
+                    parser.skipChildren();
+                }
+            }
+            layers.add(new CloudLayer(code, feet));
+        }
+        return layers;
+    }
+
+    /**
+     * Parses visibility text such as "10", "1 1/2" or "3/4".
+     */
+    static double parseMiles(String text) {
+        if (text == null || text.isBlank())
+            return Double.NaN;
+        double total = 0;
+
+        try {
+            for (String part : text.trim().replace("+", "").split(" ")) {
+                int slash = part.indexOf('/');
+
+                total += slash < 0 ? Double.parseDouble(part)
+                        : Double.parseDouble(part.substring(0, slash)) / Double.parseDouble(part.substring(slash + 1));
+            }
+        } catch (NumberFormatException exception) {
+            return Double.NaN;
+        }
+        return total;
+    }
+
+    private static long parseObserved(String observed) {
+        if (observed == null || observed.isEmpty())
+            return 0;
+        String localTime = observed.endsWith("Z") ? observed.substring(0, observed.length() - 1) : observed;
+
+        try {
+            return LocalDateTime.parse(localTime).toEpochSecond(ZoneOffset.UTC);
+        } catch (DateTimeParseException exception) {
+            return 0;
+        }
+    }
+}
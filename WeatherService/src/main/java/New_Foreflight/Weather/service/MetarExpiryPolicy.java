@@ -0,0 +1,137 @@
+package New_Foreflight.Weather.service;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import New_Foreflight.Weather.dto.AirportWeatherResponse;
+import New_Foreflight.Weather.dto.MetarObservation;
+
+/**
+ * Decides how long cached weather stays valid, based on when the next METAR for the station is expected.
+ *
+ * Stations issue routine METARs hourly at a fixed minute past the hour, which is learned per station from the
+ * observations seen. A cached observation expires shortly after the station's next routine issuance is due, so a
+ * station is fetched about once per hour instead of on every request after a fixed interval. Observations whose time is
+ * unknown fall back to a fixed time to live, and an overdue report is retried after the minimum time to live.
+ *
+ * SPECIs can be issued at any time and are picked up by the cache's early refresh probe rather than by expiry.
+ */
+@Component
+public class MetarExpiryPolicy {
+
+    private static final int UNKNOWN = -1;
+
+    // Time for a new METAR to reach the upstream after its observation time.
+    @Value("${weather.cache.issuance-grace-ms:300000}")
+    private long issuanceGraceMs;
+
+    @Value("${weather.cache.min-ttl-ms:60000}")
+    private long minTtlMs;
+
+    @Value("${weather.cache.max-ttl-ms:4500000}")
+    private long maxTtlMs;
+
+    // Used when the observation time is unknown.
+    @Value("${weather.cache.fallback-ttl-ms:300000}")
+    private long fallbackTtlMs;
+
+    /*
+     * Reporting pattern per station: the learned routine minute in the low byte and a candidate minute, seen once and
+     * different from the learned one, in the second byte. A candidate seen twice in a row replaces the learned minute,
+     * so a station that changes its schedule, or was first seen through a SPECI, is relearned after two reports.
+     */
+    private final ConcurrentHashMap<String, Integer> reportingMinutes = new ConcurrentHashMap<>();
+
+    /**
+     * Learns the station's routine reporting minute from an observation.
+     */
+    public void record(MetarObservation observation) {
+        if (observation == null || observation.icao() == null || observation.observedEpochSecond() <= 0)
+            return;
+
+        if (observation.rawText() != null && observation.rawText().startsWith("SPECI"))
+            return;
+        int minute = minuteOfHour(observation.observedEpochSecond());
+
+        reportingMinutes.merge(observation.icao(), pack(minute, UNKNOWN), (current, ignored) -> {
+            int learned = learned(current);
+            int candidate = candidate(current);
+
+            if (learned == UNKNOWN || isNear(minute, learned))
+                return pack(learned == UNKNOWN ? minute : learned, UNKNOWN);
+            if (candidate != UNKNOWN && isNear(minute, candidate))
+                return pack(minute, UNKNOWN);
+            return pack(learned, minute);
+        });
+    }
+
+    /**
+     * Returns when the cached weather should expire: just after the station's next routine report is due, within the
+     * minimum and maximum time to live from when it was fetched.
+     */
+    public long expiresAtMillis(AirportWeatherResponse response) {
+        long fetchedAt = response.getFetchedAtMillis();
+        MetarObservation observation = response.getObservation();
+
+        if (observation == null || observation.observedEpochSecond() <= 0)
+            return fetchedAt + fallbackTtlMs;
+        long deadline = nextIssuanceMillis(observation) + issuanceGraceMs;
+
+        return Math.min(Math.max(deadline, fetchedAt + minTtlMs), fetchedAt + maxTtlMs);
+    }
+
+    /**
+     * Returns the remaining time to live of the cached weather, at least the minimum time to live.
+     */
+    public Duration timeToLive(AirportWeatherResponse response) {
+        return Duration.ofMillis(Math.max(minTtlMs, expiresAtMillis(response) - System.currentTimeMillis()));
+    }
+
+    /**
+     * Returns when the first routine report after the observation is due, assuming the station reports at its learned
+     * minute, or at the observation's own minute if none has been learned.
+     */
+    long nextIssuanceMillis(MetarObservation observation) {
+        long observedMillis = TimeUnit.SECONDS.toMillis(observation.observedEpochSecond());
+        Integer pattern = reportingMinutes.get(observation.icao());
+        int minute = pattern == null ? minuteOfHour(observation.observedEpochSecond()) : learned(pattern);
+        long hour = TimeUnit.HOURS.toMillis(1);
+        long next = observedMillis - observedMillis % hour + TimeUnit.MINUTES.toMillis(minute);
+
+        // An observation a minute or two off the learned minute is the routine report itself.
+        while (next <= observedMillis + TimeUnit.MINUTES.toMillis(2))
+            next += hour;
+        return next;
+    }
+
+    private static int minuteOfHour(long epochSecond) {
+        return (int) (epochSecond / 60 % 60);
+    }
+
+    // Minutes within two of each other, across the hour.
+    private static boolean isNear(int minute, int other) {
+        int difference = Math.abs(minute - other);
+
+        return Math.min(difference, 60 - difference) <= 2;
+    }
+
+    private static int pack(int learned, int candidate) {
+        return (learned & 0xff) | (candidate & 0xff) << 8;
+    }
+
+    private static int learned(int pattern) {
+        int learned = pattern & 0xff;
+
+        return learned == 0xff ? UNKNOWN : learned;
+    }
+
+    private static int candidate(int pattern) {
+        int candidate = pattern >> 8 & 0xff;
+
+        return candidate == 0xff ? UNKNOWN : candidate;
+    }
+}
@@ -0,0 +1,160 @@
+package New_Foreflight.Weather.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import New_Foreflight.Weather.dto.Pirep;
+
+/**
+ * Streaming decoder for the aviationweather.gov aircraft report cache file (aircraftreports.cache.csv).
+ *
+ * Like the METAR cache file, the file starts with a few status lines followed by a header row and one row per report.
+ * Columns are located by name from the header row; where a condition has several column groups, the first one is read.
+ * The raw text is the last column and may itself contain commas, so the rest of the row is taken as the raw text.
+ */
+public final class PirepCsvDecoder {
+
+    private PirepCsvDecoder() {
+    }
+
+    /**
+     * Decodes every row of the file, passing each report to the consumer. Returns the number of rows decoded. Rows
+     * without a position or observation time are skipped.
+     */
+    public static int decode(InputStream csv, Consumer<Pirep> consumer) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(csv, StandardCharsets.UTF_8), 1 << 16);
+        Columns columns = null;
+        String line;
+        int decoded = 0;
+
+        while ((line = reader.readLine()) != null) {
+            if (columns == null) {
+                if (line.startsWith("receipt_time,") || line.startsWith("observation_time,"))
+                    columns = new Columns(line.split(",", -1));
+                continue;
+            }
+            Pirep pirep = decodeRow(line.split(",", -1), columns);
+
+            if (pirep != null) {
+                consumer.accept(pirep);
+                decoded++;
+            }
+        }
+
+        if (columns == null)
+            throw new IOException("Aircraft report cache file has no header row");
+        return decoded;
+    }
+
+    private static Pirep decodeRow(String[] row, Columns columns) {
+        Double latitude = columns.decimal(row, columns.latitude);
+        Double longitude = columns.decimal(row, columns.longitude);
+        Instant observed = parseTime(columns.text(row, columns.observed));
+
+        if (latitude == null || longitude == null || observed == null)
+            return null;
+        String rawText = columns.rawText < 0 || columns.rawText >= row.length ? ""
+                : String.join(",", Arrays.copyOfRange(row, columns.rawText, row.length)).trim();
+
+        if (rawText.length() > 1 && rawText.startsWith("\"") && rawText.endsWith("\""))
+            rawText = rawText.substring(1, rawText.length() - 1);
+        return new Pirep(rawText.isEmpty() ? null : rawText, observed, columns.textOrNull(row, columns.reportType),
+                columns.textOrNull(row, columns.aircraft), latitude, longitude, columns.integer(row, columns.altitude),
+                columns.decimal(row, columns.temperature), condition(row, columns, columns.turbulence),
+                condition(row, columns, columns.icing));
+    }
+
+    // The condition in the intensity, type, base and top columns, or null if none is reported.
+    private static Pirep.Condition condition(String[] row, Columns columns, int[] group) {
+        String intensity = columns.textOrNull(row, group[0]);
+        String type = columns.textOrNull(row, group[1]);
+
+        if (intensity == null && type == null)
+            return null;
+        return new Pirep.Condition(intensity, type, columns.integer(row, group[2]), columns.integer(row, group[3]));
+    }
+
+    private static Instant parseTime(String text) {
+        try {
+            return text.isEmpty() ? null : Instant.parse(text);
+        } catch (DateTimeParseException exception) {
+            return null;
+        }
+    }
+
+    /**
+     * Column positions taken from the header row. Missing columns are -1.
+     */
+    private static final class Columns {
+
+        private final int observed;
+        private final int aircraft;
+        private final int latitude;
+        private final int longitude;
+        private final int altitude;
+        private final int temperature;
+        private final int reportType;
+        private final int rawText;
+        // Intensity, type, base and top columns.
+        private final int[] turbulence;
+        private final int[] icing;
+
+        Columns(String[] header) {
+            Map<String, Integer> byName = new HashMap<>();
+
+            for (int i = 0; i < header.length; i++)
+                byName.putIfAbsent(header[i].trim(), i);
+            observed = byName.getOrDefault("observation_time", -1);
+            aircraft = byName.getOrDefault("aircraft_ref", -1);
+            latitude = byName.getOrDefault("latitude", -1);
+            longitude = byName.getOrDefault("longitude", -1);
+            altitude = byName.getOrDefault("altitude_ft_msl", -1);
+            temperature = byName.getOrDefault("temp_c", -1);
+            reportType = byName.getOrDefault("report_type", -1);
+            rawText = byName.getOrDefault("raw_text", -1);
+            turbulence = group(byName, "turbulence");
+            icing = group(byName, "icing");
+        }
+
+        private static int[] group(Map<String, Integer> byName, String prefix) {
+            return new int[] { byName.getOrDefault(prefix + "_intensity", -1),
+                    byName.getOrDefault(prefix + "_type", -1), byName.getOrDefault(prefix + "_base_ft_msl", -1),
+                    byName.getOrDefault(prefix + "_top_ft_msl", -1) };
+        }
+
+        String text(String[] row, int column) {
+            return column < 0 || column >= row.length ? "" : row[column].trim();
+        }
+
+        String textOrNull(String[] row, int column) {
+            String text = text(row, column);
+
+            return text.isEmpty() ? null : text;
+        }
+
+        Integer integer(String[] row, int column) {
+            Double value = decimal(row, column);
+
+            return value == null ? null : (int) Math.round(value);
+        }
+
+        Double decimal(String[] row, int column) {
+            String text = text(row, column);
+
+            try {
+                return text.isEmpty() ? null : Double.parseDouble(text);
+            } catch (NumberFormatException exception) {
+                return null;
+            }
+        }
+    }
+}
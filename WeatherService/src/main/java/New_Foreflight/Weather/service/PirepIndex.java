@@ -0,0 +1,183 @@
+package New_Foreflight.Weather.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.IntConsumer;
+
+import com.google.common.collect.ImmutableSortedMap;
+
+import New_Foreflight.Weather.dto.Pirep;
+
+/**
+ * Immutable index of pilot reports by observation time and position.
+ *
+ * Reports are grouped into buckets by observation time, and within each bucket into cells of one degree of latitude by
+ * one of longitude. An age query only visits the buckets that can hold reports that recent, and a radius query only the
+ * cells around the point. Adding reports builds a new index that shares every bucket the new reports do not touch, and
+ * evicting old reports drops whole buckets, so a refresh costs in proportion to what changed.
+ */
+final class PirepIndex {
+
+    private static final double EARTH_RADIUS_NM = 3440.065;
+    private static final double NM_PER_DEGREE = 60;
+    private static final Comparator<Pirep> NEWEST_FIRST = Comparator.comparing(Pirep::observedAt).reversed();
+
+    private final long bucketMillis;
+    // Buckets keyed by the start of their time span, in epoch milliseconds.
+    private final ImmutableSortedMap<Long, Bucket> buckets;
+
+    PirepIndex(Duration bucketSpan) {
+        this(bucketSpan.toMillis(), ImmutableSortedMap.of());
+    }
+
+    private PirepIndex(long bucketMillis, ImmutableSortedMap<Long, Bucket> buckets) {
+        if (bucketMillis <= 0)
+            throw new IllegalArgumentException("Bucket span must be positive");
+        this.bucketMillis = bucketMillis;
+        this.buckets = buckets;
+    }
+
+    int size() {
+        return buckets.values().stream().mapToInt(bucket -> bucket.reports.length).sum();
+    }
+
+    /**
+     * Returns an index holding these reports as well as the ones already held, less any observed before the eviction
+     * time. Reports already held are not added twice.
+     */
+    PirepIndex withReports(List<Pirep> reports, Instant evictBefore) {
+        long evictMillis = evictBefore.toEpochMilli();
+        Map<Long, List<Pirep>> added = new HashMap<>();
+
+        for (Pirep report : reports) {
+            if (report.observedAt().toEpochMilli() >= evictMillis)
+                added.computeIfAbsent(bucketStart(report.observedAt()), key -> new ArrayList<>()).add(report);
+        }
+        TreeMap<Long, Bucket> next = new TreeMap<>(buckets.tailMap(bucketStart(evictBefore), true));
+
+        added.forEach((start, additions) -> {
+            Set<Pirep> merged = new LinkedHashSet<>();
+            Bucket existing = next.get(start);
+
+            if (existing != null)
+                merged.addAll(List.of(existing.reports));
+            if (merged.addAll(additions) || existing == null)
+                next.put(start, new Bucket(merged));
+        });
+        // The oldest bucket may straddle the eviction time.
+        Map.Entry<Long, Bucket> oldest = next.firstEntry();
+
+        if (oldest != null && oldest.getValue().oldestMillis < evictMillis) {
+            List<Pirep> kept = new ArrayList<>();
+
+            for (Pirep report : oldest.getValue().reports)
+                if (report.observedAt().toEpochMilli() >= evictMillis)
+                    kept.add(report);
+            if (kept.isEmpty())
+                next.remove(oldest.getKey());
+            else
+                next.put(oldest.getKey(), new Bucket(kept));
+        }
+        return new PirepIndex(bucketMillis, ImmutableSortedMap.copyOfSorted(next));
+    }
+
+    /**
+     * Returns the reports within the radius of the point observed at or after the given time, newest first.
+     */
+    List<Pirep> within(double latitude, double longitude, double radiusNm, Instant since) {
+        long sinceMillis = since.toEpochMilli();
+        double cosLatitude = Math.max(0.01, Math.cos(Math.toRadians(latitude)));
+        double latitudeMargin = radiusNm / NM_PER_DEGREE;
+        double longitudeMargin = Math.min(180, radiusNm / (NM_PER_DEGREE * cosLatitude));
+        List<Pirep> matches = new ArrayList<>();
+
+        for (Bucket bucket : buckets.tailMap(bucketStart(since), true).values()) {
+            forEachCell(latitude - latitudeMargin, latitude + latitudeMargin, longitude - longitudeMargin,
+                    longitude + longitudeMargin, cell -> {
+                        int[] candidates = bucket.cells.get(cell);
+
+                        if (candidates == null)
+                            return;
+
+                        for (int i : candidates) {
+                            Pirep report = bucket.reports[i];
+
+                            if (report.observedAt().toEpochMilli() >= sinceMillis && distanceNm(latitude, longitude,
+                                    report.latitude(), report.longitude()) <= radiusNm)
+                                matches.add(report);
+                        }
+                    });
+        }
+        matches.sort(NEWEST_FIRST);
+        return matches;
+    }
+
+    private long bucketStart(Instant time) {
+        return Math.floorDiv(time.toEpochMilli(), bucketMillis) * bucketMillis;
+    }
+
+    /**
+     * The reports observed in one time span, listed by cell.
+     */
+    private static final class Bucket {
+
+        private final Pirep[] reports;
+        private final long oldestMillis;
+        // Report indices listed in each cell, keyed by cell number.
+        private final Map<Integer, int[]> cells;
+
+        Bucket(Iterable<Pirep> reports) {
+            List<Pirep> list = new ArrayList<>();
+            Map<Integer, List<Integer>> listed = new HashMap<>();
+            long oldest = Long.MAX_VALUE;
+
+            for (Pirep report : reports) {
+                listed.computeIfAbsent(cell(report.latitude(), report.longitude()), key -> new ArrayList<>())
+                        .add(list.size());
+                list.add(report);
+                oldest = Math.min(oldest, report.observedAt().toEpochMilli());
+            }
+            this.reports = list.toArray(Pirep[]::new);
+            this.oldestMillis = oldest;
+            cells = new HashMap<>(listed.size() * 2);
+            listed.forEach((cell, indices) -> cells.put(cell, indices.stream().mapToInt(Integer::intValue).toArray()));
+        }
+    }
+
+    private static int cell(double latitude, double longitude) {
+        int row = Math.min(179, Math.max(0, (int) Math.floor(latitude) + 90));
+
+        return row * 360 + Math.floorMod((int) Math.floor(longitude), 360);
+    }
+
+    private static void forEachCell(double minLatitude, double maxLatitude, double minLongitude, double maxLongitude,
+            IntConsumer action) {
+        int firstRow = Math.max(0, (int) Math.floor(minLatitude) + 90);
+        int lastRow = Math.min(179, (int) Math.floor(maxLatitude) + 90);
+        int firstColumn = (int) Math.floor(minLongitude);
+        int lastColumn = Math.min(firstColumn + 359, (int) Math.floor(maxLongitude));
+
+        for (int row = firstRow; row <= lastRow; row++)
+            for (int column = firstColumn; column <= lastColumn; column++)
+                action.accept(row * 360 + Math.floorMod(column, 360));
+    }
+
+    private static double distanceNm(double fromLatitude, double fromLongitude, double toLatitude, double toLongitude) {
+        double lat1 = Math.toRadians(fromLatitude);
+        double lat2 = Math.toRadians(toLatitude);
+        double dLat = lat2 - lat1;
+        double dLon = Math.toRadians(toLongitude - fromLongitude);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(lat1) * Math.cos(lat2) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+
+        return EARTH_RADIUS_NM * 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    }
+}
@@ -0,0 +1,157 @@
+package New_Foreflight.Weather.service;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.http.HttpMethod;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import New_Foreflight.Weather.database.AirportLookupTable;
+import New_Foreflight.Weather.database.AirportNode;
+import New_Foreflight.Weather.dto.Pirep;
+
+/**
+ * Holds recent pilot reports in a {@link PirepIndex}, so that radius and age queries around any airport or coordinate
+ * are answered in memory instead of forwarding each query to aviationweather.gov.
+ *
+ * The aircraft report cache file is ingested on a schedule and merged into the reports already held, which are kept for
+ * the retention period and then evicted. Each ingest publishes a new index in a single volatile write. The source may
+ * be an http(s) URL or any Spring resource location, gzipped or not, as for {@link MetarBulkIngestor}.
+ */
+@Component
+public class PirepStore {
+
+    @Autowired
+    private RestTemplate restTemplate;
+
+    @Autowired
+    private AirportLookupTable airportLookupTable;
+
+    @Value("${pireps.enabled:true}")
+    private boolean enabled;
+
+    @Value("${pireps.url:https://aviationweather.gov/data/cache/aircraftreports.cache.csv.gz}")
+    private String pirepCacheUrl;
+
+    // How long reports are kept after they were observed.
+    @Value("${pireps.retention-hours:12}")
+    private long retentionHours;
+
+    @Value("${pireps.bucket-minutes:15}")
+    private long bucketMinutes;
+
+    private volatile PirepIndex index;
+    // Whether the first query has tried to load the index; later loads are left to the schedule.
+    private boolean firstLoadAttempted;
+
+    /**
+     * Returns the reports within the radius of the point observed no longer ago than the age, newest first. Returns
+     * null if no reports could be ingested yet.
+     */
+    public List<Pirep> within(double latitude, double longitude, double radiusNm, Duration age) {
+        PirepIndex current = getIndex();
+
+        if (current == null)
+            return null;
+        return current.within(latitude, longitude, radiusNm, Instant.now().minus(age));
+    }
+
+    /**
+     * Returns the raw text of the reports within the radius of the airport and no older than the age, one per line and
+     * newest first. Returns null if the airport is not known locally or no reports could be ingested yet.
+     */
+    public String rawTextNear(String airportCode, double radiusNm, Duration age) {
+        AirportNode airport = airportLookupTable.findByIcao(airportCode).orElse(null);
+        List<Pirep> reports = airport == null ? null
+                : within(airport.getLatitude(), airport.getLongitude(), radiusNm, age);
+
+        if (reports == null)
+            return null;
+        return String.join("\n", reports.stream().map(Pirep::rawText).filter(text -> text != null).toList());
+    }
+
+    public int size() {
+        PirepIndex current = index;
+
+        return current == null ? 0 : current.size();
+    }
+
+    private PirepIndex getIndex() {
+        PirepIndex current = index;
+
+        if (current == null && enabled) {
+            synchronized (this) {
+                if (index == null && !firstLoadAttempted) {
+                    firstLoadAttempted = true;
+                    scheduledIngest();
+                }
+                current = index;
+            }
+        }
+        return current;
+    }
+
+    @Scheduled(fixedDelayString = "${pireps.refresh-interval-ms:300000}", initialDelayString = "${pireps.refresh-interval-ms:300000}")
+    protected void scheduledIngest() {
+        if (!enabled)
+            return;
+
+        try {
+            ingest();
+        } catch (RuntimeException exception) {
+            System.err.println("Unable to ingest aircraft report cache file: " + exception.getMessage());
+        }
+    }
+
+    /**
+     * Downloads and decodes the aircraft report cache file, merges it into the reports held and evicts those past the
+     * retention period. Returns the number of reports decoded.
+     */
+    public synchronized int ingest() {
+        List<Pirep> reports = pirepCacheUrl.startsWith("http") ? restTemplate.execute(URI.create(pirepCacheUrl),
+                HttpMethod.GET, null, response -> decode(response.getBody())) : readResource();
+        PirepIndex current = index == null ? new PirepIndex(Duration.ofMinutes(bucketMinutes)) : index;
+
+        index = current.withReports(reports, Instant.now().minus(Duration.ofHours(retentionHours)));
+        return reports.size();
+    }
+
+    private List<Pirep> readResource() {
+        try (InputStream input = new DefaultResourceLoader().getResource(pirepCacheUrl).getInputStream()) {
+            return decode(input);
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    static List<Pirep> decode(InputStream input) throws IOException {
+        List<Pirep> reports = new ArrayList<>(4096);
+
+        PirepCsvDecoder.decode(decompressIfGzipped(input), reports::add);
+        return reports;
+    }
+
+    private static InputStream decompressIfGzipped(InputStream input) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(input, 1 << 16);
+
+        buffered.mark(2);
+        int first = buffered.read();
+        int second = buffered.read();
+
+        buffered.reset();
+        return first == 0x1f && second == 0x8b ? new GZIPInputStream(buffered, 1 << 16) : buffered;
+    }
+}
@@ -0,0 +1,63 @@
+package New_Foreflight.Weather.service;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Non-blocking retrieval of the aviationweather.gov products served by {@link WeatherService}, on the shared
+ * {@link WebClient}.
+ *
+ * Each method returns a cold Mono: nothing is sent until it is subscribed, and cancelling the subscription cancels the
+ * upstream exchange. Work that can block, such as the first load of the local PIREP store, runs on the bounded elastic
+ * scheduler rather than the event loop.
+ */
+@Service
+public class ReactiveWeatherService {
+
+    @Autowired
+    private WebClient upstreamWebClient;
+
+    @Autowired
+    private PirepStore pirepStore;
+
+    @Value("${aviation.weather.api.url}")
+    private String aviationWeatherUrl;
+
+    public Mono<String> getMetar(String airport, int hours) {
+        return get(WeatherServiceImpl.metarUrl(aviationWeatherUrl, airport, hours));
+    }
+
+    /**
+     * Answers from the ingested reports like {@link WeatherService#getPirepData}, going upstream only for airports
+     * unknown locally or when no reports could be ingested.
+     */
+    public Mono<String> getPirepData(String airportCode, int distance, int age) {
+        return Mono.fromCallable(() -> pirepStore.rawTextNear(airportCode, distance, Duration.ofHours(age)))
+                .subscribeOn(Schedulers.boundedElastic()).switchIfEmpty(Mono
+                        .defer(() -> get(WeatherServiceImpl.pirepUrl(aviationWeatherUrl, airportCode, distance, age))));
+    }
+
+    public Mono<String> getAirSigmet() {
+        return get(WeatherServiceImpl.airSigmetUrl(aviationWeatherUrl));
+    }
+
+    public Mono<String> getGAirmet(int southLat, int westLon, int northLat, int eastLon) {
+        return Mono.defer(
+                () -> get(WeatherServiceImpl.gAirmetUrl(aviationWeatherUrl, southLat, westLon, northLat, eastLon)));
+    }
+
+    public Mono<String> getWindTemp(String region, String forecast, String level) {
+        return get(WeatherServiceImpl.windTempUrl(aviationWeatherUrl, region, forecast, level));
+    }
+
+    private Mono<String> get(String url) {
+        return upstreamWebClient.get().uri(url).retrieve().bodyToMono(String.class);
+    }
+}
@@ -0,0 +1,236 @@
+package New_Foreflight.Weather.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import New_Foreflight.Weather.dto.RouteWindsRequest;
+import New_Foreflight.Weather.dto.RouteWindsRequest.Waypoint;
+import New_Foreflight.Weather.dto.RouteWindsResponse;
+import New_Foreflight.Weather.dto.WindsAloftSample;
+
+/**
+ * Computes the winds aloft profile of a route in a single pass.
+ *
+ * Each leg is split along its great circle into segments no longer than the requested spacing. The altitude of each
+ * segment follows the vertical profile: a constant gradient climb from departure to the cruise altitude, cruise, and a
+ * constant gradient descent to arrival, where the gradients follow from the climb and descent rates at their airspeeds.
+ * On short routes the climb and descent meet below the cruise altitude. The wind at each segment midpoint comes from
+ * the {@link WindsAloftInterpolator}, and is resolved into headwind and crosswind components, a wind correction angle
+ * and a groundspeed.
+ */
+@Component
+public class RouteWindsPlanner {
+
+    private static final double EARTH_RADIUS_NM = 3440.065;
+
+    @Autowired
+    private WindsAloftInterpolator windsAloftInterpolator;
+
+    @Value("${winds.route.default-spacing-nm:10}")
+    private double defaultSpacingNm;
+
+    // Upper bound on the number of sampled segments per route.
+    @Value("${winds.route.max-segments:5000}")
+    private int maxSegments;
+
+    /**
+     * Computes the route profile. Throws IllegalArgumentException for an invalid route or when the wind is too strong
+     * for the aircraft to make progress along a segment.
+     */
+    public RouteWindsResponse plan(WindsAloftGrid grid, RouteWindsRequest request) {
+        List<Waypoint> waypoints = request.waypoints();
+
+        if (waypoints == null || waypoints.size() < 2)
+            throw new IllegalArgumentException("A route needs at least two waypoints");
+        if (!(request.trueAirspeedKts() > 0))
+            throw new IllegalArgumentException("True airspeed must be positive");
+        double spacing = request.spacingNm() == null ? defaultSpacingNm : request.spacingNm();
+
+        if (!(spacing > 0))
+            throw new IllegalArgumentException("Spacing must be positive");
+        double[] legDistances = new double[waypoints.size() - 1];
+        double totalDistance = 0;
+        int segmentCount = 0;
+
+        for (int leg = 0; leg < legDistances.length; leg++) {
+            legDistances[leg] = distanceNm(waypoints.get(leg), waypoints.get(leg + 1));
+            totalDistance += legDistances[leg];
+            segmentCount += Math.max(1, (int) Math.ceil(legDistances[leg] / spacing));
+        }
+
+        if (segmentCount > maxSegments)
+            throw new IllegalArgumentException("Route needs " + segmentCount + " samples, more than " + maxSegments);
+        Profile profile = new Profile(request, totalDistance);
+        List<RouteWindsResponse.Segment> segments = new ArrayList<>(segmentCount);
+        double alongTrack = 0, eteHours = 0, noWindEteHours = 0, headwindDistance = 0;
+
+        for (int leg = 0; leg < legDistances.length; leg++) {
+            Waypoint from = waypoints.get(leg);
+            Waypoint to = waypoints.get(leg + 1);
+            int pieces = Math.max(1, (int) Math.ceil(legDistances[leg] / spacing));
+            double length = legDistances[leg] / pieces;
+            double[] start = intermediate(from, to, legDistances[leg], 0);
+
+            for (int piece = 0; piece < pieces; piece++) {
+                double[] end = intermediate(from, to, legDistances[leg], (piece + 1.0) / pieces);
+                double[] middle = intermediate(from, to, legDistances[leg], (piece + 0.5) / pieces);
+                double course = initialBearing(start[0], start[1], end[0], end[1]);
+                int altitude = (int) Math.round(profile.altitude(alongTrack + length / 2));
+                double airspeed = profile.trueAirspeed(alongTrack + length / 2);
+                WindsAloftSample wind = windsAloftInterpolator.interpolate(grid, middle[0], middle[1], altitude);
+                RouteWindsResponse.Segment segment = segment(start, end, length, course, altitude, airspeed, wind);
+
+                segments.add(segment);
+                eteHours += length / segment.groundspeedKts();
+                noWindEteHours += length / airspeed;
+                headwindDistance += segment.headwindKts() * length;
+                alongTrack += length;
+                start = end;
+            }
+        }
+        return new RouteWindsResponse(segments, round(totalDistance), round(eteHours * 60), round(noWindEteHours * 60),
+                totalDistance == 0 ? 0 : round(headwindDistance / totalDistance));
+    }
+
+    private static RouteWindsResponse.Segment segment(double[] start, double[] end, double length, double course,
+            int altitude, double airspeed, WindsAloftSample wind) {
+        double headwind = 0, crosswind = 0;
+
+        if (wind != null) {
+            double angle = Math.toRadians(wind.directionDegrees() - course);
+
+            headwind = wind.speedKts() * Math.cos(angle);
+            crosswind = wind.speedKts() * Math.sin(angle);
+        }
+
+        if (Math.abs(crosswind) >= airspeed)
+            throw new IllegalArgumentException("Crosswind exceeds true airspeed at " + altitude + " ft");
+        // Crab into the wind: a crosswind from the right needs a heading to the right of the course.
+        double correction = Math.asin(crosswind / airspeed);
+        double groundspeed = airspeed * Math.cos(correction) - headwind;
+
+        if (groundspeed <= 0)
+            throw new IllegalArgumentException("Headwind exceeds true airspeed at " + altitude + " ft");
+        double heading = (course + Math.toDegrees(correction) + 360) % 360;
+
+        return new RouteWindsResponse.Segment(start[0], start[1], end[0], end[1], round(length), round(course) % 360,
+                altitude, airspeed, wind == null ? null : round(wind.directionDegrees()),
+                wind == null ? null : round(wind.speedKts()),
+                wind == null || wind.temperatureCelsius() == null ? null : round(wind.temperatureCelsius()),
+                round(headwind), round(crosswind), round(Math.toDegrees(correction)), round(heading) % 360,
+                round(groundspeed), round(length / groundspeed * 60));
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 10) / 10.0;
+    }
+
+    /**
+     * Altitude and true airspeed along the route as a function of the distance flown.
+     */
+    private static final class Profile {
+
+        private final double cruiseAltitude;
+        private final double departureElevation;
+        private final double arrivalElevation;
+        // Feet gained per nautical mile in the climb and lost per nautical mile in the descent.
+        private final double climbGradient;
+        private final double descentGradient;
+        private final double totalDistance;
+        private final double cruiseAirspeed;
+        private final double climbAirspeed;
+        private final double descentAirspeed;
+
+        Profile(RouteWindsRequest request, double totalDistance) {
+            cruiseAltitude = request.cruiseAltitudeFeet();
+            cruiseAirspeed = request.trueAirspeedKts();
+            this.totalDistance = totalDistance;
+
+            if (request.hasClimbAndDescent()) {
+                departureElevation = request.departureElevationFeet();
+                arrivalElevation = request.arrivalElevationFeet();
+                climbAirspeed = positiveOr(request.climbAirspeedKts(), cruiseAirspeed);
+                descentAirspeed = positiveOr(request.descentAirspeedKts(), cruiseAirspeed);
+                climbGradient = request.climbRateFpm() * 60 / climbAirspeed;
+                descentGradient = request.descentRateFpm() * 60 / descentAirspeed;
+            } else {
+                departureElevation = arrivalElevation = cruiseAltitude;
+                climbAirspeed = descentAirspeed = cruiseAirspeed;
+                climbGradient = descentGradient = Double.POSITIVE_INFINITY;
+            }
+        }
+
+        private double climbLimit(double distance) {
+            return departureElevation + climbGradient * distance;
+        }
+
+        private double descentLimit(double distance) {
+            return arrivalElevation + descentGradient * (totalDistance - distance);
+        }
+
+        double altitude(double distance) {
+            return Math.min(cruiseAltitude, Math.min(climbLimit(distance), descentLimit(distance)));
+        }
+
+        double trueAirspeed(double distance) {
+            double altitude = altitude(distance);
+
+            if (altitude >= cruiseAltitude)
+                return cruiseAirspeed;
+            return climbLimit(distance) <= descentLimit(distance) ? climbAirspeed : descentAirspeed;
+        }
+
+        private static double positiveOr(Double value, double fallback) {
+            return value == null || value <= 0 ? fallback : value;
+        }
+    }
+
+    static double distanceNm(Waypoint from, Waypoint to) {
+        double lat1 = Math.toRadians(from.latitude());
+        double lat2 = Math.toRadians(to.latitude());
+        double dLat = lat2 - lat1;
+        double dLon = Math.toRadians(to.longitude() - from.longitude());
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(lat1) * Math.cos(lat2) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+
+        return EARTH_RADIUS_NM * 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    }
+
+    /**
+     * Initial great-circle course from the first point to the second, in degrees true.
+     */
+    static double initialBearing(double latitude1, double longitude1, double latitude2, double longitude2) {
+        double lat1 = Math.toRadians(latitude1);
+        double lat2 = Math.toRadians(latitude2);
+        double dLon = Math.toRadians(longitude2 - longitude1);
+        double y = Math.sin(dLon) * Math.cos(lat2);
+        double x = Math.cos(lat1) * Math.sin(lat2) - Math.sin(lat1) * Math.cos(lat2) * Math.cos(dLon);
+
+        return (Math.toDegrees(Math.atan2(y, x)) + 360) % 360;
+    }
+
+    /**
+     * Returns the latitude and longitude of the point the given fraction of the way along the great circle.
+     */
+    private static double[] intermediate(Waypoint from, Waypoint to, double distanceNm, double fraction) {
+        double angular = distanceNm / EARTH_RADIUS_NM;
+
+        if (angular < 1e-12 || fraction == 0)
+            return new double[] { from.latitude(), from.longitude() };
+        if (fraction == 1)
+            return new double[] { to.latitude(), to.longitude() };
+        double lat1 = Math.toRadians(from.latitude()), lon1 = Math.toRadians(from.longitude());
+        double lat2 = Math.toRadians(to.latitude()), lon2 = Math.toRadians(to.longitude());
+        double a = Math.sin((1 - fraction) * angular) / Math.sin(angular);
+        double b = Math.sin(fraction * angular) / Math.sin(angular);
+        double x = a * Math.cos(lat1) * Math.cos(lon1) + b * Math.cos(lat2) * Math.cos(lon2);
+        double y = a * Math.cos(lat1) * Math.sin(lon1) + b * Math.cos(lat2) * Math.sin(lon2);
+        double z = a * Math.sin(lat1) + b * Math.sin(lat2);
+
+        return new double[] { Math.toDegrees(Math.atan2(z, Math.hypot(x, y))), Math.toDegrees(Math.atan2(y, x)) };
+    }
+}
@@ -1,21 +1,46 @@
 package New_Foreflight.Weather.service;
 
+import New_Foreflight.Weather.dto.Advisory;
+import New_Foreflight.Weather.dto.AdvisoryRouteRequest;
 import New_Foreflight.Weather.dto.AirportWeatherResponse;
+import New_Foreflight.Weather.dto.BatchWeatherResponse;
+import New_Foreflight.Weather.dto.Pirep;
+import New_Foreflight.Weather.dto.RouteWindsRequest;
+import New_Foreflight.Weather.dto.RouteWindsResponse;
+import New_Foreflight.Weather.dto.WindsAloftIssuance;
+import New_Foreflight.Weather.dto.WindsAloftSample;
 
+import java.time.Instant;
 import java.util.HashMap;
+import java.util.List;
 
 public interface WeatherService {
 
     public AirportWeatherResponse getAirportWeather(String icao);
 
+    public BatchWeatherResponse getAirportWeatherBatch(List<String> icaos);
+
+    /**
+     * Returns whether the station code, trimmed and in upper case, names a station that weather is served for.
+     */
+    public boolean isKnownStation(String icao);
+
     public String parseRawMetarText(String apiResponse);
-    
+
     public HashMap<String, Object> separateMetarComponents(String info);
 
     public String getFlightConditions(String apiResponseJson);
 
     public String getPirepData(String airportCode, int dist, int time);
 
+    /**
+     * Returns the decoded reports within the distance in nautical miles of the airport and no older than the age in
+     * hours, newest first.
+     */
+    public List<Pirep> getPireps(String airportCode, int distance, int age);
+
+    public List<Pirep> getPireps(double latitude, double longitude, int distance, int age);
+
     public String getAirSigmet();
 
     public String getWindTemp(String region, String forecast, String level);
@@ -29,4 +54,14 @@ public interface WeatherService {
     public String getWindsAloft(String airportCode, int altitude);
 
     public String getWindsAloft(double latitude, double longitude, int altitude);
+
+    public WindsAloftSample getInterpolatedWindsAloft(double latitude, double longitude, int altitude);
+
+    public RouteWindsResponse getRouteWindsAloft(RouteWindsRequest request);
+
+    public WindsAloftIssuance getWindsAloftIssuance();
+
+    public List<Advisory> getAdvisories(double latitude, double longitude, Integer altitude, Instant time);
+
+    public List<Advisory> getRouteAdvisories(AdvisoryRouteRequest request);
 }
@@ -1,83 +1,252 @@
 package New_Foreflight.Weather.service;
 
+import New_Foreflight.Weather.database.AirportLookupTable;
+import New_Foreflight.Weather.database.AirportNode;
+import New_Foreflight.Weather.dto.Advisory;
+import New_Foreflight.Weather.dto.AdvisoryRouteRequest;
 import New_Foreflight.Weather.dto.AirportWeatherResponse;
-import org.json.JSONObject;
+import New_Foreflight.Weather.dto.BatchWeatherResponse;
+import New_Foreflight.Weather.dto.MetarComponentsView;
+import New_Foreflight.Weather.dto.MetarObservation;
+import New_Foreflight.Weather.dto.Pirep;
+import New_Foreflight.Weather.dto.RouteWindsRequest;
+import New_Foreflight.Weather.dto.RouteWindsResponse;
+import New_Foreflight.Weather.dto.WindsAloftIssuance;
+import New_Foreflight.Weather.dto.WindsAloftSample;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.regex.Pattern;
+
+import com.google.common.collect.Lists;
 
 @Service
 public class WeatherServiceImpl implements WeatherService {
 
+    // ICAO location indicators, and the three character identifiers of stations without one.
+    private static final Pattern STATION_CODE = Pattern.compile("[A-Z0-9]{3,4}");
+
     @Autowired
     private WeatherServiceUtility utility;
 
+    // Shared, connection-pooled client for all upstream calls.
+    @Autowired
+    private RestTemplate restTemplate;
+
+    // Bounded executor for concurrent upstream requests.
+    @Autowired
+    private ExecutorService upstreamExecutor;
+
+    @Autowired
+    private RouteWindsPlanner routeWindsPlanner;
+
+    // Current SIGMETs and G-AIRMETs, spatially indexed.
+    @Autowired
+    private AdvisoryStore advisoryStore;
+
+    // Latest observations of every station from the aviationweather.gov cache file.
+    @Autowired
+    private MetarBulkIngestor metarBulkIngestor;
+
+    // Recent pilot reports from the aviationweather.gov cache file, indexed by time and position.
+    @Autowired
+    private PirepStore pirepStore;
+
+    @Autowired
+    private AirportLookupTable airportLookupTable;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Maximum number of stations CheckWX accepts in one request.
+    @Value("${checkwx.batch.max-stations:20}")
+    private int batchMaxStations;
+
     @Value("${checkwx.api.url}")
     private String weatherApiUrl;
 
     @Value("${checkwx.api.key}")
     private String weatherApiKey;
 
-    @Value("${aviation.weather.api.url}")
-    private String windsAloftApiUrl;
-
     @Value("${aviation.weather.api.url}")
     private String aviationWeatherUrl;
 
+    private Timer metarComponentsTimer;
+
+    @PostConstruct
+    private void registerMetrics() {
+        metarComponentsTimer = Timer.builder("metar.components")
+                .description("Decoding a METAR response into its separate components").register(meterRegistry);
+    }
+
     @Override
     public AirportWeatherResponse getAirportWeather(String icao) {
-        if (WeatherServiceUtility.getWeatherCache(icao) != null)
-            return WeatherServiceUtility.getWeatherCache(icao);
-        String endpoint = weatherApiUrl.replace("{station}", icao).replace("{key}", weatherApiKey);
-        RestTemplate restTemplate = new RestTemplate();
+        String station = normalizeStation(icao);
+
+        if (!isKnownStation(station))
+            throw new IllegalArgumentException("Airport not found");
+        WeatherServiceUtility.recordWeatherAccess(station);
+        return loadAirportWeather(station);
+    }
+
+    // Serves a known station from the ingested METAR table, or else from the cache or CheckWX.
+    private AirportWeatherResponse loadAirportWeather(String icao) {
+        MetarObservation ingested = metarBulkIngestor.getObservation(icao);
+
+        if (ingested != null)
+            return new AirportWeatherResponse(ingested);
+        return utility.getAirportWeather(icao);
+    }
+
+    /**
+     * Provides the weather for several airports at once.
+     * 
+     * Stations in the ingested METAR table or the cache are served directly. The remaining stations are requested from
+     * CheckWX in comma-separated groups, and any station missing from those responses is retried on its own. Upstream
+     * requests run concurrently on the shared upstream executor. Stations that still fail, and codes that are not the
+     * ICAO code of a known airport, are reported in the errors map.
+     */
+    @Override
+    public BatchWeatherResponse getAirportWeatherBatch(List<String> icaos) {
+        Map<String, AirportWeatherResponse> results = new ConcurrentHashMap<>();
+        Map<String, String> errors = new ConcurrentHashMap<>();
+        List<String> stations = new ArrayList<>();
+        List<String> misses = new ArrayList<>();
+
+        for (String code : icaos.stream().map(WeatherServiceImpl::normalizeStation).distinct().toList()) {
+            if (isKnownStation(code))
+                stations.add(code);
+            else
+                errors.put(code, "Airport not found");
+        }
+
+        for (String icao : stations) {
+            WeatherServiceUtility.recordWeatherAccess(icao);
+            MetarObservation ingested = metarBulkIngestor.getObservation(icao);
+            AirportWeatherResponse cached = utility.getWeatherCache(icao);
+
+            if (ingested != null)
+                results.put(icao, new AirportWeatherResponse(ingested));
+            else if (cached != null)
+                results.put(icao, cached);
+            else
+                misses.add(icao);
+        }
+        fetchAirportWeatherGroups(misses, results);
+
+        List<CompletableFuture<Void>> remainderRequests = new ArrayList<>();
+
+        for (String icao : misses) {
+            if (results.containsKey(icao))
+                continue;
+            remainderRequests.add(CompletableFuture.runAsync(() -> {
+                try {
+                    results.put(icao, loadAirportWeather(icao));
+                } catch (Exception exception) {
+                    errors.put(icao, exception.getMessage() == null ? exception.getClass().getSimpleName()
+                            : exception.getMessage());
+                }
+            }, upstreamExecutor));
+        }
+        CompletableFuture.allOf(remainderRequests.toArray(CompletableFuture[]::new)).join();
+
+        Map<String, AirportWeatherResponse> orderedResults = new LinkedHashMap<>();
+
+        for (String icao : stations)
+            if (results.containsKey(icao))
+                orderedResults.put(icao, results.get(icao));
+        return new BatchWeatherResponse(orderedResults, errors);
+    }
+
+    private static String normalizeStation(String code) {
+        return code.trim().toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * Only well-formed station codes are counted, cached or put into CheckWX URLs. While the airport table is loaded,
+     * codes it does not know are rejected too; without it, as during a database outage, the format alone decides, so
+     * that METARs never depend on the graph.
+     */
+    @Override
+    public boolean isKnownStation(String icao) {
+        if (!STATION_CODE.matcher(icao).matches())
+            return false;
+        AirportLookupTable.Snapshot snapshot = airportLookupTable.getLoadedSnapshot();
+
+        return snapshot == null || snapshot.contains(icao);
+    }
+
+    /**
+     * Fetches the given stations from CheckWX in groups and replaces their cached weather, whether or not it has
+     * expired. Returns the number of stations refreshed.
+     */
+    int refreshAirportWeather(List<String> icaos) {
+        Map<String, AirportWeatherResponse> results = new ConcurrentHashMap<>();
+
+        fetchAirportWeatherGroups(icaos, results);
+        return results.size();
+    }
+
+    /**
+     * Requests the stations from CheckWX in concurrent groups of at most batchMaxStations. A failed group is not fatal;
+     * its stations are simply missing from the results.
+     */
+    private void fetchAirportWeatherGroups(List<String> icaos, Map<String, AirportWeatherResponse> results) {
+        List<CompletableFuture<Void>> groupRequests = new ArrayList<>();
+
+        for (List<String> group : Lists.partition(icaos, batchMaxStations)) {
+            CompletableFuture<Void> request = CompletableFuture.runAsync(() -> fetchAirportWeatherGroup(group, results),
+                    upstreamExecutor);
+
+            groupRequests.add(request.exceptionally(exception -> null));
+        }
+        CompletableFuture.allOf(groupRequests.toArray(CompletableFuture[]::new)).join();
+    }
+
+    /**
+     * Requests a group of stations from CheckWX in one call and caches every observation it returns.
+     */
+    private void fetchAirportWeatherGroup(List<String> icaos, Map<String, AirportWeatherResponse> results) {
+        String endpoint = weatherApiUrl.replace("{station}", String.join(",", icaos)).replace("{key}", weatherApiKey);
         String apiResponseJson = restTemplate.getForObject(endpoint, String.class);
 
-        String rawMetar = parseRawMetarText(apiResponseJson);
-        HashMap<String, Object> seperatedComponents = separateMetarComponents(apiResponseJson);
-        String flightRules = getFlightConditions(apiResponseJson);
-        AirportWeatherResponse response = new AirportWeatherResponse(rawMetar, seperatedComponents, flightRules);
+        for (MetarObservation observation : MetarDecoder.decodeAll(apiResponseJson)) {
+            if (observation.icao() == null || !icaos.contains(observation.icao()))
+                continue;
+            AirportWeatherResponse response = new AirportWeatherResponse(observation);
 
-        WeatherServiceUtility.addToWeatherCache(icao, response);
-        return response;
+            utility.addToWeatherCache(observation.icao(), response);
+            results.put(observation.icao(), response);
+        }
     }
 
     @Override
     public String parseRawMetarText(String apiResponse) {
-        return new JSONObject(apiResponse).getJSONArray("data").getJSONObject(0).getString("raw_text");
+        return MetarDecoder.decode(apiResponse).rawText();
     }
 
     @Override
     public HashMap<String, Object> separateMetarComponents(String info) {
-        JSONObject result = new JSONObject(info).getJSONArray("data").getJSONObject(0);
-        LinkedHashMap<String, Object> metarComponents = new LinkedHashMap<>();
-
-        // Add METAR components using reusable methods
-        WeatherServiceUtility.addComponentIfPresent(result, "wind", metarComponents, WeatherServiceUtility::parseWinds);
-        WeatherServiceUtility.addComponentIfPresent(result, "visibility", metarComponents,
-                WeatherServiceUtility::parseVisibility);
-        WeatherServiceUtility.addComponentIfPresent(result, "clouds", metarComponents,
-                WeatherServiceUtility::parseClouds);
-        WeatherServiceUtility.addComponentIfPresent(result, "temperature", metarComponents,
-                WeatherServiceUtility::parseTemperature);
-        WeatherServiceUtility.addComponentIfPresent(result, "dewpoint", metarComponents,
-                WeatherServiceUtility::parseDewpoint);
-        WeatherServiceUtility.addComponentIfPresent(result, "barometer", metarComponents,
-                WeatherServiceUtility::parsePressure);
-        WeatherServiceUtility.addComponentIfPresent(result, "humidity", metarComponents,
-                WeatherServiceUtility::parseHumidity);
-        WeatherServiceUtility.addComponentIfPresent(result, "elevation", metarComponents,
-                WeatherServiceUtility::parseElevation);
-        metarComponents.put("density_altitude", WeatherServiceUtility.computeDensityAltitude(metarComponents));
-
-        return metarComponents;
+        return metarComponentsTimer.record(() -> MetarComponentsView.of(MetarDecoder.decode(info)));
     }
 
     /*
@@ -94,8 +263,7 @@ public class WeatherServiceImpl implements WeatherService {
      */
     @Override
     public String getFlightConditions(String apiResponseJson) {
-        return new JSONObject(apiResponseJson).getJSONArray("data").getJSONObject(0).getString("flight_category")
-                .toString();
+        return MetarDecoder.decode(apiResponseJson).flightCategory().name();
     }
 
     /**
@@ -105,7 +273,7 @@ public class WeatherServiceImpl implements WeatherService {
      */
     @Override
     public String getWindsAloft(String airportCode, int altitude) {
-        return utility.getWindsAloftData(airportCode, altitude, new String(windsAloftApiUrl));
+        return utility.getWindsAloftData(airportCode, altitude);
     }
 
     /**
@@ -116,98 +284,137 @@ public class WeatherServiceImpl implements WeatherService {
      */
     @Override
     public String getWindsAloft(double latitude, double longitude, int altitude) {
-        return utility.getWindsAloftData(latitude, longitude, altitude, new String(windsAloftApiUrl));
+        return utility.getWindsAloftData(latitude, longitude, altitude);
     }
 
+    /**
+     * Provides the wind and temperature at any position and altitude.
+     * 
+     * Values are interpolated vertically between the bulletin levels and blended horizontally across the nearest winds
+     * aloft stations, weighted by inverse distance.
+     */
+    @Override
+    public WindsAloftSample getInterpolatedWindsAloft(double latitude, double longitude, int altitude) {
+        return utility.getInterpolatedWindsAloft(latitude, longitude, altitude);
+    }
+
+    /**
+     * Provides the winds aloft profile of a whole route.
+     * 
+     * The route is sampled at the requested spacing along the requested vertical profile, and each segment gets its
+     * interpolated wind, headwind and crosswind components and groundspeed. The total wind-corrected time en route is
+     * the sum over the segments.
+     */
+    @Override
+    public RouteWindsResponse getRouteWindsAloft(RouteWindsRequest request) {
+        WindsAloftGrid grid = utility.getWindsAloftGrid();
+
+        if (grid == null)
+            throw new IllegalStateException("No winds aloft data available");
+        return routeWindsPlanner.plan(grid, request);
+    }
+
+    /**
+     * Provides the issuance times and age of the winds aloft bulletin currently served.
+     */
+    @Override
+    public WindsAloftIssuance getWindsAloftIssuance() {
+        return utility.getWindsAloftIssuance();
+    }
+
+    /**
+     * Provides the raw text of the reports around the airport, one per line, newest first. Reports are answered from
+     * the ingested reports; only airports unknown locally, or a store that could not be loaded, go to the upstream.
+     */
     public String getPirepData(String airportCode, int distance, int age) {
-        String url = String.format(
-            "%s/pirep?id=%s&distance=%d&age=%d",
-            aviationWeatherUrl, airportCode, distance, age
-        );
+        String reports = pirepStore.rawTextNear(airportCode, distance, Duration.ofHours(age));
 
-        RestTemplate restTemplate = new RestTemplate();
-        return restTemplate.getForObject(url, String.class);
+        return reports != null ? reports
+                : restTemplate.getForObject(pirepUrl(aviationWeatherUrl, airportCode, distance, age), String.class);
     }
 
-    public String getAirSigmet() {
-        String url = String.format("%s/airsigmet?type=SIGMET", aviationWeatherUrl);
+    @Override
+    public List<Pirep> getPireps(String airportCode, int distance, int age) {
+        AirportNode airport = airportLookupTable.findByIcao(airportCode)
+                .orElseThrow(() -> new IllegalArgumentException("Airport not found"));
+
+        return getPireps(airport.getLatitude(), airport.getLongitude(), distance, age);
+    }
 
-        RestTemplate restTemplate = new RestTemplate();
-        return restTemplate.getForObject(url, String.class);
+    @Override
+    public List<Pirep> getPireps(double latitude, double longitude, int distance, int age) {
+        if (distance < 0 || age < 0)
+            throw new IllegalArgumentException("Distance and age must not be negative");
+        List<Pirep> reports = pirepStore.within(latitude, longitude, distance, Duration.ofHours(age));
+
+        if (reports == null)
+            throw new IllegalStateException("No PIREP data available");
+        return reports;
+    }
+
+    public String getAirSigmet() {
+        return restTemplate.getForObject(airSigmetUrl(aviationWeatherUrl), String.class);
     }
 
     public String getWindTemp(String reigon, String forcast, String level) {
-        String url = String.format(
-            "%s/windtemp?region=%s&fcst=%s&level=%s",
-            aviationWeatherUrl, reigon, forcast, level
-        );
-        RestTemplate restTemplate = new RestTemplate();
-        
-        return restTemplate.getForObject(url, String.class);
-    }
-    
+        return restTemplate.getForObject(windTempUrl(aviationWeatherUrl, reigon, forcast, level), String.class);
+    }
+
     public String getMetar(String airport, int hours) {
-        String url = String.format(
-                "%s/metar?ids=%s&hours=%d", 
-                aviationWeatherUrl, airport, hours
-            );
+        return restTemplate.getForObject(metarUrl(aviationWeatherUrl, airport, hours), String.class);
+    }
+
+    public String getGAirmet(int southLat, int westLon, int northLat, int eastLon) {
+        return restTemplate.getForObject(gAirmetUrl(aviationWeatherUrl, southLat, westLon, northLat, eastLon),
+                String.class);
+    }
+
+    // aviationweather.gov request URLs, shared with ReactiveWeatherService.
+
+    static String pirepUrl(String aviationWeatherUrl, String airportCode, int distance, int age) {
+        return String.format("%s/pirep?id=%s&distance=%d&age=%d", aviationWeatherUrl, airportCode, distance, age);
+    }
+
+    static String airSigmetUrl(String aviationWeatherUrl) {
+        return String.format("%s/airsigmet?type=SIGMET", aviationWeatherUrl);
+    }
 
-        RestTemplate restTemplate = new RestTemplate();
-        return restTemplate.getForObject(url, String.class);
+    static String windTempUrl(String aviationWeatherUrl, String region, String forecast, String level) {
+        return String.format("%s/windtemp?region=%s&fcst=%s&level=%s", aviationWeatherUrl, region, forecast, level);
     }
-    
 
-    
-    public String getGAirmet(int southLat, int westLon, int northLat, int eastLon
-            ) {
-		String zuluTime = Instant.now().atOffset(ZoneOffset.UTC)
-                .format(DateTimeFormatter.ISO_INSTANT);
+    static String metarUrl(String aviationWeatherUrl, String airport, int hours) {
+        return String.format("%s/metar?ids=%s&hours=%d", aviationWeatherUrl, airport, hours);
+    }
 
-		System.out.println("Zulu Time: " + zuluTime);
+    // G-AIRMETs issued for the current UTC day within the bounding box.
+    static String gAirmetUrl(String aviationWeatherUrl, int southLat, int westLon, int northLat, int eastLon) {
+        String zuluTime = Instant.now().atOffset(ZoneOffset.UTC).format(DateTimeFormatter.ISO_INSTANT);
         String date = LocalDate.parse(zuluTime.substring(0, 10)).toString();
         String sT = date + "T00:00:00Z";
         String eT = LocalDate.parse(date).plusDays(1) + "T00:00:00Z";
-        String apiUrl = String.format(
+
+        return String.format(
                 "%s/dataserver?requestType=retrieve&dataSource=gairmets&startTime=%s&endTime=%s&format=xml&boundingBox=%d,%d,%d,%d",
-                aviationWeatherUrl, sT, eT, southLat, westLon, northLat, eastLon
-            );
-
-        System.out.println(apiUrl);
-		RestTemplate restTemplate = new RestTemplate();
-		String xml = restTemplate.getForObject(apiUrl, String.class);
-		
-		return xml;
-	}
-    
-    private double extractCelsius(String formattedString) {
-        if (formattedString == null || !formattedString.contains("degrees C"))
-            throw new IllegalArgumentException("Celsius value missing");
-        String[] parts = formattedString.split(",");
-        String celsiusPart = parts[1].trim(); 
-        String[] tokens = celsiusPart.split(" ");
-
-        return Double.parseDouble(tokens[0]); 
+                aviationWeatherUrl, sT, eT, southLat, westLon, northLat, eastLon);
     }
 
-    public String getDewPointSpread(String icao) {
-        String endpoint = weatherApiUrl.replace("{station}", icao).replace("{key}", weatherApiKey);
-        RestTemplate restTemplate = new RestTemplate();
-        String apiResponseJson = restTemplate.getForObject(endpoint, String.class);
-        HashMap<String, Object> separatedComponents = separateMetarComponents(apiResponseJson);
-
-        try {
-            String tempString = (String) separatedComponents.get("temperature");
-            String dewString = (String) separatedComponents.get("dewpoint");
+    @Override
+    public List<Advisory> getAdvisories(double latitude, double longitude, Integer altitude, Instant time) {
+        return advisoryStore.atPoint(latitude, longitude, altitude, time);
+    }
 
-           
-            double tempC = extractCelsius(tempString);
-            double dewC = extractCelsius(dewString);
+    @Override
+    public List<Advisory> getRouteAdvisories(AdvisoryRouteRequest request) {
+        return advisoryStore.alongRoute(request);
+    }
 
-            double spread = tempC - dewC;
-            return String.format("Dew Point Spread: %.1f°C", spread);
+    public String getDewPointSpread(String icao) {
+        MetarObservation observation = getAirportWeather(icao).getObservation();
+        double spread = observation.dewpointSpreadCelsius();
 
-        } catch (Exception e) {
-            return "dew point spread N/A " + e.getMessage();
-        }
+        if (Double.isNaN(spread))
+            return "dew point spread N/A Celsius value missing";
+        return String.format("Dew Point Spread: %.1f°C", spread);
     }
 }
@@ -1,26 +1,30 @@
 package New_Foreflight.Weather.service;
 
-import java.util.ArrayList;
+import java.time.Duration;
 import java.util.HashMap;
-import java.util.LinkedHashMap;
-import java.util.List;
-import java.util.concurrent.TimeUnit;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.LongAdder;
 
-import org.json.JSONArray;
-import org.json.JSONObject;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.RestTemplate;
 import org.apache.commons.lang3.tuple.Pair;
 
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
-import com.google.common.collect.Lists;
-
+import New_Foreflight.Weather.cache.CacheCodec;
+import New_Foreflight.Weather.cache.SharedCacheStore;
+import New_Foreflight.Weather.cache.TieredCache;
 import New_Foreflight.Weather.database.AirportNode;
-import New_Foreflight.Weather.database.AirportRepository;
+import New_Foreflight.Weather.database.AirportLookupTable;
+import New_Foreflight.Weather.database.AirportSpatialIndex;
 import New_Foreflight.Weather.dto.AirportWeatherResponse;
+import New_Foreflight.Weather.dto.MetarObservation;
+import New_Foreflight.Weather.dto.WindsAloftIssuance;
+import New_Foreflight.Weather.dto.WindsAloftSample;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
 
 /**
  * Utility class for WeatherService providing helper methods for parsing and caching weather data.
@@ -28,144 +32,127 @@ import New_Foreflight.Weather.dto.AirportWeatherResponse;
 @Component
 public class WeatherServiceUtility {
 
-    // Neo4j repository for airport data.
+    // In-memory copy of the Neo4j airport data.
     @Autowired
-    private AirportRepository airportRepository;
-
-    private static Cache<String, AirportWeatherResponse> weatherCache = CacheBuilder.newBuilder()
-            .expireAfterWrite(5, TimeUnit.MINUTES).build();
-    // Cached map of airports with corresponding winds aloft data.
-    // Key is the airport code and value is a list of winds aloft in order of increased altitude.
-    private static Cache<String, String[]> windsAloftData = CacheBuilder.newBuilder().build();
-    // List of altitudes for which winds aloft data is available.
-    private static List<Integer> windsAloftAltitudes;
-
-    @FunctionalInterface
-    protected static interface DataParser<T> {
-        T parse(Object data);
-    }
+    private AirportLookupTable airportLookupTable;
 
-    protected static void addToWeatherCache(String icao, AirportWeatherResponse response) {
-        weatherCache.put(icao, response);
-    }
+    // In-memory index of the airports with winds aloft data.
+    @Autowired
+    private AirportSpatialIndex airportSpatialIndex;
 
-    protected static AirportWeatherResponse getWeatherCache(String icao) {
-        return weatherCache.getIfPresent(icao);
-    }
+    @Autowired
+    private WindsAloftInterpolator windsAloftInterpolator;
 
-    protected static double calculateStandardTemperature(double altitude) {
-        // Standard temperature at sea level is 15°C
-        final double SEA_LEVEL_STANDARD_TEMP = 15.0;
-        // Temperature decreases by 2°C per 1000 feet
-        final double TEMP_DECREASE_RATE = 2.0;
-        // Calculate the standard temperature at the given altitude
-        double standardTemperature = SEA_LEVEL_STANDARD_TEMP - (altitude / 1000.0) * TEMP_DECREASE_RATE;
+    // Current winds aloft snapshot, indexed by airport and altitude level.
+    @Autowired
+    private WindsAloftStore windsAloftStore;
 
-        return standardTemperature;
-    }
+    // Shared, connection-pooled client for all upstream calls.
+    @Autowired
+    private RestTemplate restTemplate;
 
-    /*
-     * Computes the density alttude for an airport at a given pressure altitude.
-     * 
-     * Using the OAT (outside air temp) and ISA which is the standard temperature at a given altitude, use the helper
-     * function to compute this.
-     * 
-     * Implement the formula DA = Pressure_Altitude + (120 x (OAT – ISA))
-     */
-    protected static double computeDensityAltitude(HashMap<String, Object> weatherComponents) {
-        double alt = Double.parseDouble(weatherComponents.get("elevation").toString());
-        double degF = Double.parseDouble(weatherComponents.get("temperature").toString().split(" ")[0]);
-        double degC = (degF - 32) / 1.8;
-        double isa = calculateStandardTemperature(alt);
+    // Runs background refreshes of cached weather.
+    @Autowired
+    private ExecutorService upstreamExecutor;
 
-        return alt + (120 * (degC - isa));
-    }
+    @Autowired
+    private SharedCacheStore sharedCacheStore;
 
-    /**
-     * Adds a METAR component to the map if present in the JSON response.
-     */
-    protected static <T> void addComponentIfPresent(JSONObject result, String key, LinkedHashMap<String, Object> map,
-            DataParser<T> parser) {
-        if (result.has(key) && !result.isNull(key))
-            map.put(key, parser.parse(result.get(key)));
-    }
+    @Autowired
+    private MeterRegistry meterRegistry;
 
-    protected static String parseWinds(Object windDataObj) {
-        JSONObject windData = (JSONObject) windDataObj;
-        int direction = windData.optInt("degrees", 0);
-        int speedKts = windData.optInt("speed_kts", 0);
-        int gustKts = windData.optInt("gust_kts", 0);
+    @Value("${checkwx.api.url}")
+    private String weatherApiUrl;
 
-        return gustKts > 0 ? String.format("%d at %d-%d kts", direction, speedKts, gustKts)
-                : String.format("%d at %d kts", direction, speedKts);
-    }
+    @Value("${checkwx.api.key}")
+    private String weatherApiKey;
+
+    @Value("${weather.cache.max-size:10000}")
+    private long weatherCacheMaxSize;
+
+    // Cached weather requested this long after it was fetched is refetched in the background to catch SPECIs issued
+    // since, while the cached copy keeps being served.
+    @Value("${weather.cache.speci-probe-ms:600000}")
+    private long speciProbeMs;
 
-    protected static String parseVisibility(Object visibilityDataObj) {
-        JSONObject visibilityData = (JSONObject) visibilityDataObj;
+    // Expired weather is kept this long to be served, marked stale, while CheckWX is unavailable.
+    @Value("${weather.cache.stale-window-ms:21600000}")
+    private long staleWindowMs;
 
-        return visibilityData.optString("miles") + " SM";
+    // Expires cached weather after the station's next expected METAR.
+    @Autowired
+    private MetarExpiryPolicy metarExpiryPolicy;
+
+    // Cached weather as stored in the shared tier, keeping when it was fetched.
+    record CachedWeather(MetarObservation observation, long fetchedAtMillis) {
     }
 
-    /*
-     * parses the clouds obj into a list of cloud ceilings and adds to the metar components. only displays if sky
-     * conditions are not clear.
-     *
-     */
-    protected static List<HashMap<String, String>> parseClouds(Object cloudsDataObj) {
-        JSONArray cloudsArray = (JSONArray) cloudsDataObj;
-        List<HashMap<String, String>> cloudsList = new ArrayList<>();
-        JSONObject cloud;
-        LinkedHashMap<String, String> cloudMap;
-        String skyCode;
-
-        for (int i = 0; i < cloudsArray.length(); i++) {
-            cloud = cloudsArray.getJSONObject(i);
-            cloudMap = new LinkedHashMap<>();
-            skyCode = cloud.optString("code", "Unknown");
-
-            cloudMap.put("code", skyCode);
-
-            if (!"CLR".equalsIgnoreCase(skyCode))
-                cloudMap.put("feet", cloud.optString("feet", "Unknown"));
-            cloudsList.add(cloudMap);
-        }
-        return cloudsList;
+    static final CacheCodec<AirportWeatherResponse> WEATHER_CODEC = CacheCodec.json(CachedWeather.class).map(
+            response -> new CachedWeather(response.getObservation(), response.getFetchedAtMillis()),
+            cached -> new AirportWeatherResponse(cached.observation(), cached.fetchedAtMillis()));
+
+    private TieredCache<AirportWeatherResponse> weatherCache;
+    // Number of weather requests per airport since the counts were last drained by the cache warmer.
+    private static ConcurrentHashMap<String, LongAdder> weatherAccessCounts = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    private void initializeWeatherCache() {
+        weatherCache = TieredCache.builder("weather", WEATHER_CODEC).maximumSize(weatherCacheMaxSize)
+                .expireAfter(metarExpiryPolicy::timeToLive).refreshAfterWrite(Duration.ofMillis(speciProbeMs))
+                .serveStaleFor(Duration.ofMillis(staleWindowMs)).shared(sharedCacheStore).executor(upstreamExecutor)
+                .build(this::fetchAirportWeather);
+        weatherCache.bindTo(meterRegistry);
     }
 
-    protected static String parseTemperature(Object temperatureDataObj) {
-        JSONObject tempData = (JSONObject) temperatureDataObj;
+    private AirportWeatherResponse fetchAirportWeather(String icao) {
+        String endpoint = weatherApiUrl.replace("{station}", icao).replace("{key}", weatherApiKey);
+        String apiResponseJson = restTemplate.getForObject(endpoint, String.class);
+        MetarObservation observation = MetarDecoder.decode(apiResponseJson);
 
-        return String.format("%s degrees F, %s degrees C", tempData.optString("fahrenheit"),
-                tempData.optString("celsius"));
+        metarExpiryPolicy.record(observation);
+        return new AirportWeatherResponse(observation);
     }
 
-    protected static String parseDewpoint(Object dewpointDataObj) {
-        JSONObject dewpointData = (JSONObject) dewpointDataObj;
+    /**
+     * Returns the cached weather for the airport, fetching it from CheckWX on a miss. If the fetch fails, the last
+     * weather fetched for the airport is returned marked as stale when there is one.
+     */
+    protected AirportWeatherResponse getAirportWeather(String icao) {
+        TieredCache.Lookup<AirportWeatherResponse> lookup = weatherCache.getOrStale(icao);
 
-        return String.format("%s degrees F, %s degrees C", dewpointData.optString("fahrenheit"),
-                dewpointData.optString("celsius"));
+        return lookup.stale() ? lookup.value().asStale() : lookup.value();
     }
 
-    protected static String parsePressure(Object pressureDataObj) {
-        JSONObject pressureData = (JSONObject) pressureDataObj;
-
-        return "hg: " + pressureData.optString("hg");
+    protected void addToWeatherCache(String icao, AirportWeatherResponse response) {
+        metarExpiryPolicy.record(response.getObservation());
+        weatherCache.put(icao, response);
     }
 
-    protected static String parseHumidity(Object humidityDataObj) {
-        JSONObject humidityData = (JSONObject) humidityDataObj;
+    protected AirportWeatherResponse getWeatherCache(String icao) {
+        return weatherCache.getIfPresent(icao);
+    }
 
-        return humidityData.optString("percent") + " %";
+    protected static void recordWeatherAccess(String icao) {
+        weatherAccessCounts.computeIfAbsent(icao, key -> new LongAdder()).increment();
     }
 
-    protected static String parseElevation(Object elevationDataObj) {
-        JSONObject elevationData = (JSONObject) elevationDataObj;
+    /**
+     * Returns the weather request counts per airport recorded since the last call and resets them.
+     */
+    protected static Map<String, Long> drainWeatherAccessCounts() {
+        Map<String, Long> counts = new HashMap<>();
 
-        return elevationData.optString("feet");
+        for (String icao : weatherAccessCounts.keySet()) {
+            LongAdder count = weatherAccessCounts.remove(icao);
+
+            if (count != null)
+                counts.put(icao, count.sum());
+        }
+        return counts;
     }
 
     private AirportNode getAirportFromIcao(String icaoCode) {
-        AirportNode airport = airportRepository.findByIcao(icaoCode)
+        AirportNode airport = airportLookupTable.findByIcao(icaoCode)
                 .orElseThrow(() -> new RuntimeException("Airport not found"));
 
         return airport;
@@ -179,200 +166,51 @@ public class WeatherServiceUtility {
         }
     }
 
-    private static double calculateHaversineNM(double lat1, double lon1, double lat2, double lon2) {
-        // Earth radius in nautical miles.
-        final double R = 3440.065;
-        double dLat = Math.toRadians(lat2 - lat1);
-        double dLon = Math.toRadians(lon2 - lon1);
-        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2) + Math.cos(Math.toRadians(lat1))
-                * Math.cos(Math.toRadians(lat2)) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
-        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
-
-        return R * c;
-    }
-
     private Pair<String, Double> getClosestAirport(String airportCode) {
         AirportNode sourceAirport = getAirportFromIcao(airportCode);
-        double sourceLat = sourceAirport.getLatitude();
-        double sourceLon = sourceAirport.getLongitude();
-        List<AirportNode> windsAloftAirports = new ArrayList<>();
-
-        airportRepository.findAll().forEach(airport -> {
-            if (airport.isWindsAloftAirport() && !airport.getIcao().equals(airportCode))
-                windsAloftAirports.add(airport);
-        });
-        AirportNode closest = null;
-        double minDist = Double.MAX_VALUE;
-
-        for (AirportNode airport : windsAloftAirports) {
-            double distNM = calculateHaversineNM(sourceLat, sourceLon, airport.getLatitude(), airport.getLongitude());
-
-            if (distNM < minDist) {
-                minDist = distNM;
-                closest = airport;
-            }
-        }
 
-        if (closest != null)
-            return Pair.of(closest.getIcao(), minDist);
-        else
-            return Pair.of("", Double.MAX_VALUE);
+        return airportSpatialIndex.nearest(sourceAirport.getLatitude(), sourceAirport.getLongitude(), airportCode);
     }
 
     private Pair<String, Double> getClosestAirport(double latitude, double longitude) {
-        List<AirportNode> windsAloftAirports = new ArrayList<>();
-
-        airportRepository.findAll().forEach(airport -> {
-            if (airport.isWindsAloftAirport())
-                windsAloftAirports.add(airport);
-        });
-        AirportNode closest = null;
-        double minDist = Double.MAX_VALUE;
-
-        for (AirportNode airport : windsAloftAirports) {
-            double distNM = calculateHaversineNM(latitude, longitude, airport.getLatitude(), airport.getLongitude());
-
-            if (distNM < minDist) {
-                minDist = distNM;
-                closest = airport;
-            }
-        }
-
-        if (closest != null)
-            return Pair.of(closest.getIcao(), minDist);
-        else
-            return Pair.of("", Double.MAX_VALUE);
-    }
-
-    /**
-     * Clears the windsAloftData cache at 12:01AM GMT, 6:01AM GMT, 12:01PM GMT, and 6:01PM GMT daily.
-     */
-    @Scheduled(cron = "0 1 0/6 * * ?", zone = "GMT")
-    protected static void clearWindsAloftDataCache() {
-        windsAloftData.invalidateAll();
-    }
-
-    private void fetchWindsAloftData(String windsAloftApiUrl) {
-        RestTemplate restTemplate = new RestTemplate();
-        String response = restTemplate.getForObject(windsAloftApiUrl, String.class);
-
-        if (response == null || response.isEmpty()) {
-            System.err.println("No winds aloft data available.");
-            return;
-        }
-        String[] lines = response.split("\n");
-        String[] windSpeeds;
-        String line, airportCode;
-
-        for (int i = 8; i < lines.length; i++) {
-            line = lines[i];
-            airportCode = "K" + line.substring(0, 3);
-
-            if (!isWindsAloftAirport(airportCode))
-                continue;
-            windSpeeds = new String[9];
-
-            windSpeeds[0] = line.substring(4, 8).trim();
-            windSpeeds[1] = line.substring(9, 16).trim();
-            windSpeeds[2] = line.substring(17, 24).trim();
-            windSpeeds[3] = line.substring(25, 32).trim();
-            windSpeeds[4] = line.substring(33, 40).trim();
-            windSpeeds[5] = line.substring(41, 48).trim();
-            windSpeeds[6] = line.substring(49, 54).trim();
-            windSpeeds[7] = line.substring(56, 61).trim();
-            windSpeeds[8] = line.substring(62, 69).trim();
-
-            for (int j = 0; j < windSpeeds.length; j++)
-                if (windSpeeds[j].isEmpty())
-                    windSpeeds[j] = "N/A";
-            windsAloftData.put(airportCode, windSpeeds);
-        }
-    }
-
-    private void initializeWindsAloftData(String windsAloftApiUrl) {
-        // If the pre-set altitudes list is empty, assign the default values.
-        if (windsAloftAltitudes == null || windsAloftAltitudes.isEmpty())
-            windsAloftAltitudes = Lists.newArrayList(3000, 6000, 9000, 12000, 18000, 24000, 30000, 34000, 39000);
-
-        // If the cache is empty, fetch the winds aloft data from the API.
-        if (windsAloftData.asMap().isEmpty())
-            fetchWindsAloftData(windsAloftApiUrl);
-    }
-
-    private static Pair<String, String> decodeWindsAloftRaw(String windsAloftRaw) {
-        try {
-            if (windsAloftRaw.equals("9900"))
-                return Pair.of("VARIABLE", "LIGHT");
-            String windCode;
-
-            if (windsAloftRaw.contains("+"))
-                windCode = windsAloftRaw.split("\\+")[0];
-            else if (windsAloftRaw.contains("-"))
-                windCode = windsAloftRaw.split("-")[0];
-            else
-                windCode = windsAloftRaw;
-
-            if (windCode.length() == 4) {
-                int direction = Integer.parseInt(windCode.substring(0, 2)) * 10;
-                int speed = Integer.parseInt(windCode.substring(2));
-
-                return Pair.of(direction + "", speed + "");
-            }
-
-            if (windCode.length() == 6) {
-                int direction = Integer.parseInt(windCode.substring(0, 2)) * 10;
-                int speed = Integer.parseInt(windCode.substring(2, 4));
-
-                if (100 <= speed && speed <= 199) {
-                    if (100 <= direction && direction <= 199) {
-                        direction = direction - 50;
-                        speed = speed - 100;
-                    } else {
-                        direction = direction + 50;
-                        speed = speed + 100;
-                    }
-                }
-
-                if (speed >= 99)
-                    return Pair.of(direction + "", "199 or greater");
-                return Pair.of(direction + "", speed + "");
-            }
-            return Pair.of("N/A", "N/A");
-        } catch (NumberFormatException | StringIndexOutOfBoundsException exception) {
-            return Pair.of("N/A", "N/A");
-        }
+        return airportSpatialIndex.nearest(latitude, longitude, null);
     }
 
-    private static String getWindsAloftResponse(String closestAirport, double closestAirportDistance, int altitude) {
-        // Round altitude to the nearest value in the list of altitudes for which winds aloft data is available.
-        int altitudeRounded = windsAloftAltitudes.stream()
-                .min((a, b) -> Integer.compare(Math.abs(a - altitude), Math.abs(b - altitude))).get();
-        int index;
-
-        if (altitudeRounded <= windsAloftAltitudes.get(0))
-            index = 0;
-        else if (altitudeRounded >= windsAloftAltitudes.get(windsAloftAltitudes.size() - 1))
-            index = windsAloftAltitudes.size() - 1;
+    private static String getWindsAloftResponse(WindsAloftGrid grid, String closestAirport,
+            double closestAirportDistance, int altitude) {
+        int station = grid == null ? -1 : grid.stationOrdinal(closestAirport);
+
+        if (station < 0)
+            return "No winds aloft data available for the given airport or nearest airport.";
+        // Use the level nearest to the requested altitude.
+        int level = grid.nearestLevel(altitude);
+        int direction = grid.direction(station, level);
+        int speed = grid.speed(station, level);
+        String windData;
+
+        if (direction == WindsAloftGrid.MISSING)
+            windData = "N/A@N/A";
+        else if (direction == WindsAloftGrid.LIGHT_AND_VARIABLE)
+            windData = "VARIABLE@LIGHT";
+        else if (speed >= WindsAloftGrid.MAX_SPEED_KTS)
+            windData = direction + "@199 or greater";
         else
-            index = windsAloftAltitudes.indexOf(altitudeRounded);
-        String windsAloftRaw = windsAloftData.getIfPresent(closestAirport)[index];
-        Pair<String, String> windData = decodeWindsAloftRaw(windsAloftRaw);
+            windData = direction + "@" + speed;
 
         // Return the data in form "direction@speed@raw@updated_airport_code@distance_from_orginal_airport_in_miles"
-        return "" + windData.getLeft() + "@" + windData.getRight() + "@" + windsAloftRaw + "@" + closestAirport + "@"
-                + closestAirportDistance;
+        return windData + "@" + grid.code(station, level) + "@" + closestAirport + "@" + closestAirportDistance;
     }
 
     /**
      * Returns the winds aloft data for a given airport and altitude.
      * 
-     * The data is fetched from the winds aloft API which is refreshed every 6 hours.
+     * The data is the latest bulletin issued by the winds aloft API, which is polled for new issuances.
      * 
      * The nearest airport with winds aloft data is returned if the given airport does not have data, and the altitude
-     * is rounded to the nearest 3000 feet.
+     * is rounded to the nearest level in the bulletin.
      */
-    protected String getWindsAloftData(String airportCode, int altitude, String windsAloftApiUrl) {
-        initializeWindsAloftData(windsAloftApiUrl);
+    protected String getWindsAloftData(String airportCode, int altitude) {
+        WindsAloftGrid grid = windsAloftStore.getGrid();
         double closestAirportDistance = 0.00;
 
         // If the airport is not in the list of airports with winds aloft data, get the closest airport with data.
@@ -384,15 +222,39 @@ public class WeatherServiceUtility {
             airportCode = closestAirport.getLeft();
             closestAirportDistance = Math.round(closestAirport.getRight() * 100.0) / 100.0;
         }
-        return getWindsAloftResponse(airportCode, closestAirportDistance, altitude);
+        return getWindsAloftResponse(grid, airportCode, closestAirportDistance, altitude);
     }
 
-    protected String getWindsAloftData(double latitude, double longitude, int altitude, String windsAloftApiUrl) {
-        initializeWindsAloftData(windsAloftApiUrl);
+    protected String getWindsAloftData(double latitude, double longitude, int altitude) {
+        WindsAloftGrid grid = windsAloftStore.getGrid();
         Pair<String, Double> closestAirport = getClosestAirport(latitude, longitude);
         String closestAirportCode = closestAirport.getLeft();
         double closestAirportDistance = Math.round(closestAirport.getRight() * 100.0) / 100.0;
 
-        return getWindsAloftResponse(closestAirportCode, closestAirportDistance, altitude);
+        return getWindsAloftResponse(grid, closestAirportCode, closestAirportDistance, altitude);
+    }
+
+    /**
+     * Returns the current winds aloft data, fetching it if necessary. Returns null if none is available.
+     */
+    protected WindsAloftGrid getWindsAloftGrid() {
+        return windsAloftStore.getGrid();
+    }
+
+    /**
+     * Returns the issuance and age of the winds aloft data being served, or null if none has been loaded.
+     */
+    protected WindsAloftIssuance getWindsAloftIssuance() {
+        return windsAloftStore.getIssuance();
+    }
+
+    /**
+     * Returns the wind and temperature interpolated at the given position and altitude from the nearest winds aloft
+     * stations, or null if there is no data around the position.
+     */
+    protected WindsAloftSample getInterpolatedWindsAloft(double latitude, double longitude, int altitude) {
+        WindsAloftGrid grid = getWindsAloftGrid();
+
+        return grid == null ? null : windsAloftInterpolator.interpolate(grid, latitude, longitude, altitude);
     }
 }
@@ -0,0 +1,193 @@
+package New_Foreflight.Weather.service;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import New_Foreflight.Weather.dto.AirportWeatherResponse;
+import New_Foreflight.Weather.dto.FlightCategoryTransition;
+import New_Foreflight.Weather.dto.MetarObservation;
+import New_Foreflight.Weather.dto.MetarUpdate;
+
+/**
+ * Pushes new METARs and flight category changes to clients subscribed to a set of airports over server-sent events.
+ *
+ * Stations are refreshed on a schedule through {@link WeatherService#getAirportWeather}, so each refresh is served by
+ * the METAR table or cache and only reaches the upstream when the station's cached METAR has expired. Each station has
+ * at most one refresh in flight however many clients subscribe to it, and the result is fanned out to all of them. A
+ * subscriber gets the latest METAR of each station on subscribing, and after that only METARs that differ from the last
+ * one pushed, plus a "flight-category" event when the category changes.
+ */
+@Component
+public class WeatherSubscriptionHub {
+
+    @Autowired
+    private WeatherService weatherService;
+
+    @Autowired
+    private ExecutorService upstreamExecutor;
+
+    @Value("${weather.stream.max-airports:50}")
+    private int maxAirports;
+
+    // How long a subscription stays open before the client has to reconnect.
+    @Value("${weather.stream.timeout-ms:3600000}")
+    private long subscriptionTimeoutMs;
+
+    private final ConcurrentHashMap<String, Station> stations = new ConcurrentHashMap<>();
+    private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+
+    /**
+     * A subscribed station: its subscribers and the last METAR pushed to them.
+     */
+    private static final class Station {
+
+        private final Set<Subscription> subscribers = ConcurrentHashMap.newKeySet();
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+        private volatile AirportWeatherResponse last;
+    }
+
+    private record Subscription(SseEmitter emitter, List<String> icaos) {
+    }
+
+    /**
+     * Opens a subscription to the airports. Throws IllegalArgumentException if there are none or too many, or any of
+     * them is unknown.
+     */
+    public SseEmitter subscribe(List<String> icaos) {
+        return subscribe(icaos, new SseEmitter(subscriptionTimeoutMs));
+    }
+
+    SseEmitter subscribe(List<String> icaos, SseEmitter emitter) {
+        List<String> codes = icaos.stream().map(code -> code.trim().toUpperCase(Locale.ROOT))
+                .filter(code -> !code.isEmpty()).distinct().toList();
+
+        if (codes.isEmpty() || codes.size() > maxAirports)
+            throw new IllegalArgumentException("Subscribe to between 1 and " + maxAirports + " airports");
+        List<String> unknown = codes.stream().filter(code -> !weatherService.isKnownStation(code)).toList();
+
+        if (!unknown.isEmpty())
+            throw new IllegalArgumentException("Unknown airports " + unknown);
+        Subscription subscription = new Subscription(emitter, codes);
+
+        emitter.onCompletion(() -> unsubscribe(subscription));
+        emitter.onTimeout(() -> unsubscribe(subscription));
+        emitter.onError(error -> unsubscribe(subscription));
+        subscriptions.add(subscription);
+
+        for (String icao : codes) {
+            Station station = stations.compute(icao, (key, current) -> {
+                Station next = current == null ? new Station() : current;
+
+                next.subscribers.add(subscription);
+                return next;
+            });
+            AirportWeatherResponse last = station.last;
+
+            if (last == null)
+                refresh(icao, station);
+            else
+                send(subscription, "metar", icao + ":" + last.getObservation().observedEpochSecond(),
+                        new MetarUpdate(icao, last));
+        }
+        return emitter;
+    }
+
+    public int getSubscriptionCount() {
+        return subscriptions.size();
+    }
+
+    public int getStationCount() {
+        return stations.size();
+    }
+
+    private void unsubscribe(Subscription subscription) {
+        if (!subscriptions.remove(subscription))
+            return;
+
+        for (String icao : subscription.icaos())
+            stations.computeIfPresent(icao, (key, station) -> {
+                station.subscribers.remove(subscription);
+                return station.subscribers.isEmpty() ? null : station;
+            });
+    }
+
+    /**
+     * Refreshes every subscribed station and sends a keep-alive comment to every subscriber, which also detects clients
+     * that have gone away.
+     */
+    @Scheduled(fixedDelayString = "${weather.stream.poll-interval-ms:60000}", initialDelayString = "${weather.stream.poll-interval-ms:60000}")
+    public void refreshAll() {
+        stations.forEach(this::refresh);
+
+        for (Subscription subscription : subscriptions) {
+            try {
+                subscription.emitter().send(SseEmitter.event().comment("keep-alive"));
+            } catch (IOException | IllegalStateException exception) {
+                unsubscribe(subscription);
+            }
+        }
+    }
+
+    private void refresh(String icao, Station station) {
+        if (!station.refreshing.compareAndSet(false, true))
+            return;
+
+        try {
+            upstreamExecutor.execute(() -> {
+                try {
+                    publish(icao, station, weatherService.getAirportWeather(icao));
+                } catch (Exception exception) {
+                    System.err.println("Unable to refresh subscribed station " + icao + ": " + exception.getMessage());
+                } finally {
+                    station.refreshing.set(false);
+                }
+            });
+        } catch (RuntimeException rejected) {
+            station.refreshing.set(false);
+            throw rejected;
+        }
+    }
+
+    private void publish(String icao, Station station, AirportWeatherResponse weather) {
+        AirportWeatherResponse previous = station.last;
+        MetarObservation observation = weather.getObservation();
+
+        if (previous != null && previous.getObservation().rawText().equals(observation.rawText()))
+            return;
+        station.last = weather;
+        String id = icao + ":" + observation.observedEpochSecond();
+        MetarUpdate update = new MetarUpdate(icao, weather);
+        FlightCategoryTransition transition = previous == null
+                || previous.getObservation().flightCategory() == observation.flightCategory() ? null
+                        : new FlightCategoryTransition(icao, previous.getObservation().flightCategory(),
+                                observation.flightCategory(), Instant.ofEpochSecond(observation.observedEpochSecond()));
+
+        for (Subscription subscription : station.subscribers) {
+            send(subscription, "metar", id, update);
+            if (transition != null)
+                send(subscription, "flight-category", id, transition);
+        }
+    }
+
+    private void send(Subscription subscription, String name, String id, Object data) {
+        try {
+            subscription.emitter().send(SseEmitter.event().name(name).id(id).data(data, MediaType.APPLICATION_JSON));
+        } catch (IOException | IllegalStateException exception) {
+            // The client went away, which the container also reports to the emitter, or the emitter has completed.
+            unsubscribe(subscription);
+        }
+    }
+}
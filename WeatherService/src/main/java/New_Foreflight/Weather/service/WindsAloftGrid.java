@@ -0,0 +1,368 @@
+package New_Foreflight.Weather.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Decoded winds and temperatures aloft from an FB (FD) bulletin.
+ *
+ * The bulletin is decoded once when it is fetched. Direction, speed and temperature are stored in flat primitive arrays
+ * indexed by station ordinal and altitude level, so a query is a couple of array reads and the raw FB codes are not
+ * kept around. Column positions are taken from the "FT" header line, where each altitude label is right-aligned with
+ * its column.
+ *
+ * The issuance header (DATA BASED ON, VALID and FOR USE) is kept so that refreshes can tell a newer product from the
+ * one already held. Its times carry only the day of month, and are placed in the month closest to the time of parsing.
+ */
+public final class WindsAloftGrid {
+
+    // Values absent from the bulletin, e.g. the 3000 ft level at high elevation stations.
+    public static final short MISSING = Short.MIN_VALUE;
+    // Stored for an absent temperature. FB temperatures lie within ±99, so this cannot collide with a reading.
+    private static final byte MISSING_TEMPERATURE = Byte.MIN_VALUE;
+    // Direction stored for light and variable winds (FB code 9900).
+    public static final short LIGHT_AND_VARIABLE = 990;
+    // Reported speeds of 199 knots or more are stored as 199.
+    public static final int MAX_SPEED_KTS = 199;
+
+    // Temperatures above this altitude are reported without a sign and are always negative.
+    private static final int NEGATIVE_TEMPERATURES_ABOVE = 24000;
+
+    private static final Pattern BASED_ON = Pattern.compile("DATA BASED ON (\\d{2})(\\d{2})(\\d{2})Z");
+    private static final Pattern VALID = Pattern
+            .compile("VALID (\\d{2})(\\d{2})(\\d{2})Z\\s+FOR USE (\\d{2})(\\d{2})-(\\d{2})(\\d{2})Z");
+
+    // Issuance header times, null if the bulletin has no header.
+    private final Instant basedOn;
+    private final Instant validAt;
+    private final Instant useFrom;
+    private final Instant useTo;
+
+    private final int[] altitudes;
+    private final String[] stations;
+    private final ImmutableMap<String, Integer> stationOrdinals;
+    // Indexed by station ordinal * altitudes.length + level.
+    private final short[] directions;
+    private final short[] speeds;
+    private final byte[] temperatures;
+
+    private WindsAloftGrid(Instant[] header, int[] altitudes, List<String> stations, short[] directions, short[] speeds,
+            byte[] temperatures) {
+        ImmutableMap.Builder<String, Integer> ordinals = ImmutableMap.builder();
+
+        for (int i = 0; i < stations.size(); i++)
+            ordinals.put(stations.get(i), i);
+        this.altitudes = altitudes;
+        this.stations = stations.toArray(String[]::new);
+        this.stationOrdinals = ordinals.buildKeepingLast();
+        this.directions = directions;
+        this.speeds = speeds;
+        this.temperatures = temperatures;
+        this.basedOn = header[0];
+        this.validAt = header[1];
+        this.useFrom = header[2];
+        this.useTo = header[3];
+    }
+
+    /**
+     * Decodes an FB bulletin. Station identifiers are prefixed with "K" to form ICAO codes.
+     */
+    public static WindsAloftGrid parse(String bulletin) {
+        return parse(bulletin, Instant.now());
+    }
+
+    /**
+     * Decodes an FB bulletin, placing its header times in the month closest to the given reference time.
+     */
+    static WindsAloftGrid parse(String bulletin, Instant reference) {
+        String[] lines = bulletin.split("\n");
+        int header = 0;
+
+        while (header < lines.length && !lines[header].startsWith("FT "))
+            header++;
+
+        if (header == lines.length)
+            throw new IllegalArgumentException("No FT header line in winds aloft bulletin");
+        List<Integer> altitudeList = new ArrayList<>();
+        List<Integer> columnEnds = new ArrayList<>();
+        String headerLine = lines[header];
+
+        for (int i = 2; i < headerLine.length(); i++) {
+            if (!Character.isDigit(headerLine.charAt(i)))
+                continue;
+            int start = i;
+
+            while (i < headerLine.length() && Character.isDigit(headerLine.charAt(i)))
+                i++;
+            altitudeList.add(Integer.parseInt(headerLine.substring(start, i)));
+            columnEnds.add(i);
+        }
+        int levels = altitudeList.size();
+        List<String> stations = new ArrayList<>();
+        short[] directions = new short[lines.length * levels];
+        short[] speeds = new short[lines.length * levels];
+        byte[] temperatures = new byte[lines.length * levels];
+
+        for (int i = header + 1; i < lines.length; i++) {
+            String line = lines[i].stripTrailing();
+
+            if (line.length() < 4 || !Character.isLetterOrDigit(line.charAt(0)))
+                continue;
+            int offset = stations.size() * levels;
+            int columnStart = 3;
+
+            for (int level = 0; level < levels; level++) {
+                int columnEnd = Math.min(columnEnds.get(level), line.length());
+                String code = columnStart < columnEnd ? line.substring(columnStart, columnEnd).trim() : "";
+
+                decode(code, altitudeList.get(level), directions, speeds, temperatures, offset + level);
+                columnStart = columnEnds.get(level);
+            }
+            stations.add("K" + line.substring(0, 3));
+        }
+        int size = stations.size() * levels;
+
+        return new WindsAloftGrid(parseHeader(lines, header, reference),
+                altitudeList.stream().mapToInt(Integer::intValue).toArray(), stations, Arrays.copyOf(directions, size),
+                Arrays.copyOf(speeds, size), Arrays.copyOf(temperatures, size));
+    }
+
+    /**
+     * Reads the DATA BASED ON, VALID and FOR USE times from the lines above the FT line.
+     */
+    private static Instant[] parseHeader(String[] lines, int header, Instant reference) {
+        Instant[] times = new Instant[4];
+
+        for (int i = 0; i < header; i++) {
+            Matcher basedOn = BASED_ON.matcher(lines[i]);
+            Matcher valid = VALID.matcher(lines[i]);
+
+            if (basedOn.find())
+                times[0] = dayTime(basedOn, 1, reference);
+
+            if (valid.find()) {
+                times[1] = dayTime(valid, 1, reference);
+                times[2] = nearestTime(times[1], valid, 4);
+                times[3] = nearestTime(times[1], valid, 6);
+            }
+        }
+        return times;
+    }
+
+    // Day, hour and minute groups starting at the given group, in the month that puts them closest to the reference.
+    private static Instant dayTime(Matcher matcher, int group, Instant reference) {
+        int day = Integer.parseInt(matcher.group(group));
+        LocalTime time = LocalTime.of(Integer.parseInt(matcher.group(group + 1)),
+                Integer.parseInt(matcher.group(group + 2)));
+        YearMonth month = YearMonth.from(reference.atZone(ZoneOffset.UTC));
+        Instant closest = null;
+
+        for (YearMonth candidate : List.of(month.minusMonths(1), month, month.plusMonths(1))) {
+            if (!candidate.isValidDay(day))
+                continue;
+            Instant instant = candidate.atDay(day).atTime(time).toInstant(ZoneOffset.UTC);
+
+            if (closest == null || Duration.between(instant, reference).abs()
+                    .compareTo(Duration.between(closest, reference).abs()) < 0)
+                closest = instant;
+        }
+        return closest;
+    }
+
+    // Hour and minute groups starting at the given group, on whichever day puts them within 12 hours of the anchor.
+    private static Instant nearestTime(Instant anchor, Matcher matcher, int group) {
+        ZonedDateTime time = anchor.atZone(ZoneOffset.UTC).withHour(Integer.parseInt(matcher.group(group)))
+                .withMinute(Integer.parseInt(matcher.group(group + 1)));
+        long hours = Duration.between(anchor, time.toInstant()).toHours();
+
+        if (hours > 12)
+            time = time.minusDays(1);
+        else if (hours < -12)
+            time = time.plusDays(1);
+        return time.toInstant();
+    }
+
+    /**
+     * Decodes one FB code (DDSS, DDSS±TT or DDSSTT) into the arrays at the given index.
+     *
+     * Directions of 51-86 (tens of degrees) mark speeds of 100 knots or more: 50 is subtracted from the direction and
+     * 100 added to the speed. A speed of 99 in that range means 199 knots or more.
+     */
+    static void decode(String code, int altitude, short[] directions, short[] speeds, byte[] temperatures, int index) {
+        directions[index] = MISSING;
+        speeds[index] = MISSING;
+        temperatures[index] = MISSING_TEMPERATURE;
+
+        if (code.length() < 4 || !isDigits(code, 0, 4))
+            return;
+        int direction = (code.charAt(0) - '0') * 10 + (code.charAt(1) - '0');
+        int speed = (code.charAt(2) - '0') * 10 + (code.charAt(3) - '0');
+
+        if (direction == 99 && speed == 0) {
+            directions[index] = LIGHT_AND_VARIABLE;
+            speeds[index] = 0;
+        } else if (direction >= 51 && direction <= 86) {
+            directions[index] = (short) ((direction - 50) * 10);
+            speeds[index] = (short) (speed == 99 ? MAX_SPEED_KTS : speed + 100);
+        } else {
+            directions[index] = (short) (direction * 10);
+            speeds[index] = (short) speed;
+        }
+
+        if (code.length() == 7 && (code.charAt(4) == '+' || code.charAt(4) == '-') && isDigits(code, 5, 7)) {
+            int temperature = (code.charAt(5) - '0') * 10 + (code.charAt(6) - '0');
+
+            temperatures[index] = (byte) (code.charAt(4) == '-' ? -temperature : temperature);
+        } else if (code.length() == 6 && isDigits(code, 4, 6) && altitude > NEGATIVE_TEMPERATURES_ABOVE) {
+            temperatures[index] = (byte) -((code.charAt(4) - '0') * 10 + (code.charAt(5) - '0'));
+        }
+    }
+
+    private static boolean isDigits(String text, int from, int to) {
+        for (int i = from; i < to; i++)
+            if (!Character.isDigit(text.charAt(i)))
+                return false;
+        return true;
+    }
+
+    /**
+     * Returns the ordinal of the station, or -1 if the bulletin has no data for it.
+     */
+    public int stationOrdinal(String icao) {
+        Integer ordinal = stationOrdinals.get(icao);
+
+        return ordinal == null ? -1 : ordinal;
+    }
+
+    /**
+     * Time of the observations the forecast is based on (DATA BASED ON), or null if the bulletin has no header.
+     */
+    public Instant basedOn() {
+        return basedOn;
+    }
+
+    /**
+     * Time the forecast is valid at, or null if the bulletin has no header.
+     */
+    public Instant validAt() {
+        return validAt;
+    }
+
+    /**
+     * Start of the FOR USE period, or null if the bulletin has no header.
+     */
+    public Instant useFrom() {
+        return useFrom;
+    }
+
+    /**
+     * End of the FOR USE period, or null if the bulletin has no header.
+     */
+    public Instant useTo() {
+        return useTo;
+    }
+
+    /**
+     * Returns true if this bulletin is a later issuance than the other. Bulletins without a header are always taken as
+     * newer, since their issuance cannot be compared.
+     */
+    public boolean isNewerThan(WindsAloftGrid other) {
+        if (other == null || basedOn == null || other.basedOn == null)
+            return true;
+        return basedOn.isAfter(other.basedOn) || basedOn.equals(other.basedOn) && validAt != null
+                && other.validAt != null && validAt.isAfter(other.validAt);
+    }
+
+    public String station(int ordinal) {
+        return stations[ordinal];
+    }
+
+    public int stationCount() {
+        return stations.length;
+    }
+
+    public int levelCount() {
+        return altitudes.length;
+    }
+
+    public int altitude(int level) {
+        return altitudes[level];
+    }
+
+    /**
+     * Returns the level whose altitude is closest to the given altitude.
+     */
+    public int nearestLevel(int altitude) {
+        int nearest = 0;
+
+        for (int level = 1; level < altitudes.length; level++)
+            if (Math.abs(altitudes[level] - altitude) < Math.abs(altitudes[nearest] - altitude))
+                nearest = level;
+        return nearest;
+    }
+
+    /**
+     * Wind direction in degrees true, {@link #LIGHT_AND_VARIABLE} or {@link #MISSING}.
+     */
+    public int direction(int station, int level) {
+        return directions[station * altitudes.length + level];
+    }
+
+    /**
+     * Wind speed in knots, capped at {@link #MAX_SPEED_KTS}, or {@link #MISSING}.
+     */
+    public int speed(int station, int level) {
+        return speeds[station * altitudes.length + level];
+    }
+
+    /**
+     * Temperature in degrees Celsius or {@link #MISSING}.
+     */
+    public int temperature(int station, int level) {
+        byte temperature = temperatures[station * altitudes.length + level];
+
+        return temperature == MISSING_TEMPERATURE ? MISSING : temperature;
+    }
+
+    /**
+     * Re-encodes the decoded values as the FB code they were read from, or "N/A" if the level has no data.
+     */
+    public String code(int station, int level) {
+        int direction = direction(station, level);
+        int speed = speed(station, level);
+        int temperature = temperature(station, level);
+
+        if (direction == MISSING)
+            return "N/A";
+        StringBuilder code = new StringBuilder(7);
+
+        if (direction == LIGHT_AND_VARIABLE)
+            code.append("9900");
+        else if (speed >= 100)
+            appendTwoDigits(appendTwoDigits(code, direction / 10 + 50), speed - 100);
+        else
+            appendTwoDigits(appendTwoDigits(code, direction / 10), speed);
+
+        if (temperature != MISSING) {
+            if (altitudes[level] <= NEGATIVE_TEMPERATURES_ABOVE)
+                code.append(temperature < 0 ? '-' : '+');
+            appendTwoDigits(code, Math.abs(temperature));
+        }
+        return code.toString();
+    }
+
+    private static StringBuilder appendTwoDigits(StringBuilder builder, int value) {
+        return builder.append((char) ('0' + value / 10)).append((char) ('0' + value % 10));
+    }
+}
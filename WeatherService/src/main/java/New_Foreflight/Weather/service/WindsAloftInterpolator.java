@@ -0,0 +1,164 @@
+package New_Foreflight.Weather.service;
+
+import java.util.List;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import New_Foreflight.Weather.database.AirportSpatialIndex;
+import New_Foreflight.Weather.dto.WindsAloftSample;
+
+/**
+ * Interpolates winds and temperatures aloft at arbitrary positions and altitudes.
+ *
+ * At each of the k nearest stations the wind is interpolated linearly in altitude between the two bulletin levels
+ * around the requested altitude, skipping levels without data and holding the nearest value outside the reported range.
+ * The station values are then blended with inverse distance weighting. Winds are interpolated as east and north
+ * components so that directions on either side of north blend correctly; light and variable winds count as calm.
+ */
+@Component
+public class WindsAloftInterpolator {
+
+    // Stations closer than this are used on their own rather than blended.
+    private static final double COINCIDENT_DISTANCE_NM = 0.5;
+
+    @Autowired
+    private AirportSpatialIndex airportSpatialIndex;
+
+    @Value("${winds.interpolation.neighbours:4}")
+    private int neighbours;
+
+    @Value("${winds.interpolation.power:2}")
+    private double power;
+
+    /**
+     * Returns the interpolated wind and temperature, or null if none of the nearest stations have data.
+     */
+    public WindsAloftSample interpolate(WindsAloftGrid grid, double latitude, double longitude, int altitude) {
+        List<Pair<String, Double>> stations = airportSpatialIndex.kNearest(latitude, longitude, neighbours);
+        double[] station = new double[3];
+        double windWeight = 0, east = 0, north = 0;
+        double temperatureWeight = 0, temperature = 0;
+
+        for (Pair<String, Double> candidate : stations) {
+            int ordinal = grid.stationOrdinal(candidate.getLeft());
+
+            if (ordinal < 0 || !sampleStation(grid, ordinal, altitude, station))
+                continue;
+            double distance = candidate.getRight();
+            // Stations come closest first, so a coincident station is always the first one blended.
+            double weight = distance < COINCIDENT_DISTANCE_NM ? 1 : 1 / Math.pow(distance, power);
+
+            windWeight += weight;
+            east += weight * station[0];
+            north += weight * station[1];
+
+            if (!Double.isNaN(station[2])) {
+                temperatureWeight += weight;
+                temperature += weight * station[2];
+            }
+
+            if (distance < COINCIDENT_DISTANCE_NM)
+                break;
+        }
+
+        if (windWeight == 0)
+            return null;
+        east /= windWeight;
+        north /= windWeight;
+
+        return new WindsAloftSample(latitude, longitude, altitude, directionFrom(east, north), Math.hypot(east, north),
+                temperatureWeight == 0 ? null : temperature / temperatureWeight);
+    }
+
+    /**
+     * Interpolates the station's wind vector and temperature at the altitude into target as east component, north
+     * component and temperature (NaN if not reported). Returns false if the station has no wind data at all.
+     */
+    static boolean sampleStation(WindsAloftGrid grid, int station, int altitude, double[] target) {
+        int below = -1, above = -1;
+
+        for (int level = 0; level < grid.levelCount(); level++) {
+            if (grid.direction(station, level) == WindsAloftGrid.MISSING)
+                continue;
+
+            if (grid.altitude(level) <= altitude)
+                below = level;
+            else if (above < 0)
+                above = level;
+        }
+
+        if (below < 0 && above < 0)
+            return false;
+        double fraction = fraction(grid, below, above, altitude);
+        int lower = below < 0 ? above : below;
+        int upper = above < 0 ? below : above;
+
+        target[0] = lerp(eastComponent(grid, station, lower), eastComponent(grid, station, upper), fraction);
+        target[1] = lerp(northComponent(grid, station, lower), northComponent(grid, station, upper), fraction);
+        target[2] = sampleTemperature(grid, station, altitude);
+        return true;
+    }
+
+    private static double sampleTemperature(WindsAloftGrid grid, int station, int altitude) {
+        int below = -1, above = -1;
+
+        for (int level = 0; level < grid.levelCount(); level++) {
+            if (grid.temperature(station, level) == WindsAloftGrid.MISSING)
+                continue;
+
+            if (grid.altitude(level) <= altitude)
+                below = level;
+            else if (above < 0)
+                above = level;
+        }
+
+        if (below < 0 && above < 0)
+            return Double.NaN;
+        double fraction = fraction(grid, below, above, altitude);
+
+        return lerp(grid.temperature(station, below < 0 ? above : below),
+                grid.temperature(station, above < 0 ? below : above), fraction);
+    }
+
+    // Position of the altitude between the two levels, 0 at the lower and 1 at the upper one.
+    private static double fraction(WindsAloftGrid grid, int below, int above, int altitude) {
+        if (below < 0 || above < 0)
+            return 0;
+        return (double) (altitude - grid.altitude(below)) / (grid.altitude(above) - grid.altitude(below));
+    }
+
+    private static double lerp(double from, double to, double fraction) {
+        return from + (to - from) * fraction;
+    }
+
+    // The wind vector points the way the wind blows, opposite to the reported direction.
+    private static double eastComponent(WindsAloftGrid grid, int station, int level) {
+        int direction = grid.direction(station, level);
+
+        if (direction == WindsAloftGrid.LIGHT_AND_VARIABLE)
+            return 0;
+        return -grid.speed(station, level) * Math.sin(Math.toRadians(direction));
+    }
+
+    private static double northComponent(WindsAloftGrid grid, int station, int level) {
+        int direction = grid.direction(station, level);
+
+        if (direction == WindsAloftGrid.LIGHT_AND_VARIABLE)
+            return 0;
+        return -grid.speed(station, level) * Math.cos(Math.toRadians(direction));
+    }
+
+    /**
+     * Returns the direction in degrees true the wind blows from, given the components of the way it blows.
+     */
+    static double directionFrom(double east, double north) {
+        if (east == 0 && north == 0)
+            return 0;
+        double direction = Math.toDegrees(Math.atan2(-east, -north));
+
+        return direction <= 0 ? direction + 360 : direction;
+    }
+}
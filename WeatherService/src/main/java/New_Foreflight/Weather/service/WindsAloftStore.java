@@ -0,0 +1,222 @@
+package New_Foreflight.Weather.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import New_Foreflight.Weather.cache.SharedCacheStore;
+import New_Foreflight.Weather.dto.WindsAloftIssuance;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Holds the current winds aloft bulletin as an immutable {@link WindsAloftGrid} snapshot.
+ *
+ * A refresh decodes the new bulletin off to the side and publishes it in a single volatile write, so readers never
+ * block and always see either the previous or the new snapshot. Concurrent refreshes coalesce onto the one fetch in
+ * flight; only the very first load, when there is nothing to serve yet, makes callers wait for it.
+ *
+ * The upstream is polled with conditional requests (If-None-Match and If-Modified-Since), and a fetched bulletin only
+ * replaces the current one if its issuance header shows a later product, so polling costs a 304 most of the time and a
+ * new bulletin is in place shortly after it is issued rather than fetched on the next request.
+ *
+ * Each fetch is timed as {@code winds.aloft.fetch}, tagged with whether it published a new bulletin. Reads served by
+ * the snapshot count as hits of {@code winds.aloft.reads} and reads that had to wait on a load as misses, and the age
+ * and size of the snapshot are reported as gauges.
+ */
+@Component
+public class WindsAloftStore {
+
+    @Autowired
+    private RestTemplate restTemplate;
+
+    @Autowired
+    private SharedCacheStore sharedCacheStore;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${aviation.weather.api.url}")
+    private String windsAloftApiUrl;
+
+    @Value("${winds.refresh.poll-interval-ms:300000}")
+    private long pollIntervalMs;
+
+    private static final String SHARED_KEY = "winds-aloft:bulletin";
+    // Bulletins are superseded every 6 hours; older shared copies are of no use.
+    private static final Duration SHARED_TIME_TO_LIVE = Duration.ofHours(12);
+
+    private volatile Snapshot snapshot;
+    // Validators of the last response, sent with the next poll. Only written by the fetch in flight.
+    private volatile String entityTag;
+    private volatile long lastModified = -1;
+    // The fetch in flight, if any, shared by every caller that asks for a refresh while it runs.
+    private final AtomicReference<CompletableFuture<WindsAloftGrid>> inFlight = new AtomicReference<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    private record Snapshot(WindsAloftGrid grid, long fetchedAtMillis) {
+    }
+
+    @PostConstruct
+    private void registerMetrics() {
+        FunctionCounter.builder("winds.aloft.reads", hits, LongAdder::sum).tag("result", "hit").register(meterRegistry);
+        FunctionCounter.builder("winds.aloft.reads", misses, LongAdder::sum).tag("result", "miss")
+                .register(meterRegistry);
+        Gauge.builder("winds.aloft.age", this, store -> {
+            WindsAloftIssuance issuance = store.getIssuance();
+
+            return issuance == null ? Double.NaN : issuance.ageSeconds();
+        }).baseUnit("seconds").description("Age of the winds aloft bulletin being served").register(meterRegistry);
+        Gauge.builder("winds.aloft.stations", this, store -> {
+            Snapshot current = store.snapshot;
+
+            return current == null ? 0 : current.grid().stationCount();
+        }).register(meterRegistry);
+    }
+
+    /**
+     * Returns the current snapshot, loading it first if none has been loaded. Returns null if none is available.
+     */
+    public WindsAloftGrid getGrid() {
+        Snapshot current = snapshot;
+
+        if (current != null) {
+            hits.increment();
+            return current.grid();
+        }
+        misses.increment();
+
+        try {
+            return refresh().join();
+        } catch (CompletionException exception) {
+            System.err.println("Unable to load winds aloft data: " + exception.getCause().getMessage());
+            current = snapshot;
+            return current == null ? null : current.grid();
+        }
+    }
+
+    /**
+     * Returns the issuance and age of the current snapshot, or null if none has been loaded.
+     */
+    public WindsAloftIssuance getIssuance() {
+        Snapshot current = snapshot;
+
+        if (current == null)
+            return null;
+        WindsAloftGrid grid = current.grid();
+        Instant now = Instant.now();
+        Instant fetchedAt = Instant.ofEpochMilli(current.fetchedAtMillis());
+        // Age of the data itself when the bulletin says when it was based on, otherwise of the copy held here.
+        Instant since = grid.basedOn() != null ? grid.basedOn() : fetchedAt;
+
+        return new WindsAloftIssuance(grid.basedOn(), grid.validAt(), grid.useFrom(), grid.useTo(), fetchedAt,
+                Math.max(0, Duration.between(since, now).toSeconds()));
+    }
+
+    /**
+     * Polls the upstream for a newer bulletin. The previous snapshot keeps serving until a new one is published.
+     */
+    @Scheduled(fixedDelayString = "${winds.refresh.poll-interval-ms:300000}", initialDelayString = "${winds.refresh.poll-interval-ms:300000}")
+    protected void scheduledRefresh() {
+        try {
+            refresh().join();
+        } catch (CompletionException exception) {
+            System.err.println("Unable to refresh winds aloft data: " + exception.getCause().getMessage());
+        }
+    }
+
+    /**
+     * Fetches and publishes a new snapshot, or joins the fetch already in flight. The returned future completes with
+     * the snapshot being served once the fetch is done.
+     */
+    public CompletableFuture<WindsAloftGrid> refresh() {
+        CompletableFuture<WindsAloftGrid> fetch = new CompletableFuture<>();
+
+        while (!inFlight.compareAndSet(null, fetch)) {
+            CompletableFuture<WindsAloftGrid> pending = inFlight.get();
+
+            if (pending != null)
+                return pending;
+        }
+
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String result = "error";
+
+        try {
+            WindsAloftGrid fetched = fetch();
+            Snapshot current = snapshot;
+
+            result = "unchanged";
+            if (fetched != null && (current == null || fetched.isNewerThan(current.grid()))) {
+                snapshot = current = new Snapshot(fetched, System.currentTimeMillis());
+                result = "updated";
+            }
+            fetch.complete(current == null ? null : current.grid());
+        } catch (RuntimeException exception) {
+            fetch.completeExceptionally(exception);
+        } finally {
+            sample.stop(
+                    Timer.builder("winds.aloft.fetch").description("Fetches and decodes of the winds aloft bulletin")
+                            .tag("result", result).register(meterRegistry));
+            inFlight.set(null);
+        }
+        return fetch;
+    }
+
+    /**
+     * Fetches and decodes the bulletin, or returns null if it has not changed since the last fetch or is empty.
+     */
+    private WindsAloftGrid fetch() {
+        SharedCacheStore.Entry shared = sharedCacheStore.get(SHARED_KEY);
+
+        // Another replica fetched the bulletin within the poll interval.
+        if (shared != null && System.currentTimeMillis() - shared.writtenAtMillis() < pollIntervalMs)
+            return WindsAloftGrid.parse(new String(shared.value(), StandardCharsets.UTF_8));
+        HttpHeaders headers = new HttpHeaders();
+
+        // Validators only apply while there is a snapshot to fall back on.
+        if (snapshot != null) {
+            if (entityTag != null)
+                headers.setIfNoneMatch(entityTag);
+            if (lastModified >= 0)
+                headers.setIfModifiedSince(lastModified);
+        }
+        ResponseEntity<String> response = restTemplate.exchange(windsAloftApiUrl, HttpMethod.GET,
+                new HttpEntity<>(headers), String.class);
+
+        if (response.getStatusCode().isSameCodeAs(HttpStatus.NOT_MODIFIED))
+            return null;
+        String body = response.getBody();
+
+        if (body == null || body.isEmpty()) {
+            System.err.println("No winds aloft data available.");
+            return null;
+        }
+        WindsAloftGrid grid = WindsAloftGrid.parse(body);
+
+        sharedCacheStore.put(SHARED_KEY, body.getBytes(StandardCharsets.UTF_8), SHARED_TIME_TO_LIVE);
+        entityTag = response.getHeaders().getETag();
+        lastModified = response.getHeaders().getLastModified();
+        return grid;
+    }
+}
@@ -0,0 +1,126 @@
+package New_Foreflight.Weather.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import New_Foreflight.Weather.dto.CloudLayer;
+import New_Foreflight.Weather.dto.FlightCategory;
+import New_Foreflight.Weather.dto.MetarObservation;
+
+class TieredCacheTests {
+
+    private final InMemorySharedCacheStore shared = new InMemorySharedCacheStore();
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    void replicasShareLoadedValues() {
+        TieredCache<String> first = cache(Duration.ofMinutes(5));
+        TieredCache<String> second = cache(Duration.ofMinutes(5));
+
+        assertEquals("KJFK-1", first.get("KJFK"));
+        assertEquals("KJFK-1", second.get("KJFK"));
+        assertEquals("KJFK-1", second.getIfPresent("KJFK"));
+        assertEquals(1, loads.get());
+        assertEquals(1, shared.size());
+    }
+
+    @Test
+    void ignoresSharedEntriesOlderThanRefreshInterval() throws InterruptedException {
+        TieredCache<String> first = cache(Duration.ofMillis(50));
+        TieredCache<String> second = cache(Duration.ofMillis(50));
+
+        first.get("KJFK");
+        Thread.sleep(100);
+
+        assertEquals("KJFK-2", second.get("KJFK"));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void putsAndInvalidatesBothTiers() {
+        TieredCache<String> first = TieredCache.builder("test", CacheCodec.json(String.class)).shared(shared).build();
+        TieredCache<String> second = TieredCache.builder("test", CacheCodec.json(String.class)).shared(shared).build();
+
+        first.put("KJFK", "stored");
+        assertEquals("stored", second.getIfPresent("KJFK"));
+        first.invalidate("KJFK");
+
+        assertNull(first.getIfPresent("KJFK"));
+        assertEquals(0, shared.size());
+    }
+
+    @Test
+    void expiresEntriesAfterTheirOwnTimeToLive() throws InterruptedException {
+        TieredCache<String> cache = TieredCache.builder("test", CacheCodec.json(String.class))
+                .expireAfter(value -> Duration.ofMillis(value.startsWith("short") ? 50 : 60000)).shared(shared).build();
+
+        cache.put("KJFK", "short");
+        cache.put("KLAX", "long");
+        Thread.sleep(100);
+
+        assertNull(cache.getIfPresent("KJFK"));
+        assertEquals("long", cache.getIfPresent("KLAX"));
+    }
+
+    @Test
+    void passesLoaderFailuresToCaller() {
+        TieredCache<String> failing = TieredCache.builder("test", CacheCodec.json(String.class)).build(key -> {
+            throw new Exception("upstream down");
+        });
+
+        assertEquals("upstream down",
+                assertThrows(CompletionException.class, () -> failing.get("KJFK")).getCause().getMessage());
+        assertNull(TieredCache.builder("test", CacheCodec.json(String.class)).build(key -> null).get("KJFK"));
+    }
+
+    @Test
+    void servesLastValueAsStaleWhenLoadFails() throws InterruptedException {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        AtomicInteger calls = new AtomicInteger();
+        TieredCache<String> cache = TieredCache.builder("test", CacheCodec.json(String.class))
+                .expireAfterWrite(Duration.ofMillis(50)).serveStaleFor(Duration.ofMinutes(5)).build(key -> {
+                    if (calls.incrementAndGet() > 1)
+                        throw new IllegalStateException("upstream down");
+                    return key + "-fresh";
+                });
+
+        cache.bindTo(registry);
+        assertFalse(cache.getOrStale("KJFK").stale());
+        assertEquals("KJFK-fresh", cache.getOrStale("KJFK").value());
+        Thread.sleep(100);
+        TieredCache.Lookup<String> stale = cache.getOrStale("KJFK");
+
+        assertTrue(stale.stale());
+        assertEquals("KJFK-fresh", stale.value());
+        assertThrows(IllegalStateException.class, () -> cache.getOrStale("KLAX"));
+        assertEquals(1, registry.get("cache.stale.served").tag("cache", "test").functionCounter().count());
+        assertEquals(0.25, registry.get("cache.hit.ratio").tag("cache", "test").gauge().value());
+    }
+
+    @Test
+    void jsonCodecRoundTripsObservations() {
+        MetarObservation observation = new MetarObservation("KJFK", "KJFK 011251Z 31012KT 10SM FEW250 M02/M10 A3012",
+                1700000000L, FlightCategory.VFR, 310, 12, MetarObservation.MISSING, 10,
+                List.of(new CloudLayer("FEW", 25000)), -2, 28.4, -10, 14, 30.12, Double.NaN, 13);
+        CacheCodec<MetarObservation> codec = CacheCodec.json(MetarObservation.class);
+
+        assertEquals(observation, codec.decode(codec.encode(observation)));
+    }
+
+    private TieredCache<String> cache(Duration refreshInterval) {
+        return TieredCache.builder("test", CacheCodec.json(String.class)).expireAfterWrite(Duration.ofMinutes(5))
+                .refreshAfterWrite(refreshInterval).shared(shared).build(key -> key + "-" + loads.incrementAndGet());
+    }
+}
@@ -0,0 +1,52 @@
+package New_Foreflight.Weather.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+
+class HostConcurrencyLimitInterceptorTests {
+
+    private final HostConcurrencyLimitInterceptor interceptor = new HostConcurrencyLimitInterceptor(1,
+            Duration.ofMillis(10));
+    private final ClientHttpRequestExecution execution = mock(ClientHttpRequestExecution.class);
+    private final MockClientHttpRequest request = new MockClientHttpRequest(HttpMethod.GET,
+            URI.create("https://upstream.test/metar"));
+
+    @Test
+    void holdsPermitUntilResponseIsClosed() throws IOException {
+        when(execution.execute(any(), any()))
+                .thenAnswer(invocation -> new MockClientHttpResponse("body".getBytes(), HttpStatus.OK));
+        ClientHttpResponse response = interceptor.intercept(request, new byte[0], execution);
+
+        assertThrows(IOException.class, () -> interceptor.intercept(request, new byte[0], execution));
+        assertEquals("body", new String(response.getBody().readAllBytes()));
+        response.close();
+        response.close();
+
+        interceptor.intercept(request, new byte[0], execution);
+        assertThrows(IOException.class, () -> interceptor.intercept(request, new byte[0], execution));
+    }
+
+    @Test
+    void releasesPermitWhenRequestFails() throws IOException {
+        when(execution.execute(any(), any())).thenThrow(new IOException("connection reset"))
+                .thenReturn(new MockClientHttpResponse(new byte[0], HttpStatus.OK));
+
+        assertThrows(IOException.class, () -> interceptor.intercept(request, new byte[0], execution));
+        assertEquals(HttpStatus.OK, interceptor.intercept(request, new byte[0], execution).getStatusCode());
+    }
+}
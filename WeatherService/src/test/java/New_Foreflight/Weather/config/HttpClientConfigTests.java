@@ -0,0 +1,102 @@
+package New_Foreflight.Weather.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.web.client.RestTemplate;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class HttpClientConfigTests {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withUserConfiguration(HttpClientConfig.class, ExecutorConfig.class)
+            .withBean(MeterRegistry.class, SimpleMeterRegistry::new);
+
+    @Test
+    void closesVirtualThreadExecutorWithTheContext() {
+        contextRunner.withPropertyValues("spring.threads.virtual.enabled=true").run(context -> {
+            ExecutorService executor = context.getBean("upstreamHttpClientExecutor", ExecutorService.class);
+
+            assertSame(executor, context.getBean(HttpClient.class).executor().orElseThrow());
+            // Not a candidate where an ExecutorService is wanted by type.
+            assertSame(context.getBean("upstreamExecutor"), context.getBean(ExecutorService.class));
+            context.close();
+            assertTrue(executor.isShutdown());
+        });
+    }
+
+    @Test
+    void keepsDefaultExecutorWithoutVirtualThreads() {
+        contextRunner.run(context -> {
+            assertFalse(context.containsBean("upstreamHttpClientExecutor"));
+            assertTrue(context.getBean(HttpClient.class).executor().isEmpty());
+        });
+    }
+
+    @Test
+    void backingOffRequestDoesNotHoldTheHostPermit() throws Exception {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        List<String> paths = new CopyOnWriteArrayList<>();
+        AtomicInteger slowAttempts = new AtomicInteger();
+        CountDownLatch rateLimited = new CountDownLatch(1);
+
+        server.createContext("/", exchange -> {
+            paths.add(exchange.getRequestURI().getPath());
+
+            if (exchange.getRequestURI().getPath().equals("/slow") && slowAttempts.getAndIncrement() == 0) {
+                exchange.getResponseHeaders().add("Retry-After", "1");
+                respond(exchange, 429);
+                rateLimited.countDown();
+            } else
+                respond(exchange, 200);
+        });
+        server.start();
+
+        try {
+            contextRunner
+                    .withPropertyValues("upstream.http.max-requests-per-host=1", "upstream.http.read-timeout-ms=2000")
+                    .run(context -> {
+                        RestTemplate restTemplate = context.getBean(RestTemplate.class);
+                        String base = "http://127.0.0.1:" + server.getAddress().getPort();
+                        CompletableFuture<String> slow = CompletableFuture
+                                .supplyAsync(() -> restTemplate.getForObject(base + "/slow", String.class));
+
+                        assertTrue(rateLimited.await(5, TimeUnit.SECONDS));
+                        assertEquals("ok", restTemplate.getForObject(base + "/fast", String.class));
+                        assertEquals("ok", slow.get(5, TimeUnit.SECONDS));
+                        // Served while the first request was still waiting out its Retry-After.
+                        assertEquals(List.of("/slow", "/fast", "/slow"), paths);
+                    });
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status) throws IOException {
+        byte[] body = "ok".getBytes();
+
+        exchange.sendResponseHeaders(status, body.length);
+        exchange.getResponseBody().write(body);
+        exchange.close();
+    }
+}
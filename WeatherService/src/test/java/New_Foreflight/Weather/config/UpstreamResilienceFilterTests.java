@@ -0,0 +1,69 @@
+package New_Foreflight.Weather.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
+class UpstreamResilienceFilterTests {
+
+    private final AtomicLong clock = new AtomicLong();
+    private final ClientRequest get = ClientRequest.create(HttpMethod.GET, URI.create("https://upstream.test/metar"))
+            .build();
+
+    @Test
+    void retriesServerErrors() {
+        Deque<HttpStatus> statuses = new ArrayDeque<>(List.of(HttpStatus.BAD_GATEWAY, HttpStatus.OK));
+        ExchangeFunction upstream = request -> Mono.just(ClientResponse.create(statuses.pop()).build());
+        UpstreamResilienceFilter filter = new UpstreamResilienceFilter(interceptor(5, 2));
+
+        assertEquals(HttpStatus.OK, filter.filter(get, upstream).block().statusCode());
+        assertEquals(0, statuses.size());
+    }
+
+    @Test
+    void cancelledProbeLetsTheNextRequestProbe() {
+        UpstreamResilienceInterceptor limits = interceptor(1, 0);
+        UpstreamResilienceFilter filter = new UpstreamResilienceFilter(limits);
+
+        filter.filter(get, request -> Mono.just(ClientResponse.create(HttpStatus.SERVICE_UNAVAILABLE).build())).block();
+        // The circuit is shared with the blocking client.
+        assertThrows(UpstreamUnavailableException.class,
+                () -> limits.intercept(new MockClientHttpRequest(HttpMethod.GET, get.url()), new byte[0],
+                        mock(ClientHttpRequestExecution.class)));
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(30));
+
+        Disposable abandoned = filter.filter(get, request -> Mono.never()).subscribe();
+
+        abandoned.dispose();
+        assertEquals(HttpStatus.OK, filter
+                .filter(get, request -> Mono.just(ClientResponse.create(HttpStatus.OK).build())).block().statusCode());
+    }
+
+    private UpstreamResilienceInterceptor interceptor(int failureThreshold, int maxRetries) {
+        return new UpstreamResilienceInterceptor(
+                new UpstreamResilienceInterceptor.Settings(0, 1, Duration.ZERO, failureThreshold,
+                        Duration.ofSeconds(30), maxRetries, Duration.ofMillis(1), Duration.ofMillis(10)),
+                Map.of(), clock::get);
+    }
+}
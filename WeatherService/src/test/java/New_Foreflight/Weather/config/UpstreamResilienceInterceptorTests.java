@@ -0,0 +1,121 @@
+package New_Foreflight.Weather.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+
+class UpstreamResilienceInterceptorTests {
+
+    private static final byte[] NO_BODY = new byte[0];
+
+    private final AtomicLong clock = new AtomicLong();
+    private final ClientHttpRequestExecution execution = mock(ClientHttpRequestExecution.class);
+    private final MockClientHttpRequest get = new MockClientHttpRequest(HttpMethod.GET,
+            URI.create("https://upstream.test/metar"));
+
+    @Test
+    void retriesServerErrorsAndHonorsRetryAfter() throws IOException {
+        MockClientHttpResponse throttled = new MockClientHttpResponse(NO_BODY, HttpStatus.TOO_MANY_REQUESTS);
+
+        throttled.getHeaders().set("Retry-After", "0");
+        when(execution.execute(any(), any())).thenReturn(throttled)
+                .thenReturn(new MockClientHttpResponse(NO_BODY, HttpStatus.BAD_GATEWAY))
+                .thenReturn(new MockClientHttpResponse(NO_BODY, HttpStatus.OK));
+
+        assertEquals(HttpStatus.OK, interceptor(0, 5, 2).intercept(get, NO_BODY, execution).getStatusCode());
+        verify(execution, times(3)).execute(any(), any());
+    }
+
+    @Test
+    void doesNotRetryNonIdempotentRequests() throws IOException {
+        MockClientHttpRequest post = new MockClientHttpRequest(HttpMethod.POST, URI.create("https://upstream.test/"));
+
+        when(execution.execute(any(), any())).thenReturn(new MockClientHttpResponse(NO_BODY, HttpStatus.BAD_GATEWAY));
+
+        assertEquals(HttpStatus.BAD_GATEWAY, interceptor(0, 5, 2).intercept(post, NO_BODY, execution).getStatusCode());
+        verify(execution, times(1)).execute(any(), any());
+    }
+
+    @Test
+    void opensCircuitAfterConsecutiveFailuresAndClosesAfterProbe() throws IOException {
+        UpstreamResilienceInterceptor interceptor = interceptor(0, 2, 0);
+
+        when(execution.execute(any(), any())).thenThrow(new IOException("connection reset"))
+                .thenReturn(new MockClientHttpResponse(NO_BODY, HttpStatus.SERVICE_UNAVAILABLE))
+                .thenReturn(new MockClientHttpResponse(NO_BODY, HttpStatus.OK));
+
+        assertThrows(IOException.class, () -> interceptor.intercept(get, NO_BODY, execution));
+        interceptor.intercept(get, NO_BODY, execution);
+        UpstreamUnavailableException open = assertThrows(UpstreamUnavailableException.class,
+                () -> interceptor.intercept(get, NO_BODY, execution));
+
+        assertEquals(30000, open.getRetryAfterMillis());
+        verify(execution, times(2)).execute(any(), any());
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(30));
+
+        assertEquals(HttpStatus.OK, interceptor.intercept(get, NO_BODY, execution).getStatusCode());
+        assertEquals(HttpStatus.OK, interceptor.intercept(get, NO_BODY, execution).getStatusCode());
+    }
+
+    @Test
+    void closesCircuitOnlyWhenTheProbeSucceeds() {
+        UpstreamResilienceInterceptor.CircuitBreaker breaker = new UpstreamResilienceInterceptor.CircuitBreaker(1,
+                TimeUnit.SECONDS.toNanos(30), clock::get);
+        UpstreamResilienceInterceptor.Permit inFlight = breaker.acquire();
+
+        breaker.onFailure(breaker.acquire());
+        breaker.onSuccess(inFlight);
+        assertTrue(breaker.isOpen());
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(30));
+        UpstreamResilienceInterceptor.Permit probe = breaker.acquire();
+
+        assertEquals(UpstreamResilienceInterceptor.Permit.PROBE, probe);
+        breaker.onSuccess(inFlight);
+        breaker.onFailure(inFlight);
+        assertTrue(breaker.isOpen());
+        breaker.onSuccess(probe);
+        assertFalse(breaker.isOpen());
+    }
+
+    @Test
+    void rejectsRequestsOverTheRateLimit() throws IOException {
+        UpstreamResilienceInterceptor interceptor = interceptor(1, 5, 0);
+
+        when(execution.execute(any(), any()))
+                .thenAnswer(invocation -> new MockClientHttpResponse(NO_BODY, HttpStatus.OK));
+        interceptor.intercept(get, NO_BODY, execution);
+
+        assertThrows(UpstreamUnavailableException.class, () -> interceptor.intercept(get, NO_BODY, execution));
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertEquals(HttpStatus.OK, interceptor.intercept(get, NO_BODY, execution).getStatusCode());
+    }
+
+    // A burst of one permit and no waiting for permits, so rate limiting is decided by the clock alone. A rate of zero
+    // disables rate limiting.
+    private UpstreamResilienceInterceptor interceptor(double permitsPerSecond, int failureThreshold, int maxRetries) {
+        return new UpstreamResilienceInterceptor(
+                new UpstreamResilienceInterceptor.Settings(permitsPerSecond, 1, Duration.ZERO, failureThreshold,
+                        Duration.ofSeconds(30), maxRetries, Duration.ofMillis(1), Duration.ofMillis(10)),
+                Map.of(), clock::get);
+    }
+}
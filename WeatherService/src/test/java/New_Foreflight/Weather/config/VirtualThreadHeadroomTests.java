@@ -0,0 +1,135 @@
+package New_Foreflight.Weather.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestTemplate;
+
+import com.sun.net.httpserver.HttpServer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Load test comparing request throughput with platform and virtual threads against a slow upstream.
+ *
+ * Each simulated request blocks on one upstream call, like a cache miss in getAirportWeather. Platform mode runs on a
+ * pool the size of Tomcat's default maximum, virtual mode on one virtual thread per request. Skipped unless run with
+ * -Dload.test=true.
+ */
+@EnabledIfSystemProperty(named = "load.test", matches = "true")
+class VirtualThreadHeadroomTests {
+
+    private static final int REQUESTS = 2000;
+    private static final int TOMCAT_MAX_THREADS = 200;
+    private static final long UPSTREAM_LATENCY_MS = 1000;
+
+    private HttpServer upstream;
+    private URI upstreamUri;
+
+    @BeforeEach
+    void startUpstream() throws IOException {
+        upstream = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+        upstream.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        upstream.createContext("/metar", exchange -> {
+            byte[] body = "{\"results\":1,\"data\":[]}".getBytes(StandardCharsets.UTF_8);
+
+            try {
+                Thread.sleep(UPSTREAM_LATENCY_MS);
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.sendResponseHeaders(200, body.length);
+
+            try (OutputStream output = exchange.getResponseBody()) {
+                output.write(body);
+            }
+        });
+        upstream.start();
+        upstreamUri = URI.create("http://127.0.0.1:" + upstream.getAddress().getPort() + "/metar");
+    }
+
+    @AfterEach
+    void stopUpstream() {
+        upstream.stop(0);
+    }
+
+    @Test
+    void virtualThreadsServeMoreConcurrentRequests(TestReporter reporter) throws Exception {
+        // Warm up connections and JIT before measuring either mode.
+        run(false, Executors.newFixedThreadPool(TOMCAT_MAX_THREADS), TOMCAT_MAX_THREADS);
+
+        double platform = run(false, Executors.newFixedThreadPool(TOMCAT_MAX_THREADS), REQUESTS);
+        double virtual = run(true, Executors.newVirtualThreadPerTaskExecutor(), REQUESTS);
+
+        String throughput = String.format("platform threads: %.0f req/s, virtual threads: %.0f req/s (%.1fx)", platform,
+                virtual, virtual / platform);
+
+        reporter.publishEntry("throughput", throughput);
+        assertTrue(virtual > platform * 2, () -> "virtual threads should at least double throughput, " + throughput);
+    }
+
+    /**
+     * Issues the given number of concurrent requests and returns the throughput in requests per second.
+     */
+    private double run(boolean virtualThreads, ExecutorService requestThreads, int requests) throws Exception {
+        StaticListableBeanFactory clientExecutors = new StaticListableBeanFactory();
+        ExecutorService clientExecutor = virtualThreads ? Executors.newVirtualThreadPerTaskExecutor() : null;
+
+        if (clientExecutor != null)
+            clientExecutors.addBean("upstreamHttpClientExecutor", clientExecutor);
+        RestTemplate restTemplate = restTemplate(clientExecutors.getBeanProvider(ExecutorService.class));
+        List<Future<String>> responses = new ArrayList<>(requests);
+        long start = System.nanoTime();
+
+        try (requestThreads) {
+            for (int i = 0; i < requests; i++)
+                responses.add(requestThreads.submit(() -> restTemplate.getForObject(upstreamUri, String.class)));
+
+            for (Future<String> response : responses)
+                assertEquals("{\"results\":1,\"data\":[]}", response.get());
+        } finally {
+            if (clientExecutor != null)
+                clientExecutor.close();
+        }
+        return requests / ((System.nanoTime() - start) / 1e9);
+    }
+
+    private RestTemplate restTemplate(ObjectProvider<ExecutorService> clientExecutor) {
+        HttpClientConfig config = new HttpClientConfig();
+
+        ReflectionTestUtils.setField(config, "connectTimeoutMs", 3000L);
+        ReflectionTestUtils.setField(config, "readTimeoutMs", 30000L);
+        // Lifted so that only the request threading model limits throughput.
+        ReflectionTestUtils.setField(config, "maxRequestsPerHost", REQUESTS);
+        ReflectionTestUtils.setField(config, "keepAliveSeconds", 120);
+        ReflectionTestUtils.setField(config, "gzipEnabled", true);
+        // Without rate limiting, circuit breaking or retries, which would otherwise bound throughput.
+        UpstreamResilienceInterceptor passThrough = new UpstreamResilienceInterceptor(
+                new UpstreamResilienceInterceptor.Settings(0, 1, Duration.ZERO, Integer.MAX_VALUE, Duration.ZERO, 0,
+                        Duration.ZERO, Duration.ZERO),
+                Map.of());
+
+        return config.restTemplate(config.upstreamHttpClient(clientExecutor), passThrough, new SimpleMeterRegistry());
+    }
+}
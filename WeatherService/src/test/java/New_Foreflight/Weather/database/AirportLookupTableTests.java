@@ -0,0 +1,72 @@
+package New_Foreflight.Weather.database;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class AirportLookupTableTests {
+
+    private final AirportRepository airportRepository = mock(AirportRepository.class);
+    private final AirportLookupTable airportLookupTable = new AirportLookupTable();
+    private final AirportSpatialIndex airportSpatialIndex = new AirportSpatialIndex();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(airportLookupTable, "airportRepository", airportRepository);
+        ReflectionTestUtils.setField(airportSpatialIndex, "airportLookupTable", airportLookupTable);
+    }
+
+    @Test
+    void keepsSnapshotWhileAirportsAreUnchanged() {
+        when(airportRepository.findAll())
+                .thenReturn(List.of(airport("KDEN", 39.86, -104.67, true), airport("KORD", 41.98, -87.90, true)))
+                .thenReturn(List.of(airport("KORD", 41.98, -87.90, true), airport("KDEN", 39.86, -104.67, true)));
+        AirportLookupTable.Snapshot snapshot = airportLookupTable.getSnapshot();
+
+        airportLookupTable.refreshIfGraphChanged();
+
+        assertSame(snapshot, airportLookupTable.getSnapshot());
+    }
+
+    @Test
+    void rebuildsIndexWhenAirportsChangeWithoutChangingTheirCount() {
+        when(airportRepository.findAll())
+                .thenReturn(List.of(airport("KDEN", 39.86, -104.67, true), airport("KORD", 41.98, -87.90, false)))
+                .thenReturn(List.of(airport("KDEN", 39.86, -104.67, false), airport("KORD", 41.98, -87.90, true)));
+        AirportLookupTable.Snapshot snapshot = airportLookupTable.getSnapshot();
+
+        assertEquals("KDEN", airportSpatialIndex.kNearest(41.98, -87.90, 1).get(0).getLeft());
+        airportLookupTable.refreshIfGraphChanged();
+
+        assertNotSame(snapshot, airportLookupTable.getSnapshot());
+        assertEquals("KORD", airportSpatialIndex.kNearest(39.86, -104.67, 1).get(0).getLeft());
+    }
+
+    @Test
+    void fallsBackToRepositoryBetweenLoadAttempts() {
+        ReflectionTestUtils.setField(airportLookupTable, "loadRetryMs", 60000L);
+        when(airportRepository.findAll()).thenThrow(new IllegalStateException("Neo4j unavailable"));
+        when(airportRepository.findByIcao("KDEN")).thenReturn(Optional.of(airport("KDEN", 39.86, -104.67, true)));
+
+        assertTrue(airportLookupTable.findByIcao("KDEN").isPresent());
+        assertTrue(airportLookupTable.findByIcao("KDEN").isPresent());
+        verify(airportRepository, times(1)).findAll();
+        verify(airportRepository, times(2)).findByIcao("KDEN");
+    }
+
+    private static AirportNode airport(String icao, double latitude, double longitude, boolean windsAloftAirport) {
+        return new AirportNode(icao, icao, icao, latitude, longitude, 0, windsAloftAirport);
+    }
+}
@@ -0,0 +1,92 @@
+package New_Foreflight.Weather.database;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class AirportSpatialIndexTests {
+
+    private final List<AirportNode> airports = new ArrayList<>();
+    private final AirportSpatialIndex index = new AirportSpatialIndex();
+
+    @BeforeEach
+    void setUp() {
+        Random random = new Random(42);
+
+        // No snapshot is available, so the index serves whatever it was last rebuilt from.
+        ReflectionTestUtils.setField(index, "airportLookupTable", mock(AirportLookupTable.class));
+
+        for (int i = 0; i < 2000; i++)
+            airports.add(new AirportNode("A" + i, "K" + i, "Airport " + i, random.nextDouble() * 140 - 70,
+                    random.nextDouble() * 360 - 180, 0, i % 4 != 0));
+        index.rebuild(airports);
+    }
+
+    @Test
+    void kNearestMatchesLinearScan() {
+        Random random = new Random(7);
+
+        for (int i = 0; i < 200; i++) {
+            double latitude = random.nextDouble() * 140 - 70;
+            double longitude = random.nextDouble() * 360 - 180;
+            List<Pair<String, Double>> expected = linearScan(latitude, longitude).subList(0, 5);
+            List<Pair<String, Double>> actual = index.kNearest(latitude, longitude, 5);
+
+            assertEquals(5, actual.size());
+
+            for (int j = 0; j < 5; j++) {
+                assertEquals(expected.get(j).getLeft(), actual.get(j).getLeft());
+                assertEquals(expected.get(j).getRight(), actual.get(j).getRight(), 1e-6);
+            }
+        }
+    }
+
+    @Test
+    void withinRadiusMatchesLinearScan() {
+        double radiusNm = 400;
+        List<Pair<String, Double>> expected = linearScan(40.6, -73.7).stream()
+                .filter(candidate -> candidate.getRight() <= radiusNm).toList();
+        List<Pair<String, Double>> actual = index.withinRadius(40.6, -73.7, radiusNm);
+
+        assertEquals(expected.stream().map(Pair::getLeft).toList(), actual.stream().map(Pair::getLeft).toList());
+    }
+
+    @Test
+    void nearestSkipsExcludedAirport() {
+        AirportNode airport = airports.get(1);
+        Pair<String, Double> nearest = index.nearest(airport.getLatitude(), airport.getLongitude(), airport.getIcao());
+
+        assertTrue(nearest.getRight() > 0);
+        assertEquals(linearScan(airport.getLatitude(), airport.getLongitude()).get(1).getLeft(), nearest.getLeft());
+    }
+
+    private List<Pair<String, Double>> linearScan(double latitude, double longitude) {
+        List<Pair<String, Double>> distances = new ArrayList<>();
+
+        for (AirportNode airport : airports)
+            if (airport.isWindsAloftAirport())
+                distances.add(Pair.of(airport.getIcao(),
+                        haversineNM(latitude, longitude, airport.getLatitude(), airport.getLongitude())));
+        distances.sort(Comparator.comparing(Pair::getRight));
+        return distances;
+    }
+
+    private static double haversineNM(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2) + Math.cos(Math.toRadians(lat1))
+                * Math.cos(Math.toRadians(lat2)) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+
+        return 3440.065 * 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    }
+}
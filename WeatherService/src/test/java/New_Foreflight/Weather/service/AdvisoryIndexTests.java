@@ -0,0 +1,98 @@
+package New_Foreflight.Weather.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import New_Foreflight.Weather.dto.Advisory;
+
+class AdvisoryIndexTests {
+
+    // Convective SIGMET over Kansas, valid 1455Z to 1655Z, surface to FL450.
+    private static final String SIGMETS = """
+            [{"airSigmetId": 1, "icaoId": "KKCI", "airSigmetType": "SIGMET", "hazard": "CONVECTIVE",
+              "validTimeFrom": 1714575300, "validTimeTo": 1714582500, "altitudeLow1": null, "altitudeHi1": 45000,
+              "rawAirSigmet": "CONVECTIVE SIGMET 12C",
+              "coords": [{"lat": 38.0, "lon": -100.0}, {"lat": 38.0, "lon": -97.0}, {"lat": 41.0, "lon": -97.0},
+                         {"lat": 41.0, "lon": -100.0}, {"lat": 38.0, "lon": -100.0}]}]
+            """;
+    // Icing from the freezing level at 8000 ft to FL180 over Ohio at 1500Z, and a Pacific area across the
+    // antimeridian.
+    private static final String G_AIRMETS = """
+            [{"product": "ZULU", "tag": "1C", "forecastHour": 0, "validTime": "2024-05-01T15:00:00Z",
+              "hazard": "ICE", "base": "FZL", "fzlBase": "080", "top": "180",
+              "coords": [{"lat": "39.0", "lon": "-85.0"}, {"lat": "39.0", "lon": "-81.0"},
+                         {"lat": "41.5", "lon": "-81.0"}, {"lat": "41.5", "lon": "-85.0"}]},
+             {"product": "TANGO", "tag": "2P", "forecastHour": 0, "validTime": "2024-05-01T15:00:00Z",
+              "hazard": "TURB-HI", "base": "SFC", "top": "300",
+              "coords": [{"lat": "50.0", "lon": "175.0"}, {"lat": "50.0", "lon": "-175.0"},
+                         {"lat": "55.0", "lon": "-175.0"}, {"lat": "55.0", "lon": "175.0"}]}]
+            """;
+    private static final Instant AT_1530Z = Instant.parse("2024-05-01T15:30:00Z");
+
+    private final AdvisoryIndex index = index();
+
+    @Test
+    void decodesFeeds() {
+        Advisory sigmet = AdvisoryDecoder.decodeSigmets(SIGMETS).get(0);
+        Advisory icing = AdvisoryDecoder.decodeGAirmets(G_AIRMETS).get(0);
+
+        assertEquals(4, sigmet.polygon().size());
+        assertNull(sigmet.baseFeet());
+        assertEquals(45000, sigmet.topFeet());
+        assertEquals(Instant.parse("2024-05-01T14:55:00Z"), sigmet.validFrom());
+        assertEquals(8000, icing.baseFeet());
+        assertEquals(18000, icing.topFeet());
+        assertEquals(Instant.parse("2024-05-01T13:30:00Z"), icing.validFrom());
+    }
+
+    @Test
+    void findsAdvisoriesAtPointAltitudeAndTime() {
+        assertEquals(List.of("CONVECTIVE"), hazards(index.atPoint(39.0, -98.5, 10000, AT_1530Z)));
+        assertEquals(List.of("ICE"), hazards(index.atPoint(40.0, -83.0, 12000, AT_1530Z)));
+        // Below the freezing level, outside the polygon and after expiry.
+        assertTrue(index.atPoint(40.0, -83.0, 5000, AT_1530Z).isEmpty());
+        assertTrue(index.atPoint(37.9, -98.5, null, AT_1530Z).isEmpty());
+        assertTrue(index.atPoint(39.0, -98.5, null, Instant.parse("2024-05-01T17:00:00Z")).isEmpty());
+    }
+
+    @Test
+    void handlesPolygonsAcrossTheAntimeridian() {
+        assertEquals(List.of("TURB-HI"), hazards(index.atPoint(52.0, 179.5, null, AT_1530Z)));
+        assertEquals(List.of("TURB-HI"), hazards(index.atPoint(52.0, -179.5, null, AT_1530Z)));
+        assertTrue(index.atPoint(52.0, 170.0, null, AT_1530Z).isEmpty());
+    }
+
+    @Test
+    void findsAdvisoriesWithinRouteCorridor() {
+        // Denver to Pittsburgh by Detroit crosses the SIGMET and clips the north-east corner of the icing area.
+        List<Advisory.Point> route = List.of(new Advisory.Point(39.86, -104.67), new Advisory.Point(42.2, -83.0),
+                new Advisory.Point(40.49, -80.23));
+
+        assertEquals(List.of("CONVECTIVE", "ICE"), hazards(index.alongRoute(route, 10, 10000, 12000, AT_1530Z)));
+        assertEquals(List.of("CONVECTIVE"), hazards(index.alongRoute(route, 10, 2000, 4000, AT_1530Z)));
+
+        // A route passing 30 nm south of the SIGMET only matches a wide enough corridor.
+        List<Advisory.Point> south = List.of(new Advisory.Point(37.5, -101.0), new Advisory.Point(37.5, -96.0));
+
+        assertTrue(index.alongRoute(south, 20, null, null, AT_1530Z).isEmpty());
+        assertEquals(List.of("CONVECTIVE"), hazards(index.alongRoute(south, 40, null, null, AT_1530Z)));
+    }
+
+    private static AdvisoryIndex index() {
+        List<Advisory> advisories = new ArrayList<>(AdvisoryDecoder.decodeSigmets(SIGMETS));
+
+        advisories.addAll(AdvisoryDecoder.decodeGAirmets(G_AIRMETS));
+        return new AdvisoryIndex(advisories);
+    }
+
+    private static List<String> hazards(List<Advisory> advisories) {
+        return advisories.stream().map(Advisory::hazard).toList();
+    }
+}
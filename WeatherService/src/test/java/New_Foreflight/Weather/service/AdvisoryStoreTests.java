@@ -0,0 +1,47 @@
+package New_Foreflight.Weather.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+class AdvisoryStoreTests {
+
+    private final AdvisoryStore store = new AdvisoryStore();
+    private final RestTemplate restTemplate = mock(RestTemplate.class);
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(store, "restTemplate", restTemplate);
+        ReflectionTestUtils.setField(store, "aviationWeatherUrl", "http://awc.test/api/data");
+    }
+
+    @Test
+    void failsUntilEitherFeedHasLoaded() {
+        when(restTemplate.getForObject(contains("/airsigmet"), eq(String.class)))
+                .thenThrow(new ResourceAccessException("timed out")).thenReturn("[]");
+        when(restTemplate.getForObject(contains("/gairmet"), eq(String.class)))
+                .thenThrow(new ResourceAccessException("timed out"));
+
+        assertThrows(RestClientException.class, () -> store.atPoint(34.0, -118.0, null, null));
+        // Later loads are left to the schedule rather than every query.
+        assertThrows(RestClientException.class, () -> store.atPoint(34.0, -118.0, null, null));
+        verify(restTemplate, times(1)).getForObject(contains("/airsigmet"), eq(String.class));
+
+        store.refresh();
+        assertEquals(List.of(), store.atPoint(34.0, -118.0, null, null));
+    }
+}
@@ -0,0 +1,74 @@
+package New_Foreflight.Weather.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import New_Foreflight.Weather.dto.CloudLayer;
+import New_Foreflight.Weather.dto.FlightCategory;
+import New_Foreflight.Weather.dto.MetarComponentsView;
+import New_Foreflight.Weather.dto.MetarObservation;
+
+class MetarBulkIngestorTests {
+
+    private final MetarBulkIngestor ingestor = new MetarBulkIngestor();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(ingestor, "metarCacheUrl", "classpath:fixtures/metars.cache.csv.gz");
+        ReflectionTestUtils.setField(ingestor, "maxTableAgeMs", 900000L);
+    }
+
+    @Test
+    void ingestsGzippedCacheFile() {
+        assertNull(ingestor.getObservation("KLAX"));
+        assertEquals(3, ingestor.ingest());
+
+        MetarObservation observation = ingestor.getObservation("KLAX");
+
+        assertTrue(observation.rawText().startsWith("KLAX 011253Z"));
+        assertEquals(1748782380L, observation.observedEpochSecond());
+        assertEquals(FlightCategory.MVFR, observation.flightCategory());
+        assertEquals(250, observation.windDirectionDegrees());
+        assertEquals(12, observation.windSpeedKts());
+        assertEquals(18, observation.windGustKts());
+        assertEquals(1.5, observation.visibilityMiles());
+        assertEquals(1500, observation.ceilingFeet());
+        assertEquals(17.2, observation.temperatureCelsius());
+        assertEquals(63, observation.temperatureFahrenheit());
+        assertEquals(78, observation.humidityPercent());
+        assertEquals(125, observation.elevationFeet());
+        assertEquals("250 at 12-18 kts", MetarComponentsView.of(observation).get("wind"));
+    }
+
+    @Test
+    void keepsLatestObservationAndDecodesSpecialValues() {
+        ingestor.ingest();
+        MetarObservation kennedy = ingestor.getObservation("KJFK");
+        MetarObservation obscured = ingestor.getObservation("KXYZ");
+
+        assertEquals(1748782260L, kennedy.observedEpochSecond());
+        assertEquals(0, kennedy.windDirectionDegrees());
+        assertEquals(3, kennedy.windSpeedKts());
+        assertEquals(10, kennedy.visibilityMiles());
+        assertEquals(List.of(new CloudLayer("CLR", MetarObservation.MISSING)), kennedy.clouds());
+
+        assertEquals(200, obscured.ceilingFeet());
+        assertEquals(0.75, obscured.visibilityMiles());
+        assertTrue(Double.isNaN(obscured.elevationFeet()));
+    }
+
+    @Test
+    void ignoresStaleTable() {
+        ingestor.ingest();
+        ReflectionTestUtils.setField(ingestor, "maxTableAgeMs", -1L);
+
+        assertNull(ingestor.getObservation("KLAX"));
+    }
+}
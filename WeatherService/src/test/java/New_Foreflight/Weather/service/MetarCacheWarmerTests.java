@@ -0,0 +1,76 @@
+package New_Foreflight.Weather.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import New_Foreflight.Weather.dto.AirportWeatherResponse;
+
+class MetarCacheWarmerTests {
+
+    private final WeatherServiceImpl weatherService = mock(WeatherServiceImpl.class);
+    private final WeatherServiceUtility utility = mock(WeatherServiceUtility.class);
+    private final MetarExpiryPolicy metarExpiryPolicy = mock(MetarExpiryPolicy.class);
+    private final MetarCacheWarmer warmer = new MetarCacheWarmer();
+
+    @BeforeEach
+    void setUp() {
+        WeatherServiceUtility.drainWeatherAccessCounts();
+        ReflectionTestUtils.setField(warmer, "weatherService", weatherService);
+        ReflectionTestUtils.setField(warmer, "utility", utility);
+        ReflectionTestUtils.setField(warmer, "metarExpiryPolicy", metarExpiryPolicy);
+        ReflectionTestUtils.setField(warmer, "metarBulkIngestor", mock(MetarBulkIngestor.class));
+        ReflectionTestUtils.setField(warmer, "configuredAirports", List.of(" kjfk", ""));
+        ReflectionTestUtils.setField(warmer, "learnedSize", 2);
+        ReflectionTestUtils.setField(warmer, "refreshAheadMs", 90000L);
+        when(weatherService.refreshAirportWeather(anyList()))
+                .thenAnswer(call -> call.getArgument(0, List.class).size());
+    }
+
+    @Test
+    void refreshesConfiguredAndMostRequestedAirports() {
+        record("KWRA", 5);
+        record("KWRB", 3);
+        record("KWRC", 1);
+        warmer.refreshHotAirports();
+
+        verify(weatherService).refreshAirportWeather(List.of("KJFK", "KWRA", "KWRB"));
+    }
+
+    @Test
+    void refreshesCachedAirportsOnlyWithinRefreshAheadWindow() {
+        record("KWRD", 1);
+        warmer.refreshHotAirports();
+        AirportWeatherResponse cached = new AirportWeatherResponse(null);
+        long now = System.currentTimeMillis();
+
+        when(utility.getWeatherCache("KWRD")).thenReturn(cached);
+        when(metarExpiryPolicy.expiresAtMillis(cached)).thenReturn(now + 3600000);
+
+        assertEquals(List.of("KJFK"), warmer.getDueAirports(now));
+        assertEquals(List.of("KJFK", "KWRD"), warmer.getDueAirports(now + 3600000 - 90000));
+    }
+
+    @Test
+    void forgetsAirportsThatAreNoLongerRequested() {
+        record("KWRE", 3);
+        assertEquals(List.of("KJFK", "KWRE"), List.copyOf(warmer.computeHotAirports()));
+        warmer.computeHotAirports();
+        warmer.computeHotAirports();
+
+        assertEquals(List.of("KJFK"), List.copyOf(warmer.computeHotAirports()));
+    }
+
+    private static void record(String icao, int requests) {
+        for (int i = 0; i < requests; i++)
+            WeatherServiceUtility.recordWeatherAccess(icao);
+    }
+}
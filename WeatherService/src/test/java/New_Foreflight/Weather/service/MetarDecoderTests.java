@@ -0,0 +1,73 @@
+package New_Foreflight.Weather.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+
+import New_Foreflight.Weather.dto.FlightCategory;
+import New_Foreflight.Weather.dto.MetarComponentsView;
+import New_Foreflight.Weather.dto.MetarObservation;
+
+class MetarDecoderTests {
+
+    private static String fixture(String name) throws IOException {
+        return new ClassPathResource("fixtures/" + name).getContentAsString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void decodesEveryComponentInOnePass() throws IOException {
+        MetarObservation observation = MetarDecoder.decode(fixture("checkwx-metar-klax.json"));
+
+        assertEquals("KLAX", observation.icao());
+        assertTrue(observation.rawText().startsWith("KLAX 011253Z"));
+        assertEquals(FlightCategory.MVFR, observation.flightCategory());
+        assertEquals(250, observation.windDirectionDegrees());
+        assertEquals(12, observation.windSpeedKts());
+        assertEquals(18, observation.windGustKts());
+        assertEquals(1.5, observation.visibilityMiles());
+        assertEquals(1500, observation.ceilingFeet());
+        assertEquals(17, observation.temperatureCelsius());
+        assertEquals(13, observation.dewpointCelsius());
+        assertEquals(29.92, observation.altimeterInHg());
+        assertEquals(125, observation.elevationFeet());
+        assertEquals(1748782380L, observation.observedEpochSecond());
+        assertEquals(4.0, observation.dewpointSpreadCelsius());
+        assertEquals(125 + 120 * (17 - (15 - 0.25)), observation.densityAltitudeFeet(), 1e-9);
+    }
+
+    @Test
+    void formatsComponentsLikeTheReportedValues() throws IOException {
+        HashMap<String, Object> components = MetarComponentsView
+                .of(MetarDecoder.decode(fixture("checkwx-metar-klax.json")));
+
+        assertEquals("250 at 12-18 kts", components.get("wind"));
+        assertEquals("1 1/2 SM", components.get("visibility"));
+        assertEquals("63 degrees F, 17 degrees C", components.get("temperature"));
+        assertEquals("hg: 29.92", components.get("barometer"));
+        assertEquals("77 %", components.get("humidity"));
+        assertEquals("125", components.get("elevation"));
+        List<?> clouds = assertInstanceOf(List.class, components.get("clouds"));
+        Map<?, ?> cloud = assertInstanceOf(Map.class, clouds.get(0));
+
+        assertEquals(List.of("code", "feet"), List.copyOf(cloud.keySet()));
+    }
+
+    @Test
+    void toleratesMissingComponents() {
+        MetarObservation observation = MetarDecoder
+                .decode("{\"results\":1,\"data\":[{\"icao\":\"KXYZ\",\"raw_text\":\"KXYZ AUTO\",\"wind\":null}]}");
+
+        assertEquals(FlightCategory.UNKNOWN, observation.flightCategory());
+        assertTrue(Double.isNaN(observation.visibilityMiles()));
+        assertTrue(MetarComponentsView.of(observation).isEmpty());
+    }
+}
@@ -0,0 +1,81 @@
+package New_Foreflight.Weather.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import New_Foreflight.Weather.dto.AirportWeatherResponse;
+import New_Foreflight.Weather.dto.FlightCategory;
+import New_Foreflight.Weather.dto.MetarObservation;
+
+class MetarExpiryPolicyTests {
+
+    private final MetarExpiryPolicy policy = new MetarExpiryPolicy();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(policy, "issuanceGraceMs", 300000L);
+        ReflectionTestUtils.setField(policy, "minTtlMs", 60000L);
+        ReflectionTestUtils.setField(policy, "maxTtlMs", 4500000L);
+        ReflectionTestUtils.setField(policy, "fallbackTtlMs", 300000L);
+    }
+
+    @Test
+    void expiresAfterNextRoutineReport() {
+        MetarObservation routine = observation("METAR KJFK", "2025-03-01T12:51:00Z");
+
+        policy.record(routine);
+
+        assertEquals(millis("2025-03-01T13:51:00Z"), policy.nextIssuanceMillis(routine));
+        assertEquals(millis("2025-03-01T13:56:00Z"),
+                policy.expiresAtMillis(new AirportWeatherResponse(routine, millis("2025-03-01T12:55:00Z"))));
+    }
+
+    @Test
+    void expectsRoutineReportShortlyAfterSpeci() {
+        policy.record(observation("KJFK", "2025-03-01T12:51:00Z"));
+        MetarObservation speci = observation("SPECI KJFK", "2025-03-01T13:37:00Z");
+
+        policy.record(speci);
+
+        assertEquals(millis("2025-03-01T13:51:00Z"), policy.nextIssuanceMillis(speci));
+        // A report a minute off the learned minute is the routine one.
+        assertEquals(millis("2025-03-01T14:51:00Z"),
+                policy.nextIssuanceMillis(observation("KJFK", "2025-03-01T13:52:00Z")));
+    }
+
+    @Test
+    void relearnsReportingMinuteSeenTwice() {
+        policy.record(observation("KJFK", "2025-03-01T12:20:00Z"));
+        policy.record(observation("KJFK", "2025-03-01T12:51:00Z"));
+        MetarObservation first = observation("KJFK", "2025-03-01T13:05:00Z");
+
+        assertEquals(millis("2025-03-01T13:20:00Z"), policy.nextIssuanceMillis(first));
+        policy.record(observation("KJFK", "2025-03-01T13:51:00Z"));
+
+        assertEquals(millis("2025-03-01T13:51:00Z"), policy.nextIssuanceMillis(first));
+    }
+
+    @Test
+    void boundsTimeToLive() {
+        MetarObservation overdue = observation("KJFK", "2025-03-01T10:51:00Z");
+        long fetchedAt = millis("2025-03-01T12:58:00Z");
+
+        assertEquals(fetchedAt + 60000, policy.expiresAtMillis(new AirportWeatherResponse(overdue, fetchedAt)));
+        assertEquals(fetchedAt + 300000, policy.expiresAtMillis(new AirportWeatherResponse(null, fetchedAt)));
+    }
+
+    private static MetarObservation observation(String rawText, String observed) {
+        return new MetarObservation("KJFK", rawText, Instant.parse(observed).getEpochSecond(), FlightCategory.VFR, 0, 0,
+                MetarObservation.MISSING, 10, List.of(), 15, 59, 10, 50, 29.92, Double.NaN, 13);
+    }
+
+    private static long millis(String instant) {
+        return Instant.parse(instant).toEpochMilli();
+    }
+}
@@ -0,0 +1,83 @@
+package New_Foreflight.Weather.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import New_Foreflight.Weather.dto.Pirep;
+
+class PirepIndexTests {
+
+    // Reports near Denver at 1420Z and 1505Z, one near Chicago at 1450Z, and one across the antimeridian at 1500Z.
+    private static final String CACHE_FILE = """
+            No errors
+            No warnings
+            4 ms
+            data source=aircraftreports
+            5 results
+            receipt_time,observation_time,aircraft_ref,latitude,longitude,altitude_ft_msl,turbulence_type,turbulence_intensity,turbulence_base_ft_msl,turbulence_top_ft_msl,icing_type,icing_intensity,icing_base_ft_msl,icing_top_ft_msl,temp_c,report_type,raw_text
+            2024-05-01T14:22:00Z,2024-05-01T14:20:00Z,B737,39.9,-104.6,17000,CHOP,MOD,16000,18000,,,,,-12,PIREP,DEN UA /OV DEN/TM 1420/FL170/TP B737/TB MOD CHOP 160-180
+            2024-05-01T15:06:00Z,2024-05-01T15:05:00Z,C172,40.1,-105.0,9000,,,,,RIME,LGT,8000,10000,-2,PIREP,DEN UA /OV BJC/TM 1505/FL090/TP C172/IC LGT RIME, TOPS 100
+            2024-05-01T14:51:00Z,2024-05-01T14:50:00Z,E170,41.9,-87.9,11000,,NEG,,,,,,,,PIREP,ORD UA /OV ORD/TM 1450/FL110/TP E170/TB NEG
+            2024-05-01T15:01:00Z,2024-05-01T15:00:00Z,B77W,52.0,179.8,35000,CAT,LGT,,,,,,,-55,AIREP,ARP B77W 5200N17948E 1500 F350
+            2024-05-01T15:02:00Z,,C172,,,,,,,,,,,,,PIREP,UA /OV XXX
+            """;
+    private static final Instant AT_1510Z = Instant.parse("2024-05-01T15:10:00Z");
+
+    @Test
+    void decodesCacheFile() throws IOException {
+        List<Pirep> reports = decode();
+        Pirep chop = reports.get(0);
+        Pirep rime = reports.get(1);
+
+        assertEquals(4, reports.size());
+        assertEquals(Instant.parse("2024-05-01T14:20:00Z"), chop.observedAt());
+        assertEquals(17000, chop.altitudeFeet());
+        assertEquals(new Pirep.Condition("MOD", "CHOP", 16000, 18000), chop.turbulence());
+        assertNull(chop.icing());
+        assertEquals(new Pirep.Condition("LGT", "RIME", 8000, 10000), rime.icing());
+        assertEquals("DEN UA /OV BJC/TM 1505/FL090/TP C172/IC LGT RIME, TOPS 100", rime.rawText());
+        assertEquals("NEG", reports.get(2).turbulence().intensity());
+    }
+
+    @Test
+    void findsReportsWithinRadiusAndAge() throws IOException {
+        PirepIndex index = new PirepIndex(Duration.ofMinutes(15)).withReports(decode(), Instant.EPOCH);
+
+        assertEquals(List.of("C172", "B737"), aircraft(index.within(39.86, -104.67, 30, AT_1510Z.minusSeconds(3600))));
+        assertEquals(List.of("C172"), aircraft(index.within(39.86, -104.67, 30, AT_1510Z.minusSeconds(1800))));
+        assertTrue(index.within(39.86, -104.67, 5, AT_1510Z.minusSeconds(1800)).isEmpty());
+        assertEquals(List.of("B77W"), aircraft(index.within(52.0, -179.9, 20, AT_1510Z.minusSeconds(3600))));
+    }
+
+    @Test
+    void mergesRefreshesAndEvictsOldReports() throws IOException {
+        List<Pirep> reports = decode();
+        PirepIndex index = new PirepIndex(Duration.ofMinutes(15)).withReports(reports.subList(0, 2), Instant.EPOCH);
+
+        index = index.withReports(reports, Instant.EPOCH);
+        assertEquals(4, index.size());
+
+        // Evicting at 1430Z drops the 1420Z report from Denver only.
+        index = index.withReports(List.of(), Instant.parse("2024-05-01T14:30:00Z"));
+        assertEquals(3, index.size());
+        assertEquals(List.of("C172"), aircraft(index.within(39.86, -104.67, 30, Instant.EPOCH)));
+    }
+
+    private static List<Pirep> decode() throws IOException {
+        return PirepStore.decode(new ByteArrayInputStream(CACHE_FILE.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static List<String> aircraft(List<Pirep> reports) {
+        return reports.stream().map(Pirep::aircraftType).toList();
+    }
+}
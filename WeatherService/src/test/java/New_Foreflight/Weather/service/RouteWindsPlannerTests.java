@@ -0,0 +1,108 @@
+package New_Foreflight.Weather.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import New_Foreflight.Weather.database.AirportLookupTable;
+import New_Foreflight.Weather.database.AirportNode;
+import New_Foreflight.Weather.database.AirportSpatialIndex;
+import New_Foreflight.Weather.dto.RouteWindsRequest;
+import New_Foreflight.Weather.dto.RouteWindsRequest.Waypoint;
+import New_Foreflight.Weather.dto.RouteWindsResponse;
+
+class RouteWindsPlannerTests {
+
+    // A uniform 30 knot westerly at every level.
+    private static final String BULLETIN = String.join("\n",
+            "FT  3000    6000    9000   12000   18000   24000  30000  34000  39000",
+            "ABI 2730 2730+10 2730+05 2730+00 2730-10 2730-20 273030 273040 273050",
+            "ABQ 2730 2730+10 2730+05 2730+00 2730-10 2730-20 273030 273040 273050");
+
+    private final RouteWindsPlanner planner = new RouteWindsPlanner();
+    private final WindsAloftGrid grid = WindsAloftGrid.parse(BULLETIN);
+
+    @BeforeEach
+    void setUp() {
+        AirportSpatialIndex index = new AirportSpatialIndex();
+        WindsAloftInterpolator interpolator = new WindsAloftInterpolator();
+
+        ReflectionTestUtils.setField(index, "airportLookupTable", mock(AirportLookupTable.class));
+        index.rebuild(List.of(new AirportNode("KABI", "KABI", "Abilene", 32.411, -99.682, 1, true),
+                new AirportNode("KABQ", "KABQ", "Albuquerque", 35.040, -106.609, 1, true)));
+        ReflectionTestUtils.setField(interpolator, "airportSpatialIndex", index);
+        ReflectionTestUtils.setField(interpolator, "neighbours", 2);
+        ReflectionTestUtils.setField(interpolator, "power", 2.0);
+        ReflectionTestUtils.setField(planner, "windsAloftInterpolator", interpolator);
+        ReflectionTestUtils.setField(planner, "defaultSpacingNm", 10.0);
+        ReflectionTestUtils.setField(planner, "maxSegments", 5000);
+    }
+
+    @Test
+    void tailwindShortensEasterlyRoute() {
+        RouteWindsResponse response = planner.plan(grid, cruise(List.of(point(35, -106), point(35, -100)), 9000));
+        double distance = RouteWindsPlanner.distanceNm(point(35, -106), point(35, -100));
+
+        assertEquals(distance, response.distanceNm(), 0.1);
+        assertEquals(Math.ceil(distance / 10), response.segments().size());
+        assertEquals(distance / 120 * 60, response.noWindEteMinutes(), 0.1);
+        assertEquals(distance / 150 * 60, response.eteMinutes(), 1);
+        assertEquals(-30, response.averageHeadwindKts(), 0.5);
+        response.segments().forEach(segment -> assertEquals(9000, segment.altitudeFeet()));
+    }
+
+    @Test
+    void resolvesCrosswindOnNortherlyRoute() {
+        RouteWindsResponse response = planner.plan(grid, cruise(List.of(point(33, -103), point(35, -103)), 12000));
+        RouteWindsResponse.Segment segment = response.segments().get(0);
+
+        assertEquals(0, segment.courseDegrees(), 0.1);
+        assertEquals(0, segment.headwindKts(), 0.1);
+        // A westerly blows from the left of a northbound course, so the heading is left of the course.
+        assertEquals(-30, segment.crosswindKts(), 0.1);
+        assertEquals(360 - Math.toDegrees(Math.asin(30.0 / 120)), segment.headingDegrees(), 0.1);
+        assertEquals(120 * Math.cos(Math.asin(30.0 / 120)), segment.groundspeedKts(), 0.1);
+    }
+
+    @Test
+    void followsClimbCruiseDescentProfile() {
+        RouteWindsRequest request = new RouteWindsRequest(List.of(point(35, -106), point(35, -100)), 120, 9000, 5.0,
+                1000, 2000, 500.0, 500.0, 90.0, null);
+        List<RouteWindsResponse.Segment> segments = planner.plan(grid, request).segments();
+
+        assertTrue(segments.get(0).altitudeFeet() < 2000);
+        assertEquals(90, segments.get(0).trueAirspeedKts());
+        assertEquals(9000, segments.get(segments.size() / 2).altitudeFeet());
+        assertTrue(segments.get(segments.size() - 1).altitudeFeet() < 3000);
+        assertEquals(120, segments.get(segments.size() - 1).trueAirspeedKts());
+
+        for (int i = 1; i < segments.size() / 2; i++)
+            assertTrue(segments.get(i).altitudeFeet() >= segments.get(i - 1).altitudeFeet());
+    }
+
+    @Test
+    void rejectsInvalidRoutes() {
+        assertThrows(IllegalArgumentException.class, () -> planner.plan(grid, cruise(List.of(point(35, -106)), 9000)));
+        assertThrows(IllegalArgumentException.class,
+                () -> planner.plan(grid, new RouteWindsRequest(List.of(point(35, -106), point(35, -100)), 120, 9000,
+                        0.001, 0, 0, null, null, null, null)));
+        assertThrows(IllegalArgumentException.class,
+                () -> planner.plan(grid, new RouteWindsRequest(List.of(point(33, -103), point(35, -103)), 25, 9000,
+                        null, 0, 0, null, null, null, null)));
+    }
+
+    private static RouteWindsRequest cruise(List<Waypoint> waypoints, int altitude) {
+        return new RouteWindsRequest(waypoints, 120, altitude, null, 0, 0, null, null, null, null);
+    }
+
+    private static Waypoint point(double latitude, double longitude) {
+        return new Waypoint(latitude, longitude);
+    }
+}
@@ -0,0 +1,96 @@
+package New_Foreflight.Weather.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestTemplate;
+
+import New_Foreflight.Weather.database.AirportLookupTable;
+import New_Foreflight.Weather.database.AirportNode;
+import New_Foreflight.Weather.database.AirportRepository;
+import New_Foreflight.Weather.dto.AirportWeatherResponse;
+import New_Foreflight.Weather.dto.BatchWeatherResponse;
+
+class WeatherServiceImplTests {
+
+    private final WeatherServiceImpl weatherService = new WeatherServiceImpl();
+    private final AirportRepository airportRepository = mock(AirportRepository.class);
+    private final AirportLookupTable airportLookupTable = new AirportLookupTable();
+    private final WeatherServiceUtility utility = mock(WeatherServiceUtility.class);
+    private final RestTemplate restTemplate = mock(RestTemplate.class);
+    private final ExecutorService upstreamExecutor = Executors.newFixedThreadPool(4);
+
+    @BeforeEach
+    void setUp() {
+        WeatherServiceUtility.drainWeatherAccessCounts();
+        ReflectionTestUtils.setField(airportLookupTable, "airportRepository", airportRepository);
+        ReflectionTestUtils.setField(weatherService, "airportLookupTable", airportLookupTable);
+        ReflectionTestUtils.setField(weatherService, "utility", utility);
+        ReflectionTestUtils.setField(weatherService, "metarBulkIngestor", mock(MetarBulkIngestor.class));
+        ReflectionTestUtils.setField(weatherService, "restTemplate", restTemplate);
+        ReflectionTestUtils.setField(weatherService, "upstreamExecutor", upstreamExecutor);
+        ReflectionTestUtils.setField(weatherService, "batchMaxStations", 20);
+        ReflectionTestUtils.setField(weatherService, "weatherApiUrl", "https://checkwx.test/metar/{station}/decoded");
+        ReflectionTestUtils.setField(weatherService, "weatherApiKey", "key");
+        when(airportRepository.findAll()).thenReturn(List.of(airport("KLAX"), airport("KSFO")));
+        when(restTemplate.getForObject(anyString(), eq(String.class))).thenReturn("{\"results\":0,\"data\":[]}");
+        when(utility.getAirportWeather(anyString())).thenReturn(new AirportWeatherResponse(null));
+    }
+
+    @AfterEach
+    void tearDown() {
+        upstreamExecutor.shutdownNow();
+    }
+
+    @Test
+    void countsNormalizedCodesOfKnownAirportsOnly() {
+        airportLookupTable.reload();
+        weatherService.getAirportWeather(" klax ");
+
+        assertThrows(IllegalArgumentException.class, () -> weatherService.getAirportWeather("KLAX,KJFK"));
+        assertEquals(Map.of("KLAX", 1L), WeatherServiceUtility.drainWeatherAccessCounts());
+        verify(utility, never()).getAirportWeather("KLAX,KJFK");
+    }
+
+    @Test
+    void batchCountsEachStationOnceAndRejectsUnknownCodes() {
+        airportLookupTable.reload();
+        BatchWeatherResponse response = weatherService
+                .getAirportWeatherBatch(List.of("klax", " KLAX", "KSFO", "ksfo,KJFK", "XXXX"));
+
+        assertEquals(List.of("KLAX", "KSFO"), List.copyOf(response.getResults().keySet()));
+        assertEquals(Map.of("KSFO,KJFK", "Airport not found", "XXXX", "Airport not found"), response.getErrors());
+        // The stations missing from the group response are retried on their own without being counted again.
+        assertEquals(Map.of("KLAX", 1L, "KSFO", 1L), WeatherServiceUtility.drainWeatherAccessCounts());
+        verify(restTemplate).getForObject("https://checkwx.test/metar/KLAX,KSFO/decoded", String.class);
+    }
+
+    @Test
+    void servesWellFormedCodesWithoutTheAirportTable() {
+        when(airportRepository.findAll()).thenThrow(new IllegalStateException("Neo4j unavailable"));
+        BatchWeatherResponse response = weatherService.getAirportWeatherBatch(List.of("kjfk", "KLAX,KJFK", "K"));
+
+        assertEquals(List.of("KJFK"), List.copyOf(response.getResults().keySet()));
+        assertEquals(Map.of("KLAX,KJFK", "Airport not found", "K", "Airport not found"), response.getErrors());
+        verify(airportRepository, never()).findByIcao(anyString());
+    }
+
+    private static AirportNode airport(String icao) {
+        return new AirportNode(icao, icao, icao, 0, 0, 0, false);
+    }
+}
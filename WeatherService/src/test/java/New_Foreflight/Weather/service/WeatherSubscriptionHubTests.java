@@ -0,0 +1,119 @@
+package New_Foreflight.Weather.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.google.common.util.concurrent.MoreExecutors;
+
+import New_Foreflight.Weather.dto.AirportWeatherResponse;
+import New_Foreflight.Weather.dto.FlightCategory;
+import New_Foreflight.Weather.dto.MetarObservation;
+
+class WeatherSubscriptionHubTests {
+
+    private final WeatherService weatherService = mock(WeatherService.class);
+    private final WeatherSubscriptionHub hub = new WeatherSubscriptionHub();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(hub, "weatherService", weatherService);
+        ReflectionTestUtils.setField(hub, "upstreamExecutor", MoreExecutors.newDirectExecutorService());
+        ReflectionTestUtils.setField(hub, "maxAirports", 2);
+        when(weatherService.isKnownStation("KLAX")).thenReturn(true);
+        when(weatherService.isKnownStation("KJFK")).thenReturn(true);
+    }
+
+    @Test
+    void pushesOnlyChangedMetarsWithOneRefreshPerStation() {
+        when(weatherService.getAirportWeather("KLAX"))
+                .thenReturn(weather("KLAX 011253Z 25012KT 10SM FEW020", FlightCategory.VFR))
+                .thenReturn(weather("KLAX 011253Z 25012KT 10SM FEW020", FlightCategory.VFR))
+                .thenReturn(weather("KLAX 011353Z 25012KT 2SM BR OVC008", FlightCategory.IFR));
+        RecordingEmitter first = new RecordingEmitter();
+        RecordingEmitter second = new RecordingEmitter();
+
+        hub.subscribe(List.of("klax"), first);
+        hub.subscribe(List.of("KLAX"), second);
+        assertEquals(List.of("metar"), first.events);
+        assertEquals(List.of("metar"), second.events);
+
+        hub.refreshAll();
+        hub.refreshAll();
+        assertEquals(List.of("metar", "metar", "flight-category"), first.events);
+        assertEquals(List.of("metar", "metar", "flight-category"), second.events);
+        verify(weatherService, times(3)).getAirportWeather("KLAX");
+    }
+
+    @Test
+    void dropsSubscribersThatHaveGoneAway() {
+        when(weatherService.getAirportWeather("KJFK"))
+                .thenReturn(weather("KJFK 011251Z 31012KT 10SM FEW250", FlightCategory.VFR));
+        RecordingEmitter gone = new RecordingEmitter();
+
+        hub.subscribe(List.of("KJFK"), gone);
+        gone.failing = true;
+        hub.refreshAll();
+
+        assertEquals(0, hub.getSubscriptionCount());
+        assertEquals(0, hub.getStationCount());
+        assertThrows(IllegalArgumentException.class, () -> hub.subscribe(List.of("KJFK", "KLAX", "KSFO")));
+    }
+
+    @Test
+    void rejectsUnknownAirportsBeforeSubscribing() {
+        assertThrows(IllegalArgumentException.class,
+                () -> hub.subscribe(List.of("klax", "XXXX"), new RecordingEmitter()));
+
+        assertEquals(0, hub.getSubscriptionCount());
+        assertEquals(0, hub.getStationCount());
+        verify(weatherService, never()).getAirportWeather(anyString());
+    }
+
+    private static AirportWeatherResponse weather(String rawText, FlightCategory category) {
+        return new AirportWeatherResponse(new MetarObservation(rawText.substring(0, 4), rawText, 1748782380L, category,
+                250, 12, MetarObservation.MISSING, 10, List.of(), 17, 63, 12, 54, 29.92, 70, 125));
+    }
+
+    /**
+     * Records the names of the events sent, and checks that their data serializes.
+     */
+    private static final class RecordingEmitter extends SseEmitter {
+
+        private final List<String> events = new ArrayList<>();
+        private boolean failing;
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            if (failing)
+                throw new IOException("Broken pipe");
+            Set<DataWithMediaType> parts = builder.build();
+            String name = null;
+
+            for (DataWithMediaType part : parts) {
+                if (part.getData() instanceof String text && text.startsWith("event:"))
+                    name = text.substring("event:".length(), text.indexOf('\n'));
+                else if (part.getMediaType() != null)
+                    Jackson2ObjectMapperBuilder.json().build().writeValueAsString(part.getData());
+            }
+            if (name != null)
+                events.add(name);
+        }
+    }
+}
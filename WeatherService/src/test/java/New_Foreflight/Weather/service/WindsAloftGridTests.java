@@ -0,0 +1,122 @@
+package New_Foreflight.Weather.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+
+class WindsAloftGridTests {
+
+    private String bulletin;
+    private WindsAloftGrid grid;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        bulletin = new ClassPathResource("fixtures/fb-winds-aloft.txt").getContentAsString(StandardCharsets.UTF_8);
+        grid = WindsAloftGrid.parse(bulletin);
+    }
+
+    @Test
+    void readsStationsAndLevelsFromHeader() {
+        assertEquals(4, grid.stationCount());
+        assertEquals(9, grid.levelCount());
+        assertEquals(3000, grid.altitude(0));
+        assertEquals(39000, grid.altitude(8));
+        assertEquals(2, grid.stationOrdinal("KBOS"));
+        assertEquals(-1, grid.stationOrdinal("KXXX"));
+        assertEquals(4, grid.nearestLevel(17000));
+    }
+
+    @Test
+    void decodesWindsAndTemperatures() {
+        int abilene = grid.stationOrdinal("KABI");
+        int boston = grid.stationOrdinal("KBOS");
+        int denver = grid.stationOrdinal("KDEN");
+
+        assertEquals(WindsAloftGrid.MISSING, grid.direction(abilene, 0));
+        assertEquals(230, grid.direction(abilene, 1));
+        assertEquals(12, grid.speed(abilene, 1));
+        assertEquals(14, grid.temperature(abilene, 1));
+        assertEquals(-24, grid.temperature(abilene, 5));
+        assertEquals(-39, grid.temperature(abilene, 6));
+
+        assertEquals(WindsAloftGrid.LIGHT_AND_VARIABLE, grid.direction(boston, 0));
+        assertEquals(WindsAloftGrid.MISSING, grid.temperature(boston, 0));
+        assertEquals(270, grid.direction(boston, 5));
+        assertEquals(105, grid.speed(boston, 5));
+        assertEquals(-29, grid.temperature(boston, 5));
+        assertEquals(250, grid.direction(boston, 6));
+        assertEquals(111, grid.speed(boston, 6));
+
+        assertEquals(270, grid.direction(denver, 7));
+        assertEquals(WindsAloftGrid.MAX_SPEED_KTS, grid.speed(denver, 7));
+        assertEquals(-50, grid.temperature(denver, 7));
+    }
+
+    @Test
+    void decodesZeroDegreeTemperature() throws IOException {
+        short[] directions = new short[1];
+        short[] speeds = new short[1];
+        byte[] temperatures = new byte[1];
+
+        WindsAloftGrid.decode("2827+00", 9000, directions, speeds, temperatures, 0);
+        assertEquals(280, directions[0]);
+        assertEquals(27, speeds[0]);
+        assertEquals(0, temperatures[0]);
+
+        WindsAloftGrid conus = WindsAloftGrid.parse(
+                new ClassPathResource("fixtures/fb-winds-aloft-conus.txt").getContentAsString(StandardCharsets.UTF_8));
+        int amarillo = conus.stationOrdinal("KAMA");
+
+        assertEquals(0, conus.temperature(amarillo, 2));
+        assertEquals("2827+00", conus.code(amarillo, 2));
+        assertEquals(0, conus.temperature(conus.stationOrdinal("KGRB"), 1));
+    }
+
+    @Test
+    void reencodesOriginalCodes() {
+        for (String line : bulletin.split("\n")) {
+            if (!line.startsWith("BOS ") && !line.startsWith("DEN "))
+                continue;
+            int station = grid.stationOrdinal("K" + line.substring(0, 3));
+            String[] codes = line.substring(4).trim().split("\\s+");
+            int firstLevel = grid.levelCount() - codes.length;
+
+            for (int level = 0; level < grid.levelCount(); level++)
+                assertEquals(level < firstLevel ? "N/A" : codes[level - firstLevel], grid.code(station, level));
+        }
+    }
+
+    @Test
+    void readsIssuanceHeader() {
+        WindsAloftGrid issued = WindsAloftGrid.parse(bulletin, Instant.parse("2025-03-01T14:05:00Z"));
+
+        assertEquals(Instant.parse("2025-03-01T12:00:00Z"), issued.basedOn());
+        assertEquals(Instant.parse("2025-03-01T18:00:00Z"), issued.validAt());
+        assertEquals(Instant.parse("2025-03-01T14:00:00Z"), issued.useFrom());
+        assertEquals(Instant.parse("2025-03-01T21:00:00Z"), issued.useTo());
+        assertNull(WindsAloftGrid.parse(bulletin.substring(bulletin.indexOf("FT "))).basedOn());
+    }
+
+    @Test
+    void placesHeaderTimesAcrossMonthAndDayBoundaries() {
+        String header = "DATA BASED ON 311800Z\nVALID 010000Z   FOR USE 2000-0300Z. TEMPS NEG ABV 24000\n";
+        WindsAloftGrid issued = WindsAloftGrid.parse(header + "FT  3000\nABI 2730",
+                Instant.parse("2025-02-01T00:30:00Z"));
+
+        assertEquals(Instant.parse("2025-01-31T18:00:00Z"), issued.basedOn());
+        assertEquals(Instant.parse("2025-02-01T00:00:00Z"), issued.validAt());
+        assertEquals(Instant.parse("2025-01-31T20:00:00Z"), issued.useFrom());
+        assertEquals(Instant.parse("2025-02-01T03:00:00Z"), issued.useTo());
+        assertTrue(issued.isNewerThan(WindsAloftGrid.parse(bulletin, Instant.parse("2025-01-01T14:00:00Z"))));
+        assertFalse(issued.isNewerThan(issued));
+    }
+}
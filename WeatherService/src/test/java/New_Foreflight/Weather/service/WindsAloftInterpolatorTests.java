@@ -0,0 +1,108 @@
+package New_Foreflight.Weather.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import New_Foreflight.Weather.database.AirportLookupTable;
+import New_Foreflight.Weather.database.AirportNode;
+import New_Foreflight.Weather.database.AirportSpatialIndex;
+import New_Foreflight.Weather.dto.WindsAloftSample;
+
+class WindsAloftInterpolatorTests {
+
+    private static final double ABI_LATITUDE = 32.411, ABI_LONGITUDE = -99.682;
+    private static final double ABQ_LATITUDE = 35.040, ABQ_LONGITUDE = -106.609;
+
+    private final WindsAloftInterpolator interpolator = new WindsAloftInterpolator();
+    private WindsAloftGrid grid;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        AirportSpatialIndex index = new AirportSpatialIndex();
+
+        ReflectionTestUtils.setField(index, "airportLookupTable", mock(AirportLookupTable.class));
+        index.rebuild(List.of(new AirportNode("KABI", "KABI", "Abilene", ABI_LATITUDE, ABI_LONGITUDE, 1, true),
+                new AirportNode("KABQ", "KABQ", "Albuquerque", ABQ_LATITUDE, ABQ_LONGITUDE, 1, true),
+                new AirportNode("KBOS", "KBOS", "Boston", 42.364, -71.005, 1, true),
+                new AirportNode("KDEN", "KDEN", "Denver", 39.862, -104.673, 1, true)));
+        ReflectionTestUtils.setField(interpolator, "airportSpatialIndex", index);
+        ReflectionTestUtils.setField(interpolator, "neighbours", 2);
+        ReflectionTestUtils.setField(interpolator, "power", 2.0);
+        grid = WindsAloftGrid
+                .parse(new ClassPathResource("fixtures/fb-winds-aloft.txt").getContentAsString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void matchesStationAtReportedLevel() {
+        WindsAloftSample sample = interpolator.interpolate(grid, ABI_LATITUDE, ABI_LONGITUDE, 6000);
+
+        assertEquals(230, sample.directionDegrees(), 1e-9);
+        assertEquals(12, sample.speedKts(), 1e-9);
+        assertEquals(14, sample.temperatureCelsius(), 1e-9);
+    }
+
+    @Test
+    void interpolatesBetweenLevels() {
+        // Halfway between 2312+14 at 6000 ft and 2523+08 at 9000 ft.
+        WindsAloftSample sample = interpolator.interpolate(grid, ABI_LATITUDE, ABI_LONGITUDE, 7500);
+        double[] lower = components(230, 12);
+        double[] upper = components(250, 23);
+
+        assertEquals(11, sample.temperatureCelsius(), 1e-9);
+        assertEquals(Math.hypot((lower[0] + upper[0]) / 2, (lower[1] + upper[1]) / 2), sample.speedKts(), 1e-9);
+        assertEquals(WindsAloftInterpolator.directionFrom((lower[0] + upper[0]) / 2, (lower[1] + upper[1]) / 2),
+                sample.directionDegrees(), 1e-9);
+    }
+
+    @Test
+    void holdsLowestReportedLevelBelowIt() {
+        // ABQ reports nothing at 3000 or 6000 ft.
+        WindsAloftSample sample = interpolator.interpolate(grid, ABQ_LATITUDE, ABQ_LONGITUDE, 3000);
+
+        assertEquals(240, sample.directionDegrees(), 1e-9);
+        assertEquals(15, sample.speedKts(), 1e-9);
+        assertEquals(11, sample.temperatureCelsius(), 1e-9);
+    }
+
+    @Test
+    void blendsStationsByInverseDistance() {
+        double latitude = (ABI_LATITUDE + ABQ_LATITUDE) / 2;
+        double longitude = (ABI_LONGITUDE + ABQ_LONGITUDE) / 2;
+        WindsAloftSample sample = interpolator.interpolate(grid, latitude, longitude, 18000);
+
+        // 2549-12 at ABI and 2637-11 at ABQ, nearly equidistant from the midpoint.
+        assertEquals(-11.5, sample.temperatureCelsius(), 0.05);
+        assertEquals(255, sample.directionDegrees(), 1);
+        assertEquals(43, sample.speedKts(), 0.5);
+    }
+
+    @Test
+    void blendsDirectionsAcrossNorth() {
+        double[] west = components(350, 10);
+        double[] east = components(10, 10);
+
+        assertEquals(360, WindsAloftInterpolator.directionFrom(west[0] + east[0], west[1] + east[1]), 1e-9);
+    }
+
+    @Test
+    void returnsNullWithoutStations() {
+        ReflectionTestUtils.setField(interpolator, "neighbours", 0);
+
+        assertNull(interpolator.interpolate(grid, ABI_LATITUDE, ABI_LONGITUDE, 6000));
+    }
+
+    private static double[] components(double direction, double speed) {
+        return new double[] { -speed * Math.sin(Math.toRadians(direction)),
+                -speed * Math.cos(Math.toRadians(direction)) };
+    }
+}
@@ -0,0 +1,185 @@
+package New_Foreflight.Weather.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestTemplate;
+
+import New_Foreflight.Weather.cache.InMemorySharedCacheStore;
+import New_Foreflight.Weather.cache.SharedCacheStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class WindsAloftStoreTests {
+
+    private static final String URL = "http://winds.test/fb";
+    private static final String FIRST = String.join("\n", "FT  3000    6000", "ABI 2730 2730+10");
+    private static final String SECOND = String.join("\n", "FT  3000    6000", "ABI 3120 3120+08");
+    private static final String ISSUED_12Z = String.join("\n", "DATA BASED ON 011200Z",
+            "VALID 011800Z   FOR USE 1400-2100Z. TEMPS NEG ABV 24000", "", FIRST);
+    private static final String ISSUED_18Z = String.join("\n", "DATA BASED ON 011800Z",
+            "VALID 020000Z   FOR USE 2100-0600Z. TEMPS NEG ABV 24000", "", SECOND);
+
+    private final WindsAloftStore store = new WindsAloftStore();
+    private final RestTemplate restTemplate = mock(RestTemplate.class);
+    private final ExecutorService callers = Executors.newFixedThreadPool(16);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(store, "restTemplate", restTemplate);
+        ReflectionTestUtils.setField(store, "windsAloftApiUrl", URL);
+        ReflectionTestUtils.setField(store, "sharedCacheStore", SharedCacheStore.none());
+        ReflectionTestUtils.setField(store, "pollIntervalMs", 300000L);
+        ReflectionTestUtils.setField(store, "meterRegistry", registry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        callers.shutdownNow();
+    }
+
+    @Test
+    void coalescesConcurrentFirstLoads() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+
+        when(restTemplate.exchange(eq(URL), eq(HttpMethod.GET), any(HttpEntity.class), eq(String.class)))
+                .thenAnswer(invocation -> {
+                    release.await(5, TimeUnit.SECONDS);
+                    return ResponseEntity.ok(FIRST);
+                });
+        List<Future<WindsAloftGrid>> grids = new ArrayList<>();
+
+        for (int i = 0; i < 16; i++)
+            grids.add(callers.submit(store::getGrid));
+        Thread.sleep(200);
+        release.countDown();
+        WindsAloftGrid grid = grids.get(0).get(5, TimeUnit.SECONDS);
+
+        for (Future<WindsAloftGrid> other : grids)
+            assertSame(grid, other.get(5, TimeUnit.SECONDS));
+        verify(restTemplate, times(1)).exchange(eq(URL), eq(HttpMethod.GET), any(HttpEntity.class), eq(String.class));
+    }
+
+    @Test
+    void servesPreviousSnapshotDuringRefresh() throws Exception {
+        CountDownLatch fetching = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        when(restTemplate.exchange(eq(URL), eq(HttpMethod.GET), any(HttpEntity.class), eq(String.class)))
+                .thenReturn(ResponseEntity.ok(FIRST)).thenAnswer(invocation -> {
+                    fetching.countDown();
+                    release.await(5, TimeUnit.SECONDS);
+                    return ResponseEntity.ok(SECOND);
+                });
+        WindsAloftGrid previous = store.getGrid();
+        Future<WindsAloftGrid> refresh = callers.submit(() -> store.refresh().join());
+
+        assertTrue(fetching.await(5, TimeUnit.SECONDS));
+        assertSame(previous, store.getGrid());
+        CompletableFuture<WindsAloftGrid> joined = store.refresh();
+
+        release.countDown();
+        WindsAloftGrid next = refresh.get(5, TimeUnit.SECONDS);
+
+        assertSame(next, joined.get(5, TimeUnit.SECONDS));
+        assertSame(next, store.getGrid());
+        assertEquals(310, next.direction(0, 0));
+        verify(restTemplate, times(2)).exchange(eq(URL), eq(HttpMethod.GET), any(HttpEntity.class), eq(String.class));
+    }
+
+    @Test
+    void keepsSnapshotWhenRefreshFails() {
+        when(restTemplate.exchange(eq(URL), eq(HttpMethod.GET), any(HttpEntity.class), eq(String.class)))
+                .thenReturn(ResponseEntity.ok(FIRST)).thenThrow(new IllegalStateException("upstream down"));
+        WindsAloftGrid previous = store.getGrid();
+
+        store.scheduledRefresh();
+        assertSame(previous, store.getGrid());
+        assertEquals(1, registry.get("winds.aloft.fetch").tag("result", "updated").timer().count());
+        assertEquals(1, registry.get("winds.aloft.fetch").tag("result", "error").timer().count());
+    }
+
+    @Test
+    void pollsConditionallyAndSwapsOnlyNewerIssuances() {
+        when(restTemplate.exchange(eq(URL), eq(HttpMethod.GET), any(HttpEntity.class), eq(String.class)))
+                .thenReturn(ResponseEntity.ok().eTag("\"a\"").lastModified(1000).body(ISSUED_12Z))
+                .thenReturn(ResponseEntity.status(HttpStatus.NOT_MODIFIED).build())
+                .thenReturn(ResponseEntity.ok().eTag("\"b\"").body(ISSUED_12Z))
+                .thenReturn(ResponseEntity.ok().eTag("\"c\"").body(ISSUED_18Z));
+        WindsAloftGrid issued12z = store.getGrid();
+
+        store.scheduledRefresh();
+        assertSame(issued12z, store.getGrid());
+        // The same issuance served under a new tag is not swapped in.
+        store.scheduledRefresh();
+        assertSame(issued12z, store.getGrid());
+        store.scheduledRefresh();
+        assertEquals(310, store.getGrid().direction(0, 0));
+        assertTrue(store.getGrid().basedOn().isAfter(issued12z.basedOn()));
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<HttpEntity<?>> requests = ArgumentCaptor.forClass(HttpEntity.class);
+
+        verify(restTemplate, times(4)).exchange(eq(URL), eq(HttpMethod.GET), requests.capture(), eq(String.class));
+        assertTrue(requests.getAllValues().get(0).getHeaders().isEmpty());
+        assertEquals(List.of("\"a\""), requests.getAllValues().get(1).getHeaders().getIfNoneMatch());
+        assertEquals(1000, requests.getAllValues().get(1).getHeaders().getIfModifiedSince());
+        assertEquals(List.of("\"b\""), requests.getAllValues().get(3).getHeaders().getIfNoneMatch());
+    }
+
+    @Test
+    void reportsIssuanceAndAge() {
+        assertNull(store.getIssuance());
+        when(restTemplate.exchange(eq(URL), eq(HttpMethod.GET), any(HttpEntity.class), eq(String.class)))
+                .thenReturn(ResponseEntity.ok(FIRST));
+        store.getGrid();
+
+        assertNull(store.getIssuance().basedOn());
+        assertTrue(store.getIssuance().ageSeconds() < 5);
+    }
+
+    @Test
+    void reusesBulletinFetchedByAnotherReplica() {
+        SharedCacheStore shared = new InMemorySharedCacheStore();
+        WindsAloftStore replica = new WindsAloftStore();
+
+        ReflectionTestUtils.setField(store, "sharedCacheStore", shared);
+        ReflectionTestUtils.setField(replica, "restTemplate", restTemplate);
+        ReflectionTestUtils.setField(replica, "windsAloftApiUrl", URL);
+        ReflectionTestUtils.setField(replica, "sharedCacheStore", shared);
+        ReflectionTestUtils.setField(replica, "pollIntervalMs", 300000L);
+        ReflectionTestUtils.setField(replica, "meterRegistry", registry);
+        when(restTemplate.exchange(eq(URL), eq(HttpMethod.GET), any(HttpEntity.class), eq(String.class)))
+                .thenReturn(ResponseEntity.ok(ISSUED_12Z));
+        store.getGrid();
+
+        assertEquals(store.getGrid().basedOn(), replica.getGrid().basedOn());
+        verify(restTemplate, times(1)).exchange(eq(URL), eq(HttpMethod.GET), any(HttpEntity.class), eq(String.class));
+    }
+}